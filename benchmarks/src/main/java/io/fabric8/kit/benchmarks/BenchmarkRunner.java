@@ -0,0 +1,32 @@
+package io.fabric8.kit.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of the benchmark jar, which runs JMH with the given command line arguments. Unless
+ * given otherwise, results are written as JSON to <code>target/jmh-result.json</code>, so that runs of
+ * different commits can be compared.
+ *
+ * @since 19.10.26
+ */
+public class BenchmarkRunner {
+
+    static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.add("-rf");
+            jmhArgs.add("json");
+        }
+        if (!jmhArgs.contains("-rff")) {
+            jmhArgs.add("-rff");
+            jmhArgs.add(DEFAULT_RESULT_FILE);
+        }
+        Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,123 @@
+package io.fabric8.kit.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.build.maven.assembly.ContextArchiveWriter;
+import io.fabric8.kit.config.image.build.ArchiveCompression;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creation of the build context tar as done by <code>DockerAssemblyManager</code>: the entries are collected
+ * with a plexus tar archiver and written with the {@link ContextArchiveWriter}. The context is a synthetic
+ * tree of the given shape:
+ *
+ * <ul>
+ *   <li><code>many-small</code>: 5000 files of 1 KB in nested directories</li>
+ *   <li><code>mixed</code>: 500 files of 1 to 64 KB and a few jars of 1 to 8 MB</li>
+ *   <li><code>few-large</code>: 4 files of 32 MB</li>
+ * </ul>
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ContextArchiveBenchmark {
+
+    @Param({"many-small", "mixed", "few-large"})
+    public String shape;
+
+    @Param({"none", "gzip"})
+    public String compression;
+
+    private File workDir;
+    private File contextDir;
+    private File archive;
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        workDir = Files.createTempDirectory("kit-context-benchmark").toFile();
+        contextDir = new File(workDir, "context");
+        Random random = new Random(42);
+        switch (shape) {
+            case "many-small":
+                for (int i = 0; i < 5000; i++) {
+                    writeFile(new File(contextDir, "dir" + (i % 50) + "/sub" + (i % 7) + "/file" + i + ".txt"), 1024, random);
+                }
+                break;
+            case "mixed":
+                for (int i = 0; i < 500; i++) {
+                    writeFile(new File(contextDir, "classes/pkg" + (i % 20) + "/Class" + i + ".class"),
+                              1024 + random.nextInt(63 * 1024), random);
+                }
+                for (int i = 0; i < 8; i++) {
+                    writeFile(new File(contextDir, "lib/dependency-" + i + ".jar"), (1 + i) * 1024 * 1024, random);
+                }
+                break;
+            case "few-large":
+                for (int i = 0; i < 4; i++) {
+                    writeFile(new File(contextDir, "data/blob" + i + ".bin"), 32 * 1024 * 1024, random);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        archive = new File(workDir, "docker-build.tar");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() throws IOException {
+        FileUtils.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public File createArchive() throws IOException {
+        TarArchiver archiver = new TarArchiver();
+        DefaultFileSet fileSet = DefaultFileSet.fileSet(contextDir);
+        fileSet.setUsingDefaultExcludes(false);
+        archiver.addFileSet(fileSet);
+        return new ContextArchiveWriter(ArchiveCompression.valueOf(compression))
+            .add(archiver.getResources())
+            .write(archive);
+    }
+
+    private void writeFile(File file, int size, Random random) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        // Half random, half repeated content, so that compression has something to do
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        for (int i = size / 2; i < size; i++) {
+            data[i] = (byte) ('a' + i % 26);
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.fabric8.kit.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.build.service.docker.access.DockerAccess;
+import io.fabric8.kit.build.service.docker.access.DockerAccessException;
+import io.fabric8.kit.build.service.docker.access.fake.FakeDockerDaemon;
+import io.fabric8.kit.build.service.docker.access.fake.FakeDockerDaemon.Operation;
+import io.fabric8.kit.build.service.docker.access.hc.DockerAccessWithHcClient;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end calls through the {@link DockerAccessWithHcClient}, its connection pool and transport against
+ * the in-process {@link FakeDockerDaemon}, with several threads sharing one client. The pull replays the
+ * recording in <code>streams/pull.json</code>, the build uploads a context of 4 MB and replays
+ * <code>streams/build.json</code>.
+ *
+ * Reports throughput and the latency distribution per call.
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class DockerAccessBenchmark {
+
+    private static final String BASE_IMAGE = "fabric8/java-centos-openjdk8-jdk:1.5.1";
+
+    @Param({"tcp", "unix"})
+    public String transport;
+
+    // Latency added by the daemon to each call
+    @Param({"0", "2"})
+    public int latencyMs;
+
+    // Maximum number of pooled connections
+    @Param({"4"})
+    public int maxConnections;
+
+    private File workDir;
+    private File context;
+    private FakeDockerDaemon daemon;
+    private DockerAccess access;
+
+    @Setup(Level.Trial)
+    public void startDaemon() throws IOException {
+        workDir = Files.createTempDirectory("kit-docker-benchmark").toFile();
+        context = new File(workDir, "docker.tar");
+        try (RandomAccessFile file = new RandomAccessFile(context, "rw")) {
+            file.setLength(4 * 1024 * 1024);
+        }
+        daemon = new FakeDockerDaemon()
+            .latency(latencyMs, TimeUnit.MILLISECONDS)
+            .replay(Operation.PULL, getClass().getClassLoader().getResource("streams/pull.json"))
+            .replay(Operation.BUILD, getClass().getClassLoader().getResource("streams/build.json"))
+            .addImage(BASE_IMAGE);
+        String url = "unix".equals(transport) ? daemon.startUnix(new File(workDir, "docker.sock")) : daemon.startTcp();
+        access = new DockerAccessWithHcClient("v" + FakeDockerDaemon.API_VERSION, url, null, maxConnections, new NullLogger());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDaemon() throws IOException {
+        daemon.close();
+        FileUtils.deleteDirectory(workDir);
+    }
+
+    @Benchmark
+    public boolean inspect() throws DockerAccessException {
+        return access.hasImage(BASE_IMAGE);
+    }
+
+    @Benchmark
+    public String pull() throws DockerAccessException {
+        return access.pullImage(BASE_IMAGE, "auth", null);
+    }
+
+    @Benchmark
+    public void build() throws DockerAccessException {
+        access.buildImage("fabric8/benchmark:latest", context, null);
+    }
+}
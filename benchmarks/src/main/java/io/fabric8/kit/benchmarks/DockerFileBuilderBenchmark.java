@@ -0,0 +1,87 @@
+package io.fabric8.kit.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.config.image.build.Arguments;
+import io.fabric8.kit.config.image.build.DockerFileBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dockerfile generation for configurations with a growing number of environment variables, labels,
+ * ports and run commands. The builder is created within the measured method, since generating the
+ * content with optimisation enabled modifies it.
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DockerFileBuilderBenchmark {
+
+    @Param({"5", "50"})
+    public int entries;
+
+    @Param({"false", "true"})
+    public boolean optimise;
+
+    private Map<String, String> env;
+    private Map<String, String> labels;
+    private List<String> ports;
+    private List<String> runCmds;
+    private List<String> volumes;
+
+    @Setup
+    public void setup() {
+        env = new LinkedHashMap<>();
+        labels = new LinkedHashMap<>();
+        ports = new ArrayList<>();
+        runCmds = new ArrayList<>();
+        volumes = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            env.put("VAR_" + i, "value with spaces " + i);
+            labels.put("io.fabric8.label." + i, "label-" + i);
+            ports.add(Integer.toString(8000 + i));
+            runCmds.add("chmod -R g+w /deployments/dir" + i + " && echo \"done " + i + "\"");
+            volumes.add("/var/data/" + i);
+        }
+    }
+
+    @Benchmark
+    public String content() {
+        DockerFileBuilder builder = new DockerFileBuilder()
+            .baseImage("fabric8/java-centos-openjdk8-jdk:1.5.1")
+            .maintainer("dev@example.com")
+            .basedir("/deployments")
+            .workdir("/deployments")
+            .user("1000")
+            .add("maven", "/deployments")
+            .env(env)
+            .labels(labels)
+            .expose(ports)
+            .run(runCmds)
+            .volumes(volumes)
+            .entryPoint(new Arguments("/deployments/run-java.sh"))
+            .cmd(new Arguments("--server.port=8080"));
+        if (optimise) {
+            builder.optimise();
+        }
+        return builder.content();
+    }
+}
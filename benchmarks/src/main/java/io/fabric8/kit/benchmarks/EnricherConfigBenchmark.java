@@ -0,0 +1,91 @@
+package io.fabric8.kit.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.enricher.api.Enricher;
+import io.fabric8.kit.enricher.api.EnrichersConfig;
+import io.fabric8.kit.enricher.api.ProjectContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merging of enricher configurations from a profile and the project, and selecting the enrichers to run
+ * from all discovered ones.
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnricherConfigBenchmark {
+
+    @Param({"10", "100"})
+    public int enricherCount;
+
+    private EnrichersConfig<ProjectContext> profileConfig;
+    private EnrichersConfig<ProjectContext> projectConfig;
+    private EnrichersConfig<ProjectContext> mergedConfig;
+    private List<Enricher<ProjectContext>> enrichers;
+
+    @Setup
+    public void setup() {
+        List<String> profileIncludes = new ArrayList<>();
+        List<String> projectIncludes = new ArrayList<>();
+        Set<String> excludes = new HashSet<>();
+        Map<String, TreeMap<String, String>> profileValues = new HashMap<>();
+        Map<String, TreeMap<String, String>> projectValues = new HashMap<>();
+        enrichers = new ArrayList<>();
+        for (int i = 0; i < enricherCount; i++) {
+            String name = "fmp-enricher-" + i;
+            enrichers.add(new PipelineEnrichers.NamedEnricher(name));
+            profileIncludes.add(name);
+            if (i % 2 == 0) {
+                projectIncludes.add(name);
+            }
+            if (i % 10 == 9) {
+                excludes.add(name);
+            }
+            TreeMap<String, String> values = new TreeMap<>();
+            values.put("name", "value-" + i);
+            values.put("enabled", "true");
+            profileValues.put(name, values);
+            if (i % 3 == 0) {
+                projectValues.put(name, new TreeMap<>(Collections.singletonMap("name", "override-" + i)));
+            }
+        }
+        Collections.reverse(enrichers);
+        profileConfig = new EnrichersConfig<>(profileIncludes, excludes, profileValues);
+        projectConfig = new EnrichersConfig<>(projectIncludes, null, projectValues);
+        mergedConfig = merge();
+    }
+
+    @Benchmark
+    public EnrichersConfig<ProjectContext> merge() {
+        return EnrichersConfig.mergeEnricherConfigs(projectConfig, profileConfig);
+    }
+
+    @Benchmark
+    public List<Enricher<ProjectContext>> filter() {
+        return mergedConfig.filterEnrichers(enrichers);
+    }
+}
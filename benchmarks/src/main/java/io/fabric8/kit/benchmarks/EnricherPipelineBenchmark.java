@@ -0,0 +1,87 @@
+package io.fabric8.kit.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.enricher.api.EnricherManager;
+import io.fabric8.kit.enricher.api.EnrichersConfig;
+import io.fabric8.kit.enricher.api.EnrichmentCache;
+import io.fabric8.kit.enricher.api.Platform;
+import io.fabric8.kit.enricher.api.ProjectContext;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full enricher pipeline of an {@link EnricherManager}, i.e. conversion, creation and enrichment of resource
+ * objects with the enrichers from {@link PipelineEnrichers}. The incremental variant reuses a warmed up
+ * {@link EnrichmentCache}, so it measures the cost of detecting that nothing has changed.
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnricherPipelineBenchmark {
+
+    @Param({"10", "200"})
+    public int itemCount;
+
+    private EnricherManager<ProjectContext> manager;
+    private List<HasMetadata> items;
+    private EnrichmentCache cache;
+
+    @Setup
+    public void setup() {
+        ProjectContext context = new ProjectContext(new Properties(), null, new NullLogger());
+        EnrichersConfig<ProjectContext> config = new EnrichersConfig<>(
+            Arrays.asList("default-configmap", "label", "service-annotation", "configmap-data"),
+            null,
+            Collections.singletonMap("label", new TreeMap<>(Collections.singletonMap("group", "io.fabric8.benchmark"))));
+        manager = new EnricherManager<>(context, config, new String[] { PipelineEnrichers.DESCRIPTOR });
+
+        items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            if (i % 2 == 0) {
+                items.add(new ServiceBuilder().withNewMetadata().withName("service-" + i).endMetadata()
+                                              .withNewSpec().addNewPort().withPort(8080).endPort().endSpec()
+                                              .build());
+            } else {
+                items.add(new ConfigMapBuilder().withNewMetadata().withName("config-" + i).endMetadata()
+                                                .addToData("application.properties", "server.port=8080\n")
+                                                .build());
+            }
+        }
+        cache = new EnrichmentCache();
+        manager.process(Platform.KUBERNETES, items, cache);
+    }
+
+    @Benchmark
+    public List<HasMetadata> process() {
+        return manager.process(Platform.KUBERNETES, items).buildItems();
+    }
+
+    @Benchmark
+    public List<HasMetadata> processIncremental() {
+        return manager.process(Platform.KUBERNETES, items, cache).buildItems();
+    }
+}
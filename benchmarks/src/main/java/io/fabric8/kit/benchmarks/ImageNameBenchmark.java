@@ -0,0 +1,53 @@
+package io.fabric8.kit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.config.image.ImageName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and validation of image names of different shapes
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageNameBenchmark {
+
+    @Param({
+        "busybox",
+        "fabric8/java-centos-openjdk8-jdk:1.5.1",
+        "registry.example.com:5000/team/project/service:1.0.0-SNAPSHOT",
+        "docker.io/library/alpine@sha256:769fddc7cc2f0a1c35abb2f91432e8beecf83916c421420e6a6da9f8975464b6"
+    })
+    public String name;
+
+    @Benchmark
+    public ImageName create() {
+        return new ImageName(name);
+    }
+
+    @Benchmark
+    public String createAndFormat() {
+        return new ImageName(name).getFullName("other.example.com");
+    }
+
+    @Benchmark
+    public String validate() {
+        ImageName.validate(name);
+        return name;
+    }
+}
@@ -0,0 +1,75 @@
+package io.fabric8.kit.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.build.service.docker.access.chunked.BuildJsonResponseHandler;
+import io.fabric8.kit.build.service.docker.access.chunked.EntityStreamReaderUtil;
+import io.fabric8.kit.build.service.docker.access.chunked.PullOrPushResponseJsonHandler;
+import io.fabric8.kit.common.KitLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Processing of the chunked JSON streams which the Docker daemon sends while pulling and building,
+ * replayed from recordings in <code>streams/</code>.
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonStreamBenchmark {
+
+    private final KitLogger log = new NullLogger();
+
+    private byte[] pullStream;
+    private byte[] buildStream;
+
+    @Setup
+    public void setup() throws IOException {
+        pullStream = readResource("streams/pull.json");
+        buildStream = readResource("streams/build.json");
+    }
+
+    @Benchmark
+    public String pull() throws IOException {
+        PullOrPushResponseJsonHandler handler = new PullOrPushResponseJsonHandler(log);
+        EntityStreamReaderUtil.processJsonStream(handler, new ByteArrayInputStream(pullStream));
+        return handler.getDigest();
+    }
+
+    @Benchmark
+    public void build() throws IOException {
+        EntityStreamReaderUtil.processJsonStream(new BuildJsonResponseHandler(log), new ByteArrayInputStream(buildStream));
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(name)) {
+            if (is == null) {
+                throw new IOException("No recorded stream " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
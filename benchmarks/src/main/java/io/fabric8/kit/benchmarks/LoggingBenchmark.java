@@ -0,0 +1,72 @@
+package io.fabric8.kit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.common.AnsiLoggerFacade;
+import io.fabric8.kit.common.KitLogger;
+import org.fusesource.jansi.Ansi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Messages per second formatted by the {@link AnsiLoggerFacade}, with and without ANSI color codes.
+ * The formatted messages go to a logger which discards them.
+ *
+ * @since 19.10.26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean ansi;
+
+    private KitLogger logger;
+    private KitLogger disabledLogger;
+
+    @Setup
+    public void setup() {
+        logger = new AnsiLoggerFacade(new NullLogger(), ansi, false);
+        disabledLogger = new AnsiLoggerFacade(new NullLogger() {
+            @Override
+            public boolean isInfoEnabled() {
+                return false;
+            }
+        }, ansi, false);
+        // The facade switches ANSI off without a console, the setting is per thread
+        Ansi.setEnabled(ansi);
+    }
+
+    @Benchmark
+    public void plain() {
+        logger.info("Building tar: /home/user/project/target/docker/build.tar");
+    }
+
+    @Benchmark
+    public void parameters() {
+        logger.info("%s: Created %s in %s", "demo:latest", "docker-build.tar", "1 second");
+    }
+
+    @Benchmark
+    public void emphasis() {
+        logger.info("Pushed [[C]]%s[[C]] in [[*]]%d ms[[*]]", "registry.example.com/team/demo:1.0", 1234);
+    }
+
+    @Benchmark
+    public void disabled() {
+        disabledLogger.info("Pushed [[C]]%s[[C]] in [[*]]%d ms[[*]]", "registry.example.com/team/demo:1.0", 1234);
+    }
+}
@@ -0,0 +1,37 @@
+package io.fabric8.kit.benchmarks;
+
+import io.fabric8.kit.common.KitLogger;
+
+/**
+ * Logger discarding everything, so that benchmarks don't measure console output
+ *
+ * @since 19.10.26
+ */
+class NullLogger implements KitLogger {
+
+    @Override
+    public void debug(String format, Object... params) {
+    }
+
+    @Override
+    public void info(String format, Object... params) {
+    }
+
+    @Override
+    public void warn(String format, Object... params) {
+    }
+
+    @Override
+    public void error(String format, Object... params) {
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,202 @@
+package io.fabric8.kit.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.fabric8.kit.enricher.api.Enricher;
+import io.fabric8.kit.enricher.api.EnricherContext;
+import io.fabric8.kit.enricher.api.Platform;
+import io.fabric8.kit.enricher.api.ProjectContext;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+
+/**
+ * Enrichers used by the benchmarks, doing typical small modifications. They are listed in
+ * <code>META-INF/fabric8/benchmark-enrichers</code> for being discovered by the enricher manager.
+ *
+ * @since 19.10.26
+ */
+public class PipelineEnrichers {
+
+    private PipelineEnrichers() { }
+
+    static final String DESCRIPTOR = "META-INF/fabric8/benchmark-enrichers";
+
+    /**
+     * Enricher which does nothing, only carrying a name
+     */
+    public static class NamedEnricher implements Enricher<ProjectContext> {
+
+        private final String name;
+
+        public NamedEnricher() {
+            this("named");
+        }
+
+        NamedEnricher(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<HasMetadata> convert(Platform platform, EnricherContext<ProjectContext> context, List<HasMetadata> items) {
+            return items;
+        }
+
+        @Override
+        public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+        }
+    }
+
+    /**
+     * Creates a default config map if there is none yet
+     */
+    public static class DefaultConfigMapEnricher extends NamedEnricher {
+
+        public DefaultConfigMapEnricher() {
+            super("default-configmap");
+        }
+
+        @Override
+        public Set<String> getReadKinds() {
+            return Collections.singleton("ConfigMap");
+        }
+
+        @Override
+        public Set<String> getWriteKinds() {
+            return Collections.singleton("ConfigMap");
+        }
+
+        @Override
+        public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+            for (HasMetadata item : builder.buildItems()) {
+                if ("ConfigMap".equals(item.getKind())) {
+                    return;
+                }
+            }
+            builder.addToItems(new ConfigMapBuilder().withNewMetadata().withName("default").endMetadata().build());
+        }
+    }
+
+    /**
+     * Adds the configured labels to every object
+     */
+    public static class LabelEnricher extends NamedEnricher {
+
+        public LabelEnricher() {
+            super("label");
+        }
+
+        @Override
+        public boolean hasGlobalDependencies() {
+            return false;
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+            List<HasMetadata> items = builder.buildItems();
+            for (HasMetadata item : items) {
+                Map<String, String> labels = new HashMap<>();
+                if (item.getMetadata().getLabels() != null) {
+                    labels.putAll(item.getMetadata().getLabels());
+                }
+                labels.put("provider", "fabric8");
+                labels.put("group", context.getConfig().getOrDefault("group", "io.fabric8"));
+                item.getMetadata().setLabels(labels);
+            }
+            builder.withItems(items);
+        }
+    }
+
+    /**
+     * Annotates services with the number of services
+     */
+    public static class ServiceAnnotationEnricher extends NamedEnricher {
+
+        public ServiceAnnotationEnricher() {
+            super("service-annotation");
+        }
+
+        @Override
+        public Set<String> getReadKinds() {
+            return Collections.singleton("Service");
+        }
+
+        @Override
+        public Set<String> getWriteKinds() {
+            return Collections.singleton("Service");
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+            List<HasMetadata> items = builder.buildItems();
+            int services = 0;
+            for (HasMetadata item : items) {
+                if ("Service".equals(item.getKind())) {
+                    services++;
+                }
+            }
+            for (HasMetadata item : items) {
+                if ("Service".equals(item.getKind())) {
+                    item.getMetadata().setAnnotations(Collections.singletonMap("fabric8.io/services", Integer.toString(services)));
+                }
+            }
+            builder.withItems(items);
+        }
+    }
+
+    /**
+     * Adds a data entry to every config map
+     */
+    public static class ConfigMapDataEnricher extends NamedEnricher {
+
+        public ConfigMapDataEnricher() {
+            super("configmap-data");
+        }
+
+        @Override
+        public Set<String> getReadKinds() {
+            return Collections.singleton("ConfigMap");
+        }
+
+        @Override
+        public Set<String> getWriteKinds() {
+            return Collections.singleton("ConfigMap");
+        }
+
+        @Override
+        public boolean hasGlobalDependencies() {
+            return false;
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+            List<HasMetadata> items = builder.buildItems();
+            for (HasMetadata item : items) {
+                if (item instanceof ConfigMap) {
+                    ConfigMap configMap = (ConfigMap) item;
+                    Map<String, String> data = new HashMap<>();
+                    if (configMap.getData() != null) {
+                        data.putAll(configMap.getData());
+                    }
+                    data.put("enriched", "true");
+                    configMap.setData(data);
+                }
+            }
+            builder.withItems(items);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.function.Function;
 
 import io.fabric8.kit.common.KitLogger;
 import io.fabric8.kit.config.image.build.BuildConfiguration;
+import io.fabric8.kit.config.image.build.DockerFile;
 
 
 /**
@@ -25,8 +26,36 @@ public interface BuildContext {
 
     Function<String, String> createInterpolator(String filter);
 
+    /**
+     * Read, interpolate and parse a Dockerfile. Implementations may cache the result so that
+     * all consumers during a build share the same instance.
+     *
+     * @param dockerFile Dockerfile to parse
+     * @param filter filter configuration used for creating the interpolator
+     * @return the parsed Dockerfile
+     * @throws IOException if the Dockerfile can't be read
+     */
+    default DockerFile parseDockerFile(File dockerFile, String filter) throws IOException {
+        return DockerFile.parse(dockerFile, createInterpolator(filter));
+    }
+
     File createImageContentArchive(String imageName, BuildConfiguration buildConfig, KitLogger log) throws IOException;
 
+    /**
+     * Fingerprint the files which would go into the archive created by
+     * {@link #createImageContentArchive(String, BuildConfiguration, KitLogger)}, without creating the archive.
+     *
+     * @param imageName name of the image to build
+     * @param buildConfig build configuration
+     * @param log logger
+     * @return fingerprint of the build inputs or <code>null</code> if they can't be determined, in which case
+     *         an image is always built
+     * @throws IOException if the inputs can't be read
+     */
+    default String createInputFingerprint(String imageName, BuildConfiguration buildConfig, KitLogger log) throws IOException {
+        return null;
+    }
+
     RegistryContext getRegistryContext();
 
     default File inSourceDir(String path) {
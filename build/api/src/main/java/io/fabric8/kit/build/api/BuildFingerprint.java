@@ -0,0 +1,157 @@
+package io.fabric8.kit.build.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import io.fabric8.kit.common.Fingerprints;
+
+/**
+ * SHA-256 fingerprint over the inputs of an image build. Every value is added under a key, so that
+ * moving a value from one setting to another changes the fingerprint, too. Maps are added sorted by key,
+ * so their iteration order doesn't matter.
+ *
+ * @since 19.10.26
+ */
+public class BuildFingerprint {
+
+    private static final Gson GSON = new Gson();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MessageDigest digest = Fingerprints.newSha256();
+
+    /**
+     * Add a value. Maps and collections are added element wise, other objects which are no strings, numbers,
+     * booleans or enums by their JSON representation with sorted members.
+     *
+     * @param key name of the value
+     * @param value value to add, can be null
+     * @return this fingerprint
+     */
+    public BuildFingerprint add(String key, Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            update(key, "map:" + sorted.size());
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                add(key + "." + entry.getKey(), entry.getValue());
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            update(key, "list:" + collection.size());
+            int i = 0;
+            for (Object element : collection) {
+                add(key + "[" + i++ + "]", element);
+            }
+        } else if (value == null) {
+            update(key, "null");
+        } else if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum) {
+            update(key, "value:" + value);
+        } else {
+            update(key, "json:" + canonical(GSON.toJsonTree(value)));
+        }
+        return this;
+    }
+
+    /**
+     * Add a file by its content. The modification time is not taken into account, so that a
+     * rebuilt but otherwise identical file doesn't change the fingerprint.
+     *
+     * @param key name under which the file is added, e.g. its path within the build context
+     * @param file file to add
+     * @return this fingerprint
+     * @throws IOException if the file can't be read
+     */
+    public BuildFingerprint addFile(String key, File file) throws IOException {
+        if (!file.isFile()) {
+            return add(key, "missing");
+        }
+        return add(key, "file:" + hashContent(file));
+    }
+
+    /**
+     * Add a file by its content like {@link #addFile(String, File)}, but take the content's hash from
+     * the given cache if the file hasn't changed since it has been hashed last.
+     *
+     * @param key name under which the file is added
+     * @param file file to add
+     * @param cache cache for the content hashes
+     * @return this fingerprint
+     * @throws IOException if the file can't be read
+     */
+    public BuildFingerprint addFile(String key, File file, FileHashCache cache) throws IOException {
+        if (!file.isFile()) {
+            return add(key, "missing");
+        }
+        return add(key, "file:" + cache.hash(file));
+    }
+
+    /**
+     * @return hex encoded fingerprint over all values added so far
+     */
+    public String hash() {
+        byte[] hash;
+        try {
+            hash = ((MessageDigest) digest.clone()).digest();
+        } catch (CloneNotSupportedException e) {
+            hash = digest.digest();
+        }
+        return "sha256:" + Fingerprints.toHex(hash);
+    }
+
+    // Hex encoded SHA-256 hash of the file's content
+    static String hashContent(File file) throws IOException {
+        MessageDigest fileDigest = Fingerprints.newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                fileDigest.update(buffer, 0, read);
+            }
+        }
+        return Fingerprints.toHex(fileDigest.digest());
+    }
+
+    // JSON with object members sorted by name, e.g. for maps nested in configuration objects
+    private static String canonical(JsonElement element) {
+        if (element.isJsonObject()) {
+            Map<String, JsonElement> sorted = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                sorted.put(entry.getKey(), entry.getValue());
+            }
+            StringBuilder ret = new StringBuilder("{");
+            for (Map.Entry<String, JsonElement> entry : sorted.entrySet()) {
+                ret.append(ret.length() > 1 ? "," : "")
+                   .append(GSON.toJson(entry.getKey())).append(":").append(canonical(entry.getValue()));
+            }
+            return ret.append("}").toString();
+        } else if (element.isJsonArray()) {
+            StringBuilder ret = new StringBuilder("[");
+            for (JsonElement child : element.getAsJsonArray()) {
+                ret.append(ret.length() > 1 ? "," : "").append(canonical(child));
+            }
+            return ret.append("]").toString();
+        }
+        return element.toString();
+    }
+
+    // Length prefixed, so that the boundaries between key and value are unambiguous
+    private void update(String key, String value) {
+        for (String part : new String[] { key, value }) {
+            byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+            digest.update(bytes);
+        }
+    }
+}
@@ -13,4 +13,23 @@ import io.fabric8.kit.config.image.ImageConfiguration;
 public interface BuildService {
     void buildImage(ImageConfiguration imageConfig, BuildContext buildContext, Map<String, String> buildArgs)
         throws IOException;
+
+    /**
+     * Start a session spanning several builds. While a session is open, work which can be done for all
+     * builds at once, like removing images replaced by them, is deferred until the session is closed.
+     * Without an open session every build finishes such work itself.
+     *
+     * @return session which must be closed after all images have been built
+     */
+    default BuildSession startSession() {
+        return () -> { };
+    }
+
+    /**
+     * Session spanning several builds, as started by {@link #startSession()}
+     */
+    interface BuildSession extends AutoCloseable {
+        @Override
+        void close() throws IOException;
+    }
 }
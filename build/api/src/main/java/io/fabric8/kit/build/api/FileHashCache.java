@@ -0,0 +1,72 @@
+package io.fabric8.kit.build.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content hashes of files as used by {@link BuildFingerprint}, which are only computed again when the size
+ * or the modification time of a file has changed. The least recently used entries are dropped when the
+ * maximum number of entries is reached.
+ *
+ * @since 19.10.26
+ */
+public class FileHashCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private static final FileHashCache DEFAULT = new FileHashCache(DEFAULT_MAX_ENTRIES);
+
+    private final Map<String, Entry> entries;
+
+    public FileHashCache(int maxEntries) {
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * @return cache shared by all builds in this JVM
+     */
+    public static FileHashCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the hex encoded SHA-256 hash of a file's content
+     *
+     * @param file file to hash
+     * @return the hash
+     * @throws IOException if the file can't be read
+     */
+    public String hash(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            return entry.hash;
+        }
+        // Not holding the lock while reading the file
+        String hash = BuildFingerprint.hashContent(file);
+        entries.put(path, new Entry(size, lastModified, hash));
+        return hash;
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private Entry(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Optional;
 import java.util.function.Function;
 
 import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.common.KitMetrics;
 
 /**
  * Factory for creating docker specific authentication configuration
@@ -16,6 +17,10 @@ import io.fabric8.kit.common.KitLogger;
  */
 public class RegistryAuthFactory {
 
+    // Metric names, tagged with the handler id
+    static final String METRIC_LOOKUP = "registry.auth.lookup";
+    static final String METRIC_EXTEND = "registry.auth.extend";
+
     private RegistryAuthConfig registryAuthConfig;
     private String defaultRegistry;
 
@@ -43,8 +48,11 @@ public class RegistryAuthFactory {
     }
 
     private Optional<RegistryAuth> createRegistryAuthFromHandlers(RegistryAuthConfig.Kind kind, String user, String registry) {
+        KitMetrics metrics = KitMetrics.get();
         for (RegistryAuthHandler handler : registryAuthHandlers) {
+            long start = metrics.startTime();
             RegistryAuth ret = handler.create(kind, user, registry, decryptor);
+            metrics.timer(METRIC_LOOKUP, "handler", handler.getId(), "found", Boolean.toString(ret != null)).recordSince(start);
             if (ret != null) {
                 return Optional.of(ret);
             }
@@ -53,8 +61,11 @@ public class RegistryAuthFactory {
     }
 
     private Optional<RegistryAuth> extendRegistryAuth(String registry, RegistryAuth ret) throws IOException {
+        KitMetrics metrics = KitMetrics.get();
         for (RegistryAuthHandler.Extender extended : extendedRegistryAuthHandlers) {
+            long start = metrics.startTime();
             RegistryAuth extendedRet = extended.extend(ret, registry);
+            metrics.timer(METRIC_EXTEND, "handler", extended.getId(), "found", Boolean.toString(extendedRet != null)).recordSince(start);
             if (extendedRet != null) {
                 return Optional.of(extendedRet);
             }
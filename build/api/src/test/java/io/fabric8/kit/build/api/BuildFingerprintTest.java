@@ -0,0 +1,75 @@
+package io.fabric8.kit.build.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BuildFingerprintTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void values() {
+        Map<String, String> env = new HashMap<>();
+        env.put("A", "1");
+        env.put("B", "2");
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("B", "2");
+        reversed.put("A", "1");
+
+        String hash = new BuildFingerprint().add("env", env).add("ports", Arrays.asList("8080", "8443")).hash();
+        assertTrue(hash.startsWith("sha256:"));
+        assertEquals(hash, new BuildFingerprint().add("env", reversed).add("ports", Arrays.asList("8080", "8443")).hash());
+        assertNotEquals(hash, new BuildFingerprint().add("env", env).add("ports", Arrays.asList("8443", "8080")).hash());
+        assertNotEquals(hash, new BuildFingerprint().add("labels", env).add("ports", Arrays.asList("8080", "8443")).hash());
+        assertNotEquals(new BuildFingerprint().add("a", "bc").hash(), new BuildFingerprint().add("ab", "c").hash());
+        assertNotEquals(new BuildFingerprint().add("a", null).hash(), new BuildFingerprint().add("a", "null").hash());
+    }
+
+    @Test
+    public void files() throws IOException {
+        File file = folder.newFile("app.jar");
+        Files.write(file.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+        String hash = new BuildFingerprint().addFile("maven/app.jar", file).hash();
+
+        // Only the content counts
+        assertTrue(file.setLastModified(file.lastModified() - 10000));
+        assertEquals(hash, new BuildFingerprint().addFile("maven/app.jar", file).hash());
+
+        Files.write(file.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(hash, new BuildFingerprint().addFile("maven/app.jar", file).hash());
+        assertNotEquals(hash, new BuildFingerprint().addFile("maven/app.jar", new File(folder.getRoot(), "missing")).hash());
+    }
+
+    @Test
+    public void cachedFileHashes() throws IOException {
+        FileHashCache cache = new FileHashCache(10);
+        File file = folder.newFile("app.jar");
+        Files.write(file.toPath(), "content".getBytes(StandardCharsets.UTF_8));
+        long lastModified = file.lastModified();
+        String hash = new BuildFingerprint().addFile("maven/app.jar", file, cache).hash();
+        assertEquals(hash, new BuildFingerprint().addFile("maven/app.jar", file).hash());
+
+        // Same size and modification time, so the file isn't read again
+        Files.write(file.toPath(), "CONTENT".getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(lastModified));
+        assertEquals(hash, new BuildFingerprint().addFile("maven/app.jar", file, cache).hash());
+
+        assertTrue(file.setLastModified(lastModified - 10000));
+        assertNotEquals(hash, new BuildFingerprint().addFile("maven/app.jar", file, cache).hash());
+    }
+}
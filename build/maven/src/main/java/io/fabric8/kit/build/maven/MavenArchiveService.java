@@ -110,6 +110,21 @@ public class MavenArchiveService {
         return dockerAssemblyManager.createChangedFilesArchive(entries, assemblyDir, imageName, mojoParameters);
     }
 
+    /**
+     * Fingerprint the inputs of the tar file which would be created for building an image
+     *
+     * @param imageName image's name
+     * @param buildConfig build configuration
+     * @param ctx build context
+     * @param log logger
+     * @return fingerprint or <code>null</code> if the inputs can't be determined
+     * @throws IOException if the inputs can't be read
+     */
+    public String createInputFingerprint(String imageName, BuildConfiguration buildConfig, MavenBuildContext ctx, KitLogger log)
+        throws IOException {
+        return dockerAssemblyManager.createInputFingerprint(imageName, ctx, buildConfig, log);
+    }
+
     // =============================================
 
     public File createArchive(String imageName, BuildConfiguration buildConfig, MavenBuildContext ctx, KitLogger log)
@@ -3,7 +3,10 @@ package io.fabric8.kit.build.maven;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -13,6 +16,8 @@ import io.fabric8.kit.build.api.RegistryContext;
 import io.fabric8.kit.build.maven.assembly.DockerAssemblyConfigurationSource;
 import io.fabric8.kit.common.KitLogger;
 import io.fabric8.kit.config.image.build.BuildConfiguration;
+import io.fabric8.kit.config.image.build.DockerFile;
+import io.fabric8.kit.config.image.build.DockerFileCache;
 import org.apache.maven.archiver.MavenArchiveConfiguration;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugins.assembly.interpolation.AssemblyInterpolator;
@@ -29,6 +34,13 @@ import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
  */
 public class MavenBuildContext implements BuildContext {
 
+    /**
+     * Property for switching on the build context analysis, either as system property or in the pom
+     */
+    public static final String ANALYZE_CONTEXT_PROPERTY = "docker.analyzeContext";
+
+    private static final Pattern DELIMITER_PATTERN = Pattern.compile("^(?<start>[^*]+)\\*(?<end>.*)$");
+
     private String sourceDirectory;
     private String outputDirectory;
     private MavenProject project;
@@ -40,6 +52,12 @@ public class MavenBuildContext implements BuildContext {
     private MavenArchiveConfiguration archiveConfiguration;
     private MavenArchiveService archiveService;
     private RegistryContext registryContext;
+    private boolean analyzeContext;
+
+    private final DockerFileCache dockerFileCache = new DockerFileCache();
+
+    // Interpolators are immutable, so they can be shared for the lifetime of this context
+    private final Map<InterpolatorKey, Function<String, String>> interpolatorCache = new ConcurrentHashMap<>();
 
     private MavenBuildContext() { }
 
@@ -64,8 +82,26 @@ public class MavenBuildContext implements BuildContext {
 
     @Override
     public Function<String, String> createInterpolator(String filter) {
-        FixedStringSearchInterpolator interpolator = createMavenInterpolator(this, filter);
-        return interpolator::interpolate;
+        String[] delimiters = extractDelimiters(filter);
+        if (delimiters == null) {
+            // Don't interpolate anything
+            return Function.identity();
+        }
+        return interpolatorCache.computeIfAbsent(new InterpolatorKey(project, delimiters[0], delimiters[1]),
+                                                 this::createInterpolator);
+    }
+
+    private Function<String, String> createInterpolator(InterpolatorKey key) {
+        FixedStringSearchInterpolator interpolator = createMavenInterpolator(this, key.startMarker, key.endMarker);
+        String startMarker = key.startMarker;
+        // Most lines don't contain any expression, so skip the interpolator chain for them
+        return line -> line == null || !line.contains(startMarker) ? line : interpolator.interpolate(line);
+    }
+
+    @Override
+    public DockerFile parseDockerFile(File dockerFile, String filter) throws IOException {
+        // Interpolators are cached, so every lookup with the same filter gets the same parsed instance
+        return dockerFileCache.get(dockerFile, createInterpolator(filter));
     }
 
     @Override
@@ -73,6 +109,11 @@ public class MavenBuildContext implements BuildContext {
         return archiveService.createArchive(imageName, buildConfig, this, log);
     }
 
+    @Override
+    public String createInputFingerprint(String imageName, BuildConfiguration buildConfig, KitLogger log) throws IOException {
+        return archiveService.createInputFingerprint(imageName, buildConfig, this, log);
+    }
+
     @Override
     public RegistryContext getRegistryContext() {
         return registryContext;
@@ -109,29 +150,42 @@ public class MavenBuildContext implements BuildContext {
         return archiveConfiguration;
     }
 
+    /**
+     * Whether the content of a build context should be analyzed when creating the context archive. Besides
+     * via the builder this can be switched on with the property {@value #ANALYZE_CONTEXT_PROPERTY}, where a system
+     * property takes precedence over a project property.
+     *
+     * @return true if the build context should be analyzed
+     */
+    public boolean isAnalyzeContext() {
+        if (analyzeContext) {
+            return true;
+        }
+        String value = System.getProperty(ANALYZE_CONTEXT_PROPERTY);
+        if (value == null && project != null) {
+            value = project.getProperties().getProperty(ANALYZE_CONTEXT_PROPERTY);
+        }
+        return value != null && (value.length() == 0 || Boolean.valueOf(value));
+    }
+
     // =======================================================================================
 
     /**
-     * Create an interpolator for the given maven parameters and filter configuration.
+     * Create an interpolator for the given maven parameters and expression markers.
      *
      * @param ctx The maven parameters.
-     * @param filter The filter configuration.
+     * @param startMarker start of an expression
+     * @param endMarker end of an expression
      * @return An interpolator for replacing maven properties.
      */
-    private FixedStringSearchInterpolator createMavenInterpolator(MavenBuildContext ctx, String filter) {
-        String[] delimiters = extractDelimiters(filter);
-        if (delimiters == null) {
-            // Don't interpolate anything
-            return FixedStringSearchInterpolator.create();
-        }
-
+    private FixedStringSearchInterpolator createMavenInterpolator(MavenBuildContext ctx, String startMarker, String endMarker) {
         DockerAssemblyConfigurationSource configSource = new DockerAssemblyConfigurationSource(ctx, null, null);
         // Patterned after org.apache.maven.plugins.assembly.interpolation.AssemblyExpressionEvaluator
         return AssemblyInterpolator
                 .fullInterpolator(ctx.getProject(),
                                   DefaultAssemblyReader.createProjectInterpolator(ctx.getProject())
-                                                       .withExpressionMarkers(delimiters[0], delimiters[1]), configSource)
-                .withExpressionMarkers(delimiters[0], delimiters[1]);
+                                                       .withExpressionMarkers(startMarker, endMarker), configSource)
+                .withExpressionMarkers(startMarker, endMarker);
     }
 
     private static String[] extractDelimiters(String filter) {
@@ -144,7 +198,7 @@ public class MavenBuildContext implements BuildContext {
             return null;
         }
         if (filter.contains("*")) {
-            Matcher matcher = Pattern.compile("^(?<start>[^*]+)\\*(?<end>.*)$").matcher(filter);
+            Matcher matcher = DELIMITER_PATTERN.matcher(filter);
             if (matcher.matches()) {
                 return new String[] { matcher.group("start"), matcher.group("end") };
             }
@@ -152,6 +206,36 @@ public class MavenBuildContext implements BuildContext {
         return new String[] { filter, filter };
     }
 
+    private static final class InterpolatorKey {
+        private final MavenProject project;
+        private final String startMarker;
+        private final String endMarker;
+
+        private InterpolatorKey(MavenProject project, String startMarker, String endMarker) {
+            this.project = project;
+            this.startMarker = startMarker;
+            this.endMarker = endMarker;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            InterpolatorKey that = (InterpolatorKey) o;
+            // Projects are compared by identity, their equals() only considers the coordinates
+            return project == that.project && startMarker.equals(that.startMarker) && endMarker.equals(that.endMarker);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(project), startMarker, endMarker);
+        }
+    }
+
 
     // =======================================================================================
 
@@ -225,6 +309,11 @@ public class MavenBuildContext implements BuildContext {
             return this;
         }
 
+        public Builder analyzeContext(boolean analyzeContext) {
+            context.analyzeContext = analyzeContext;
+            return this;
+        }
+
         // ================================================================================
         public MavenBuildContext build() {
             return context;
@@ -16,64 +16,47 @@ package io.fabric8.kit.build.maven.assembly;
  * limitations under the License.
  */
 
-import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.fabric8.kit.common.KitLogger;
-import org.codehaus.plexus.archiver.ArchiveEntry;
-import org.codehaus.plexus.archiver.ResourceIterator;
-import org.codehaus.plexus.archiver.tar.TarArchiver;
-import org.codehaus.plexus.archiver.tar.TarLongFileMode;
-import org.codehaus.plexus.components.io.resources.PlexusIoResource;
-import org.codehaus.plexus.util.StringUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 
 /**
  * @author roland
  * @since 26/06/16
  */
-class AllFilesExecCustomizer implements ArchiverCustomizer {
+class AllFilesExecCustomizer implements ArchiveEntryCustomizer {
     private KitLogger log;
 
+    private final AtomicBoolean warningPrinted = new AtomicBoolean();
+
     AllFilesExecCustomizer(KitLogger logger) {
         this.log = logger;
     }
 
     @Override
-    public TarArchiver customize(TarArchiver archiver) throws IOException {
-        log.warn("/--------------------- SECURITY WARNING ---------------------\\");
-        log.warn("|You are building a Docker image with normalized permissions.|");
-        log.warn("|All files and directories added to build context will have  |");
-        log.warn("|'-rwxr-xr-x' permissions. It is recommended to double check |");
-        log.warn("|and reset permissions for sensitive files and directories.  |");
-        log.warn("\\------------------------------------------------------------/");
-
-        TarArchiver newArchiver = new TarArchiver();
-        newArchiver.setDestFile(archiver.getDestFile());
-        newArchiver.setLongfile(TarLongFileMode.posix);
-
-        ResourceIterator resources = archiver.getResources();
-        while (resources.hasNext()) {
-            ArchiveEntry ae = resources.next();
-            String fileName = ae.getName();
-            PlexusIoResource resource = ae.getResource();
-            String name = StringUtils.replace(fileName, File.separatorChar, '/');
-
-            // See docker source:
-            // https://github.com/docker/docker/blob/3d13fddd2bc4d679f0eaa68b0be877e5a816ad53/pkg/archive/archive_windows.go#L45
-            int mode = ae.getMode() & 0777;
-            int newMode = mode;
-            newMode &= 0755;
-            newMode |= 0111;
-
-            if (newMode != mode) {
-                log.debug("Changing permissions of '%s' from %o to %o.", name, mode, newMode);
-            }
-
-            newArchiver.addResource(resource, name, newMode);
+    public TarArchiveEntry customize(TarArchiveEntry entry) throws IOException {
+        if (warningPrinted.compareAndSet(false, true)) {
+            log.warn("/--------------------- SECURITY WARNING ---------------------\\");
+            log.warn("|You are building a Docker image with normalized permissions.|");
+            log.warn("|All files and directories added to build context will have  |");
+            log.warn("|'-rwxr-xr-x' permissions. It is recommended to double check |");
+            log.warn("|and reset permissions for sensitive files and directories.  |");
+            log.warn("\\------------------------------------------------------------/");
         }
 
-        archiver = newArchiver;
+        // See docker source:
+        // https://github.com/docker/docker/blob/3d13fddd2bc4d679f0eaa68b0be877e5a816ad53/pkg/archive/archive_windows.go#L45
+        int mode = entry.getMode() & 0777;
+        int newMode = mode;
+        newMode &= 0755;
+        newMode |= 0111;
 
-        return archiver;
+        if (newMode != mode) {
+            log.debug("Changing permissions of '%s' from %o to %o.", entry.getName(), mode, newMode);
+            entry.setMode((entry.getMode() & ~0777) | newMode);
+        }
+        return entry;
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.kit.build.maven.assembly;
+
+import java.io.IOException;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+
+/**
+ * Entry level counterpart to {@link ArchiverCustomizer}, called by the {@link ContextArchiveWriter}
+ * for every tar entry right before its header is written.
+ *
+ * @since 19.10.26
+ */
+public interface ArchiveEntryCustomizer {
+
+    /**
+     * Customize a tar entry. Name, mode and ownership can be changed in place.
+     *
+     * @param entry entry about to be written
+     * @return the entry to write or <code>null</code> if the entry should be skipped
+     * @throws IOException if the customization fails
+     */
+    TarArchiveEntry customize(TarArchiveEntry entry) throws IOException;
+}
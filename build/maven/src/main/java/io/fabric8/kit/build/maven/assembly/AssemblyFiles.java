@@ -17,6 +17,7 @@ package io.fabric8.kit.build.maven.assembly;/*
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -67,6 +68,15 @@ public class AssemblyFiles {
         return ret;
     }
 
+    /**
+     * Get all entries without updating their timestamps
+     *
+     * @return unmodifiable list of all entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
     /**
      * Returns true if there are no entries
      */
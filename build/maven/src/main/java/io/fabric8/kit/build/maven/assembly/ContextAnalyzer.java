@@ -0,0 +1,450 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.kit.build.maven.assembly;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.config.image.build.ArchiveCompression;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * Analyzer for the content of a Docker build context. It reports where the bytes of a context come from:
+ * sizes and file counts per top level directory, the largest files, files excluded by the
+ * ignore rules, entries with duplicate content and the estimated archive size for every
+ * {@link ArchiveCompression}.
+ * <p>
+ * Compressed sizes are estimated by compressing a sample taken from every file, proportional to its size.
+ *
+ * @since 19.10.26
+ */
+public class ContextAnalyzer {
+
+    public static final String REPORT_FILE_NAME = "context-analysis.json";
+
+    // Size of a tar header and the block size the content is padded to
+    private static final int TAR_BLOCK = 512;
+
+    private static final long DEFAULT_SAMPLE_LIMIT = 8L * 1024 * 1024;
+    private static final int MIN_SAMPLE_PER_FILE = 4 * 1024;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final List<Entry> excluded = new ArrayList<>();
+    // Whether a context directory has been scanned for excluded files at all
+    private boolean excludedScanned;
+
+    private int topN = 10;
+    private long sampleLimit = DEFAULT_SAMPLE_LIMIT;
+
+    /**
+     * Supplier for the content of an entry
+     */
+    @FunctionalInterface
+    public interface ContentSupplier {
+        InputStream open() throws IOException;
+    }
+
+    public ContextAnalyzer topN(int topN) {
+        this.topN = Math.max(1, topN);
+        return this;
+    }
+
+    public ContextAnalyzer sampleLimit(long sampleLimit) {
+        this.sampleLimit = Math.max(0, sampleLimit);
+        return this;
+    }
+
+    /**
+     * Add a file which is included in the build context
+     *
+     * @param name name within the context archive
+     * @param size size in bytes
+     * @param source file on the filesystem or <code>null</code> if the content does not come from a plain file
+     * @param content supplier for the content
+     */
+    public void add(String name, long size, File source, ContentSupplier content) {
+        entries.add(new Entry(name, size, source, content));
+    }
+
+    /**
+     * Scan a context directory for all files which are not part of the context, i.e. which
+     * have been excluded by the ignore rules. Must be called after all included files have been added.
+     * Assemblies have no single context directory, so for them no exclusions are reported, which
+     * is marked with <code>"scanned": false</code> in the report.
+     *
+     * @param contextDir context directory to scan, can be <code>null</code>
+     * @throws IOException if the directory can't be scanned
+     */
+    public void addExcludedFrom(File contextDir) throws IOException {
+        if (contextDir == null || !contextDir.isDirectory()) {
+            return;
+        }
+        excludedScanned = true;
+        Set<Path> included = new HashSet<>();
+        for (Entry entry : entries) {
+            if (entry.source != null) {
+                included.add(entry.source.toPath().toAbsolutePath().normalize());
+            }
+        }
+        Path root = contextDir.toPath().toAbsolutePath().normalize();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !included.contains(file.normalize())) {
+                    String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+                    excluded.add(new Entry(name, attrs.size(), file.toFile(), null));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Run the analysis
+     *
+     * @param imageName image for which the context is analyzed
+     * @return the report as JSON
+     * @throws IOException if an entry can't be read
+     */
+    public JsonObject analyze(String imageName) throws IOException {
+        JsonObject report = new JsonObject();
+        report.addProperty("image", imageName);
+
+        long totalBytes = 0;
+        for (Entry entry : entries) {
+            totalBytes += entry.size;
+        }
+        report.addProperty("files", entries.size());
+        report.addProperty("bytes", totalBytes);
+
+        report.add("directories", analyzeDirectories());
+        report.add("largestFiles", toJson(largest(entries)));
+        report.add("excluded", analyzeExcluded());
+        report.add("duplicates", analyzeDuplicates());
+        report.add("compression", estimateCompression(totalBytes));
+        return report;
+    }
+
+    /**
+     * Write the report as JSON file
+     *
+     * @param report report as returned by {@link #analyze(String)}
+     * @param reportFile file to write to
+     * @throws IOException if writing fails
+     */
+    public void writeReport(JsonObject report, File reportFile) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+        }
+    }
+
+    /**
+     * Log a short summary of a report
+     *
+     * @param log logger to use
+     * @param description prefix for each log line (usually the image description)
+     * @param report report as returned by {@link #analyze(String)}
+     */
+    public void logSummary(KitLogger log, String description, JsonObject report) {
+        JsonObject compression = report.getAsJsonObject("compression");
+        StringBuilder estimates = new StringBuilder();
+        for (ArchiveCompression mode : ArchiveCompression.values()) {
+            estimates.append(estimates.length() > 0 ? ", " : "")
+                     .append(mode.getFileSuffix()).append(mode == ArchiveCompression.none ? " " : " ~")
+                     .append(formatBytes(compression.getAsJsonObject(mode.name()).get("bytes").getAsLong()));
+        }
+        log.info("%s: Build context has %d files with %s (%s)",
+                 description, report.get("files").getAsInt(), formatBytes(report.get("bytes").getAsLong()), estimates);
+        log.info("%s:   Top directories: %s", description, formatSizes(report.getAsJsonArray("directories"), "path"));
+        log.info("%s:   Largest files: %s", description, formatSizes(report.getAsJsonArray("largestFiles"), "path"));
+
+        JsonObject excludedReport = report.getAsJsonObject("excluded");
+        if (!excludedReport.get("scanned").getAsBoolean()) {
+            log.info("%s:   Excluded files are only reported for a Dockerfile context directory", description);
+        } else if (excludedReport.get("files").getAsInt() > 0) {
+            log.info("%s:   Excluded by ignore rules: %d files with %s", description,
+                     excludedReport.get("files").getAsInt(), formatBytes(excludedReport.get("bytes").getAsLong()));
+        }
+        JsonObject duplicates = report.getAsJsonObject("duplicates");
+        if (duplicates.get("groups").getAsInt() > 0) {
+            log.info("%s:   Duplicate content: %d groups with %s redundant", description,
+                     duplicates.get("groups").getAsInt(), formatBytes(duplicates.get("redundantBytes").getAsLong()));
+        }
+    }
+
+    // ===============================================================================================
+
+    private JsonArray analyzeDirectories() {
+        Map<String, long[]> directories = new TreeMap<>();
+        for (Entry entry : entries) {
+            int idx = entry.name.indexOf('/');
+            String dir = idx > 0 ? entry.name.substring(0, idx + 1) : ".";
+            long[] stats = directories.computeIfAbsent(dir, k -> new long[2]);
+            stats[0]++;
+            stats[1] += entry.size;
+        }
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(directories.entrySet());
+        sorted.sort((e1, e2) -> Long.compare(e2.getValue()[1], e1.getValue()[1]));
+        JsonArray ret = new JsonArray();
+        for (Map.Entry<String, long[]> dir : sorted) {
+            JsonObject json = new JsonObject();
+            json.addProperty("path", dir.getKey());
+            json.addProperty("files", dir.getValue()[0]);
+            json.addProperty("bytes", dir.getValue()[1]);
+            ret.add(json);
+        }
+        return ret;
+    }
+
+    private JsonObject analyzeExcluded() {
+        long bytes = 0;
+        for (Entry entry : excluded) {
+            bytes += entry.size;
+        }
+        JsonObject ret = new JsonObject();
+        ret.addProperty("scanned", excludedScanned);
+        if (!excludedScanned) {
+            ret.addProperty("note", "Only computed when building from a Dockerfile context directory");
+        }
+        ret.addProperty("files", excluded.size());
+        ret.addProperty("bytes", bytes);
+        ret.add("largestFiles", toJson(largest(excluded)));
+        return ret;
+    }
+
+    // Group by size first, so that only files which might be equal need to be hashed
+    private JsonObject analyzeDuplicates() throws IOException {
+        Map<Long, List<Entry>> bySize = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            if (entry.size > 0) {
+                bySize.computeIfAbsent(entry.size, k -> new ArrayList<>()).add(entry);
+            }
+        }
+        List<List<Entry>> groups = new ArrayList<>();
+        Map<String, String> digests = new LinkedHashMap<>();
+        for (List<Entry> sameSize : bySize.values()) {
+            if (sameSize.size() < 2) {
+                continue;
+            }
+            Map<String, List<Entry>> byDigest = new LinkedHashMap<>();
+            for (Entry entry : sameSize) {
+                String digest = sha256(entry);
+                byDigest.computeIfAbsent(digest, k -> new ArrayList<>()).add(entry);
+                digests.put(entry.name, digest);
+            }
+            for (List<Entry> sameContent : byDigest.values()) {
+                if (sameContent.size() > 1) {
+                    groups.add(sameContent);
+                }
+            }
+        }
+        groups.sort(Comparator.comparingLong((List<Entry> group) -> group.get(0).size * (group.size() - 1)).reversed());
+
+        long redundantBytes = 0;
+        JsonArray groupsJson = new JsonArray();
+        for (List<Entry> group : groups) {
+            long redundant = group.get(0).size * (group.size() - 1);
+            redundantBytes += redundant;
+            if (groupsJson.size() < topN) {
+                JsonObject json = new JsonObject();
+                json.addProperty("sha256", digests.get(group.get(0).name));
+                json.addProperty("bytes", group.get(0).size);
+                json.addProperty("redundantBytes", redundant);
+                JsonArray paths = new JsonArray();
+                for (Entry entry : group) {
+                    paths.add(entry.name);
+                }
+                json.add("paths", paths);
+                groupsJson.add(json);
+            }
+        }
+        JsonObject ret = new JsonObject();
+        ret.addProperty("groups", groups.size());
+        ret.addProperty("redundantBytes", redundantBytes);
+        ret.add("largestGroups", groupsJson);
+        return ret;
+    }
+
+    private JsonObject estimateCompression(long totalBytes) throws IOException {
+        long tarBytes = 2 * TAR_BLOCK;
+        for (Entry entry : entries) {
+            tarBytes += TAR_BLOCK + (entry.size + TAR_BLOCK - 1) / TAR_BLOCK * TAR_BLOCK;
+        }
+
+        Map<ArchiveCompression, CountingOutputStream> counters = new EnumMap<>(ArchiveCompression.class);
+        Map<ArchiveCompression, OutputStream> compressors = new EnumMap<>(ArchiveCompression.class);
+        for (ArchiveCompression mode : ArchiveCompression.values()) {
+            CountingOutputStream counter = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+            counters.put(mode, counter);
+            compressors.put(mode, createCompressor(mode, counter));
+        }
+        long sampled = 0;
+        byte[] buffer = new byte[64 * 1024];
+        for (Entry entry : entries) {
+            long sample = totalBytes > 0 ?
+                Math.min(entry.size, Math.max(MIN_SAMPLE_PER_FILE, sampleLimit * entry.size / totalBytes)) : 0;
+            if (sample == 0) {
+                continue;
+            }
+            try (InputStream is = entry.content.open()) {
+                long remaining = sample;
+                int len;
+                while (remaining > 0 && (len = is.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                    for (OutputStream compressor : compressors.values()) {
+                        compressor.write(buffer, 0, len);
+                    }
+                    remaining -= len;
+                    sampled += len;
+                }
+            }
+        }
+        for (OutputStream compressor : compressors.values()) {
+            compressor.close();
+        }
+
+        JsonObject ret = new JsonObject();
+        ret.addProperty("sampledBytes", sampled);
+        for (ArchiveCompression mode : ArchiveCompression.values()) {
+            double ratio = mode == ArchiveCompression.none || sampled == 0 ?
+                1.0 : (double) counters.get(mode).getByteCount() / sampled;
+            JsonObject json = new JsonObject();
+            json.addProperty("bytes", Math.round(tarBytes * ratio));
+            json.addProperty("ratio", Math.round(ratio * 1000) / 1000.0);
+            json.addProperty("estimated", mode != ArchiveCompression.none);
+            ret.add(mode.name(), json);
+        }
+        return ret;
+    }
+
+    private OutputStream createCompressor(ArchiveCompression mode, OutputStream out) throws IOException {
+        switch (mode) {
+            case gzip:
+                return new GzipCompressorOutputStream(out);
+            case bzip2:
+                return new BZip2CompressorOutputStream(out);
+            case none:
+            default:
+                return out;
+        }
+    }
+
+    private String sha256(Entry entry) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream is = entry.content.open()) {
+                int len;
+                while ((len = is.read(buffer)) != -1) {
+                    digest.update(buffer, 0, len);
+                }
+            }
+            StringBuilder ret = new StringBuilder();
+            for (byte b : digest.digest()) {
+                ret.append(String.format("%02x", b));
+            }
+            return ret.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256 digest available", e);
+        }
+    }
+
+    private List<Entry> largest(List<Entry> list) {
+        List<Entry> sorted = new ArrayList<>(list);
+        sorted.sort((e1, e2) -> Long.compare(e2.size, e1.size));
+        return sorted.subList(0, Math.min(topN, sorted.size()));
+    }
+
+    private JsonArray toJson(List<Entry> list) {
+        JsonArray ret = new JsonArray();
+        for (Entry entry : list) {
+            JsonObject json = new JsonObject();
+            json.addProperty("path", entry.name);
+            json.addProperty("bytes", entry.size);
+            ret.add(json);
+        }
+        return ret;
+    }
+
+    private String formatSizes(JsonArray array, String nameKey) {
+        StringBuilder ret = new StringBuilder();
+        for (int i = 0; i < Math.min(5, array.size()); i++) {
+            JsonObject json = array.get(i).getAsJsonObject();
+            ret.append(i > 0 ? ", " : "")
+               .append(json.get(nameKey).getAsString())
+               .append(" (").append(formatBytes(json.get("bytes").getAsLong())).append(")");
+        }
+        return ret.length() > 0 ? ret.toString() : "-";
+    }
+
+    // visible for testing
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        String[] units = { "KB", "MB", "GB", "TB" };
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format(Locale.ROOT, "%.1f %s", value, units[unit]);
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final long size;
+        private final File source;
+        private final ContentSupplier content;
+
+        private Entry(String name, long size, File source, ContentSupplier content) {
+            this.name = name;
+            this.size = size;
+            this.source = source;
+            this.content = content;
+        }
+    }
+}
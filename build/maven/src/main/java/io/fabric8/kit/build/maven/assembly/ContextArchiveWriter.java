@@ -0,0 +1,572 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.kit.build.maven.assembly;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import io.fabric8.kit.common.DaemonThreadFactory;
+import io.fabric8.kit.config.image.build.ArchiveCompression;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.functions.SymlinkDestinationSupplier;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResource;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+/**
+ * Writer for Docker build context tar archives, based directly on commons-compress.
+ * <p>
+ * Entries are collected first (usually from a plexus archiver which has been set up with all file sets
+ * and {@link ArchiverCustomizer}s), then sorted by name and written into a single output stream. File
+ * contents are read ahead in parallel: batches of small files into pooled buffers, large files by memory mapping them,
+ * so that the writing thread only has to copy bytes into the tar stream. Entry level customizations
+ * are applied via {@link ArchiveEntryCustomizer}s.
+ *
+ * @since 19.10.26
+ */
+public class ContextArchiveWriter {
+
+    // Files up to this size are read into pooled heap buffers
+    static final int SMALL_FILE_THRESHOLD = 256 * 1024;
+
+    // Maximum number of bytes and entries which are read ahead of the writer
+    private static final long READ_AHEAD_LIMIT = 64L * 1024 * 1024;
+    private static final int READ_AHEAD_ENTRIES = 1024;
+
+    // Maximum number of small files and bytes which are read by a single read task
+    private static final int MAX_BATCH_ENTRIES = 64;
+    private static final long MAX_BATCH_SIZE = 1024L * 1024;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // Releases mapped files right away instead of when the buffer is garbage collected
+    private static final Consumer<ByteBuffer> UNMAPPER = createUnmapper();
+
+    private final ArchiveCompression compression;
+
+    // Collected entries, first one wins for duplicate names
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private final List<ArchiveEntryCustomizer> customizers = new ArrayList<>();
+
+    private int readThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private int smallFileThreshold = SMALL_FILE_THRESHOLD;
+
+    // Mapped files can't be deleted on Windows as long as they are mapped
+    private boolean memoryMapping = !System.getProperty("os.name").toLowerCase().contains("windows");
+
+    public ContextArchiveWriter(ArchiveCompression compression) {
+        this.compression = compression != null ? compression : ArchiveCompression.none;
+    }
+
+    public ContextArchiveWriter readThreads(int readThreads) {
+        this.readThreads = Math.max(1, readThreads);
+        return this;
+    }
+
+    public ContextArchiveWriter memoryMapping(boolean memoryMapping) {
+        this.memoryMapping = memoryMapping;
+        return this;
+    }
+
+    // visible for testing
+    ContextArchiveWriter smallFileThreshold(int smallFileThreshold) {
+        this.smallFileThreshold = smallFileThreshold;
+        return this;
+    }
+
+    public ContextArchiveWriter customizer(ArchiveEntryCustomizer customizer) {
+        if (customizer != null) {
+            customizers.add(customizer);
+        }
+        return this;
+    }
+
+    /**
+     * Add all entries of the given iterator, typically obtained from {@link org.codehaus.plexus.archiver.Archiver#getResources()}
+     *
+     * @param resources resources to add
+     * @return this writer
+     * @throws IOException if a resource can't be resolved
+     */
+    public ContextArchiveWriter add(ResourceIterator resources) throws IOException {
+        while (resources.hasNext()) {
+            add(resources.next());
+        }
+        return this;
+    }
+
+    public ContextArchiveWriter add(ArchiveEntry archiveEntry) throws IOException {
+        PlexusIoResource resource = archiveEntry.getResource();
+        String name = normalizeName(archiveEntry.getName(), resource.isDirectory());
+        if (name != null && !entries.containsKey(name)) {
+            entries.put(name, new Entry(name, archiveEntry));
+        }
+        return this;
+    }
+
+    /**
+     * Hand over all collected file entries to an analyzer. Entry customizers are not applied.
+     *
+     * @param analyzer analyzer to feed
+     * @return this writer
+     */
+    public ContextArchiveWriter analyze(ContextAnalyzer analyzer) {
+        for (Entry entry : entries.values()) {
+            if (entry.type == ArchiveEntry.FILE) {
+                analyzer.add(entry.name, entry.size, entry.source,
+                             entry.file != null ? () -> new FileInputStream(entry.file) : entry.resource::getContents);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Write all collected entries into the given archive, compressed as configured.
+     *
+     * @param archive archive file to create
+     * @return the archive created
+     * @throws IOException if reading an entry or writing the archive fails
+     */
+    public File write(File archive) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort((e1, e2) -> e1.name.compareTo(e2.name));
+        List<Batch> batches = createBatches(sorted);
+
+        ExecutorService executor = Executors.newFixedThreadPool(readThreads, new DaemonThreadFactory("docker-context-reader"));
+        BufferPool pool = new BufferPool(smallFileThreshold, READ_AHEAD_ENTRIES);
+        byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+        List<Future<Content[]>> reads = new ArrayList<>(batches.size());
+        try (TarArchiveOutputStream out = createTarOutputStream(archive)) {
+            long readAhead = 0;
+            int entriesAhead = 0;
+            for (int b = 0; b < batches.size(); b++) {
+                // Keep the readers busy, but don't run too far ahead
+                while (reads.size() < batches.size() &&
+                       (reads.size() == b || (readAhead < READ_AHEAD_LIMIT && entriesAhead < READ_AHEAD_ENTRIES))) {
+                    Batch next = batches.get(reads.size());
+                    readAhead += next.size;
+                    entriesAhead += next.entries.size();
+                    reads.add(next.prefetchable ?
+                                  executor.submit(() -> read(next, pool)) :
+                                  CompletableFuture.completedFuture(null));
+                }
+                Batch batch = batches.get(b);
+                Content[] contents = await(reads.get(b));
+                reads.set(b, null);
+                readAhead -= batch.size;
+                entriesAhead -= batch.entries.size();
+                try {
+                    for (int i = 0; i < batch.entries.size(); i++) {
+                        Content content = contents != null ? contents[i] : null;
+                        writeEntry(out, batch.entries.get(i), content, copyBuffer);
+                        if (content != null) {
+                            content.release();
+                            contents[i] = null;
+                        }
+                    }
+                } finally {
+                    release(contents);
+                }
+            }
+            out.finish();
+        } finally {
+            executor.shutdownNow();
+            releaseUnwritten(reads);
+        }
+        return archive;
+    }
+
+    // ==========================================================================================
+
+    private TarArchiveOutputStream createTarOutputStream(File archive) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(archive), COPY_BUFFER_SIZE);
+        switch (compression) {
+            case gzip:
+                os = new BufferedOutputStream(new GzipCompressorOutputStream(os), COPY_BUFFER_SIZE);
+                break;
+            case bzip2:
+                os = new BufferedOutputStream(new BZip2CompressorOutputStream(os), COPY_BUFFER_SIZE);
+                break;
+            case none:
+            default:
+                break;
+        }
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(os, "UTF8");
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        return tar;
+    }
+
+    private void writeEntry(TarArchiveOutputStream out, Entry entry, Content content, byte[] copyBuffer) throws IOException {
+        TarArchiveEntry te = entry.createTarEntry(content);
+        for (ArchiveEntryCustomizer customizer : customizers) {
+            te = customizer.customize(te);
+            if (te == null) {
+                return;
+            }
+        }
+        out.putArchiveEntry(te);
+        if (entry.type == ArchiveEntry.FILE) {
+            if (content != null) {
+                content.writeTo(out, copyBuffer);
+            } else {
+                try (InputStream is = entry.resource.getContents()) {
+                    int len;
+                    while ((len = is.read(copyBuffer)) != -1) {
+                        out.write(copyBuffer, 0, len);
+                    }
+                }
+            }
+        }
+        out.closeArchiveEntry();
+    }
+
+    // Small files are grouped so that they are read by a single task instead of paying the scheduling
+    // overhead per file, large files get a batch of their own. Entries which are not read ahead end a batch.
+    private List<Batch> createBatches(List<Entry> sorted) {
+        List<Batch> batches = new ArrayList<>();
+        Batch current = null;
+        for (Entry entry : sorted) {
+            boolean prefetchable = entry.isPrefetchable();
+            boolean small = prefetchable && entry.size <= smallFileThreshold;
+            if (current == null || !small || !current.small ||
+                current.entries.size() >= MAX_BATCH_ENTRIES || current.size + entry.size > MAX_BATCH_SIZE) {
+                current = new Batch(prefetchable, small);
+                batches.add(current);
+            }
+            current.add(entry);
+            if (!small) {
+                current = null;
+            }
+        }
+        return batches;
+    }
+
+    private Content[] read(Batch batch, BufferPool pool) throws IOException {
+        Content[] contents = new Content[batch.entries.size()];
+        try {
+            for (int i = 0; i < contents.length; i++) {
+                contents[i] = read(batch.entries.get(i), pool);
+            }
+            return contents;
+        } catch (IOException | RuntimeException e) {
+            release(contents);
+            throw e;
+        }
+    }
+
+    private Content read(Entry entry, BufferPool pool) throws IOException {
+        if (entry.size <= smallFileThreshold) {
+            byte[] buffer = pool.acquire((int) entry.size);
+            try (InputStream is = new FileInputStream(entry.file)) {
+                int len = 0;
+                int read;
+                while (len < buffer.length && (read = is.read(buffer, len, buffer.length - len)) != -1) {
+                    len += read;
+                }
+                if (len == buffer.length && is.read() != -1) {
+                    // File has grown in the meantime, stream it when writing
+                    pool.release(buffer);
+                    return null;
+                }
+                return new Content(buffer, len, pool);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(entry.file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.load();
+            return new Content(mapped);
+        }
+    }
+
+    // Contents read ahead for entries which haven't been written because writing failed
+    private void releaseUnwritten(List<Future<Content[]>> reads) {
+        for (Future<Content[]> read : reads) {
+            if (read != null && read.isDone() && !read.isCancelled()) {
+                try {
+                    release(read.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    // Nothing has been read
+                }
+            }
+        }
+    }
+
+    private void release(Content[] contents) {
+        if (contents != null) {
+            for (int i = 0; i < contents.length; i++) {
+                if (contents[i] != null) {
+                    contents[i].release();
+                    contents[i] = null;
+                }
+            }
+        }
+    }
+
+    private Content[] await(Future<Content[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading build context");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Cannot read build context entry: " + cause, cause);
+        }
+    }
+
+    private String normalizeName(String name, boolean isDirectory) {
+        String ret = name.replace(File.separatorChar, '/');
+        while (ret.startsWith("/")) {
+            ret = ret.substring(1);
+        }
+        if (ret.isEmpty()) {
+            return null;
+        }
+        if (isDirectory && !ret.endsWith("/")) {
+            ret += "/";
+        }
+        return ret;
+    }
+
+    // Single entry to write
+    private final class Entry {
+        private final String name;
+        private final int type;
+        private final int mode;
+        private final long lastModified;
+        private final long size;
+        private final PlexusIoResource resource;
+        private final PlexusIoResourceAttributes attributes;
+        private final String linkName;
+        // Only set if the content can be read directly from the file system
+        private final File file;
+        // File the entry originates from, if any
+        private final File source;
+
+        @SuppressWarnings("deprecation")
+        private Entry(String name, ArchiveEntry archiveEntry) throws IOException {
+            this.name = name;
+            this.resource = archiveEntry.getResource();
+            this.type = archiveEntry.getType();
+            this.mode = archiveEntry.getMode();
+            this.attributes = archiveEntry.getResourceAttributes();
+            this.lastModified = resource.getLastModified();
+            long resourceSize = resource.getSize();
+            this.size = resourceSize == PlexusIoResource.UNKNOWN_RESOURCE_SIZE ? 0 : resourceSize;
+            this.linkName = type == ArchiveEntry.SYMLINK ?
+                ((SymlinkDestinationSupplier) resource).getSymlinkDestination() : null;
+            this.source = archiveEntry.getFile();
+            // Transformed file resources report a different size and have to be streamed
+            this.file = resource instanceof PlexusIoFileResource && source != null && source.length() == size ? source : null;
+        }
+
+        private boolean isPrefetchable() {
+            return type == ArchiveEntry.FILE && file != null &&
+                   (size <= smallFileThreshold || (memoryMapping && size <= Integer.MAX_VALUE));
+        }
+
+        private TarArchiveEntry createTarEntry(Content content) {
+            TarArchiveEntry te;
+            if (type == ArchiveEntry.SYMLINK) {
+                te = new TarArchiveEntry(name, TarConstants.LF_SYMLINK);
+                te.setLinkName(linkName);
+            } else {
+                te = new TarArchiveEntry(name);
+            }
+            te.setModTime(lastModified == PlexusIoResource.UNKNOWN_MODIFICATION_DATE ?
+                              System.currentTimeMillis() : lastModified);
+            if (type == ArchiveEntry.FILE) {
+                te.setSize(content != null ? content.size() : size);
+            }
+            te.setMode(mode);
+            te.setUserName(attributes != null && attributes.getUserName() != null ? attributes.getUserName() : "");
+            te.setGroupName(attributes != null && attributes.getGroupName() != null ? attributes.getGroupName() : "");
+            te.setUserId(attributes != null && attributes.getUserId() != null ? attributes.getUserId() : 0);
+            te.setGroupId(attributes != null && attributes.getGroupId() != null ? attributes.getGroupId() : 0);
+            return te;
+        }
+    }
+
+    // Consecutive entries which are read ahead by a single task
+    private static final class Batch {
+        private final boolean prefetchable;
+        private final boolean small;
+        private final List<Entry> entries = new ArrayList<>();
+        private long size;
+
+        private Batch(boolean prefetchable, boolean small) {
+            this.prefetchable = prefetchable;
+            this.small = small;
+        }
+
+        private void add(Entry entry) {
+            entries.add(entry);
+            if (prefetchable) {
+                size += entry.size;
+            }
+        }
+    }
+
+    // Content which has been read ahead, either into a pooled buffer or memory mapped
+    private static final class Content {
+        private final byte[] buffer;
+        private final int length;
+        private final BufferPool pool;
+        private final ByteBuffer mapped;
+
+        private Content(byte[] buffer, int length, BufferPool pool) {
+            this.buffer = buffer;
+            this.length = length;
+            this.pool = pool;
+            this.mapped = null;
+        }
+
+        private Content(MappedByteBuffer mapped) {
+            this.buffer = null;
+            this.length = mapped.remaining();
+            this.pool = null;
+            this.mapped = mapped;
+        }
+
+        private long size() {
+            return length;
+        }
+
+        private void writeTo(OutputStream out, byte[] copyBuffer) throws IOException {
+            if (buffer != null) {
+                out.write(buffer, 0, length);
+                return;
+            }
+            ByteBuffer source = mapped.duplicate();
+            while (source.hasRemaining()) {
+                int len = Math.min(copyBuffer.length, source.remaining());
+                source.get(copyBuffer, 0, len);
+                out.write(copyBuffer, 0, len);
+            }
+        }
+
+        private void release() {
+            if (pool != null) {
+                pool.release(buffer);
+            } else if (mapped != null) {
+                UNMAPPER.accept(mapped);
+            }
+        }
+    }
+
+    // There is no public API for unmapping a file, so use the cleaner of the buffer like the JDK does internally.
+    // Without access to it, files stay mapped until the buffers are garbage collected.
+    private static Consumer<ByteBuffer> createUnmapper() {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeQuietly(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fall through to the Java 8 way
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = invokeQuietly(cleaner, buffer);
+                if (bufferCleaner != null) {
+                    invokeQuietly(clean, bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return buffer -> { };
+        }
+    }
+
+    private static Object invokeQuietly(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Bounded pool of read buffers, organized in power of two size classes
+    private static final class BufferPool {
+        private static final int MIN_SIZE_SHIFT = 12;
+
+        private final List<BlockingQueue<byte[]>> sizeClasses = new ArrayList<>();
+
+        private BufferPool(int maxSize, int capacity) {
+            for (int size = 1 << MIN_SIZE_SHIFT; size < maxSize * 2; size <<= 1) {
+                sizeClasses.add(new ArrayBlockingQueue<>(capacity));
+            }
+        }
+
+        private byte[] acquire(int size) {
+            int sizeClass = sizeClass(size);
+            byte[] buffer = sizeClasses.get(sizeClass).poll();
+            return buffer != null ? buffer : new byte[1 << (sizeClass + MIN_SIZE_SHIFT)];
+        }
+
+        private void release(byte[] buffer) {
+            sizeClasses.get(sizeClass(buffer.length)).offer(buffer);
+        }
+
+        private int sizeClass(int size) {
+            int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1 << MIN_SIZE_SHIFT) - 1);
+            return Math.min(shift - MIN_SIZE_SHIFT, sizeClasses.size() - 1);
+        }
+    }
+}
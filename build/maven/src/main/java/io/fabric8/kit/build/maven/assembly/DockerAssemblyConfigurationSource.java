@@ -310,7 +310,7 @@ public class DockerAssemblyConfigurationSource implements AssemblerConfiguration
         }
         else if (session != null && session.getSettings() != null) {
             settingsProperties.setProperty("localRepository", session.getSettings().getLocalRepository() );
-            settingsProperties.setProperty("settings.localRepository", getLocalRepository().getBasedir() );
+            settingsProperties.setProperty("settings.localRepository", session.getSettings().getLocalRepository() );
         }
         return FixedStringSearchInterpolator.create(new PropertiesBasedValueSource(settingsProperties));
     }
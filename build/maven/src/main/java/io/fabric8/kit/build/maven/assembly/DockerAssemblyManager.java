@@ -1,24 +1,32 @@
 package io.fabric8.kit.build.maven.assembly;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
+import com.google.gson.JsonObject;
+import io.fabric8.kit.build.api.BuildFingerprint;
+import io.fabric8.kit.build.api.FileHashCache;
 import io.fabric8.kit.build.maven.MavenBuildContext;
 import io.fabric8.kit.build.maven.config.MavenAssemblyConfiguration;
 import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.common.KitMetrics;
 import io.fabric8.kit.config.image.build.ArchiveCompression;
 import io.fabric8.kit.config.image.build.AssemblyConfiguration;
 import io.fabric8.kit.config.image.build.AssemblyMode;
 import io.fabric8.kit.config.image.build.BuildConfiguration;
+import io.fabric8.kit.config.image.build.DockerFile;
 import io.fabric8.kit.config.image.build.DockerFileBuilder;
+import io.fabric8.kit.config.image.build.DockerFileInstruction;
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Build;
@@ -33,8 +41,9 @@ import org.apache.maven.plugins.assembly.io.AssemblyReader;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.utils.PathTool;
+import org.apache.maven.shared.utils.io.DirectoryScanner;
 import org.apache.maven.shared.utils.io.FileUtils;
-import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.manager.ArchiverManager;
 import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
 import org.codehaus.plexus.archiver.tar.TarArchiver;
@@ -61,6 +70,11 @@ public class DockerAssemblyManager {
     public static final String DOCKER_INCLUDE = ".maven-dockerinclude";
     public static final String DOCKERFILE_NAME = "Dockerfile";
 
+    // Metric names
+    static final String METRIC_ASSEMBLY = "assembly.create";
+    static final String METRIC_TAR = "assembly.tar";
+    static final String METRIC_TAR_SIZE = "assembly.tar.size";
+
     @Requirement
     private AssemblyArchiver assemblyArchiver;
 
@@ -70,9 +84,6 @@ public class DockerAssemblyManager {
     @Requirement
     private ArchiverManager archiverManager;
 
-    @Requirement(hint = "track")
-    private Archiver trackArchiver;
-
     /**
      * Create an docker tar archive from the given configuration which can be send to the Docker host for
      * creating the image.
@@ -91,10 +102,16 @@ public class DockerAssemblyManager {
         final AssemblyConfiguration assemblyConfig = buildConfig.getAssemblyConfiguration();
 
         final List<ArchiverCustomizer> archiveCustomizers = new ArrayList<>();
+        final List<ArchiveEntryCustomizer> entryCustomizers = new ArrayList<>();
+        File contextDir = null;
+        ContextAnalyzer analyzer = context.isAnalyzeContext() ? new ContextAnalyzer() : null;
 
         // Build up assembly. In dockerfile mode this must be added explicitly in the Dockerfile with an ADD
         if (hasAssemblyConfiguration(assemblyConfig)) {
+            KitMetrics metrics = KitMetrics.get();
+            long start = metrics.startTime();
             createAssemblyArchive(assemblyConfig, context, buildDirs);
+            metrics.timer(METRIC_ASSEMBLY).recordSince(start);
         }
         try {
             if (buildConfig.isDockerFileMode()) {
@@ -105,16 +122,17 @@ public class DockerAssemblyManager {
                                           buildConfig.getDockerFile() + "\" (resolved to \"" + dockerFile + "\") doesn't exist");
                 }
 
-                Function<String, String> interpolator = context.createInterpolator( buildConfig.getFilter());
-                verifyGivenDockerfile(dockerFile, buildConfig, interpolator, log);
-                interpolateDockerfile(dockerFile, buildDirs, interpolator);
+                DockerFile parsedDockerFile = context.parseDockerFile(dockerFile, buildConfig.getFilter());
+                verifyGivenDockerfile(parsedDockerFile, buildConfig, log);
+                interpolateDockerfile(parsedDockerFile, buildDirs);
+                contextDir = buildConfig.getContextDir() != null ? new File(buildConfig.getContextDir()) : dockerFile.getParentFile();
+                final File dockerContextDir = contextDir;
                 // User dedicated Dockerfile from extra directory
                 archiveCustomizers.add(archiver -> {
-                    File contextDir = buildConfig.getContextDir() != null ? new File(buildConfig.getContextDir()) : dockerFile.getParentFile();
-                    if (!contextDir.exists()) {
-                        throw new IOException(String.format("Docker context directory %s doesn't exist", contextDir.getAbsolutePath()));
+                    if (!dockerContextDir.exists()) {
+                        throw new IOException(String.format("Docker context directory %s doesn't exist", dockerContextDir.getAbsolutePath()));
                     }
-                    DefaultFileSet fileSet = DefaultFileSet.fileSet(contextDir);
+                    DefaultFileSet fileSet = DefaultFileSet.fileSet(dockerContextDir);
                     addDockerIncludesExcludesIfPresent(fileSet, context);
                     // Exclude non-interpolated dockerfile from source tree
                     // Interpolated Dockerfile is already added as it was created into the output directory when
@@ -148,7 +166,7 @@ public class DockerAssemblyManager {
                 AssemblyConfiguration.PermissionMode mode = assemblyConfig.getPermissions();
                 if (mode == AssemblyConfiguration.PermissionMode.exec ||
                     mode == AssemblyConfiguration.PermissionMode.auto && isWindows()) {
-                    archiveCustomizers.add(new AllFilesExecCustomizer(log));
+                    entryCustomizers.add(new AllFilesExecCustomizer(log));
                 }
             }
 
@@ -156,13 +174,28 @@ public class DockerAssemblyManager {
                 archiveCustomizers.add(finalCustomizer);
             }
 
-            return createBuildTarBall(buildDirs, archiveCustomizers, assemblyConfig, buildConfig.getCompression());
+            File archive = createBuildTarBall(buildDirs, archiveCustomizers, entryCustomizers, assemblyConfig,
+                                              buildConfig.getCompression(), analyzer);
+            if (analyzer != null) {
+                reportContextAnalysis(analyzer, imageName, contextDir, buildDirs, log);
+            }
+            return archive;
 
         } catch (IOException e) {
             throw new IOException(String.format("Cannot create %s in %s", DOCKERFILE_NAME, buildDirs.getOutputDirectory()), e);
         }
     }
 
+    private void reportContextAnalysis(ContextAnalyzer analyzer, String imageName, File contextDir,
+                                       BuildDirs buildDirs, KitLogger log) throws IOException {
+        analyzer.addExcludedFrom(contextDir);
+        JsonObject report = analyzer.analyze(imageName);
+        File reportFile = new File(buildDirs.getTemporaryRootDirectory(), ContextAnalyzer.REPORT_FILE_NAME);
+        analyzer.writeReport(report, reportFile);
+        analyzer.logSummary(log, imageName, report);
+        log.info("%s: Build context analysis written to %s", imageName, reportFile);
+    }
+
     private boolean isWindows() {
         return System.getProperty("os.name").toLowerCase().contains("windows");
     }
@@ -177,55 +210,30 @@ public class DockerAssemblyManager {
         fileSet.setExcludes(excludes.toArray(new String[0]));
     }
 
-    private void interpolateDockerfile(File dockerFile, BuildDirs params, Function<String, String> interpolator) throws IOException {
-        File targetDockerfile = new File(params.getOutputDirectory(), dockerFile.getName());
-        String dockerFileInterpolated = interpolate(dockerFile, interpolator);
+    private void interpolateDockerfile(DockerFile dockerFile, BuildDirs params) throws IOException {
+        File targetDockerfile = new File(params.getOutputDirectory(), dockerFile.getFile().getName());
         try (Writer writer = new FileWriter(targetDockerfile)) {
-            IOUtils.write(dockerFileInterpolated, writer);
+            IOUtils.write(dockerFile.getContent(), writer);
         }
     }
 
-    private String interpolate(File dockerFile, Function<String, String> interpolator) throws IOException {
-        StringBuilder ret = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(dockerFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                ret.append(interpolator.apply(line)).append(System.lineSeparator());
-            }
-        }
-        return ret.toString();
-    }
-
     // visible for testing
-    void verifyGivenDockerfile(File dockerFile, BuildConfiguration buildConfig, Function<String, String> interpolator, KitLogger log) throws IOException {
+    void verifyGivenDockerfile(DockerFile dockerFile, BuildConfiguration buildConfig, KitLogger log) {
         AssemblyConfiguration assemblyConfig = buildConfig.getAssemblyConfiguration();
         if (assemblyConfig == null) {
             return;
         }
 
         String name = assemblyConfig.getName();
-            for (String keyword : new String[] {"ADD", "COPY" }) {
-                List<String[]> lines = DockerFileBuilder.extractLines(dockerFile, keyword, interpolator);
-                for (String[] line : lines) {
-                    if (!line[0].startsWith("#")) {
-                        // Skip command flags like --chown
-                        int i;
-                        for (i = 1; i < line.length; i++) {
-                            String component = line[i];
-                            if (!component.startsWith("--")) {
-                                break;
-                            }
-                        }
-
-                        // contains an ADD/COPY ... targetDir .... All good.
-                        if (i < line.length && line[i].contains(name)) {
-                            return;
-                        }
-                    }
-                }
+        for (DockerFileInstruction instruction : dockerFile.getInstructions()) {
+            // contains an ADD/COPY ... targetDir .... All good.
+            if ((instruction.is("ADD") || instruction.is("COPY")) &&
+                !instruction.getArguments().isEmpty() && instruction.getArguments().get(0).contains(name)) {
+                return;
             }
+        }
         log.warn("Dockerfile %s does not contain an ADD or COPY directive to include assembly created at %s. Ignoring assembly.",
-                 dockerFile.getPath(), name);
+                 dockerFile.getFile().getPath(), name);
     }
 
     /**
@@ -234,6 +242,78 @@ public class DockerAssemblyManager {
      */
     public AssemblyFiles getAssemblyFiles(String name, BuildConfiguration buildConfig, MavenBuildContext context, KitLogger log)
         throws InvalidAssemblerConfigurationException, ArchiveCreationException, AssemblyFormattingException, IOException {
+        return trackAssembly(name, buildConfig, context, log).getAssemblyFiles(context.getSession());
+    }
+
+    /**
+     * Fingerprint the inputs of the archive created by {@link #createDockerTarArchive}, without creating it:
+     * The source files of the assembly and in Dockerfile mode the interpolated Dockerfile and the files of the
+     * context directory, selected with the same include and exclude files as for the archive. The configuration
+     * itself is not included. Files which haven't changed since the last fingerprint are not read again.
+     *
+     * @return the fingerprint or <code>null</code> if the assembly's files can't be determined
+     */
+    public String createInputFingerprint(String imageName, MavenBuildContext context, BuildConfiguration buildConfig, KitLogger log)
+        throws IOException {
+        BuildFingerprint fingerprint = new BuildFingerprint();
+        if (hasAssemblyConfiguration(buildConfig.getAssemblyConfiguration())) {
+            try {
+                for (Map.Entry<String, File> entry : trackAssembly(imageName, buildConfig, context, log).getSourceFiles().entrySet()) {
+                    fingerprint.addFile("assembly/" + entry.getKey(), entry.getValue(), FileHashCache.getDefault());
+                }
+            } catch (InvalidAssemblerConfigurationException | ArchiveCreationException | AssemblyFormattingException |
+                     ArchiverException | IllegalStateException e) {
+                log.debug("%s: Cannot determine assembly files: %s", imageName, e.getMessage());
+                return null;
+            }
+        }
+        if (buildConfig.isDockerFileMode()) {
+            File dockerFile = context.inSourceDir(buildConfig.calculateDockerFilePath().getPath());
+            if (!dockerFile.exists()) {
+                return null;
+            }
+            fingerprint.add("dockerfile", context.parseDockerFile(dockerFile, buildConfig.getFilter()).getContent());
+            File contextDir = buildConfig.getContextDir() != null ? new File(buildConfig.getContextDir()) : dockerFile.getParentFile();
+            addContextDirectory(fingerprint, contextDir, dockerFile, context);
+        }
+        return fingerprint.hash();
+    }
+
+    // The files of the context directory which are added to the archive, except the build output of this plugin
+    private void addContextDirectory(BuildFingerprint fingerprint, File contextDir, File dockerFile, MavenBuildContext context)
+        throws IOException {
+        if (!contextDir.isDirectory()) {
+            return;
+        }
+        DefaultFileSet fileSet = DefaultFileSet.fileSet(contextDir);
+        addDockerIncludesExcludesIfPresent(fileSet, context);
+        excludeDockerfile(fileSet, dockerFile);
+
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(contextDir);
+        scanner.setIncludes(fileSet.getIncludes());
+        scanner.setExcludes(fileSet.getExcludes());
+        scanner.setCaseSensitive(fileSet.isCaseSensitive());
+        if (fileSet.isUsingDefaultExcludes()) {
+            scanner.addDefaultExcludes();
+        }
+        scanner.scan();
+
+        Path outputDir = context.inOutputDir("").toPath().toAbsolutePath();
+        SortedMap<String, File> files = new TreeMap<>();
+        for (String name : scanner.getIncludedFiles()) {
+            File file = new File(contextDir, name);
+            if (!file.toPath().toAbsolutePath().startsWith(outputDir)) {
+                files.put(name.replace(File.separatorChar, '/'), file);
+            }
+        }
+        for (Map.Entry<String, File> entry : files.entrySet()) {
+            fingerprint.addFile("context/" + entry.getKey(), entry.getValue(), FileHashCache.getDefault());
+        }
+    }
+
+    private MappingTrackArchiver trackAssembly(String name, BuildConfiguration buildConfig, MavenBuildContext context, KitLogger log)
+        throws InvalidAssemblerConfigurationException, ArchiveCreationException, AssemblyFormattingException, IOException {
 
         BuildDirs buildDirs = createBuildDirs(name, context);
 
@@ -244,13 +324,15 @@ public class DockerAssemblyManager {
         Assembly assembly = getAssemblyConfig(assemblyConfig, source);
 
 
-        synchronized (trackArchiver) {
-            MappingTrackArchiver ta = (MappingTrackArchiver) trackArchiver;
-            ta.init(log, assemblyName);
-            assembly.setId("tracker");
-            assemblyArchiver.createArchive(assembly, assemblyName, "track", source, false, null);
-            return ta.getAssemblyFiles(context.getSession());
+        // A fresh tracking archiver is looked up by the assembly archiver and handed back on this thread
+        assembly.setId("tracker");
+        assemblyArchiver.createArchive(assembly, assemblyName, "track", source, false, null);
+        MappingTrackArchiver ta = MappingTrackArchiver.takeCompleted();
+        if (ta == null) {
+            throw new ArchiveCreationException("No files have been tracked for assembly " + assemblyName);
         }
+        ta.init(log, assemblyName);
+        return ta;
     }
 
     private BuildDirs createBuildDirs(String imageName, MavenBuildContext context) {
@@ -300,40 +382,39 @@ public class DockerAssemblyManager {
 
     // Create final tar-ball to be used for building the archive to send to the Docker daemon
     private File createBuildTarBall(BuildDirs buildDirs, List<ArchiverCustomizer> archiverCustomizers,
-                                    AssemblyConfiguration assemblyConfig, ArchiveCompression compression) throws IOException {
+                                    List<ArchiveEntryCustomizer> entryCustomizers,
+                                    AssemblyConfiguration assemblyConfig, ArchiveCompression compression,
+                                    ContextAnalyzer analyzer) throws IOException {
         File archive = new File(buildDirs.getTemporaryRootDirectory(), "docker-build." + compression.getFileSuffix());
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
+            // The plexus archiver is only used for collecting the entries, writing is done natively
             TarArchiver archiver = createBuildArchiver(buildDirs.getOutputDirectory(), archive, assemblyConfig);
             for (ArchiverCustomizer customizer : archiverCustomizers) {
                 if (customizer != null) {
                     archiver = customizer.customize(archiver);
                 }
             }
-            archiver.setCompression(getTarCompressionMethod(compression));
-            archiver.createArchive();
-            return archive;
+            ContextArchiveWriter writer = new ContextArchiveWriter(compression);
+            for (ArchiveEntryCustomizer customizer : entryCustomizers) {
+                writer.customizer(customizer);
+            }
+            writer.add(archiver.getResources());
+            if (analyzer != null) {
+                writer.analyze(analyzer);
+            }
+            File ret = writer.write(archive);
+            metrics.timer(METRIC_TAR, "compression", compression.name()).recordSince(start);
+            metrics.histogram(METRIC_TAR_SIZE, "compression", compression.name()).record(ret.length());
+            return ret;
         } catch (NoSuchArchiverException e) {
             throw new IOException("No archiver for type 'tar' found", e);
-        } catch (IOException e) {
+        } catch (IOException | ArchiverException e) {
             throw new IOException("Cannot create archive " + archive, e);
         }
     }
 
-    private TarArchiver.TarCompressionMethod getTarCompressionMethod(ArchiveCompression compression) {
-        if (compression == null) {
-            return TarArchiver.TarCompressionMethod.none;
-        }
-        switch (compression) {
-            case gzip:
-                return TarArchiver.TarCompressionMethod.gzip;
-            case bzip2:
-                return TarArchiver.TarCompressionMethod.bzip2;
-            case none:
-            default:
-                return TarArchiver.TarCompressionMethod.none;
-        }
-    }
-
     private void addDockerIncludesExcludesIfPresent(DefaultFileSet fileSet, MavenBuildContext params) throws IOException {
         addDockerExcludes(fileSet, params);
         addDockerIncludes(fileSet);
@@ -366,18 +447,14 @@ public class DockerAssemblyManager {
     private File createChangedFilesTarBall(File archive, File archiveDir) throws IOException {
         try {
             TarArchiver archiver = (TarArchiver) archiverManager.getArchiver("tar");
-            archiver.setLongfile(TarLongFileMode.posix);
             archiver.addFileSet(DefaultFileSet.fileSet(archiveDir));
-            archiver.setDestFile(archive);
-            archiver.createArchive();
-            return archive;
+            return new ContextArchiveWriter(ArchiveCompression.none)
+                .add(archiver.getResources())
+                .write(archive);
         } catch (NoSuchArchiverException e) {
             throw new IOException("No archiver for type 'tar' found", e);
-        } catch (IOException e) {
+        } catch (IOException | ArchiverException e) {
             throw new IOException("Cannot create archive " + archive, e);
-        } catch (RuntimeException e) {
-            e.printStackTrace();
-            throw e;
         }
     }
 
@@ -425,7 +502,9 @@ public class DockerAssemblyManager {
                         .expose(buildConfig.getPorts())
                         .run(buildConfig.getRunCmds())
                         .volumes(buildConfig.getVolumes())
-                        .user(buildConfig.getUser());
+                        .user(buildConfig.getUser())
+                        .stages(buildConfig.getStages())
+                        .copies(buildConfig.getCopies());
         if (buildConfig.getMaintainer() != null) {
             builder.maintainer(buildConfig.getMaintainer());
         }
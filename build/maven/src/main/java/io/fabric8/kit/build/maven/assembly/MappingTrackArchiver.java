@@ -20,8 +20,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -45,12 +49,20 @@ import org.codehaus.plexus.components.io.resources.PlexusIoFileResource;
  * An archiver which remembers all resolved files and directories and returns them
  * on request.
  *
+ * A new instance is created for every lookup so that assemblies of different modules can be
+ * tracked in parallel. Since the instance is looked up by the assembly archiver, it hands itself over
+ * to the calling thread when the archive is "created", from where it can be picked up with
+ * {@link #takeCompleted()}.
+ *
  * @author roland
  * @since 15/06/15
  */
-@Component(role = Archiver.class, hint = "track", instantiationStrategy = "singleton")
+@Component(role = Archiver.class, hint = "track", instantiationStrategy = "per-lookup")
 public class MappingTrackArchiver extends TrackingArchiver {
 
+    // Archiver which has been completed last on the current thread
+    private static final ThreadLocal<MappingTrackArchiver> COMPLETED = new ThreadLocal<>();
+
     // Logger to use
     protected KitLogger log;
 
@@ -63,15 +75,39 @@ public class MappingTrackArchiver extends TrackingArchiver {
      * @return assembled files
      */
     public AssemblyFiles getAssemblyFiles(MavenSession session) {
-        AssemblyFiles ret = new AssemblyFiles(new File(getDestFile().getParentFile(), assemblyName));
+        AssemblyFiles ret = new AssemblyFiles(getAssemblyDirectory());
         // Where the 'real' files are copied to
+        forEachFile((source, target) -> addFileEntry(ret, session, source, target));
+        return ret;
+    }
+
+    /**
+     * Get all source files depicted by this assembly. In contrast to {@link #getAssemblyFiles(MavenSession)}
+     * the files don't need to have been copied to the assembly directory already.
+     *
+     * @return source files sorted by their destination path relative to the assembly directory
+     */
+    public SortedMap<String, File> getSourceFiles() {
+        SortedMap<String, File> ret = new TreeMap<>();
+        Path assemblyDir = getAssemblyDirectory().toPath();
+        forEachFile((source, target) ->
+            ret.put(assemblyDir.relativize(target.toPath()).toString().replace(File.separatorChar, '/'), source));
+        return ret;
+    }
+
+    private File getAssemblyDirectory() {
+        return new File(getDestFile().getParentFile(), assemblyName);
+    }
+
+    private void forEachFile(BiConsumer<File, File> consumer) {
+        File assemblyDirectory = getAssemblyDirectory();
         for (Addition addition : added) {
             Object resource = addition.resource;
-            File target = new File(ret.getAssemblyDirectory(), addition.destination);
+            File target = new File(assemblyDirectory, addition.destination);
             if (resource instanceof File && addition.destination != null) {
-                addFileEntry(ret, session, (File) resource, target);
+                consumer.accept((File) resource, target);
             } else if (resource instanceof PlexusIoFileResource) {
-                addFileEntry(ret, session, ((PlexusIoFileResource) resource).getFile(), target);
+                consumer.accept(((PlexusIoFileResource) resource).getFile(), target);
             } else if (resource instanceof FileSet) {
                 FileSet fs = (FileSet) resource;
                 DirectoryScanner ds = new DirectoryScanner();
@@ -82,15 +118,12 @@ public class MappingTrackArchiver extends TrackingArchiver {
                 ds.setCaseSensitive(fs.isCaseSensitive());
                 ds.scan();
                 for (String f : ds.getIncludedFiles()) {
-                    File source = new File(base, f);
-                    File subTarget = new File(target, f);
-                    addFileEntry(ret, session, source, subTarget);
+                    consumer.accept(new File(base, f), new File(target, f));
                 }
             } else {
                 throw new IllegalStateException("Unknown resource type " + resource.getClass() + ": " + resource);
             }
         }
-        return ret;
     }
 
     private void addFileEntry(AssemblyFiles ret, MavenSession session, File source, File target) {
@@ -187,6 +220,26 @@ public class MappingTrackArchiver extends TrackingArchiver {
     public void init(KitLogger log, String assemblyName) {
         this.log = log;
         this.assemblyName = assemblyName;
-        added.clear();
+    }
+
+    /**
+     * Called by the assembly archiver after all files have been added. Nothing is written, but
+     * this archiver is remembered for the current thread.
+     */
+    @Override
+    public void createArchive() {
+        COMPLETED.set(this);
+    }
+
+    /**
+     * Get the tracking archiver which has been completed last on the current thread. The reference
+     * is removed afterwards.
+     *
+     * @return the archiver completed or <code>null</code> if none has been completed on this thread
+     */
+    public static MappingTrackArchiver takeCompleted() {
+        MappingTrackArchiver ret = COMPLETED.get();
+        COMPLETED.remove();
+        return ret;
     }
 }
@@ -0,0 +1,99 @@
+package io.fabric8.kit.build.maven;
+
+import java.io.File;
+import java.util.function.Function;
+
+import mockit.Expectations;
+import mockit.Injectable;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MavenBuildContextTest {
+
+    @Injectable
+    private MavenSession session;
+
+    @Before
+    public void setUp() {
+        Settings settings = new Settings();
+        settings.setLocalRepository("/tmp/repository");
+        new Expectations() {{
+            session.getLocalRepository(); result = null; minTimes = 0;
+            session.getSettings(); result = settings; minTimes = 0;
+        }};
+    }
+
+    @Test
+    public void interpolation() {
+        MavenBuildContext context = createContext(createProject());
+        assertEquals("FROM busybox:1.29", context.createInterpolator(null).apply("FROM busybox:${busybox.version}"));
+        assertEquals("FROM busybox:1.29", context.createInterpolator("@").apply("FROM busybox:@busybox.version@"));
+        assertEquals("FROM busybox:1.29", context.createInterpolator("[[*]]").apply("FROM busybox:[[busybox.version]]"));
+        assertEquals("FROM busybox:${busybox.version}", context.createInterpolator("@").apply("FROM busybox:${busybox.version}"));
+        assertEquals("FROM busybox:${busybox.version}", context.createInterpolator("none").apply("FROM busybox:${busybox.version}"));
+        assertEquals("WORKDIR /opt", context.createInterpolator(null).apply("WORKDIR /opt"));
+    }
+
+    @Test
+    public void interpolatorsAreShared() {
+        MavenProject project = createProject();
+        MavenBuildContext context = createContext(project);
+        Function<String, String> interpolator = context.createInterpolator(null);
+        assertSame(interpolator, context.createInterpolator("${*}"));
+        assertNotSame(interpolator, context.createInterpolator("@"));
+
+        // A different project must not reuse the interpolator, even when the coordinates are the same
+        new MavenBuildContext.Builder(context).project(createProject());
+        Function<String, String> other = context.createInterpolator(null);
+        assertNotSame(interpolator, other);
+        assertSame(other, context.createInterpolator(null));
+    }
+
+    @Test
+    public void analyzeContextSwitch() {
+        MavenProject project = createProject();
+        MavenBuildContext context = createContext(project);
+        assertFalse(context.isAnalyzeContext());
+        assertTrue(new MavenBuildContext.Builder(createContext(project)).analyzeContext(true).build().isAnalyzeContext());
+
+        project.getProperties().setProperty(MavenBuildContext.ANALYZE_CONTEXT_PROPERTY, "true");
+        assertTrue(context.isAnalyzeContext());
+
+        System.setProperty(MavenBuildContext.ANALYZE_CONTEXT_PROPERTY, "false");
+        try {
+            assertFalse(context.isAnalyzeContext());
+        } finally {
+            System.clearProperty(MavenBuildContext.ANALYZE_CONTEXT_PROPERTY);
+        }
+    }
+
+    private MavenBuildContext createContext(MavenProject project) {
+        return new MavenBuildContext.Builder()
+            .project(project)
+            .session(session)
+            .sourceDirectory("src/main/docker")
+            .outputDirectory("target/docker")
+            .build();
+    }
+
+    private MavenProject createProject() {
+        Model model = new Model();
+        model.setGroupId("io.fabric8");
+        model.setArtifactId("test");
+        model.setVersion("1.0");
+        MavenProject project = new MavenProject(model);
+        project.setFile(new File("pom.xml").getAbsoluteFile());
+        project.getProperties().setProperty("busybox.version", "1.29");
+        return project;
+    }
+}
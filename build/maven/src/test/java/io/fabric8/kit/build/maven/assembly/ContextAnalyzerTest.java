@@ -0,0 +1,109 @@
+package io.fabric8.kit.build.maven.assembly;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ContextAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void analyze() throws IOException {
+        File contextDir = folder.newFolder("context");
+        byte[] random = new byte[100 * 1024];
+        new Random(42).nextBytes(random);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("Some very compressible text\n");
+        }
+
+        ContextAnalyzer analyzer = new ContextAnalyzer();
+        add(analyzer, contextDir, "maven/app.jar", random);
+        add(analyzer, contextDir, "maven/lib/copy-of-app.jar", random);
+        add(analyzer, contextDir, "maven/README.txt", text.toString().getBytes("UTF-8"));
+        add(analyzer, contextDir, "Dockerfile", "FROM busybox\n".getBytes("UTF-8"));
+        // Not added, i.e. excluded by the ignore rules
+        FileUtils.writeByteArrayToFile(new File(contextDir, "target/big.bin"), new byte[300 * 1024]);
+
+        analyzer.addExcludedFrom(contextDir);
+        JsonObject report = analyzer.analyze("test/image");
+
+        assertEquals("test/image", report.get("image").getAsString());
+        assertEquals(4, report.get("files").getAsInt());
+        long expectedBytes = 2 * random.length + text.length() + "FROM busybox\n".length();
+        assertEquals(expectedBytes, report.get("bytes").getAsLong());
+
+        JsonArray directories = report.getAsJsonArray("directories");
+        assertEquals("maven/", directories.get(0).getAsJsonObject().get("path").getAsString());
+        assertEquals(3, directories.get(0).getAsJsonObject().get("files").getAsInt());
+        assertEquals(".", directories.get(1).getAsJsonObject().get("path").getAsString());
+
+        JsonArray largest = report.getAsJsonArray("largestFiles");
+        assertEquals(random.length, largest.get(0).getAsJsonObject().get("bytes").getAsLong());
+        assertEquals("Dockerfile", largest.get(3).getAsJsonObject().get("path").getAsString());
+
+        JsonObject excluded = report.getAsJsonObject("excluded");
+        assertTrue(excluded.get("scanned").getAsBoolean());
+        assertEquals(1, excluded.get("files").getAsInt());
+        assertEquals(300 * 1024, excluded.get("bytes").getAsLong());
+        assertEquals("target/big.bin", excluded.getAsJsonArray("largestFiles").get(0).getAsJsonObject().get("path").getAsString());
+
+        JsonObject duplicates = report.getAsJsonObject("duplicates");
+        assertEquals(1, duplicates.get("groups").getAsInt());
+        assertEquals(random.length, duplicates.get("redundantBytes").getAsLong());
+        assertEquals(2, duplicates.getAsJsonArray("largestGroups").get(0).getAsJsonObject().getAsJsonArray("paths").size());
+
+        JsonObject compression = report.getAsJsonObject("compression");
+        long tarBytes = compression.getAsJsonObject("none").get("bytes").getAsLong();
+        assertTrue(tarBytes > expectedBytes);
+        // Random data doesn't compress, but the text does
+        long gzipBytes = compression.getAsJsonObject("gzip").get("bytes").getAsLong();
+        assertTrue(gzipBytes < tarBytes);
+        assertTrue(gzipBytes > 2 * random.length * 0.9);
+        assertTrue(compression.getAsJsonObject("bzip2").get("bytes").getAsLong() < tarBytes);
+
+        File reportFile = new File(folder.getRoot(), ContextAnalyzer.REPORT_FILE_NAME);
+        analyzer.writeReport(report, reportFile);
+        assertTrue(FileUtils.readFileToString(reportFile, "UTF-8").contains("\"redundantBytes\""));
+    }
+
+    @Test
+    public void withoutContextDirectory() throws IOException {
+        File contextDir = folder.newFolder("assembly");
+        ContextAnalyzer analyzer = new ContextAnalyzer();
+        add(analyzer, contextDir, "maven/app.jar", new byte[1024]);
+        analyzer.addExcludedFrom(null);
+
+        JsonObject excluded = analyzer.analyze("test").getAsJsonObject("excluded");
+        assertFalse(excluded.get("scanned").getAsBoolean());
+        assertTrue(excluded.has("note"));
+        assertEquals(0, excluded.get("files").getAsInt());
+    }
+
+    @Test
+    public void formatBytes() {
+        assertEquals("512 B", ContextAnalyzer.formatBytes(512));
+        assertEquals("1.5 KB", ContextAnalyzer.formatBytes(1536));
+        assertEquals("900.0 MB", ContextAnalyzer.formatBytes(900L * 1024 * 1024));
+    }
+
+    private void add(ContextAnalyzer analyzer, File contextDir, String name, byte[] content) throws IOException {
+        File file = new File(contextDir, name);
+        FileUtils.writeByteArrayToFile(file, content);
+        analyzer.add(name, file.length(), file, () -> new FileInputStream(file));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.kit.build.maven.assembly;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.gson.JsonObject;
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.config.image.build.ArchiveCompression;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 19.10.26
+ */
+public class ContextArchiveWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File contextDir;
+    private Map<String, byte[]> files;
+
+    @Before
+    public void setup() throws IOException {
+        contextDir = folder.newFolder("context");
+        files = new LinkedHashMap<>();
+        Random random = new Random(42);
+        // Mixture of small files and a few large ones which are above the (lowered) mmap threshold
+        for (int i = 0; i < 50; i++) {
+            files.put("lib/small-" + i + ".txt", randomBytes(random, random.nextInt(2048)));
+        }
+        files.put("maven/big-1.jar", randomBytes(random, 300 * 1024));
+        files.put("maven/big-2.jar", randomBytes(random, 700 * 1024));
+        files.put("Dockerfile", "FROM busybox\n".getBytes("UTF-8"));
+        files.put("empty.txt", new byte[0]);
+        for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+            FileUtils.writeByteArrayToFile(new File(contextDir, entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Test
+    public void sortedAndComplete() throws IOException {
+        File archive = writer(ArchiveCompression.none).write(folder.newFile("docker-build.tar"));
+
+        Map<String, byte[]> read = readArchive(archive, false);
+        List<String> names = new ArrayList<>(read.keySet());
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(String::compareTo);
+        assertEquals(sorted, names);
+
+        for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+            assertTrue(entry.getKey(), read.containsKey(entry.getKey()));
+            assertArrayEquals(entry.getKey(), entry.getValue(), read.get(entry.getKey()));
+        }
+        assertTrue(read.containsKey("lib/"));
+        assertTrue(read.containsKey("maven/"));
+    }
+
+    @Test
+    public void deterministic() throws IOException {
+        File first = writer(ArchiveCompression.none).readThreads(1).write(folder.newFile("first.tar"));
+        File second = writer(ArchiveCompression.none).readThreads(8).write(folder.newFile("second.tar"));
+        assertEquals(new ArrayList<>(readArchive(first, false).keySet()),
+                     new ArrayList<>(readArchive(second, false).keySet()));
+    }
+
+    @Test
+    public void withoutMemoryMapping() throws IOException {
+        File archive = writer(ArchiveCompression.gzip).memoryMapping(false).write(folder.newFile("docker-build.tar.gz"));
+        Map<String, byte[]> read = readArchive(archive, true);
+        assertArrayEquals(files.get("maven/big-2.jar"), read.get("maven/big-2.jar"));
+    }
+
+    @Test
+    public void analyze() throws IOException {
+        ContextAnalyzer analyzer = new ContextAnalyzer();
+        writer(ArchiveCompression.none).analyze(analyzer);
+        analyzer.addExcludedFrom(contextDir);
+        JsonObject report = analyzer.analyze("test");
+        assertEquals(files.size(), report.get("files").getAsInt());
+        assertEquals(0, report.getAsJsonObject("excluded").get("files").getAsInt());
+    }
+
+    @Test
+    public void entryCustomizer() throws IOException {
+        File archive = writer(ArchiveCompression.none)
+            .customizer(entry -> entry.getName().startsWith("lib/") ? null : entry)
+            .customizer(entry -> {
+                entry.setMode((entry.getMode() & ~0777) | 0700);
+                return entry;
+            })
+            .write(folder.newFile("docker-build.tar"));
+
+        try (TarArchiveInputStream tis = new TarArchiveInputStream(new FileInputStream(archive))) {
+            TarArchiveEntry entry;
+            while ((entry = tis.getNextTarEntry()) != null) {
+                assertFalse(entry.getName(), entry.getName().startsWith("lib/"));
+                assertEquals(entry.getName(), 0700, entry.getMode() & 0777);
+            }
+        }
+    }
+
+    @Test
+    public void execCustomizer() throws IOException {
+        File archive = writer(ArchiveCompression.none)
+            .customizer(new AllFilesExecCustomizer(new KitLogger.StdoutLogger()))
+            .write(folder.newFile("docker-build.tar"));
+
+        try (TarArchiveInputStream tis = new TarArchiveInputStream(new FileInputStream(archive))) {
+            TarArchiveEntry entry;
+            while ((entry = tis.getNextTarEntry()) != null) {
+                assertEquals(entry.getName(), 0111, entry.getMode() & 0111);
+                assertEquals(entry.getName(), 0, entry.getMode() & 0022);
+            }
+        }
+    }
+
+    // ==========================================================================================
+
+    private ContextArchiveWriter writer(ArchiveCompression compression) {
+        TarArchiver archiver = new TarArchiver();
+        DefaultFileSet fileSet = DefaultFileSet.fileSet(contextDir);
+        fileSet.setUsingDefaultExcludes(false);
+        archiver.addFileSet(fileSet);
+        try {
+            return new ContextArchiveWriter(compression)
+                .smallFileThreshold(256 * 1024)
+                .add(archiver.getResources());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, byte[]> readArchive(File archive, boolean gzip) throws IOException {
+        Map<String, byte[]> ret = new LinkedHashMap<>();
+        InputStream is = new FileInputStream(archive);
+        if (gzip) {
+            is = new GzipCompressorInputStream(is);
+        }
+        try (TarArchiveInputStream tis = new TarArchiveInputStream(is)) {
+            TarArchiveEntry entry;
+            while ((entry = tis.getNextTarEntry()) != null) {
+                ret.put(entry.getName(), IOUtils.toByteArray(tis));
+            }
+        }
+        return ret;
+    }
+
+    private byte[] randomBytes(Random random, int size) {
+        byte[] ret = new byte[size];
+        random.nextBytes(ret);
+        return ret;
+    }
+}
@@ -0,0 +1,199 @@
+package io.fabric8.kit.build.maven.assembly;/*
+ *
+ * Copyright 2014 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.fabric8.kit.build.maven.MavenBuildContext;
+import io.fabric8.kit.build.maven.config.MavenAssemblyConfiguration;
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.config.image.build.BuildConfiguration;
+import mockit.Injectable;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
+import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
+import org.apache.maven.plugins.assembly.archive.AssemblyArchiver;
+import org.apache.maven.plugins.assembly.model.Assembly;
+import org.apache.maven.plugins.assembly.model.FileSet;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.repository.ComponentDescriptor;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Looks up the tracking archiver from a Plexus container and tracks the assemblies of many modules in
+ * parallel through {@link DockerAssemblyManager#getAssemblyFiles}, checking that no files leak between modules.
+ *
+ * @since 19.10.26
+ */
+public class MappingTrackArchiverConcurrencyTest {
+
+    private static final int MODULES = 64;
+    private static final int FILES_PER_MODULE = 20;
+    private static final int THREADS = 8;
+
+    private static PlexusContainer container;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Injectable
+    private MavenSession session;
+
+    @BeforeClass
+    public static void startContainer() throws Exception {
+        container = new DefaultPlexusContainer(new DefaultContainerConfiguration());
+        // Registered as declared by its annotation, as no component descriptor is generated for this module
+        Component component = MappingTrackArchiver.class.getAnnotation(Component.class);
+        ComponentDescriptor<Archiver> descriptor = new ComponentDescriptor<>(Archiver.class, container.getContainerRealm());
+        descriptor.setRoleClass(component.role());
+        descriptor.setRoleHint(component.hint());
+        descriptor.setImplementationClass(MappingTrackArchiver.class);
+        descriptor.setInstantiationStrategy(component.instantiationStrategy());
+        container.addComponentDescriptor(descriptor);
+    }
+
+    @AfterClass
+    public static void stopContainer() {
+        container.dispose();
+    }
+
+    @Test
+    public void newInstancePerLookup() throws Exception {
+        Archiver first = container.lookup(Archiver.class, "track");
+        Archiver second = container.lookup(Archiver.class, "track");
+        assertTrue(first instanceof MappingTrackArchiver);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void parallelModules() throws Exception {
+        DockerAssemblyManager manager = new DockerAssemblyManager();
+        setField(manager, "assemblyArchiver", new LookupAssemblyArchiver());
+
+        final KitLogger log = new KitLogger.StdoutLogger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Set<String>>> results = new ArrayList<>();
+            for (int i = 0; i < MODULES; i++) {
+                final MavenBuildContext context = createModule("module-" + i);
+                final BuildConfiguration buildConfig = buildConfig(new File(context.getBasedir(), "src"));
+                results.add(executor.submit(() -> {
+                    start.await();
+                    AssemblyFiles files = manager.getAssemblyFiles("fabric8/test:1", buildConfig, context, log);
+                    Set<String> ret = new HashSet<>();
+                    for (AssemblyFiles.Entry entry : files.getEntries()) {
+                        ret.add(entry.getSrcFile().getAbsolutePath());
+                    }
+                    return ret;
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < MODULES; i++) {
+                Set<String> files = results.get(i).get();
+                assertEquals(FILES_PER_MODULE, files.size());
+                String moduleDir = new File(folder.getRoot(), "module-" + i).getAbsolutePath() + File.separator;
+                for (String file : files) {
+                    assertTrue(file + " doesn't belong to module-" + i, file.startsWith(moduleDir));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MavenBuildContext createModule(String name) throws IOException {
+        File moduleDir = folder.newFolder(name);
+        for (int f = 0; f < FILES_PER_MODULE; f++) {
+            FileUtils.write(new File(moduleDir, "src/file-" + f + ".txt"), name + ":" + f, "UTF-8");
+            // Tracked files must already be present in the assembly directory
+            FileUtils.write(new File(moduleDir, "target/docker/fabric8/test/1/build/maven/file-" + f + ".txt"), name + ":" + f, "UTF-8");
+        }
+        MavenProject project = new MavenProject();
+        project.setFile(new File(moduleDir, "pom.xml"));
+        return new MavenBuildContext.Builder()
+            .project(project)
+            .session(session)
+            .sourceDirectory("src/main/docker")
+            .outputDirectory("target/docker")
+            .build();
+    }
+
+    private BuildConfiguration buildConfig(File sourceDir) {
+        FileSet fileSet = new FileSet();
+        fileSet.setDirectory(sourceDir.getAbsolutePath());
+        Assembly assembly = new Assembly();
+        assembly.addFileSet(fileSet);
+        return new BuildConfiguration.Builder()
+            .assembly(new MavenAssemblyConfiguration.Builder().assemblyDef(assembly).build())
+            .build();
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    // Looks up the archiver for the requested format and adds the file sets, as the real assembly archiver does
+    private static class LookupAssemblyArchiver implements AssemblyArchiver {
+        @Override
+        public File createArchive(Assembly assembly, String fullName, String format, AssemblerConfigurationSource source,
+                                  boolean recompressZippedFiles, String mergeManifestMode) throws ArchiveCreationException {
+            try {
+                Archiver archiver = container.lookup(Archiver.class, format);
+                archiver.setDestFile(new File(source.getOutputDirectory(), fullName + "." + format));
+                for (FileSet fileSet : assembly.getFileSets()) {
+                    File[] files = new File(fileSet.getDirectory()).listFiles();
+                    for (File file : files != null ? files : new File[0]) {
+                        archiver.addFile(file, file.getName());
+                        // Give other threads a chance to interleave
+                        Thread.yield();
+                    }
+                }
+                archiver.createArchive();
+                return archiver.getDestFile();
+            } catch (Exception e) {
+                throw new ArchiveCreationException("Cannot track " + fullName + ": " + e, e);
+            }
+        }
+    }
+}
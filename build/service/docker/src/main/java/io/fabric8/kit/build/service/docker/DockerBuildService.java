@@ -2,28 +2,44 @@ package io.fabric8.kit.build.service.docker;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import io.fabric8.kit.build.api.BuildContext;
+import io.fabric8.kit.build.api.BuildFingerprint;
 import io.fabric8.kit.build.api.BuildService;
+import io.fabric8.kit.build.api.RegistryContext;
 import io.fabric8.kit.build.api.RegistryService;
+import io.fabric8.kit.build.api.auth.RegistryAuthConfig;
 import io.fabric8.kit.build.service.docker.access.BuildOptions;
 import io.fabric8.kit.build.service.docker.access.DockerAccess;
 import io.fabric8.kit.build.service.docker.access.DockerAccessException;
+import io.fabric8.kit.build.service.docker.access.DockerFeature;
+import io.fabric8.kit.build.service.docker.access.ImageCleanupResult;
+import io.fabric8.kit.common.DaemonThreadFactory;
 import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.common.KitMetrics;
 import io.fabric8.kit.common.TimeUtil;
 import io.fabric8.kit.config.image.ImageConfiguration;
 import io.fabric8.kit.config.image.ImageName;
 import io.fabric8.kit.config.image.build.AssemblyConfiguration;
 import io.fabric8.kit.config.image.build.BuildConfiguration;
 import io.fabric8.kit.config.image.build.CleanupMode;
-import io.fabric8.kit.config.image.build.DockerFileBuilder;
+import io.fabric8.kit.config.image.build.DockerFile;
 import io.fabric8.kit.config.image.build.ImagePullPolicy;
 
 
@@ -31,10 +47,34 @@ public class DockerBuildService implements BuildService {
 
     public static final String DEFAULT_DATA_BASE_IMAGE = "busybox:latest";
 
+    // Label holding the fingerprint of the configuration and the inputs an image has been built from
+    public static final String FINGERPRINT_LABEL = "io.fabric8.kit.build.fingerprint";
+
+    // Metric names
+    static final String METRIC_BUILD = "build.image";
+    static final String METRIC_BUILD_SKIPPED = "build.skipped";
+    static final String METRIC_LOAD = "build.load";
+    static final String METRIC_CONTEXT_ARCHIVE = "build.context.archive";
+    static final String METRIC_CONTEXT_SIZE = "build.context.size";
+    static final String METRIC_REMOVE_OLD = "build.remove.old";
+    static final String METRIC_CACHE_SEED = "build.cache.seed";
+
+    // Old images removed at the same time when closing a build session
+    private static final int OLD_IMAGE_REMOVAL_PARALLELISM = 4;
+
+    // Cache images pulled at the same time, next to the base image
+    private static final int CACHE_PULL_PARALLELISM = 4;
+
     private final DockerAccess docker;
     private final RegistryService registryService;
     private final KitLogger log;
 
+    // Images replaced by builds, removed when the last build session is closed. Keyed by image id.
+    private final Map<String, OldImage> oldImages = new LinkedHashMap<>();
+
+    // Number of build sessions open, guarded by oldImages
+    private int openSessions;
+
     public DockerBuildService(DockerAccess docker, RegistryService registryService, KitLogger log) {
         this.docker = docker;
         this.registryService = registryService;
@@ -50,19 +90,30 @@ public class DockerBuildService implements BuildService {
     @Override
     public void buildImage(ImageConfiguration imageConfig, BuildContext buildContext, Map<String, String> buildArgs)
         throws IOException {
-            // Call a pre-hook to the build
-            autoPullBaseImageIfRequested(imageConfig, buildContext);
+        // Call a pre-hook to the build
+        String fromImage = autoPullBaseImageIfRequested(imageConfig, buildContext);
 
-            String imageName = imageConfig.getName();
-            ImageName.validate(imageName);
-            BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
+        String imageName = imageConfig.getName();
+        ImageName.validate(imageName);
+        BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
 
-            // Load an archive if present
-            if (buildConfig.getDockerArchive() != null) {
-                loadImageFromArchive(imageName, buildContext, new File(buildConfig.getDockerArchive()));
-                return;
-            }
+        // Load an archive if present
+        if (buildConfig.getDockerArchive() != null) {
+            loadImageFromArchive(imageName, buildContext, new File(buildConfig.getDockerArchive()));
+            return;
+        }
+
+        // Skip the build if the image has been built from the very same configuration and inputs
+        Map<String, String> effectiveBuildArgs = getBuildArgsFromProperties(buildContext, buildArgs);
+        String fingerprint = createFingerprint(imageConfig, buildContext, effectiveBuildArgs, fromImage);
+        if (isUpToDate(imageConfig, fingerprint)) {
+            return;
+        }
 
+        // Pull the images to use as build cache while the context archive is created. Only done for an actual
+        // build, as pulls which are already running can't be aborted.
+        CacheSeed cacheSeed = seedCache(imageConfig, buildContext);
+        try {
             // Get old image id (if requested
             Optional<String> oldImageId = getOldImageId(imageName, buildConfig);
 
@@ -70,14 +121,85 @@ public class DockerBuildService implements BuildService {
             File dockerArchive = createDockerContextArchive(imageConfig, buildContext);
 
             // Prepare options for building against a Docker daemon and do the build
-            String newImageId = build(imageConfig,
-                                      getBuildArgsFromProperties(buildContext, buildArgs),
-                                      dockerArchive);
+            List<String> cacheFrom = cacheSeed.await(imageConfig);
+            if (!cacheFrom.isEmpty()) {
+                log.verbose("%s: Using %s as build cache", imageConfig.getDescription(), cacheFrom);
+            }
+            String newImageId = build(imageConfig, effectiveBuildArgs, dockerArchive, fingerprint, cacheFrom);
 
-            // Remove the image if requested
+            // Remove the old image, if requested
             if (oldImageId.isPresent() && !oldImageId.get().equals(newImageId)) {
                 removeOldImage(imageConfig, oldImageId.get());
             }
+        } finally {
+            // Don't wait for pulls which are not needed anymore, e.g. because the build failed
+            cacheSeed.cancel();
+        }
+    }
+
+    /**
+     * Start a build session. Images replaced by builds are then removed all at once when the last open
+     * session is closed instead of directly after each build.
+     *
+     * @return session which must be closed after all images have been built
+     */
+    @Override
+    public BuildSession startSession() {
+        synchronized (oldImages) {
+            openSessions++;
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                closeSession();
+            }
+        };
+    }
+
+    private void closeSession() throws DockerAccessException {
+        List<OldImage> toRemove;
+        synchronized (oldImages) {
+            if (--openSessions > 0) {
+                return;
+            }
+            toRemove = new ArrayList<>(oldImages.values());
+            oldImages.clear();
+        }
+        removeOldImages(toRemove);
+    }
+
+    // Remove the given images all at once. With the cleanup mode "try" failures are only logged, with "remove"
+    // the first one is thrown after all removals have been tried.
+    private void removeOldImages(List<OldImage> toRemove) throws DockerAccessException {
+        if (toRemove.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>();
+        for (OldImage oldImage : toRemove) {
+            ids.add(oldImage.id);
+        }
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
+        ImageCleanupResult result = docker.removeImages(ids, true, OLD_IMAGE_REMOVAL_PARALLELISM);
+        metrics.timer(METRIC_REMOVE_OLD).recordSince(start);
+
+        DockerAccessException error = null;
+        for (OldImage oldImage : toRemove) {
+            DockerAccessException exp = result.getFailures().get(oldImage.id);
+            if (exp == null) {
+                if (result.getRemoved().contains(oldImage.id)) {
+                    log.info("%s: Removed old image %s", oldImage.description, oldImage.id);
+                }
+            } else if (oldImage.cleanupMode == CleanupMode.TRY_TO_REMOVE) {
+                log.warn("%s: %s (old image)%s", oldImage.description, exp.getMessage(),
+                         (exp.getCause() != null ? " [" + exp.getCause().getMessage() + "]" : ""));
+            } else if (error == null) {
+                error = exp;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
     }
 
     public void tagImage(String imageName, ImageConfiguration imageConfig) throws DockerAccessException {
@@ -87,7 +209,7 @@ public class DockerBuildService implements BuildService {
 
             for (String tag : tags) {
                 if (tag != null) {
-                    docker.tag(imageName, new ImageName(imageName, tag).getFullName(), true);
+                    docker.tag(imageName, ImageName.of(imageName, tag).getFullName(), true);
                 }
             }
 
@@ -96,12 +218,13 @@ public class DockerBuildService implements BuildService {
     }
 
 
-    private void autoPullBaseImageIfRequested(ImageConfiguration imageConfig, BuildContext buildContext) throws IOException {
+    // Returns the base image, if any
+    private String autoPullBaseImageIfRequested(ImageConfiguration imageConfig, BuildContext buildContext) throws IOException {
         BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
 
         if (buildConfig.getDockerArchive() != null) {
             // No auto pull needed in archive mode
-            return;
+            return null;
         }
 
         String fromImage;
@@ -119,6 +242,74 @@ public class DockerBuildService implements BuildService {
 
             registryService.pullImage(fromImage, imagePullPolicy, buildContext.getRegistryContext());
         }
+        return fromImage;
+    }
+
+    // Start pulling the configured cache images and, if seeding is enabled, earlier versions of the image
+    private CacheSeed seedCache(ImageConfiguration imageConfig, BuildContext buildContext) throws IOException {
+        BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
+        if (checkForNocache(imageConfig)) {
+            return CacheSeed.NONE;
+        }
+        RegistryContext registryContext = buildContext.getRegistryContext();
+        List<String> candidates = getCacheCandidates(imageConfig, registryContext);
+        if (candidates.isEmpty()) {
+            return CacheSeed.NONE;
+        }
+        if (!docker.getCapabilities().supports(DockerFeature.BUILD_CACHE_FROM)) {
+            log.verbose("%s: Docker daemon can't use images as build cache, not pulling %s", imageConfig.getDescription(), candidates);
+            return CacheSeed.NONE;
+        }
+
+        List<String> configured = buildConfig.getCacheFrom();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(candidates.size(), CACHE_PULL_PARALLELISM),
+                                                                new DaemonThreadFactory("docker-cache-pull"));
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
+        Map<String, Future<Boolean>> pulls = new LinkedHashMap<>();
+        for (String image : candidates) {
+            pulls.put(image, executor.submit(() -> {
+                try {
+                    registryService.pullImage(image, ImagePullPolicy.IfNotPresent, registryContext);
+                    return true;
+                } catch (IOException | RuntimeException exp) {
+                    // Earlier versions might not have been pushed yet, which is fine
+                    if (configured.contains(image)) {
+                        log.warn("%s: Cannot pull %s for use as build cache: %s", imageConfig.getDescription(), image, exp.getMessage());
+                    } else {
+                        log.verbose("%s: No %s for use as build cache (%s)", imageConfig.getDescription(), image, exp.getMessage());
+                    }
+                    return false;
+                }
+            }));
+        }
+        executor.shutdown();
+        return new CacheSeed(executor, pulls, () -> metrics.timer(METRIC_CACHE_SEED).recordSince(start));
+    }
+
+    // Configured cache images first, then the image under its own tag, its additional tags and "latest" in the
+    // registry it is pushed to. The build's own target name is never pulled, as this would change the local image
+    // which is inspected for the up-to-date check and the old image removal while the pulls run.
+    private List<String> getCacheCandidates(ImageConfiguration imageConfig, RegistryContext registryContext) {
+        BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
+        ImageName name = ImageName.of(imageConfig.getName());
+        Set<String> ret = new LinkedHashSet<>(buildConfig.getCacheFrom());
+        if (Boolean.TRUE.equals(buildConfig.getCacheSeed())) {
+            String registry = name.getRegistry() != null ? name.getRegistry() :
+                imageConfig.getRegistry() != null ? imageConfig.getRegistry() :
+                    registryContext.getRegistry(RegistryAuthConfig.Kind.PUSH);
+            String repository = name.getNameWithoutTag(registry);
+            if (name.getTag() != null && !name.hasDigest()) {
+                ret.add(repository + ":" + name.getTag());
+            }
+            for (String tag : buildConfig.getTags()) {
+                ret.add(repository + ":" + tag);
+            }
+            ret.add(repository + ":latest");
+        }
+        String target = name.getFullName();
+        ret.removeIf(candidate -> ImageName.of(candidate).getFullName().equals(target));
+        return new ArrayList<>(ret);
     }
 
     private ImagePullPolicy createPullPolicy(String imagePullPolicy) {
@@ -145,9 +336,7 @@ public class DockerBuildService implements BuildService {
         String fromImage;
         try {
             final File fullDockerFilePath = ctx.inSourceDir(buildConfig.calculateDockerFilePath().getPath());
-            fromImage = extractBaseImage(
-                fullDockerFilePath,
-                ctx.createInterpolator(buildConfig.getFilter()));
+            fromImage = ctx.parseDockerFile(fullDockerFilePath, buildConfig.getFilter()).getBaseImage();
 
         } catch (IOException e) {
             // Cant extract base image, so we wont try an auto pull. An error will occur later anyway when
@@ -157,29 +346,47 @@ public class DockerBuildService implements BuildService {
         return fromImage;
     }
 
-    public static String extractBaseImage(File dockerFile, Function<String, String> interpolator) throws IOException {
-        List<String[]> fromLines = DockerFileBuilder.extractLines(dockerFile, "FROM", interpolator);
-        if (!fromLines.isEmpty()) {
-            String[] parts = fromLines.get(0);
-            if (parts.length > 1) {
-                return parts[1];
-            }
+    // IDs of the images of all stages, so that an updated base image of any stage triggers a build
+    private Map<String, String> getBaseImageIds(BuildConfiguration buildConfig, BuildContext ctx, String fromImage)
+        throws IOException {
+        List<String> images;
+        if (buildConfig.isDockerFileMode()) {
+            File dockerFile = ctx.inSourceDir(buildConfig.calculateDockerFilePath().getPath());
+            images = ctx.parseDockerFile(dockerFile, buildConfig.getFilter()).getExternalBaseImages();
+        } else {
+            images = fromImage != null && !"scratch".equals(fromImage) ?
+                Collections.singletonList(fromImage) : Collections.emptyList();
+        }
+        Map<String, String> ret = new LinkedHashMap<>();
+        for (String image : images) {
+            ret.put(image, docker.getImageId(image));
         }
-        return null;
+        return ret;
+    }
+
+    public static String extractBaseImage(File dockerFile, Function<String, String> interpolator) throws IOException {
+        return DockerFile.parse(dockerFile, interpolator).getBaseImage();
     }
 
     private void loadImageFromArchive(String imageName, BuildContext ctx, File dockerArchive) throws DockerAccessException {
         long time = System.currentTimeMillis();
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         File dockerArchiveAbsolute = ctx.inSourceDir( dockerArchive.getPath());
         docker.loadImage(imageName, dockerArchiveAbsolute);
+        metrics.timer(METRIC_LOAD).recordSince(start);
         log.info("%s: Loaded tarball in %s", dockerArchive, TimeUtil.formatDurationTill(time));
     }
 
     private File createDockerContextArchive(ImageConfiguration imageConfig, BuildContext ctx) throws IOException {
         long time = System.currentTimeMillis();
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         String imageName = imageConfig.getName();
         BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
         File dockerContextArchive = ctx.createImageContentArchive(imageName, buildConfig, log);
+        metrics.timer(METRIC_CONTEXT_ARCHIVE).recordSince(start);
+        metrics.histogram(METRIC_CONTEXT_SIZE).record(dockerContextArchive.length());
         log.info("%s: Created %s in %s",
                  imageConfig.getDescription(),
                  dockerContextArchive.getName(),
@@ -187,6 +394,80 @@ public class DockerBuildService implements BuildService {
         return dockerContextArchive;
     }
 
+    // Fingerprint over everything which makes up the image, or null if the build inputs can't be determined
+    private String createFingerprint(ImageConfiguration imageConfig, BuildContext ctx,
+                                     Map<String, String> buildArgs, String fromImage) throws IOException {
+        String imageName = imageConfig.getName();
+        BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
+        String inputFingerprint = ctx.createInputFingerprint(imageName, buildConfig, log);
+        if (inputFingerprint == null) {
+            return null;
+        }
+        AssemblyConfiguration assemblyConfig = buildConfig.getAssemblyConfiguration();
+        return new BuildFingerprint()
+            .add("name", imageName)
+            .add("inputs", inputFingerprint)
+            .add("baseImageIds", getBaseImageIds(buildConfig, ctx, fromImage))
+            .add("dockerFile", getDockerfileName(buildConfig))
+            .add("contextDir", buildConfig.getContextDir())
+            .add("filter", buildConfig.getFilter())
+            .add("from", buildConfig.getFrom())
+            .add("fromExt", buildConfig.getFromExt())
+            .add("maintainer", buildConfig.getMaintainer())
+            .add("workdir", buildConfig.getWorkdir())
+            .add("ports", buildConfig.getPorts())
+            .add("volumes", buildConfig.getVolumes())
+            .add("tags", buildConfig.getTags())
+            .add("env", buildConfig.getEnv())
+            .add("labels", buildConfig.getLabels())
+            .add("cmd", buildConfig.getCmd())
+            .add("entryPoint", buildConfig.getEntryPoint())
+            .add("runCmds", buildConfig.getRunCmds())
+            .add("user", buildConfig.getUser())
+            .add("healthCheck", buildConfig.getHealthCheck())
+            .add("optimise", buildConfig.getOptimise())
+            .add("buildOptions", buildConfig.getBuildOptions())
+            .add("buildArgs", prepareBuildArgs(buildArgs, buildConfig))
+            .add("stages", buildConfig.getStages())
+            .add("copies", buildConfig.getCopies())
+            .add("target", buildConfig.getTarget())
+            .add("assembly.name", assemblyConfig != null ? assemblyConfig.getName() : null)
+            .add("assembly.targetDir", assemblyConfig != null ? assemblyConfig.getTargetDir() : null)
+            .add("assembly.descriptor", assemblyConfig != null ? assemblyConfig.getDescriptor() : null)
+            .add("assembly.descriptorRef", assemblyConfig != null ? assemblyConfig.getDescriptorRef() : null)
+            .add("assembly.mode", assemblyConfig != null ? assemblyConfig.getMode() : null)
+            .add("assembly.user", assemblyConfig != null ? assemblyConfig.getUser() : null)
+            .add("assembly.permissions", assemblyConfig != null ? assemblyConfig.getPermissions() : null)
+            .add("assembly.exportTargetDir", assemblyConfig != null ? assemblyConfig.getExportTargetDir() : null)
+            .hash();
+    }
+
+    private boolean isUpToDate(ImageConfiguration imageConfig, String fingerprint) throws DockerAccessException {
+        if (fingerprint == null) {
+            log.debug("%s: Build inputs can't be fingerprinted, building image", imageConfig.getDescription());
+            return false;
+        }
+        if (checkForNocache(imageConfig)) {
+            log.debug("%s: Build cache disabled, building image", imageConfig.getDescription());
+            return false;
+        }
+        Map<String, String> labels = docker.getImageLabels(imageConfig.getName());
+        if (labels == null) {
+            log.debug("%s: No image exists yet, building image", imageConfig.getDescription());
+            return false;
+        }
+        String existing = labels.get(FINGERPRINT_LABEL);
+        if (!fingerprint.equals(existing)) {
+            log.debug("%s: Fingerprint %s differs from %s of the existing image, building image",
+                      imageConfig.getDescription(), fingerprint, existing);
+            return false;
+        }
+        log.info("%s: Skipped build, configuration and inputs are unchanged since the existing image has been built (%s)",
+                 imageConfig.getDescription(), fingerprint);
+        KitMetrics.get().counter(METRIC_BUILD_SKIPPED).increment();
+        return true;
+    }
+
     private Optional<String> getOldImageId(String imageName, BuildConfiguration buildConfig) throws DockerAccessException {
         CleanupMode cleanupMode = CleanupMode.parse(buildConfig.getCleanupMode());
         return cleanupMode.isRemove() ?
@@ -196,7 +477,9 @@ public class DockerBuildService implements BuildService {
 
     private String build(ImageConfiguration imageConfig,
                          Map<String, String> buildArgs,
-                         File dockerArchive) throws DockerAccessException {
+                         File dockerArchive,
+                         String fingerprint,
+                         List<String> cacheFrom) throws DockerAccessException {
         String imageName = imageConfig.getName();
         BuildConfiguration buildConfig = imageConfig.getBuildConfiguration();
         boolean noCache = checkForNocache(imageConfig);
@@ -205,26 +488,35 @@ public class DockerBuildService implements BuildService {
                         .dockerfile(getDockerfileName(buildConfig))
                         .forceRemove(CleanupMode.parse(buildConfig.getCleanupMode()).isRemove())
                         .noCache(noCache)
-                        .buildArgs(prepareBuildArgs(buildArgs, buildConfig));
+                        .buildArgs(prepareBuildArgs(buildArgs, buildConfig))
+                        .target(buildConfig.getTarget())
+                        .cacheFrom(cacheFrom)
+                        .label(FINGERPRINT_LABEL, fingerprint);
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         docker.buildImage(imageName, dockerArchive, opts);
+        metrics.timer(METRIC_BUILD, "noCache", Boolean.toString(noCache)).recordSince(start);
         String newImageId = docker.getImageId(imageName);
         log.info("%s: Built image %s", imageConfig.getDescription(), newImageId);
         return newImageId;
     }
 
+    // Remove the old image right away, or when the last build session is closed if one is open
     private void removeOldImage(ImageConfiguration imageConfig, String oldImageId) throws DockerAccessException {
-        try {
-            docker.removeImage(oldImageId, true);
-            log.info("%s: Removed old image %s", imageConfig.getDescription(), oldImageId);
-        } catch (DockerAccessException exp) {
-            String cleanup = imageConfig.getBuildConfiguration().getCleanupMode();
-            if (CleanupMode.parse(cleanup) == CleanupMode.TRY_TO_REMOVE) {
-                log.warn("%s: %s (old image)%s", imageConfig.getDescription(), exp.getMessage(),
-                         (exp.getCause() != null ? " [" + exp.getCause().getMessage() + "]" : ""));
-            } else {
-                throw exp;
+        CleanupMode cleanupMode = CleanupMode.parse(imageConfig.getBuildConfiguration().getCleanupMode());
+        OldImage oldImage = new OldImage(imageConfig.getDescription(), oldImageId, cleanupMode);
+        synchronized (oldImages) {
+            if (openSessions > 0) {
+                OldImage scheduled = oldImages.get(oldImageId);
+                // Failing to remove an image shared by several configurations fails the build if any of them asks for it
+                if (scheduled == null || scheduled.cleanupMode == CleanupMode.TRY_TO_REMOVE) {
+                    oldImages.put(oldImageId, oldImage);
+                }
+                log.debug("%s: Old image %s will be removed when all builds are done", oldImage.description, oldImageId);
+                return;
             }
         }
+        removeOldImages(Collections.singletonList(oldImage));
     }
 
     private Map<String, String> prepareBuildArgs(Map<String, String> buildArgs, BuildConfiguration buildConfig) {
@@ -288,4 +580,60 @@ public class DockerBuildService implements BuildService {
     private boolean isEmpty(String str) {
         return str == null || str.isEmpty();
     }
+
+    private static final class OldImage {
+        private final String description;
+        private final String id;
+        private final CleanupMode cleanupMode;
+
+        private OldImage(String description, String id, CleanupMode cleanupMode) {
+            this.description = description;
+            this.id = id;
+            this.cleanupMode = cleanupMode;
+        }
+    }
+
+    // Pulls of images to be used as build cache, running in the background
+    private static final class CacheSeed {
+
+        private static final CacheSeed NONE = new CacheSeed(null, Collections.emptyMap(), () -> {});
+
+        private final ExecutorService executor;
+        private final Map<String, Future<Boolean>> pulls;
+        private final Runnable onDone;
+
+        private CacheSeed(ExecutorService executor, Map<String, Future<Boolean>> pulls, Runnable onDone) {
+            this.executor = executor;
+            this.pulls = pulls;
+            this.onDone = onDone;
+        }
+
+        // Wait for the pulls and return the images which are available
+        private List<String> await(ImageConfiguration imageConfig) throws IOException {
+            if (pulls.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<String> ret = new ArrayList<>();
+            try {
+                for (Map.Entry<String, Future<Boolean>> pull : pulls.entrySet()) {
+                    if (pull.getValue().get()) {
+                        ret.add(pull.getKey());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while pulling images for the build cache of " + imageConfig.getDescription(), e);
+            } catch (ExecutionException e) {
+                throw new IOException("Cannot pull images for the build cache of " + imageConfig.getDescription(), e.getCause());
+            }
+            onDone.run();
+            return ret;
+        }
+
+        private void cancel() {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
 }
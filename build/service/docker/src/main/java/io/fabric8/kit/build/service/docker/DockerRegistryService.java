@@ -8,6 +8,7 @@ import io.fabric8.kit.build.api.auth.RegistryAuth;
 import io.fabric8.kit.build.api.auth.RegistryAuthConfig;
 import io.fabric8.kit.build.service.docker.access.DockerAccess;
 import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.common.KitMetrics;
 import io.fabric8.kit.common.TimeUtil;
 import io.fabric8.kit.config.image.ImageConfiguration;
 import io.fabric8.kit.config.image.ImageName;
@@ -20,6 +21,11 @@ import io.fabric8.kit.config.image.build.ImagePullPolicy;
  */
 public class DockerRegistryService implements RegistryService {
 
+    // Metric names
+    static final String METRIC_PUSH = "registry.push";
+    static final String METRIC_PULL = "registry.pull";
+    static final String METRIC_PULL_CACHED = "registry.pull.cached";
+
     private final DockerAccess docker;
     private final KitLogger log;
     private final ImagePullCache imagePullCache;
@@ -44,27 +50,34 @@ public class DockerRegistryService implements RegistryService {
         String name = imageConfig.getName();
         if (buildConfig != null) {
             String registry = firstRegistryOf(
-                new ImageName(imageConfig.getName()).getRegistry(),
+                ImageName.of(imageConfig.getName()).getRegistry(),
                 imageConfig.getRegistry(),
                 context.getRegistry(RegistryAuthConfig.Kind.PUSH));
 
 
-            RegistryAuth registryAuth = context.getAuthConfig(RegistryAuthConfig.Kind.PUSH, new ImageName(name).getUser(), registry);
+            RegistryAuth registryAuth = context.getAuthConfig(RegistryAuthConfig.Kind.PUSH, ImageName.of(name).getUser(), registry);
 
             long start = System.currentTimeMillis();
-            docker.pushImage(name, registryAuth.toHeaderValue(), registry, retries);
-            log.info("Pushed %s in %s", name, TimeUtil.formatDurationTill(start));
+            KitMetrics metrics = KitMetrics.get();
+            long metricsStart = metrics.startTime();
+            String digest = docker.pushImage(name, registryAuth.toHeaderValue(), registry, retries);
+            metrics.timer(METRIC_PUSH, "registry", registryTag(registry)).recordSince(metricsStart);
+            log.info("Pushed %s in %s%s", name, TimeUtil.formatDurationTill(start), digest != null ? " (" + digest + ")" : "");
 
             if (!skipTag) {
                 for (String tag : imageConfig.getBuildConfiguration().getTags()) {
                     if (tag != null) {
-                        docker.pushImage(new ImageName(name, tag).getFullName(), registryAuth.toHeaderValue(), registry, retries);
+                        docker.pushImage(ImageName.of(name, tag).getFullName(), registryAuth.toHeaderValue(), registry, retries);
                     }
                 }
             }
         }
     }
 
+    private String registryTag(String registry) {
+        return registry != null ? registry : "default";
+    }
+
     private String firstRegistryOf(String... checkFirst) {
         for (String registry : checkFirst) {
             if (registry != null) {
@@ -86,29 +99,41 @@ public class DockerRegistryService implements RegistryService {
 
         // Already pulled, so we don't need to take care
         if (imagePullCache.hasAlreadyPulled(image)) {
+            KitMetrics.get().counter(METRIC_PULL_CACHED).increment();
+            return;
+        }
+
+        ImageName imageName = ImageName.of(image);
+        boolean hasImage = docker.hasImage(image);
+
+        // Content referenced by a digest never changes, so a local copy is always up to date
+        if (hasImage && imageName.hasDigest()) {
+            imagePullCache.pulled(image, imageName.getDigest());
             return;
         }
 
         // Check if a pull is required
-        if (!imageRequiresPull(docker.hasImage(image), policy, image)) {
+        if (!imageRequiresPull(hasImage, policy, image)) {
             return;
         }
 
-        ImageName imageName = new ImageName(image);
         long time = System.currentTimeMillis();
+        KitMetrics metrics = KitMetrics.get();
+        long metricsStart = metrics.startTime();
         String registry = firstRegistryOf(
             imageName.getRegistry(),
             registryContext.getRegistry(RegistryAuthConfig.Kind.PULL));
 
-        docker.pullImage(imageName.getFullName(),
-                         registryContext.getAuthConfig(RegistryAuthConfig.Kind.PULL, null, registry).toHeaderValue(),
-                         registry);
+        String digest = docker.pullImage(imageName.getFullName(),
+                                         registryContext.getAuthConfig(RegistryAuthConfig.Kind.PULL, null, registry).toHeaderValue(),
+                                         registry);
+        metrics.timer(METRIC_PULL, "registry", registryTag(registry)).recordSince(metricsStart);
         log.info("Pulled %s in %s", imageName.getFullName(), TimeUtil.formatDurationTill(time));
-        imagePullCache.pulled(image);
+        imagePullCache.pulled(image, digest);
 
-        if (registry != null && !imageName.hasRegistry()) {
+        if (registry != null && !imageName.hasRegistry() && !imageName.hasDigest()) {
             // If coming from a registry which was not contained in the original name, add a tag from the
-            // full name with the registry to the short name with no-registry.
+            // full name with the registry to the short name with no-registry. Digest references can't be used as tag.
             docker.tag(imageName.getFullName(registry), image, false);
         }
     }
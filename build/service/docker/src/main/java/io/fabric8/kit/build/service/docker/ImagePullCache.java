@@ -1,10 +1,19 @@
 package io.fabric8.kit.build.service.docker;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import io.fabric8.kit.common.JsonFactory;
+import io.fabric8.kit.config.image.ImageName;
 
 /**
  * Simple interface for a ImagePullCache manager, to load and persist the cache.
+ *
+ * Images are recorded with the digest of the pulled manifest, if known. As content referenced
+ * by a digest is immutable, a reference <code>repo@digest</code> counts as already pulled when the same
+ * content has been pulled under any tag or from any registry before.
+ *
+ * All accessors are synchronized, so that concurrent pulls don't lose each other's updates.
  */
 public class ImagePullCache {
 
@@ -17,12 +26,42 @@ public class ImagePullCache {
         this.backend = backend;
     }
 
-    public boolean hasAlreadyPulled(String image) {
-        return load().has(image);
+    public synchronized boolean hasAlreadyPulled(String image) {
+        ImagePullCacheStore cache = load();
+        if (cache.has(image)) {
+            return true;
+        }
+        String digestKey = digestKey(image, null);
+        return digestKey != null && cache.has(digestKey);
+    }
+
+    public synchronized void pulled(String image) {
+        pulled(image, null);
+    }
+
+    /**
+     * Record a pulled image
+     *
+     * @param image image name as used for the pull
+     * @param digest digest of the pulled manifest or <code>null</code> if not known
+     */
+    public synchronized void pulled(String image, String digest) {
+        ImagePullCacheStore cache = load().add(image, digest);
+        String digestKey = digestKey(image, digest);
+        if (digestKey != null) {
+            cache.add(digestKey, digest);
+        }
+        save(cache);
     }
 
-    public void pulled(String image) {
-        save(load().add(image));
+    /**
+     * Get the digest recorded for a pulled image
+     *
+     * @param image image to lookup
+     * @return digest or <code>null</code> if the image has not been pulled or its digest is not known
+     */
+    public synchronized String getDigest(String image) {
+        return load().getDigest(image);
     }
 
     // Store to use for the cached
@@ -33,16 +72,19 @@ public class ImagePullCache {
 
     // ======================================================================================
 
-    private ImagePullCacheStore load() {
-
-        String pullCacheJson = backend.get(CONTEXT_KEY_PREVIOUSLY_PULLED);
-
-        ImagePullCacheStore cache = new ImagePullCacheStore(pullCacheJson);
-
-        if (pullCacheJson == null) {
-            save(cache);
+    // Registry and tag independent key for the content of an image, null if no digest is known
+    private String digestKey(String image, String digest) {
+        if (digest == null && image.indexOf('@') < 0) {
+            return null;
         }
-        return cache;
+        ImageName name = ImageName.of(image);
+        String digestToUse = digest != null ? digest : name.getDigest();
+        return digestToUse != null ? name.getRepository() + "@" + digestToUse : null;
+    }
+
+    // Only reads, the store is written when an image has been pulled
+    private ImagePullCacheStore load() {
+        return new ImagePullCacheStore(backend.get(CONTEXT_KEY_PREVIOUSLY_PULLED));
     }
 
     private void save(ImagePullCacheStore cache) {
@@ -69,10 +111,28 @@ public class ImagePullCache {
         }
 
         public ImagePullCacheStore add(String image) {
-            cache.addProperty(image, Boolean.TRUE);
+            return add(image, null);
+        }
+
+        public ImagePullCacheStore add(String image, String digest) {
+            if (digest != null) {
+                cache.addProperty(image, digest);
+            } else if (getDigest(image) == null) {
+                cache.addProperty(image, Boolean.TRUE);
+            }
             return this;
         }
 
+        // Entries without a known digest are stored as 'true'
+        public String getDigest(String image) {
+            JsonElement value = cache.get(image);
+            if (value != null && value.isJsonPrimitive()) {
+                JsonPrimitive primitive = value.getAsJsonPrimitive();
+                return primitive.isString() ? primitive.getAsString() : null;
+            }
+            return null;
+        }
+
         @Override
         public String toString() {
             return cache.toString();
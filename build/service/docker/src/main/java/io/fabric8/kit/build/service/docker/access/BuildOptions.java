@@ -16,8 +16,11 @@ package io.fabric8.kit.build.service.docker.access;/*
  */
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
+import com.google.gson.JsonObject;
 import io.fabric8.kit.common.JsonFactory;
 
 /**
@@ -60,6 +63,13 @@ public class BuildOptions {
         return this;
     }
 
+    public BuildOptions target(String target) {
+        if (target != null) {
+            options.put("target", target);
+        }
+        return this;
+    }
+
     public BuildOptions buildArgs(Map<String, String> buildArgs) {
         if (buildArgs != null && buildArgs.size() > 0) {
             options.put("buildargs", JsonFactory.newJsonObject(buildArgs).toString());
@@ -67,8 +77,57 @@ public class BuildOptions {
         return this;
     }
 
+    public BuildOptions label(String key, String value) {
+        if (value != null) {
+            String existing = options.get("labels");
+            JsonObject labels = existing != null ? JsonFactory.newJsonObject(existing) : new JsonObject();
+            labels.addProperty(key, value);
+            options.put("labels", labels.toString());
+        }
+        return this;
+    }
+
+    public BuildOptions cacheFrom(List<String> images) {
+        if (images != null && images.size() > 0) {
+            options.put("cachefrom", JsonFactory.newJsonArray(images).toString());
+        }
+        return this;
+    }
+
+    public BuildOptions platform(String platform) {
+        if (platform != null) {
+            options.put("platform", platform);
+        }
+        return this;
+    }
+
+    public BuildOptions squash(boolean squash) {
+        if (squash) {
+            options.put("squash", "1");
+        }
+        return this;
+    }
+
     public Map<String, String> getOptions() {
         return options;
     }
+
+    /**
+     * Options without those which the daemon doesn't support
+     *
+     * @param capabilities what the daemon supports
+     * @return new options with the unsupported ones removed
+     */
+    public BuildOptions supportedBy(DockerCapabilities capabilities) {
+        BuildOptions ret = new BuildOptions(options);
+        Iterator<String> it = ret.options.keySet().iterator();
+        while (it.hasNext()) {
+            DockerFeature feature = DockerFeature.forBuildOption(it.next());
+            if (feature != null && !capabilities.supports(feature)) {
+                it.remove();
+            }
+        }
+        return ret;
+    }
 }
 
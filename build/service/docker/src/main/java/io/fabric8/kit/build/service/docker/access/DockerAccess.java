@@ -1,7 +1,9 @@
 package io.fabric8.kit.build.service.docker.access;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -34,13 +36,32 @@ public interface DockerAccess {
     void loadImage(String image, File tarArchive) throws DockerAccessException;
 
     /**
-     * Get the image id of a given name or <code>null</code> if no such image exists
+     * Get the image id of a given name or <code>null</code> if no such image exists. The id is
+     * shortened to 12 characters, use {@link #getRepoDigests(String)} for identifying the content of an image.
      *
      * @param name name to lookup
      * @return the image id or <code>null</code>
      */
     String getImageId(String name) throws DockerAccessException;
 
+    /**
+     * Get the digests under which the given image is known in registries
+     * (e.g. <code>docker.io/fabric8/java@sha256:...</code>)
+     *
+     * @param name name to lookup
+     * @return list of repository digests, which is empty if the image has never been pushed or pulled
+     *         by digest, or <code>null</code> if no such image exists
+     */
+    List<String> getRepoDigests(String name) throws DockerAccessException;
+
+    /**
+     * Get the labels of an image
+     *
+     * @param name name to lookup
+     * @return labels of the image, which might be empty, or <code>null</code> if no such image exists
+     */
+    Map<String, String> getImageLabels(String name) throws DockerAccessException;
+
     /**
      * Create an docker image from a given archive
      *
@@ -62,6 +83,28 @@ public interface DockerAccess {
      */
     boolean removeImage(String image, boolean... force) throws DockerAccessException;
 
+    /**
+     * Remove several images, at most the given number of them concurrently. All images are tried even if
+     * some of them can't be removed.
+     *
+     * @param images names or ids of the images to remove
+     * @param force whether to remove images which are tagged in several repositories or used by stopped containers
+     * @param parallelism maximum number of concurrent removals
+     * @return the removed images and the errors for those which couldn't be removed. Images which don't exist
+     *         are neither.
+     * @throws DockerAccessException if interrupted while waiting for the removals
+     */
+    ImageCleanupResult removeImages(Collection<String> images, boolean force, int parallelism) throws DockerAccessException;
+
+    /**
+     * Remove all unused images selected by the given filters with a single call to the daemon
+     *
+     * @param options filters for the images to remove, <code>null</code> for all dangling images
+     * @return ids of the deleted images and the space freed
+     * @throws DockerAccessException if the daemon doesn't support pruning or pruning fails
+     */
+    ImageCleanupResult pruneImages(PruneOptions options) throws DockerAccessException;
+
     /**
      * Save an image to a tar file
      *
@@ -79,6 +122,14 @@ public interface DockerAccess {
      */
     String getServerApiVersion() throws DockerAccessException;
 
+    /**
+     * Get what the daemon supports. The daemon is asked only once within a short time, the answer is cached.
+     *
+     * @return API versions and features of the daemon
+     * @throws DockerAccessException if the daemon could not be asked
+     */
+    DockerCapabilities getCapabilities() throws DockerAccessException;
+
 
     /**
      * Check whether the given name exists as image at the docker daemon
@@ -94,9 +145,11 @@ public interface DockerAccess {
      * @param image the image to pull.
      * @param authHeader authentication configuration used when pulling an image
      * @param registry an optional registry from where to pull the image. Can be null.
+     * @return the digest of the pulled manifest or <code>null</code> if not reported by the daemon.
+     *         Images referenced by digest (<code>name@sha256:...</code>) are pulled by that digest.
      * @throws DockerAccessException if the image couldn't be pulled.
      */
-    void pullImage(String image, String authHeader, String registry) throws DockerAccessException;
+    String pullImage(String image, String authHeader, String registry) throws DockerAccessException;
 
     /**
      * Push an image to a registry. An registry can be specified which is used as target
@@ -109,7 +162,8 @@ public interface DockerAccess {
      * @param authHeader authentication configuration
      * @param registry optional registry to which the image should be pushed.
      * @param retries optional number of times the push should be retried on a 500 error
+     * @return the digest of the pushed manifest or <code>null</code> if it couldn't be determined
      * @throws DockerAccessException in case pushing fails
      */
-    void pushImage(String image, String authHeader, String registry, int retries) throws DockerAccessException;
+    String pushImage(String image, String authHeader, String registry, int retries) throws DockerAccessException;
 }
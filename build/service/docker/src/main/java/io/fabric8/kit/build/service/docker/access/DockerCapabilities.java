@@ -0,0 +1,188 @@
+package io.fabric8.kit.build.service.docker.access;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * What a Docker daemon supports, as reported by its <code>/version</code> and <code>/info</code> endpoints.
+ * The API version used for talking to the daemon is the highest one supported by both the daemon and
+ * the kit.
+ *
+ * @since 19.10.26
+ */
+public class DockerCapabilities {
+
+    /**
+     * Highest API version the kit can talk
+     */
+    public static final String MAX_API_VERSION = "1.40";
+
+    private final String serverApiVersion;
+    private final String minApiVersion;
+    private final String serverVersion;
+    private final String os;
+    private final String arch;
+    private final String daemonId;
+    private final boolean experimental;
+
+    // When the daemon has been asked, in milliseconds since the epoch
+    private final long fetchedAt;
+
+    private DockerCapabilities(JsonObject json, long fetchedAt) {
+        this.serverApiVersion = getString(json, "ApiVersion");
+        this.minApiVersion = getString(json, "MinAPIVersion");
+        this.serverVersion = getString(json, "Version");
+        this.os = getString(json, "Os");
+        this.arch = getString(json, "Arch");
+        this.daemonId = getString(json, "ID");
+        this.experimental = json.has("ExperimentalBuild") && json.get("ExperimentalBuild").getAsBoolean();
+        this.fetchedAt = fetchedAt;
+        if (serverApiVersion == null) {
+            throw new IllegalArgumentException("No API version given in " + json);
+        }
+    }
+
+    /**
+     * Create the capabilities from the answers of the daemon
+     *
+     * @param version answer of <code>/version</code>
+     * @param info answer of <code>/info</code>
+     * @return capabilities of the daemon
+     */
+    public static DockerCapabilities fromDaemon(JsonObject version, JsonObject info) {
+        JsonObject json = new JsonObject();
+        for (String key : new String[] { "ApiVersion", "MinAPIVersion", "Version", "Os", "Arch" }) {
+            copy(version, json, key);
+        }
+        copy(info, json, "ID");
+        copy(info, json, "ExperimentalBuild");
+        return new DockerCapabilities(json, System.currentTimeMillis());
+    }
+
+    /**
+     * Read capabilities written with {@link #toJson()}
+     */
+    public static DockerCapabilities fromJson(JsonObject json) {
+        return new DockerCapabilities(json, json.get("fetchedAt").getAsLong());
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("ApiVersion", serverApiVersion);
+        json.addProperty("MinAPIVersion", minApiVersion);
+        json.addProperty("Version", serverVersion);
+        json.addProperty("Os", os);
+        json.addProperty("Arch", arch);
+        json.addProperty("ID", daemonId);
+        json.addProperty("ExperimentalBuild", experimental);
+        json.addProperty("fetchedAt", fetchedAt);
+        return json;
+    }
+
+    /**
+     * @return API version to use, the highest one known to both the daemon and the kit, e.g. "1.39"
+     */
+    public String getApiVersion() {
+        return compareVersions(serverApiVersion, MAX_API_VERSION) < 0 ? serverApiVersion : MAX_API_VERSION;
+    }
+
+    /**
+     * @return highest API version supported by the daemon
+     */
+    public String getServerApiVersion() {
+        return serverApiVersion;
+    }
+
+    public String getMinApiVersion() {
+        return minApiVersion;
+    }
+
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    public String getOs() {
+        return os;
+    }
+
+    public String getArch() {
+        return arch;
+    }
+
+    /**
+     * @return unique ID of the daemon, which changes when a different daemon serves the same endpoint
+     */
+    public String getDaemonId() {
+        return daemonId;
+    }
+
+    public boolean isExperimental() {
+        return experimental;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * Check whether a feature can be used with the negotiated API version
+     */
+    public boolean supports(DockerFeature feature) {
+        String apiVersion = getApiVersion();
+        if (compareVersions(apiVersion, feature.getMinApiVersion()) < 0) {
+            return false;
+        }
+        String stable = feature.getStableApiVersion();
+        return experimental || (stable != null && compareVersions(apiVersion, stable) >= 0);
+    }
+
+    public Set<DockerFeature> getFeatures() {
+        Set<DockerFeature> ret = EnumSet.noneOf(DockerFeature.class);
+        for (DockerFeature feature : DockerFeature.values()) {
+            if (supports(feature)) {
+                ret.add(feature);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Compare two API versions like "1.39" numerically
+     *
+     * @return a negative number, zero or a positive number if the first version is lower, equal or higher
+     */
+    public static int compareVersions(String first, String second) {
+        String[] a = first.split("\\.");
+        String[] b = second.split("\\.");
+        for (int i = 0; i < Math.max(a.length, b.length); i++) {
+            int diff = Integer.compare(i < a.length ? Integer.parseInt(a[i]) : 0,
+                                       i < b.length ? Integer.parseInt(b[i]) : 0);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Docker " + serverVersion + " (API " + serverApiVersion + ", " + os + "/" + arch +
+               (experimental ? ", experimental" : "") + "), using API " + getApiVersion() + " with " + getFeatures();
+    }
+
+    // ==========================================================================================
+
+    private static void copy(JsonObject from, JsonObject to, String key) {
+        if (from != null && from.has(key) && !from.get(key).isJsonNull()) {
+            to.add(key, from.get(key));
+        }
+    }
+
+    private static String getString(JsonObject json, String key) {
+        JsonElement value = json.get(key);
+        return value != null && !value.isJsonNull() ? value.getAsString() : null;
+    }
+}
@@ -0,0 +1,218 @@
+package io.fabric8.kit.build.service.docker.access;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.JsonObject;
+import io.fabric8.kit.common.Fingerprints;
+import io.fabric8.kit.common.JsonFactory;
+
+/**
+ * Capabilities of Docker daemons by endpoint (socket path or URL), kept in memory and in a directory so that
+ * subsequent builds don't need to ask the daemon again. Entries expire after a short time. As a different
+ * daemon might be started on the same endpoint, an entry read from the directory is only used after the ID of
+ * the daemon has been checked, which needs a single request instead of the two for fetching the capabilities.
+ * The directory is restricted to its owner, as is the default location in the user's home directory.
+ *
+ * @since 19.10.26
+ */
+public class DockerCapabilityCache {
+
+    public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(10);
+
+    private static final DockerCapabilityCache DEFAULT =
+        new DockerCapabilityCache(new File(System.getProperty("user.home"), ".fabric8-kit/docker-capabilities"), DEFAULT_TTL);
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+    private final File directory;
+    private final long ttl;
+
+    // Guarded by this
+    private final Map<String, DockerCapabilities> entries = new HashMap<>();
+    private Boolean directoryUsable;
+
+    /**
+     * Create a cache
+     *
+     * @param directory directory for storing the entries or <code>null</code> for keeping them in memory only
+     * @param ttl time in milliseconds after which an entry expires
+     */
+    public DockerCapabilityCache(File directory, long ttl) {
+        this.directory = directory;
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return cache shared by all accesses in this JVM, stored in the user's home directory
+     */
+    public static DockerCapabilityCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the capabilities of the daemon at the given endpoint, asking it if they aren't cached yet. The daemon is
+     * asked without holding a lock, so concurrent callers might both ask it, with the same result.
+     *
+     * @param endpoint socket path or URL of the daemon
+     * @param fetcher for asking the daemon
+     * @return capabilities of the daemon
+     * @throws DockerAccessException if the daemon needs to be asked and can't be reached
+     */
+    public DockerCapabilities get(String endpoint, Fetcher fetcher) throws DockerAccessException {
+        synchronized (this) {
+            DockerCapabilities ret = entries.get(endpoint);
+            if (isValid(ret)) {
+                return ret;
+            }
+        }
+        DockerCapabilities ret = read(endpoint);
+        if (isValid(ret) && (ret.getDaemonId() == null || !ret.getDaemonId().equals(fetcher.fetchDaemonId()))) {
+            // Another daemon might have been started on this endpoint
+            ret = null;
+        }
+        if (!isValid(ret)) {
+            ret = fetcher.fetch();
+            write(endpoint, ret);
+        }
+        synchronized (this) {
+            entries.put(endpoint, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Forget the capabilities of the daemon at the given endpoint, e.g. because it has been upgraded
+     */
+    public synchronized void invalidate(String endpoint) {
+        entries.remove(endpoint);
+        if (directory != null) {
+            getFile(endpoint).delete();
+        }
+    }
+
+    /**
+     * Asks a daemon for its capabilities
+     */
+    public interface Fetcher {
+        DockerCapabilities fetch() throws DockerAccessException;
+
+        /**
+         * @return ID of the daemon, for checking that an entry stored before belongs to the same daemon
+         */
+        String fetchDaemonId() throws DockerAccessException;
+    }
+
+    // ==========================================================================================
+
+    private boolean isValid(DockerCapabilities capabilities) {
+        if (capabilities == null) {
+            return false;
+        }
+        long age = System.currentTimeMillis() - capabilities.getFetchedAt();
+        return age >= 0 && age < ttl;
+    }
+
+    private DockerCapabilities read(String endpoint) {
+        if (!isDirectoryUsable(false)) {
+            return null;
+        }
+        File file = getFile(endpoint);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            JsonObject json = JsonFactory.newJsonObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            if (json == null || !endpoint.equals(json.get("endpoint").getAsString())) {
+                return null;
+            }
+            return DockerCapabilities.fromJson(json.getAsJsonObject("capabilities"));
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or from an older version, ask the daemon again
+            return null;
+        }
+    }
+
+    private void write(String endpoint, DockerCapabilities capabilities) {
+        if (!isDirectoryUsable(true)) {
+            return;
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("endpoint", endpoint);
+        json.add("capabilities", capabilities.toJson());
+        Path tmp = null;
+        try {
+            // Write to a new file first, so that concurrent builds never read a partial entry. Temporary files
+            // are created readable by the owner only.
+            tmp = Files.createTempFile(directory.toPath(), "capabilities", ".tmp");
+            Files.write(tmp, json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, getFile(endpoint).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            removeExpired();
+        } catch (IOException e) {
+            // Not cached on disk, but still in memory
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+    }
+
+    // Create the directory with owner only permissions if requested. Not used if others could plant entries.
+    private synchronized boolean isDirectoryUsable(boolean create) {
+        if (directory == null) {
+            return false;
+        }
+        if (directoryUsable != null) {
+            return directoryUsable;
+        }
+        Path path = directory.toPath();
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        try {
+            if (!Files.isDirectory(path)) {
+                if (!create) {
+                    return false;
+                }
+                Files.createDirectories(path.getParent());
+                if (posix) {
+                    Files.createDirectory(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+                } else {
+                    Files.createDirectory(path);
+                }
+            } else if (posix && !OWNER_ONLY.containsAll(Files.getPosixFilePermissions(path))) {
+                // Only possible for the owner, a directory of someone else can't be used anyway
+                Files.setPosixFilePermissions(path, OWNER_ONLY);
+            }
+            directoryUsable = true;
+        } catch (IOException | UnsupportedOperationException e) {
+            directoryUsable = false;
+        }
+        return directoryUsable;
+    }
+
+    // Entries of endpoints which are not used anymore would pile up otherwise
+    private void removeExpired() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files != null) {
+            long now = System.currentTimeMillis();
+            for (File file : files) {
+                if (now - file.lastModified() > ttl) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private File getFile(String endpoint) {
+        return new File(directory, Fingerprints.sha256Hex(endpoint) + ".json");
+    }
+}
@@ -0,0 +1,87 @@
+package io.fabric8.kit.build.service.docker.access;
+
+/**
+ * Features of the Docker daemon which depend on its API version and on whether its experimental features are
+ * enabled. Features which are controlled by a build option carry the name of that option.
+ *
+ * @since 19.10.26
+ */
+public enum DockerFeature {
+
+    /**
+     * Build up to a stage of a multi-stage Dockerfile
+     */
+    BUILD_TARGET("target", "1.29", "1.29"),
+
+    /**
+     * Images used as cache sources for a build
+     */
+    BUILD_CACHE_FROM("cachefrom", "1.25", "1.25"),
+
+    /**
+     * Squash the layers of a build into one, always experimental
+     */
+    BUILD_SQUASH("squash", "1.25", null),
+
+    /**
+     * Platform of the image to build, experimental before API 1.40
+     */
+    BUILD_PLATFORM("platform", "1.32", "1.40"),
+
+    /**
+     * BuildKit as builder. Only detected, as using it requires a session with the daemon.
+     */
+    BUILDKIT(null, "1.38", "1.39"),
+
+    /**
+     * Removing unused images in one call
+     */
+    IMAGE_PRUNE(null, "1.25", "1.25");
+
+    private final String buildOption;
+    private final String minApiVersion;
+    private final String stableApiVersion;
+
+    DockerFeature(String buildOption, String minApiVersion, String stableApiVersion) {
+        this.buildOption = buildOption;
+        this.minApiVersion = minApiVersion;
+        this.stableApiVersion = stableApiVersion;
+    }
+
+    /**
+     * @return name of the build option for this feature or <code>null</code> if it isn't one
+     */
+    public String getBuildOption() {
+        return buildOption;
+    }
+
+    /**
+     * @return first API version which offers this feature
+     */
+    public String getMinApiVersion() {
+        return minApiVersion;
+    }
+
+    /**
+     * @return first API version which offers this feature without experimental features enabled,
+     *         <code>null</code> if it is always experimental
+     */
+    public String getStableApiVersion() {
+        return stableApiVersion;
+    }
+
+    /**
+     * Look up the feature controlled by a build option
+     *
+     * @param option name of the option
+     * @return feature or <code>null</code> if the option doesn't depend on the daemon
+     */
+    public static DockerFeature forBuildOption(String option) {
+        for (DockerFeature feature : values()) {
+            if (option.equals(feature.buildOption)) {
+                return feature;
+            }
+        }
+        return null;
+    }
+}
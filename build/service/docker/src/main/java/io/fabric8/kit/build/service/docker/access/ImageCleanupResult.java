@@ -0,0 +1,45 @@
+package io.fabric8.kit.build.service.docker.access;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of removing several images at once
+ *
+ * @since 19.10.26
+ */
+public class ImageCleanupResult {
+
+    private final List<String> removed;
+    private final Map<String, DockerAccessException> failures;
+    private final long spaceReclaimed;
+
+    public ImageCleanupResult(List<String> removed, Map<String, DockerAccessException> failures, long spaceReclaimed) {
+        this.removed = Collections.unmodifiableList(removed);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.spaceReclaimed = spaceReclaimed;
+    }
+
+    /**
+     * @return images which have been removed. These are the given names when removing images and the ids
+     *         of the deleted images when pruning.
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return images which could not be removed with the error for each of them
+     */
+    public Map<String, DockerAccessException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return bytes freed on the daemon, only known when pruning
+     */
+    public long getSpaceReclaimed() {
+        return spaceReclaimed;
+    }
+}
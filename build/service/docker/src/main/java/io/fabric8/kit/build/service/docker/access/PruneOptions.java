@@ -0,0 +1,86 @@
+package io.fabric8.kit.build.service.docker.access;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Filters selecting the images removed when pruning. Without any filter only dangling images are removed.
+ *
+ * @since 19.10.26
+ */
+public class PruneOptions {
+
+    // Sorted to make the query predictable
+    private final Map<String, List<String>> filters = new TreeMap<>();
+
+    /**
+     * @param dangling whether only dangling images (without a tag) are removed or all unused images
+     */
+    public PruneOptions dangling(boolean dangling) {
+        filters.put("dangling", Collections.singletonList(Boolean.toString(dangling)));
+        return this;
+    }
+
+    /**
+     * Only remove images with the given label
+     *
+     * @param label label name or "name=value"
+     */
+    public PruneOptions label(String label) {
+        return add("label", label);
+    }
+
+    /**
+     * Only remove images without the given label
+     *
+     * @param label label name or "name=value"
+     */
+    public PruneOptions withoutLabel(String label) {
+        return add("label!", label);
+    }
+
+    /**
+     * Only remove images created before the given time
+     *
+     * @param until Unix timestamp, date like "2018-12-24T10:00:00" or duration relative to the daemon's time like "24h"
+     */
+    public PruneOptions until(String until) {
+        if (until != null) {
+            filters.put("until", Collections.singletonList(until));
+        }
+        return this;
+    }
+
+    /**
+     * @return filters in the JSON format of the Docker API or <code>null</code> if there are none
+     */
+    public String getFilters() {
+        if (filters.isEmpty()) {
+            return null;
+        }
+        JsonObject ret = new JsonObject();
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            JsonArray values = new JsonArray();
+            for (String value : entry.getValue()) {
+                values.add(value);
+            }
+            ret.add(entry.getKey(), values);
+        }
+        return ret.toString();
+    }
+
+    // ==========================================================================================
+
+    private PruneOptions add(String filter, String value) {
+        if (value != null) {
+            filters.computeIfAbsent(filter, k -> new ArrayList<>()).add(value);
+        }
+        return this;
+    }
+}
@@ -41,12 +41,24 @@ public final class UrlBuilder {
         return String.format("%s/version", baseUrl);
     }
 
+    public String info() {
+        return String.format("%s/info", baseUrl);
+    }
+
     public String deleteImage(String name, boolean force) {
         return u("images/%s", name)
                 .p("force", force)
                 .build();
     }
 
+    public String pruneImages(PruneOptions options) {
+        Builder urlBuilder = u("images/prune");
+        if (options != null) {
+            urlBuilder.p("filters", options.getFilters());
+        }
+        return urlBuilder.build();
+    }
+
     public String getImage(ImageName name) {
         return u("images/%s/get", name.getFullName())
             .build();
@@ -58,13 +70,16 @@ public final class UrlBuilder {
     }
 
     public String pullImage(ImageName name, String registry) {
+        // A digest pins the content and is given instead of the tag, so no tag resolution happens
         return u("images/create")
                 .p("fromImage", name.getNameWithoutTag(registry))
-                .p("tag", name.getTag())
+                .p("tag", name.hasDigest() ? name.getDigest() : name.getTag())
                 .build();
     }
 
-    public String pushImage(ImageName name, String registry) {
+    public String pushImage(ImageName name, String registry) throws DockerAccessException {
+        // Only tags can be pushed, a digest is assigned by the registry
+        checkNoDigest(name, "push");
         return u("images/%s/push", name.getNameWithoutTag(registry))
                 .p("tag", name.getTag())
                 // "force=1" helps Fedora/CentOs Docker variants to push to public registries
@@ -72,7 +87,8 @@ public final class UrlBuilder {
                 .build();
     }
 
-    public String tagImage(ImageName source, ImageName target, boolean force) {
+    public String tagImage(ImageName source, ImageName target, boolean force) throws DockerAccessException {
+        checkNoDigest(target, "tag");
         return u("images/%s/tag", source.getFullName())
                 .p("repo",target.getNameWithoutTag())
                 .p("tag",target.getTag())
@@ -80,10 +96,30 @@ public final class UrlBuilder {
                 .build();
     }
 
+    private void checkNoDigest(ImageName name, String operation) throws DockerAccessException {
+        if (name.hasDigest()) {
+            throw new DockerAccessException("Cannot %s %s: a reference with a digest can't be used as target, use a tag instead",
+                                            operation, name.getFullName());
+        }
+    }
+
     public String getBaseUrl() {
         return baseUrl;
     }
 
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    /**
+     * Builder for the same daemon using another API version
+     *
+     * @param version version in the form "v1.39"
+     */
+    public UrlBuilder withApiVersion(String version) {
+        return new UrlBuilder(baseUrl, version);
+    }
+
     // ============================================================================
 
     @SuppressWarnings("deprecation")
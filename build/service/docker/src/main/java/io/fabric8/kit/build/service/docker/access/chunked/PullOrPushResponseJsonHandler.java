@@ -6,15 +6,37 @@ import io.fabric8.kit.common.KitLogger;
 
 public class PullOrPushResponseJsonHandler implements EntityStreamReaderUtil.JsonEntityResponseHandler {
 
+    // Prefix of the status line with which a pull reports the digest of the pulled manifest
+    private static final String DIGEST_STATUS_PREFIX = "Digest: ";
+
     private final KitLogger log;
 
+    // Digest of the pushed or pulled manifest, if reported by the daemon
+    private String digest;
+
     public PullOrPushResponseJsonHandler(KitLogger log) {
         this.log = log;
     }
 
+    /**
+     * Get the manifest digest as reported during a push (<code>aux</code> message) or a pull
+     * (<code>Digest:</code> status)
+     *
+     * @return digest like <code>sha256:...</code> or <code>null</code> if none has been reported
+     */
+    public String getDigest() {
+        return digest;
+    }
+
     @Override
     public void process(JsonObject json) throws DockerAccessException {
-        if (json.has("progressDetail")) {
+        if (json.has("aux")) {
+            // Final message of a push, e.g. {"progressDetail":{},"aux":{"Tag":"latest","Digest":"sha256:...","Size":1234}}
+            JsonObject aux = json.getAsJsonObject("aux");
+            if (aux.has("Digest")) {
+                digest = aux.get("Digest").getAsString();
+            }
+        } else if (json.has("progressDetail")) {
             log.progressUpdate(getStringOrEmpty(json, "id"),
                                getStringOrEmpty(json, "status"),
                                getStringOrEmpty(json, "progress"));
@@ -33,6 +55,9 @@ public class PullOrPushResponseJsonHandler implements EntityStreamReaderUtil.Jso
             value = json.get("stream").getAsString().replaceFirst("\n$", "");
         } else if (json.has("status")) {
             value = json.get("status").getAsString();
+            if (value.startsWith(DIGEST_STATUS_PREFIX)) {
+                digest = value.substring(DIGEST_STATUS_PREFIX.length()).trim();
+            }
         } else {
             value = json.toString();
         }
@@ -8,6 +8,8 @@ import java.util.Map.Entry;
 
 import io.fabric8.kit.build.service.docker.access.hc.http.HttpRequestException;
 import io.fabric8.kit.build.service.docker.access.hc.util.ClientBuilder;
+import io.fabric8.kit.build.service.docker.access.hc.util.ConnectionPoolStatistics;
+import io.fabric8.kit.build.service.docker.access.hc.util.FileChannelEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
@@ -18,7 +20,6 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.entity.FileEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.util.EntityUtils;
@@ -45,6 +46,13 @@ public class ApacheHttpClientDelegate {
         return httpClient;
     }
 
+    /**
+     * @return state of the connection pool or <code>null</code> if no pool is used
+     */
+    public ConnectionPoolStatistics getPoolStatistics() {
+        return clientBuilder.getPoolStatistics();
+    }
+
     public void close() throws IOException {
         httpClient.close();
     }
@@ -152,7 +160,7 @@ public class ApacheHttpClientDelegate {
     private void setEntityIfGiven(HttpEntityEnclosingRequestBase request, Object entity) {
         if (entity != null) {
             if (entity instanceof File) {
-                request.setEntity(new FileEntity((File) entity));
+                request.setEntity(new FileChannelEntity((File) entity));
             } else {
                 request.setEntity(new StringEntity((String) entity, Charset.defaultCharset()));
             }
@@ -181,7 +189,7 @@ public class ApacheHttpClientDelegate {
 
             String reason = statusLine.getReasonPhrase().trim();
             throw new HttpRequestException(String.format("%s (%s: %d)", getResponseMessage(response),
-                                                         reason, statusCode));
+                                                         reason, statusCode), statusCode);
         }
 
     }
@@ -5,30 +5,55 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPOutputStream;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import io.fabric8.kit.build.service.docker.access.BuildOptions;
 import io.fabric8.kit.build.service.docker.access.DockerAccess;
 import io.fabric8.kit.build.service.docker.access.DockerAccessException;
+import io.fabric8.kit.build.service.docker.access.DockerCapabilities;
+import io.fabric8.kit.build.service.docker.access.DockerCapabilityCache;
+import io.fabric8.kit.build.service.docker.access.DockerFeature;
+import io.fabric8.kit.build.service.docker.access.ImageCleanupResult;
+import io.fabric8.kit.build.service.docker.access.PruneOptions;
 import io.fabric8.kit.build.service.docker.access.UrlBuilder;
 import io.fabric8.kit.build.service.docker.access.chunked.BuildJsonResponseHandler;
 import io.fabric8.kit.build.service.docker.access.chunked.EntityStreamReaderUtil;
 import io.fabric8.kit.build.service.docker.access.chunked.PullOrPushResponseJsonHandler;
 import io.fabric8.kit.build.service.docker.access.hc.ApacheHttpClientDelegate.BodyAndStatusResponseHandler;
+import io.fabric8.kit.build.service.docker.access.hc.ApacheHttpClientDelegate.BodyResponseHandler;
 import io.fabric8.kit.build.service.docker.access.hc.ApacheHttpClientDelegate.HttpBodyAndStatus;
 import io.fabric8.kit.build.service.docker.access.hc.http.HttpClientBuilder;
+import io.fabric8.kit.build.service.docker.access.hc.http.HttpRequestException;
 import io.fabric8.kit.build.service.docker.access.hc.unix.UnixSocketClientBuilder;
 import io.fabric8.kit.build.service.docker.access.hc.util.ClientBuilder;
+import io.fabric8.kit.build.service.docker.access.hc.util.ConnectionPoolStatistics;
+import io.fabric8.kit.build.service.docker.access.hc.util.DockerConnectionConfig;
 import io.fabric8.kit.build.service.docker.access.hc.win.NamedPipeClientBuilder;
+import io.fabric8.kit.common.DaemonThreadFactory;
 import io.fabric8.kit.common.JsonFactory;
 import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.common.KitMetrics;
 import io.fabric8.kit.config.image.ImageName;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.io.IOUtils;
@@ -64,11 +89,24 @@ public class DockerAccessWithHcClient implements DockerAccess {
     // Base URL which is given through when using NamedPipe communication but is not really used
     private static final String NPIPE_URL = "npipe://127.0.0.1:1/";
 
+    // Metric names for timing calls to the Docker daemon, tagged by operation
+    static final String METRIC_API_CALLS = "docker.api.calls";
+    static final String METRIC_API_ERRORS = "docker.api.errors";
+
+    // Buffer size for copying saved images to disk, which can be gigabytes
+    private static final int SAVE_BUFFER_SIZE = 64 * 1024;
+
     // Logging
     private final KitLogger log;
 
     private final ApacheHttpClientDelegate delegate;
-    private final UrlBuilder urlBuilder;
+
+    // Replaced by one for the negotiated API version if no version is given
+    private volatile UrlBuilder urlBuilder;
+    private final boolean negotiateApiVersion;
+
+    private final String endpoint;
+    private final DockerCapabilityCache capabilityCache;
 
     /**
      * Create a new access for the given URL
@@ -85,53 +123,124 @@ public class DockerAccessWithHcClient implements DockerAccess {
                                     String certPath,
                                     int maxConnections,
                                     KitLogger log) throws IOException {
+        this(apiVersion, baseUrl, certPath, DockerConnectionConfig.withMaxConnections(maxConnections), log);
+    }
+
+    /**
+     * Create a new access for the given URL
+     *
+     * @param baseUrl  base URL for accessing the docker Daemon
+     * @param certPath used to build up a keystore with the given keys and certificates found in this
+     *                 directory
+     * @param connectionConfig pool size, timeouts, keep-alive and buffer sizes of the connections
+     * @param log      a log handler for printing out logging information
+     */
+    public DockerAccessWithHcClient(String apiVersion,
+                                    String baseUrl,
+                                    String certPath,
+                                    DockerConnectionConfig connectionConfig,
+                                    KitLogger log) throws IOException {
+        this(apiVersion, baseUrl, certPath, connectionConfig, DockerCapabilityCache.getDefault(), log);
+    }
+
+    /**
+     * Create a new access for the given URL
+     *
+     * @param apiVersion API version like "v1.39" or <code>null</code> for using the highest version supported
+     *                   by both the daemon and the kit
+     * @param baseUrl  base URL for accessing the docker Daemon
+     * @param certPath used to build up a keystore with the given keys and certificates found in this
+     *                 directory
+     * @param connectionConfig pool size, timeouts, keep-alive and buffer sizes of the connections
+     * @param capabilityCache where to keep the capabilities of the daemon
+     * @param log      a log handler for printing out logging information
+     */
+    public DockerAccessWithHcClient(String apiVersion,
+                                    String baseUrl,
+                                    String certPath,
+                                    DockerConnectionConfig connectionConfig,
+                                    DockerCapabilityCache capabilityCache,
+                                    KitLogger log) throws IOException {
         this.log = log;
+        this.endpoint = baseUrl;
+        this.capabilityCache = capabilityCache;
+        this.negotiateApiVersion = apiVersion == null;
         URI uri = URI.create(baseUrl);
         if (uri.getScheme() == null) {
             throw new IllegalArgumentException("The docker access url '" + baseUrl + "' must contain a schema tcp://, unix:// or npipe://");
         }
         if (uri.getScheme().equalsIgnoreCase("unix")) {
-            this.delegate = createHttpClient(new UnixSocketClientBuilder(uri.getPath(), maxConnections, log));
+            this.delegate = createHttpClient(new UnixSocketClientBuilder(uri.getPath(), connectionConfig, log));
             this.urlBuilder = new UrlBuilder(UNIX_URL, apiVersion);
         } else if (uri.getScheme().equalsIgnoreCase("npipe")) {
-        	this.delegate = createHttpClient(new NamedPipeClientBuilder(uri.getPath(), maxConnections, log), false);
+            this.delegate = createHttpClient(new NamedPipeClientBuilder(uri.getPath(), connectionConfig, log));
             this.urlBuilder = new UrlBuilder(NPIPE_URL, apiVersion);
         } else {
-            this.delegate = createHttpClient(new HttpClientBuilder(isSSL(baseUrl) ? certPath : null, maxConnections));
+            this.delegate = createHttpClient(new HttpClientBuilder(isSSL(baseUrl) ? certPath : null, connectionConfig, log));
             this.urlBuilder = new UrlBuilder(baseUrl, apiVersion);
         }
+        log.debug("Connections to %s: %s", baseUrl, connectionConfig);
+    }
+
+    /**
+     * Get the state of the pool of connections to the Docker daemon
+     *
+     * @return pool statistics or <code>null</code> if connections are not pooled
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics() {
+        return delegate.getPoolStatistics();
     }
 
     /** {@inheritDoc} */
     @Override
     public String getServerApiVersion() throws DockerAccessException {
-        try {
-            String url = urlBuilder.version();
-            String response = delegate.get(url, 200);
-            JsonObject info = JsonFactory.newJsonObject(response);
-            return info.get("ApiVersion").getAsString();
-        } catch (Exception e) {
-            throw new DockerAccessException(e, "Cannot extract API version from server %s", urlBuilder.getBaseUrl());
-        }
+        return getCapabilities().getServerApiVersion();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DockerCapabilities getCapabilities() throws DockerAccessException {
+        return capabilityCache.get(endpoint, new DockerCapabilityCache.Fetcher() {
+            @Override
+            public DockerCapabilities fetch() throws DockerAccessException {
+                return fetchCapabilities();
+            }
+
+            @Override
+            public String fetchDaemonId() throws DockerAccessException {
+                return DockerAccessWithHcClient.this.fetchDaemonId();
+            }
+        });
     }
 
     @Override
     public void buildImage(String image, File dockerArchive, BuildOptions options) throws DockerAccessException {
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
-            String url = urlBuilder.buildImage(image, options);
+            String url = urls().buildImage(image, getSupportedOptions(options));
             delegate.post(url, dockerArchive, createBuildResponseHandler(), HTTP_OK);
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "build").increment();
             throw new DockerAccessException(e, "Unable to build image [%s]", image);
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "build").recordSince(start);
+            logPoolStatistics("build");
         }
     }
 
     @Override
     public boolean hasImage(String name) throws DockerAccessException {
-        String url = urlBuilder.inspectImage(name);
+        String url = urls().inspectImage(name);
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
             return delegate.get(url, new ApacheHttpClientDelegate.StatusCodeResponseHandler(), HTTP_OK, HTTP_NOT_FOUND) == HTTP_OK;
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "inspect").increment();
             throw new DockerAccessException(e, "Unable to check image [%s]", name);
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "inspect").recordSince(start);
         }
     }
 
@@ -145,49 +254,113 @@ public class DockerAccessWithHcClient implements DockerAccess {
         return imageDetails.get("Id").getAsString().substring(0, 12);
     }
 
+    @Override
+    public List<String> getRepoDigests(String name) throws DockerAccessException {
+        HttpBodyAndStatus response = inspectImage(name);
+        if (response.getStatusCode() == HTTP_NOT_FOUND) {
+            return null;
+        }
+        JsonObject imageDetails = JsonFactory.newJsonObject(response.getBody());
+        List<String> ret = new ArrayList<>();
+        if (imageDetails.has("RepoDigests") && imageDetails.get("RepoDigests").isJsonArray()) {
+            for (JsonElement digest : imageDetails.getAsJsonArray("RepoDigests")) {
+                ret.add(digest.getAsString());
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<String, String> getImageLabels(String name) throws DockerAccessException {
+        HttpBodyAndStatus response = inspectImage(name);
+        if (response.getStatusCode() == HTTP_NOT_FOUND) {
+            return null;
+        }
+        JsonObject imageDetails = JsonFactory.newJsonObject(response.getBody());
+        Map<String, String> ret = new HashMap<>();
+        JsonElement config = imageDetails.get("Config");
+        if (config != null && config.isJsonObject()) {
+            JsonElement labels = config.getAsJsonObject().get("Labels");
+            if (labels != null && labels.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> label : labels.getAsJsonObject().entrySet()) {
+                    ret.put(label.getKey(), label.getValue().getAsString());
+                }
+            }
+        }
+        return ret;
+    }
+
     private HttpBodyAndStatus inspectImage(String name) throws DockerAccessException {
-        String url = urlBuilder.inspectImage(name);
+        String url = urls().inspectImage(name);
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
             return delegate.get(url, new BodyAndStatusResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "inspect").increment();
             throw new DockerAccessException(e, "Unable to inspect image [%s]", name);
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "inspect").recordSince(start);
         }
     }
 
     @Override
     public void loadImage(String image, File tarArchive) throws DockerAccessException {
-        String url = urlBuilder.loadImage();
+        String url = urls().loadImage();
 
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
             delegate.post(url, tarArchive, new BodyAndStatusResponseHandler(), HTTP_OK);
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "load").increment();
             throw new DockerAccessException(e, "Unable to load %s", tarArchive);
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "load").recordSince(start);
         }
     }
 
     @Override
-    public void pullImage(String image, String authHeader, String registry)
+    public String pullImage(String image, String authHeader, String registry)
             throws DockerAccessException {
-        ImageName name = new ImageName(image);
-        String pullUrl = urlBuilder.pullImage(name, registry);
+        ImageName name = ImageName.of(image);
+        String pullUrl = urls().pullImage(name, registry);
 
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
-            delegate.post(pullUrl, null, createAuthHeader(authHeader), createPullOrPushResponseHandler(), HTTP_OK);
+            PullOrPushResponseJsonHandler handler = new PullOrPushResponseJsonHandler(log);
+            delegate.post(pullUrl, null, createAuthHeader(authHeader), createPullOrPushResponseHandler(handler), HTTP_OK);
+            return handler.getDigest() != null ? handler.getDigest() : name.getDigest();
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "pull").increment();
             throw new DockerAccessException(e, "Unable to pull '%s'%s", image, (registry != null) ? " from registry '" + registry + "'" : "");
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "pull").recordSince(start);
+            logPoolStatistics("pull");
         }
     }
 
     @Override
-    public void pushImage(String image, String authHeader, String registry, int retries)
+    public String pushImage(String image, String authHeader, String registry, int retries)
             throws DockerAccessException {
-        ImageName name = new ImageName(image);
-        String pushUrl = urlBuilder.pushImage(name, registry);
+        ImageName name = ImageName.of(image);
+        String pushUrl = urls().pushImage(name, registry);
         String temporaryImage = tagTemporaryImage(name, registry);
         DockerAccessException dae = null;
+        KitMetrics metrics = KitMetrics.get();
         try {
-            doPushImage(pushUrl, createAuthHeader(authHeader), createPullOrPushResponseHandler(), HTTP_OK, retries);
+            PullOrPushResponseJsonHandler handler = new PullOrPushResponseJsonHandler(log);
+            long start = metrics.startTime();
+            try {
+                doPushImage(pushUrl, createAuthHeader(authHeader), createPullOrPushResponseHandler(handler), HTTP_OK, retries);
+            } finally {
+                metrics.timer(METRIC_API_CALLS, "operation", "push").recordSince(start);
+                logPoolStatistics("push");
+            }
+            return handler.getDigest() != null ? handler.getDigest() : lookupRepoDigest(name, registry);
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "push").increment();
             dae = new DockerAccessException(e, "Unable to push '%s'%s", image, (registry != null) ? " from registry '" + registry + "'" : "");
             throw dae;
         } finally {
@@ -205,12 +378,17 @@ public class DockerAccessWithHcClient implements DockerAccess {
 
     @Override
     public void saveImage(String image, String filename) throws DockerAccessException {
-        ImageName name = new ImageName(image);
-        String url = urlBuilder.getImage(name);
+        ImageName name = ImageName.of(image);
+        String url = urls().getImage(name);
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
             delegate.get(url, getImageResponseHandler(filename), HTTP_OK);
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "save").increment();
             throw new DockerAccessException(e, "Unable to save '%s' to '%s'", image, filename);
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "save").recordSince(start);
         }
 
     }
@@ -229,7 +407,7 @@ public class DockerAccessWithHcClient implements DockerAccess {
 
             try {
                 try (InputStream stream = response.getEntity().getContent()) {
-                    IOUtils.copy(stream, out);
+                    IOUtils.copy(stream, out, SAVE_BUFFER_SIZE);
                 }
             } finally {
                 out.close();
@@ -241,39 +419,201 @@ public class DockerAccessWithHcClient implements DockerAccess {
     @Override
     public void tag(String sourceImage, String targetImage, boolean force)
             throws DockerAccessException {
-        ImageName source = new ImageName(sourceImage);
-        ImageName target = new ImageName(targetImage);
+        ImageName source = ImageName.of(sourceImage);
+        ImageName target = ImageName.of(targetImage);
+        String url = urls().tagImage(source, target, force);
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
-            String url = urlBuilder.tagImage(source, target, force);
             delegate.post(url, HTTP_CREATED);
         } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "tag").increment();
             throw new DockerAccessException(e, "Unable to add tag [%s] to image [%s]", targetImage,
                     sourceImage, e);
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "tag").recordSince(start);
         }
     }
 
     @Override
     public boolean removeImage(String image, boolean... forceOpt) throws DockerAccessException {
         boolean force = forceOpt != null && forceOpt.length > 0 && forceOpt[0];
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         try {
-            String url = urlBuilder.deleteImage(image, force);
-            HttpBodyAndStatus response = delegate.delete(url, new BodyAndStatusResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
-            if (log.isDebugEnabled()) {
-                logRemoveResponse(JsonFactory.newJsonArray(response.getBody()));
+            String url = urls().deleteImage(image, force);
+            int status = delegate.delete(url, createRemoveResponseHandler(), HTTP_OK, HTTP_NOT_FOUND);
+            return status == HTTP_OK;
+        } catch (IOException e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "remove").increment();
+            throw new DockerAccessException(e, "Unable to remove image [%s]", image);
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "remove").recordSince(start);
+        }
+    }
+
+    @Override
+    public ImageCleanupResult removeImages(Collection<String> images, final boolean force, int parallelism)
+        throws DockerAccessException {
+        final List<String> unique = new ArrayList<>(new LinkedHashSet<>(images));
+        final Map<String, DockerAccessException> failures = new ConcurrentHashMap<>();
+        final boolean[] removed = new boolean[unique.size()];
+        int threads = Math.min(parallelism, unique.size());
+        if (threads <= 1) {
+            for (int i = 0; i < unique.size(); i++) {
+                removed[i] = tryRemoveImage(unique.get(i), force, failures);
             }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("docker-remove"));
+            try {
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (final String image : unique) {
+                    results.add(executor.submit(() -> tryRemoveImage(image, force, failures)));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    removed[i] = results.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DockerAccessException(e, "Interrupted while removing %d images", unique.size());
+            } catch (ExecutionException e) {
+                // Errors of the removals are collected, so only unexpected runtime exceptions end up here
+                throw new DockerAccessException(e.getCause(), "Unable to remove %d images", unique.size());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        List<String> ret = new ArrayList<>();
+        for (int i = 0; i < unique.size(); i++) {
+            if (removed[i]) {
+                ret.add(unique.get(i));
+            }
+        }
+        return new ImageCleanupResult(ret, failures, 0);
+    }
 
-            return response.getStatusCode() == HTTP_OK;
+    @Override
+    public ImageCleanupResult pruneImages(PruneOptions options) throws DockerAccessException {
+        DockerCapabilities capabilities = getCapabilities();
+        if (!capabilities.supports(DockerFeature.IMAGE_PRUNE)) {
+            throw new DockerAccessException("Pruning images requires Docker API %s, but the daemon only supports API %s",
+                                            DockerFeature.IMAGE_PRUNE.getMinApiVersion(), capabilities.getApiVersion());
+        }
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
+        try {
+            String url = urls().pruneImages(options);
+            JsonObject response = JsonFactory.newJsonObject(delegate.post(url, null, new BodyResponseHandler(), HTTP_OK));
+            List<String> deleted = new ArrayList<>();
+            JsonElement images = response.get("ImagesDeleted");
+            if (images != null && images.isJsonArray()) {
+                for (JsonElement image : images.getAsJsonArray()) {
+                    JsonElement id = image.getAsJsonObject().get("Deleted");
+                    if (id != null) {
+                        deleted.add(id.getAsString());
+                    }
+                }
+            }
+            JsonElement space = response.get("SpaceReclaimed");
+            long spaceReclaimed = space != null && !space.isJsonNull() ? space.getAsLong() : 0;
+            log.debug("Pruned %d images, reclaimed %d bytes", deleted.size(), spaceReclaimed);
+            return new ImageCleanupResult(deleted, Collections.emptyMap(), spaceReclaimed);
         } catch (IOException e) {
-            throw new DockerAccessException(e, "Unable to remove image [%s]", image);
+            metrics.counter(METRIC_API_ERRORS, "operation", "prune").increment();
+            throw new DockerAccessException(e, "Unable to prune images");
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "prune").recordSince(start);
         }
     }
 
+    // URLs for the configured API version, or the negotiated one if none is configured
+    private UrlBuilder urls() throws DockerAccessException {
+        if (negotiateApiVersion && urlBuilder.getApiVersion() == null) {
+            DockerCapabilities capabilities = getCapabilities();
+            urlBuilder = urlBuilder.withApiVersion("v" + capabilities.getApiVersion());
+            log.verbose("Using %s", capabilities);
+        }
+        return urlBuilder;
+    }
+
+    private DockerCapabilities fetchCapabilities() throws DockerAccessException {
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
+        try {
+            JsonObject version = JsonFactory.newJsonObject(delegate.get(urlBuilder.version(), HTTP_OK));
+            JsonObject info = JsonFactory.newJsonObject(delegate.get(urlBuilder.info(), HTTP_OK));
+            return DockerCapabilities.fromDaemon(version, info);
+        } catch (Exception e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "version").increment();
+            throw new DockerAccessException(e, "Cannot query the capabilities of server %s", urlBuilder.getBaseUrl());
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "version").recordSince(start);
+        }
+    }
+
+    private String fetchDaemonId() throws DockerAccessException {
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
+        try {
+            JsonObject info = JsonFactory.newJsonObject(delegate.get(urlBuilder.info(), HTTP_OK));
+            return info.has("ID") && !info.get("ID").isJsonNull() ? info.get("ID").getAsString() : null;
+        } catch (Exception e) {
+            metrics.counter(METRIC_API_ERRORS, "operation", "info").increment();
+            throw new DockerAccessException(e, "Cannot query the ID of server %s", urlBuilder.getBaseUrl());
+        } finally {
+            metrics.timer(METRIC_API_CALLS, "operation", "info").recordSince(start);
+        }
+    }
+
+    // Drop build options for features the daemon doesn't offer. The daemon is only asked if such options are given.
+    private BuildOptions getSupportedOptions(BuildOptions options) throws DockerAccessException {
+        if (options == null || !hasFeatureOptions(options)) {
+            return options;
+        }
+        DockerCapabilities capabilities = getCapabilities();
+        BuildOptions ret = options.supportedBy(capabilities);
+        for (String key : options.getOptions().keySet()) {
+            if (!ret.getOptions().containsKey(key)) {
+                log.warn("Build option '%s' is not supported by Docker %s (API %s), ignoring it",
+                         key, capabilities.getServerVersion(), capabilities.getApiVersion());
+            }
+        }
+        return ret;
+    }
+
+    private boolean hasFeatureOptions(BuildOptions options) {
+        for (String key : options.getOptions().keySet()) {
+            if (DockerFeature.forBuildOption(key) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected ApacheHttpClientDelegate createHttpClient(ClientBuilder builder) throws IOException {
-    	return createHttpClient(builder, true);
+        return new ApacheHttpClientDelegate(builder, true);
     }
 
-    private ApacheHttpClientDelegate createHttpClient(ClientBuilder builder, boolean pooled) throws IOException {
-        return new ApacheHttpClientDelegate(builder, pooled);
+    private boolean tryRemoveImage(String image, boolean force, Map<String, DockerAccessException> failures) {
+        try {
+            return removeImage(image, force);
+        } catch (DockerAccessException e) {
+            failures.put(image, e);
+            return false;
+        }
+    }
+
+    // Status of a removal. At debug level the untagged and deleted images are logged, parsed straight from the response.
+    private ResponseHandler<Integer> createRemoveResponseHandler() {
+        return response -> {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HTTP_OK && log.isDebugEnabled() && response.getEntity() != null) {
+                try (Reader reader = new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8)) {
+                    logRemoveResponse(new JsonParser().parse(reader).getAsJsonArray());
+                }
+            }
+            return status;
+        };
     }
 
     // visible for testing?
@@ -282,8 +622,22 @@ public class DockerAccessWithHcClient implements DockerAccess {
     }
 
     // visible for testing?
-    private HcChunkedResponseHandlerWrapper createPullOrPushResponseHandler() {
-        return new HcChunkedResponseHandlerWrapper(new PullOrPushResponseJsonHandler(log));
+    private HcChunkedResponseHandlerWrapper createPullOrPushResponseHandler(PullOrPushResponseJsonHandler handler) {
+        return new HcChunkedResponseHandlerWrapper(handler);
+    }
+
+    // Older daemons don't report the digest in the push stream, but record it as repo digest of the image
+    private String lookupRepoDigest(ImageName name, String registry) throws DockerAccessException {
+        List<String> repoDigests = getRepoDigests(name.getFullName());
+        if (repoDigests != null) {
+            String prefix = name.getNameWithoutTag(registry) + "@";
+            for (String repoDigest : repoDigests) {
+                if (repoDigest.startsWith(prefix)) {
+                    return repoDigest.substring(prefix.length());
+                }
+            }
+        }
+        return null;
     }
 
     private Map<String, String> createAuthHeader(String authConfig) {
@@ -303,15 +657,21 @@ public class DockerAccessWithHcClient implements DockerAccess {
                 delegate.post(url, null, header, handler, HTTP_OK);
                 return;
             } catch (HttpResponseException e) {
-                if (isRetryableErrorCode(e.getStatusCode()) && i != retries) {
-                    log.warn("failed to push image to [{}], retrying...", url);
-                } else {
-                    throw e;
-                }
+                checkPushRetry(url, e, e.getStatusCode(), i, retries);
+            } catch (HttpRequestException e) {
+                checkPushRetry(url, e, e.getStatusCode(), i, retries);
             }
         }
     }
 
+    private void checkPushRetry(String url, IOException e, int statusCode, int attempt, int retries) throws IOException {
+        if (isRetryableErrorCode(statusCode) && attempt != retries) {
+            log.warn("failed to push image to [%s], retrying...", url);
+        } else {
+            throw e;
+        }
+    }
+
     private String tagTemporaryImage(ImageName name, String registry) throws DockerAccessException {
         String targetImage = name.getFullName(registry);
         if (!name.hasRegistry() && registry != null) {
@@ -351,6 +711,16 @@ public class DockerAccessWithHcClient implements DockerAccess {
         }
     }
 
+    // Builds, pulls and pushes are the long running calls, so log the connection pool after them
+    private void logPoolStatistics(String operation) {
+        if (log.isDebugEnabled()) {
+            ConnectionPoolStatistics stats = delegate.getPoolStatistics();
+            if (stats != null) {
+                log.debug("Connection pool after %s: %s", operation, stats);
+            }
+        }
+    }
+
     private boolean isSSL(String url) {
         return url != null && url.toLowerCase().startsWith("https");
     }
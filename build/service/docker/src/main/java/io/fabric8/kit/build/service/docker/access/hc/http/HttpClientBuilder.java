@@ -23,16 +23,19 @@ import javax.net.ssl.SSLContext;
 
 import io.fabric8.kit.build.service.docker.access.KeyStoreUtil;
 import io.fabric8.kit.build.service.docker.access.hc.util.ClientBuilder;
+import io.fabric8.kit.build.service.docker.access.hc.util.ConnectionPoolStatistics;
+import io.fabric8.kit.build.service.docker.access.hc.util.DockerConnectionConfig;
+import io.fabric8.kit.build.service.docker.access.hc.util.MonitoredConnectionManager;
+import io.fabric8.kit.common.KitLogger;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.ssl.SSLContexts;
 
 /**
@@ -42,43 +45,62 @@ import org.apache.http.ssl.SSLContexts;
 public class HttpClientBuilder implements ClientBuilder {
 
     private final String certPath;
-    private final int maxConnections;
+    private final DockerConnectionConfig connectionConfig;
+    private final KitLogger log;
+
+    private volatile MonitoredConnectionManager pooledManager;
 
     public HttpClientBuilder(String certPath, int maxConnections) {
+        this(certPath, DockerConnectionConfig.withMaxConnections(maxConnections), null);
+    }
+
+    public HttpClientBuilder(String certPath, DockerConnectionConfig connectionConfig, KitLogger log) {
         this.certPath = certPath;
-        this.maxConnections = maxConnections;
+        this.connectionConfig = connectionConfig;
+        this.log = log;
     }
 
     public CloseableHttpClient buildPooledClient() throws IOException {
         org.apache.http.impl.client.HttpClientBuilder builder = HttpClients.custom();
-        HttpClientConnectionManager manager = getPooledConnectionFactory(certPath, maxConnections);
+        MonitoredConnectionManager manager = getPooledConnectionFactory(certPath, connectionConfig, log);
         builder.setConnectionManager(manager);
+        connectionConfig.configure(builder);
+        pooledManager = manager;
         // TODO: For push-redirects working for 301, the redirect strategy should be relaxed (see #351)
         // However not sure whether we should do it right now and whether this is correct, since normally
         // a 301 should only occur when the image name is invalid (e.g. containing "//" in which case a redirect
         // happens to the URL with a single "/")
         // builder.setRedirectStrategy(new LaxRedirectStrategy());
 
-        // TODO: Tune client if needed (e.g. add pooling factoring .....
-        // But I think, that's not really required.
-
         return builder.build();
     }
 
+    @Override
+    public ConnectionPoolStatistics getPoolStatistics() {
+        MonitoredConnectionManager manager = pooledManager;
+        return manager != null ? manager.getStatistics() : null;
+    }
+
     public CloseableHttpClient buildBasicClient() throws IOException {
-        return HttpClients.custom().setConnectionManager(getBasicConnectionFactory(certPath)).build();
+        BasicHttpClientConnectionManager manager = getBasicConnectionFactory(certPath);
+        connectionConfig.configure(manager);
+        org.apache.http.impl.client.HttpClientBuilder builder = HttpClients.custom().setConnectionManager(manager);
+        connectionConfig.configure(builder);
+        return builder.build();
     }
 
-    private static HttpClientConnectionManager getPooledConnectionFactory(String certPath, int maxConnections) throws IOException {
-        PoolingHttpClientConnectionManager ret = certPath != null ?
-                new PoolingHttpClientConnectionManager(getSslFactoryRegistry(certPath)) :
-                new PoolingHttpClientConnectionManager();
-        ret.setDefaultMaxPerRoute(maxConnections);
-        ret.setMaxTotal(maxConnections);
-        return ret;
+    private static MonitoredConnectionManager getPooledConnectionFactory(String certPath, DockerConnectionConfig config, KitLogger log)
+        throws IOException {
+        Registry<ConnectionSocketFactory> registry = certPath != null ?
+                getSslFactoryRegistry(certPath) :
+                RegistryBuilder.<ConnectionSocketFactory> create()
+                               .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                               .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                               .build();
+        return new MonitoredConnectionManager(registry, null, config, log);
     }
 
-    private static HttpClientConnectionManager getBasicConnectionFactory(String certPath) throws IOException {
+    private static BasicHttpClientConnectionManager getBasicConnectionFactory(String certPath) throws IOException {
         return certPath != null ?
             new BasicHttpClientConnectionManager(getSslFactoryRegistry(certPath)) :
             new BasicHttpClientConnectionManager();
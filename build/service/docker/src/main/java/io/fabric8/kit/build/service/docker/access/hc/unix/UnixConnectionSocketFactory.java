@@ -6,18 +6,22 @@ import java.net.Socket;
 import java.net.SocketAddress;
 
 import io.fabric8.kit.build.service.docker.access.hc.util.AbstractNativeSocketFactory;
+import io.fabric8.kit.build.service.docker.access.hc.util.DirectBufferPool;
 import jnr.unixsocket.UnixSocketAddress;
 import org.apache.http.protocol.HttpContext;
 
 final class UnixConnectionSocketFactory extends AbstractNativeSocketFactory {
 
-    UnixConnectionSocketFactory(String unixSocketPath) {
+    private final DirectBufferPool buffers;
+
+    UnixConnectionSocketFactory(String unixSocketPath, DirectBufferPool buffers) {
         super(unixSocketPath);
+        this.buffers = buffers;
     }
 
     @Override
     public Socket createSocket(HttpContext context) throws IOException {
-        return new UnixSocket();
+        return new UnixSocket(buffers);
     }
 
     @Override
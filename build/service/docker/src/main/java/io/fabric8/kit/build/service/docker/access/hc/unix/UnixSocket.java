@@ -1,7 +1,5 @@
 package io.fabric8.kit.build.service.docker.access.hc.unix;
 
-import java.io.FilterInputStream;
-import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -9,20 +7,34 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
-import java.nio.channels.Channels;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
 import java.nio.channels.SocketChannel;
 
+import io.fabric8.kit.build.service.docker.access.hc.util.DirectBufferPool;
+import io.fabric8.kit.build.service.docker.access.hc.util.NativeChannelSocket;
+import jnr.constants.platform.SocketOption;
 import jnr.unixsocket.UnixSocketAddress;
 import jnr.unixsocket.UnixSocketChannel;
 
-final class UnixSocket extends Socket {
+/**
+ * Socket on top of a jnr {@link UnixSocketChannel}. Reads and writes go through direct buffers taken from a
+ * {@link DirectBufferPool}, so that data is handed to the native channel without further copies.
+ */
+final class UnixSocket extends Socket implements NativeChannelSocket {
 
     private final Object connectLock = new Object();
     private volatile boolean inputShutdown, outputShutdown;
 
     private final UnixSocketChannel channel;
+    private final DirectBufferPool buffers;
 
-    UnixSocket() throws IOException {
+    private UnixSocketInputStream inputStream;
+    private UnixSocketOutputStream outputStream;
+
+    UnixSocket(DirectBufferPool buffers) throws IOException {
+        this.buffers = buffers;
         channel = UnixSocketChannel.open();
     }
 
@@ -90,6 +102,11 @@ final class UnixSocket extends Socket {
         return null;
     }
 
+    @Override
+    public ByteChannel getNativeChannel() {
+        return channel;
+    }
+
     @Override
     public InputStream getInputStream() throws IOException {
         if (!channel.isOpen()) {
@@ -104,12 +121,13 @@ final class UnixSocket extends Socket {
             throw new SocketException("Socket input is shutdown");
         }
 
-        return new FilterInputStream(Channels.newInputStream(channel)) {
-            @Override
-            public void close() throws IOException {
-                shutdownInput();
+        // Always the same stream, as it might hold data already read ahead from the channel
+        synchronized (this) {
+            if (inputStream == null) {
+                inputStream = new UnixSocketInputStream();
             }
-        };
+            return inputStream;
+        }
     }
 
     @Override
@@ -126,17 +144,12 @@ final class UnixSocket extends Socket {
             throw new SocketException("Socket output is shutdown");
         }
 
-        return new FilterOutputStream(Channels.newOutputStream(channel)) {
-            @Override
-            public void write(byte[] b, int off, int len) throws IOException {
-                out.write(b, off, len);
-            }
-
-            @Override
-            public void close() throws IOException {
-                shutdownOutput();
+        synchronized (this) {
+            if (outputStream == null) {
+                outputStream = new UnixSocketOutputStream();
             }
-        };
+            return outputStream;
+        }
     }
 
     @Override
@@ -164,7 +177,7 @@ final class UnixSocket extends Socket {
             throw new SocketException("Socket is closed");
         }
 
-        // just ignore
+        UnixSocketOptions.setInt(channel.getFD(), SocketOption.SO_SNDBUF, size);
     }
 
     @Override
@@ -173,7 +186,7 @@ final class UnixSocket extends Socket {
             throw new SocketException("Socket is closed");
         }
 
-        throw new UnsupportedOperationException("Getting the send buffer size is not supported");
+        return UnixSocketOptions.getInt(channel.getFD(), SocketOption.SO_SNDBUF);
     }
 
     @Override
@@ -186,7 +199,7 @@ final class UnixSocket extends Socket {
             throw new SocketException("Socket is closed");
         }
 
-        // just ignore
+        UnixSocketOptions.setInt(channel.getFD(), SocketOption.SO_RCVBUF, size);
     }
 
     @Override
@@ -195,7 +208,7 @@ final class UnixSocket extends Socket {
             throw new SocketException("Socket is closed");
         }
 
-        throw new UnsupportedOperationException("Getting the receive buffer size is not supported");
+        return UnixSocketOptions.getInt(channel.getFD(), SocketOption.SO_RCVBUF);
     }
 
     @Override
@@ -245,6 +258,14 @@ final class UnixSocket extends Socket {
         channel.close();
         inputShutdown = true;
         outputShutdown = true;
+        synchronized (this) {
+            if (inputStream != null) {
+                inputStream.buffer.release();
+            }
+            if (outputStream != null) {
+                outputStream.buffer.release();
+            }
+        }
     }
 
     @Override
@@ -297,4 +318,156 @@ final class UnixSocket extends Socket {
     public void setPerformancePreferences(int connectionTime, int latency, int bandwidth) {
         // no-op
     }
+
+    // ==========================================================================================
+
+    // Direct buffer of a stream, given back to the pool when the stream or the socket is closed. A buffer in use
+    // by a blocked read or write is only given back when that operation returns.
+    private final class StreamBuffer {
+
+        private final boolean forReading;
+
+        private ByteBuffer buffer;
+        private boolean inUse, released;
+
+        StreamBuffer(boolean forReading) {
+            this.forReading = forReading;
+        }
+
+        synchronized ByteBuffer begin() throws IOException {
+            if (released) {
+                throw new SocketException("Socket is closed");
+            }
+            if (buffer == null) {
+                buffer = buffers.acquire();
+                if (forReading) {
+                    // Nothing read yet
+                    buffer.limit(0);
+                }
+            }
+            inUse = true;
+            return buffer;
+        }
+
+        synchronized void end() {
+            inUse = false;
+            if (released) {
+                giveBack();
+            }
+        }
+
+        synchronized void release() {
+            released = true;
+            if (!inUse) {
+                giveBack();
+            }
+        }
+
+        private void giveBack() {
+            if (buffer != null) {
+                buffers.release(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    private final class UnixSocketInputStream extends InputStream {
+
+        private final StreamBuffer buffer = new StreamBuffer(true);
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer data = buffer.begin();
+            try {
+                if (!data.hasRemaining() && !fill(data)) {
+                    return -1;
+                }
+                int n = Math.min(len, data.remaining());
+                data.get(b, off, n);
+                return n;
+            } finally {
+                buffer.end();
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            ByteBuffer data = buffer.begin();
+            try {
+                return data.remaining();
+            } finally {
+                buffer.end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            shutdownInput();
+            buffer.release();
+        }
+
+        // Read ahead as much as fits into the buffer, returns false at the end of the stream
+        private boolean fill(ByteBuffer data) throws IOException {
+            data.clear();
+            try {
+                int n;
+                while ((n = channel.read(data)) == 0) {
+                    // The channel answers nothing at all when SO_RCVTIMEO has passed
+                    if (channel.getSoTimeout() > 0) {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                }
+                return n > 0;
+            } finally {
+                data.flip();
+            }
+        }
+    }
+
+    private final class UnixSocketOutputStream extends OutputStream {
+
+        private final StreamBuffer buffer = new StreamBuffer(false);
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        // Nothing is kept back, the HTTP client already buffers small writes
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer data = buffer.begin();
+            try {
+                while (len > 0) {
+                    int n = Math.min(len, data.capacity());
+                    data.clear();
+                    data.put(b, off, n);
+                    data.flip();
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                    off += n;
+                    len -= n;
+                }
+            } finally {
+                buffer.end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            shutdownOutput();
+            buffer.release();
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package io.fabric8.kit.build.service.docker.access.hc.unix;
 
 import io.fabric8.kit.build.service.docker.access.hc.util.AbstractNativeClientBuilder;
+import io.fabric8.kit.build.service.docker.access.hc.util.DockerConnectionConfig;
 import io.fabric8.kit.common.KitLogger;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 
@@ -10,9 +11,13 @@ public class UnixSocketClientBuilder extends AbstractNativeClientBuilder {
         super(unixSocketPath, maxConnections, log);
     }
 
+    public UnixSocketClientBuilder(String unixSocketPath, DockerConnectionConfig connectionConfig, KitLogger log) {
+        super(unixSocketPath, connectionConfig, log);
+    }
+
     @Override
     protected ConnectionSocketFactory getConnectionSocketFactory() {
-        return new UnixConnectionSocketFactory(path);
+        return new UnixConnectionSocketFactory(path, bufferPool);
     }
 
     @Override
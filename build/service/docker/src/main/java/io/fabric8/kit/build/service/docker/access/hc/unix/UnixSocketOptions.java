@@ -0,0 +1,53 @@
+package io.fabric8.kit.build.service.docker.access.hc.unix;
+
+import java.net.SocketException;
+
+import jnr.constants.platform.SocketLevel;
+import jnr.constants.platform.SocketOption;
+import jnr.ffi.LastError;
+import jnr.ffi.LibraryLoader;
+import jnr.ffi.Runtime;
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Out;
+import jnr.ffi.byref.IntByReference;
+
+/**
+ * Access to integer socket options of a native socket. jnr-unixsocket doesn't expose <code>setsockopt</code>
+ * for the buffer sizes, so the C library is called directly.
+ *
+ * @since 19.10.26
+ */
+final class UnixSocketOptions {
+
+    private UnixSocketOptions() { }
+
+    static void setInt(int fd, SocketOption option, int value) throws SocketException {
+        LibC libc = LibCHolder.LIBC;
+        if (libc.setsockopt(fd, SocketLevel.SOL_SOCKET.intValue(), option.intValue(), new IntByReference(value), 4) < 0) {
+            throw new SocketException("Cannot set " + option + ": " + lastError(libc));
+        }
+    }
+
+    static int getInt(int fd, SocketOption option) throws SocketException {
+        LibC libc = LibCHolder.LIBC;
+        IntByReference value = new IntByReference();
+        if (libc.getsockopt(fd, SocketLevel.SOL_SOCKET.intValue(), option.intValue(), value, new IntByReference(4)) < 0) {
+            throw new SocketException("Cannot get " + option + ": " + lastError(libc));
+        }
+        return value.getValue();
+    }
+
+    private static String lastError(LibC libc) {
+        return "errno " + LastError.getLastError(Runtime.getRuntime(libc));
+    }
+
+    public interface LibC {
+        int setsockopt(int s, int level, int optname, @In IntByReference optval, int optlen);
+        int getsockopt(int s, int level, int optname, @Out IntByReference optval, @In @Out IntByReference optlen);
+    }
+
+    // Loaded on first use only, so that platforms without unix sockets don't need to load it
+    private static final class LibCHolder {
+        static final LibC LIBC = LibraryLoader.create(LibC.class).load("c");
+    }
+}
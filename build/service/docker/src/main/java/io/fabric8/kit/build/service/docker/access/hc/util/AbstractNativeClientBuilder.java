@@ -29,7 +29,6 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 /**
  * Base class for all clients which access Docker natively
@@ -42,14 +41,23 @@ abstract public class AbstractNativeClientBuilder implements ClientBuilder {
     protected final Registry<ConnectionSocketFactory> registry;
     protected final String path;
     protected final KitLogger log;
+    protected final DockerConnectionConfig connectionConfig;
+    protected final DirectBufferPool bufferPool;
 
     private final DnsResolver dnsResolver;
-    private final int maxConnections;
+
+    private volatile MonitoredConnectionManager pooledManager;
 
     public AbstractNativeClientBuilder(String path, int maxConnections, KitLogger logger) {
-        this.maxConnections = maxConnections;
+        this(path, DockerConnectionConfig.withMaxConnections(maxConnections), logger);
+    }
+
+    public AbstractNativeClientBuilder(String path, DockerConnectionConfig connectionConfig, KitLogger logger) {
+        this.connectionConfig = connectionConfig;
         this.log = logger;
         this.path = path;
+        // Keep a read and a write buffer for each pooled connection
+        bufferPool = new DirectBufferPool(connectionConfig.getNativeBufferSize(), 2 * connectionConfig.getMaxConnections());
         dnsResolver = nullDnsResolver();
         registry = buildRegistry(path);
     }
@@ -60,16 +68,29 @@ abstract public class AbstractNativeClientBuilder implements ClientBuilder {
     @Override
     public CloseableHttpClient buildPooledClient() {
         final HttpClientBuilder httpBuilder = HttpClients.custom();
-        final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(registry, dnsResolver);
-        manager.setDefaultMaxPerRoute(maxConnections);
+        final MonitoredConnectionManager manager = new MonitoredConnectionManager(registry, dnsResolver, connectionConfig, log);
         httpBuilder.setConnectionManager(manager);
+        httpBuilder.setRequestExecutor(new ChannelRequestExecutor(bufferPool));
+        connectionConfig.configure(httpBuilder);
+        pooledManager = manager;
         return httpBuilder.build();
     }
 
+    @Override
+    public ConnectionPoolStatistics getPoolStatistics() {
+        MonitoredConnectionManager manager = pooledManager;
+        return manager != null ? manager.getStatistics() : null;
+    }
+
     @Override
     public CloseableHttpClient buildBasicClient() throws IOException {
         BasicHttpClientConnectionManager manager = new BasicHttpClientConnectionManager(registry, null, null, dnsResolver);
-        return HttpClients.custom().setConnectionManager(manager).build();
+        connectionConfig.configure(manager);
+        HttpClientBuilder httpBuilder = HttpClients.custom()
+                                                   .setConnectionManager(manager)
+                                                   .setRequestExecutor(new ChannelRequestExecutor(bufferPool));
+        connectionConfig.configure(httpBuilder);
+        return httpBuilder.build();
     }
 
     // =========================================================================================================
@@ -0,0 +1,77 @@
+package io.fabric8.kit.build.service.docker.access.hc.util;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+/**
+ * Request executor which sends a {@link FileChannelEntity} straight to the channel of the connection's socket
+ * instead of copying it through the output stream of the HTTP client. Image archives and build contexts can be
+ * large, so this saves a lot of copying. All other requests are sent as usual.
+ *
+ * @since 19.10.26
+ */
+public class ChannelRequestExecutor extends HttpRequestExecutor {
+
+    private final DirectBufferPool buffers;
+
+    public ChannelRequestExecutor(DirectBufferPool buffers) {
+        this.buffers = buffers;
+    }
+
+    @Override
+    protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+        throws IOException, HttpException {
+        FileChannelEntity entity = getFileChannelEntity(request);
+        WritableByteChannel channel = entity != null ? getChannel(conn) : null;
+        if (channel == null) {
+            return super.doSendRequest(request, conn, context);
+        }
+
+        context.setAttribute(HttpCoreContext.HTTP_CONNECTION, conn);
+        context.setAttribute(HttpCoreContext.HTTP_REQ_SENT, Boolean.FALSE);
+        conn.sendRequestHeader(request);
+        // Headers must be on the wire before the body is written around the connection's buffer
+        conn.flush();
+        entity.writeTo(channel, buffers);
+        context.setAttribute(HttpCoreContext.HTTP_REQ_SENT, Boolean.TRUE);
+        return null;
+    }
+
+    // ==========================================================================================
+
+    // Only entities with a known length, sent without waiting for a "100 Continue"
+    private FileChannelEntity getFileChannelEntity(HttpRequest request) {
+        if (!(request instanceof HttpEntityEnclosingRequest)) {
+            return null;
+        }
+        HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = entityRequest.getEntity();
+        if (!(entity instanceof FileChannelEntity) || entity.isChunked() || entityRequest.expectContinue()) {
+            return null;
+        }
+        return (FileChannelEntity) entity;
+    }
+
+    private WritableByteChannel getChannel(HttpClientConnection conn) {
+        if (!(conn instanceof ManagedHttpClientConnection)) {
+            return null;
+        }
+        Socket socket = ((ManagedHttpClientConnection) conn).getSocket();
+        if (socket instanceof NativeChannelSocket) {
+            return ((NativeChannelSocket) socket).getNativeChannel();
+        }
+        return socket != null ? socket.getChannel() : null;
+    }
+}
@@ -45,4 +45,13 @@ public interface ClientBuilder {
      */
     CloseableHttpClient buildBasicClient() throws IOException;
 
+    /**
+     * Get the state of the connection pool of the client built with {@link #buildPooledClient()}
+     *
+     * @return statistics or <code>null</code> if no pooled client has been built
+     */
+    default ConnectionPoolStatistics getPoolStatistics() {
+        return null;
+    }
+
 }
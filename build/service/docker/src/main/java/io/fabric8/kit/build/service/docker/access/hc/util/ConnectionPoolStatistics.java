@@ -0,0 +1,75 @@
+package io.fabric8.kit.build.service.docker.access.hc.util;
+
+/**
+ * Snapshot of the state of a connection pool to the Docker daemon and of the time spent waiting for
+ * connections from it.
+ *
+ * @since 19.10.26
+ */
+public class ConnectionPoolStatistics {
+
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+    private final long acquireCount;
+    private final long acquireNanosTotal;
+    private final long acquireNanosMax;
+
+    public ConnectionPoolStatistics(int leased, int available, int pending, int max,
+                                    long acquireCount, long acquireNanosTotal, long acquireNanosMax) {
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.acquireCount = acquireCount;
+        this.acquireNanosTotal = acquireNanosTotal;
+        this.acquireNanosMax = acquireNanosMax;
+    }
+
+    /**
+     * @return number of connections currently in use
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * @return number of idle connections kept in the pool
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * @return number of requests waiting for a connection
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return number of connections handed out so far
+     */
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public double getAcquireMeanMillis() {
+        return acquireCount > 0 ? acquireNanosTotal / (acquireCount * 1_000_000.0) : 0.0;
+    }
+
+    public double getAcquireMaxMillis() {
+        return acquireNanosMax / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("leased: %d, available: %d, pending: %d, max: %d, acquired: %d (mean %.2f ms, max %.2f ms)",
+                             leased, available, pending, max, acquireCount, getAcquireMeanMillis(), getAcquireMaxMillis());
+    }
+}
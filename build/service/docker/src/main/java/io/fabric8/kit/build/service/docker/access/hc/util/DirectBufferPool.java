@@ -0,0 +1,57 @@
+package io.fabric8.kit.build.service.docker.access.hc.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct byte buffers of a fixed size, used for native socket I/O. Direct buffers are expensive to
+ * allocate and are only freed by the garbage collector, so they are handed back after use. At most
+ * <code>maxIdle</code> buffers are kept, further returned buffers are dropped.
+ *
+ * @since 19.10.26
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxIdle;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    public DirectBufferPool(int bufferSize, int maxIdle) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive, not " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Get a cleared buffer, which must be given back with {@link #release(ByteBuffer)} when not used anymore
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        idleCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(buffer);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
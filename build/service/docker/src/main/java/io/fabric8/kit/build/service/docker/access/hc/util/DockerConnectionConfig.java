@@ -0,0 +1,333 @@
+package io.fabric8.kit.build.service.docker.access.hc.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Settings for the connections to the Docker daemon, applied to all transports (TCP, TLS, unix sockets and
+ * named pipes): size of the connection pool, timeouts, keep-alive, eviction of idle connections and buffer
+ * sizes. All durations are in milliseconds.
+ *
+ * @since 19.10.26
+ */
+public class DockerConnectionConfig {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 100;
+
+    // Maximum number of connections to the daemon
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    // Timeout for establishing a connection, 0 for no timeout
+    private int connectTimeout = 30_000;
+
+    // Timeout when waiting for data, 0 for no timeout. Builds can be silent for a long time, so there is none by default.
+    private int socketTimeout = 0;
+
+    // Timeout when waiting for a free connection from the pool, 0 for no timeout
+    private int connectionRequestTimeout = 0;
+
+    // How long an idle connection is kept alive when the daemon doesn't say otherwise, -1 for forever
+    private long keepAlive = 60_000;
+
+    // Idle time after which a pooled connection is checked before being reused, -1 for never
+    private int validateAfterInactivity = 2_000;
+
+    // Idle time after which a pooled connection is closed in the background, 0 for never
+    private long evictIdleAfter = 60_000;
+
+    // Whether connections beyond their keep-alive are closed in the background
+    private boolean evictExpired = true;
+
+    // Maximum lifetime of a connection, -1 for no limit
+    private long timeToLive = -1;
+
+    // Socket buffer sizes, 0 for the system's default
+    private int socketSendBufferSize = 0;
+    private int socketReceiveBufferSize = 0;
+
+    // Size of the buffer used by the HTTP client for reading and writing a connection
+    private int bufferSize = 8 * 1024;
+
+    // Size of the direct buffers used for reading and writing native sockets and for sending files over them
+    private int nativeBufferSize = 128 * 1024;
+
+    private boolean tcpNoDelay = true;
+
+    // Waiting longer than this for a pooled connection is logged
+    private long slowAcquireThreshold = 1_000;
+
+    private DockerConnectionConfig() { }
+
+    /**
+     * Default settings with the given maximum number of connections
+     */
+    public static DockerConnectionConfig withMaxConnections(int maxConnections) {
+        return new Builder().maxConnections(maxConnections).build();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public long getEvictIdleAfter() {
+        return evictIdleAfter;
+    }
+
+    public boolean isEvictExpired() {
+        return evictExpired;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public int getSocketSendBufferSize() {
+        return socketSendBufferSize;
+    }
+
+    public int getSocketReceiveBufferSize() {
+        return socketReceiveBufferSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getNativeBufferSize() {
+        return nativeBufferSize;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public long getSlowAcquireThreshold() {
+        return slowAcquireThreshold;
+    }
+
+    /**
+     * Apply the pool size, socket and connection settings to a connection manager
+     */
+    public void configure(MonitoredConnectionManager manager) {
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxConnections);
+        manager.setValidateAfterInactivity(validateAfterInactivity);
+        manager.setDefaultSocketConfig(getSocketConfig());
+        manager.setDefaultConnectionConfig(ConnectionConfig.custom().setBufferSize(bufferSize).build());
+    }
+
+    /**
+     * Apply the socket and connection settings to a single connection manager
+     */
+    public void configure(BasicHttpClientConnectionManager manager) {
+        manager.setSocketConfig(getSocketConfig());
+        manager.setConnectionConfig(ConnectionConfig.custom().setBufferSize(bufferSize).build());
+    }
+
+    /**
+     * Apply timeouts, keep-alive and eviction to a client. Socket settings are taken from the
+     * connection manager.
+     */
+    public void configure(HttpClientBuilder builder) {
+        builder.setDefaultRequestConfig(RequestConfig.custom()
+                                                     .setConnectTimeout(connectTimeout)
+                                                     .setSocketTimeout(socketTimeout)
+                                                     .setConnectionRequestTimeout(connectionRequestTimeout)
+                                                     .build());
+        builder.setKeepAliveStrategy(getKeepAliveStrategy());
+        if (evictIdleAfter > 0) {
+            builder.evictIdleConnections(evictIdleAfter, TimeUnit.MILLISECONDS);
+        }
+        if (evictExpired) {
+            builder.evictExpiredConnections();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "max connections: " + maxConnections +
+               ", connect timeout: " + connectTimeout +
+               ", socket timeout: " + socketTimeout +
+               ", request timeout: " + connectionRequestTimeout +
+               ", keep-alive: " + keepAlive +
+               ", validate after: " + validateAfterInactivity +
+               ", evict idle after: " + evictIdleAfter +
+               ", time to live: " + timeToLive;
+    }
+
+    // ==========================================================================================
+
+    private SocketConfig getSocketConfig() {
+        return SocketConfig.custom()
+                           .setSoTimeout(socketTimeout)
+                           .setTcpNoDelay(tcpNoDelay)
+                           .setSoKeepAlive(true)
+                           .setSndBufSize(socketSendBufferSize)
+                           .setRcvBufSize(socketReceiveBufferSize)
+                           .build();
+    }
+
+    // Use the timeout of a "Keep-Alive" header if the daemon sends one, the configured keep-alive otherwise
+    private ConnectionKeepAliveStrategy getKeepAliveStrategy() {
+        final long defaultKeepAlive = keepAlive;
+        return (HttpResponse response, HttpContext context) -> {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Long.parseLong(element.getValue()) * 1000;
+                    } catch (NumberFormatException e) {
+                        // Use the configured keep-alive
+                    }
+                }
+            }
+            return defaultKeepAlive;
+        };
+    }
+
+    public static class Builder {
+
+        private final DockerConnectionConfig config;
+
+        public Builder() {
+            config = new DockerConnectionConfig();
+        }
+
+        public Builder(DockerConnectionConfig that) {
+            this();
+            config.maxConnections = that.maxConnections;
+            config.connectTimeout = that.connectTimeout;
+            config.socketTimeout = that.socketTimeout;
+            config.connectionRequestTimeout = that.connectionRequestTimeout;
+            config.keepAlive = that.keepAlive;
+            config.validateAfterInactivity = that.validateAfterInactivity;
+            config.evictIdleAfter = that.evictIdleAfter;
+            config.evictExpired = that.evictExpired;
+            config.timeToLive = that.timeToLive;
+            config.socketSendBufferSize = that.socketSendBufferSize;
+            config.socketReceiveBufferSize = that.socketReceiveBufferSize;
+            config.bufferSize = that.bufferSize;
+            config.nativeBufferSize = that.nativeBufferSize;
+            config.tcpNoDelay = that.tcpNoDelay;
+            config.slowAcquireThreshold = that.slowAcquireThreshold;
+        }
+
+        public Builder maxConnections(int maxConnections) {
+            if (maxConnections < 1) {
+                throw new IllegalArgumentException("At least one connection is required, not " + maxConnections);
+            }
+            config.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder connectTimeout(int connectTimeout) {
+            config.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder socketTimeout(int socketTimeout) {
+            config.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        public Builder connectionRequestTimeout(int connectionRequestTimeout) {
+            config.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
+        public Builder keepAlive(long keepAlive) {
+            config.keepAlive = keepAlive;
+            return this;
+        }
+
+        public Builder validateAfterInactivity(int validateAfterInactivity) {
+            config.validateAfterInactivity = validateAfterInactivity;
+            return this;
+        }
+
+        public Builder evictIdleAfter(long evictIdleAfter) {
+            config.evictIdleAfter = evictIdleAfter;
+            return this;
+        }
+
+        public Builder evictExpired(boolean evictExpired) {
+            config.evictExpired = evictExpired;
+            return this;
+        }
+
+        public Builder timeToLive(long timeToLive) {
+            config.timeToLive = timeToLive;
+            return this;
+        }
+
+        public Builder socketSendBufferSize(int socketSendBufferSize) {
+            config.socketSendBufferSize = socketSendBufferSize;
+            return this;
+        }
+
+        public Builder socketReceiveBufferSize(int socketReceiveBufferSize) {
+            config.socketReceiveBufferSize = socketReceiveBufferSize;
+            return this;
+        }
+
+        public Builder bufferSize(int bufferSize) {
+            config.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder nativeBufferSize(int nativeBufferSize) {
+            if (nativeBufferSize < 1) {
+                throw new IllegalArgumentException("Native buffer size must be positive, not " + nativeBufferSize);
+            }
+            config.nativeBufferSize = nativeBufferSize;
+            return this;
+        }
+
+        public Builder tcpNoDelay(boolean tcpNoDelay) {
+            config.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        public Builder slowAcquireThreshold(long slowAcquireThreshold) {
+            config.slowAcquireThreshold = slowAcquireThreshold;
+            return this;
+        }
+
+        public DockerConnectionConfig build() {
+            return config;
+        }
+    }
+}
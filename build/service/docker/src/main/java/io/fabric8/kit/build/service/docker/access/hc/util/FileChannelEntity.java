@@ -0,0 +1,83 @@
+package io.fabric8.kit.build.service.docker.access.hc.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.util.Args;
+
+/**
+ * File entity which can be written directly to the channel of a connection, bypassing the streams of the
+ * HTTP client. See {@link ChannelRequestExecutor}.
+ *
+ * @since 19.10.26
+ */
+public class FileChannelEntity extends FileEntity {
+
+    // Buffer size when the entity is written to a stream
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    public FileChannelEntity(File file) {
+        super(file);
+    }
+
+    public FileChannelEntity(File file, ContentType contentType) {
+        super(file, contentType);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        Args.notNull(out, "Output stream");
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            while (in.read(buffer) >= 0) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Write the file to a channel. JDK socket and file channels get it with {@link FileChannel#transferTo}, which
+     * lets the kernel copy the data. Other channels get it through a direct buffer from the given pool.
+     *
+     * @param target channel to write to
+     * @param buffers pool to take a direct buffer from
+     */
+    public void writeTo(WritableByteChannel target, DirectBufferPool buffers) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (target instanceof SocketChannel || target instanceof FileChannel) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, target);
+                }
+                return;
+            }
+            ByteBuffer buffer = buffers.acquire();
+            try {
+                while (in.read(buffer) >= 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            } finally {
+                buffers.release(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.fabric8.kit.build.service.docker.access.hc.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.common.KitMetrics;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Pooling connection manager configured from a {@link DockerConnectionConfig}, which measures how long
+ * requests wait for a connection. Waiting longer than the configured threshold is logged together with
+ * the state of the pool.
+ *
+ * @since 19.10.26
+ */
+public class MonitoredConnectionManager extends PoolingHttpClientConnectionManager {
+
+    // Metric name for the time spent waiting for a pooled connection
+    static final String METRIC_POOL_ACQUIRE = "docker.pool.acquire";
+
+    private final KitLogger log;
+    private final long slowAcquireNanos;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireNanosTotal = new AtomicLong();
+    private final AtomicLong acquireNanosMax = new AtomicLong();
+
+    public MonitoredConnectionManager(Registry<ConnectionSocketFactory> registry, DnsResolver dnsResolver,
+                                      DockerConnectionConfig config, KitLogger log) {
+        super(registry, null, null, dnsResolver, config.getTimeToLive(), TimeUnit.MILLISECONDS);
+        this.log = log;
+        this.slowAcquireNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowAcquireThreshold());
+        config.configure(this);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                KitMetrics metrics = KitMetrics.get();
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, unit);
+                } finally {
+                    long waited = System.nanoTime() - start;
+                    metrics.timer(METRIC_POOL_ACQUIRE).record(waited);
+                    recordAcquire(waited);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * @return current state of the pool and the time spent waiting for connections so far
+     */
+    public ConnectionPoolStatistics getStatistics() {
+        PoolStats stats = getTotalStats();
+        return new ConnectionPoolStatistics(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax(),
+                                            acquireCount.get(), acquireNanosTotal.get(), acquireNanosMax.get());
+    }
+
+    // ==========================================================================================
+
+    private void recordAcquire(long nanos) {
+        acquireCount.incrementAndGet();
+        acquireNanosTotal.addAndGet(nanos);
+        acquireNanosMax.accumulateAndGet(nanos, Math::max);
+        if (nanos > slowAcquireNanos && log != null) {
+            log.verbose("Waited %d ms for a connection to the Docker daemon (%s)",
+                        TimeUnit.NANOSECONDS.toMillis(nanos), getStatistics());
+        }
+    }
+}
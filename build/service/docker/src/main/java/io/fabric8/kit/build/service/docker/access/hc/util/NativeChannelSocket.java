@@ -0,0 +1,17 @@
+package io.fabric8.kit.build.service.docker.access.hc.util;
+
+import java.nio.channels.ByteChannel;
+
+/**
+ * A socket backed by a native channel which is not a {@link java.nio.channels.SocketChannel}, so that
+ * {@link java.net.Socket#getChannel()} can't return it
+ *
+ * @since 19.10.26
+ */
+public interface NativeChannelSocket {
+
+    /**
+     * @return the channel to which the socket reads and writes
+     */
+    ByteChannel getNativeChannel();
+}
@@ -1,6 +1,7 @@
 package io.fabric8.kit.build.service.docker.access.hc.win;
 
 import io.fabric8.kit.build.service.docker.access.hc.util.AbstractNativeClientBuilder;
+import io.fabric8.kit.build.service.docker.access.hc.util.DockerConnectionConfig;
 import io.fabric8.kit.common.KitLogger;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 
@@ -9,6 +10,10 @@ public class NamedPipeClientBuilder extends AbstractNativeClientBuilder {
         super(namedPipePath, maxConnections, log);
     }
 
+    public NamedPipeClientBuilder(String namedPipePath, DockerConnectionConfig connectionConfig, KitLogger log) {
+        super(namedPipePath, connectionConfig, log);
+    }
+
     @Override
     protected ConnectionSocketFactory getConnectionSocketFactory() {
         return new NpipeConnectionSocketFactory(path, log);
@@ -0,0 +1,296 @@
+package io.fabric8.kit.build.service.docker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.gson.JsonObject;
+import io.fabric8.kit.build.api.BuildContext;
+import io.fabric8.kit.build.api.BuildService;
+import io.fabric8.kit.build.api.RegistryContext;
+import io.fabric8.kit.build.api.RegistryService;
+import io.fabric8.kit.build.service.docker.access.BuildOptions;
+import io.fabric8.kit.build.service.docker.access.DockerAccess;
+import io.fabric8.kit.build.service.docker.access.DockerAccessException;
+import io.fabric8.kit.build.service.docker.access.DockerCapabilities;
+import io.fabric8.kit.build.service.docker.access.ImageCleanupResult;
+import io.fabric8.kit.common.JsonFactory;
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.config.image.ImageConfiguration;
+import io.fabric8.kit.config.image.build.BuildConfiguration;
+import io.fabric8.kit.config.image.build.DockerFile;
+import io.fabric8.kit.config.image.build.ImagePullPolicy;
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Verifications;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DockerBuildServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Injectable
+    private DockerAccess docker;
+
+    @Injectable
+    private RegistryService registryService;
+
+    @Injectable
+    private BuildContext buildContext;
+
+    @Injectable
+    private KitLogger log;
+
+    @Test
+    public void skipUnchangedImage() throws IOException {
+        File archive = folder.newFile("docker.tar");
+        Map<String, String> imageLabels = new HashMap<>();
+        new Expectations() {{
+            buildContext.createInputFingerprint(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = "sha256:inputs"; minTimes = 0;
+            buildContext.createImageContentArchive(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = archive; minTimes = 0;
+            docker.getImageId("busybox:1.29");
+            result = "0123456789ab"; minTimes = 0;
+            docker.getImageLabels("fabric8/test:1.0");
+            result = imageLabels; minTimes = 0;
+        }};
+
+        DockerBuildService service = new DockerBuildService(docker, registryService, log);
+        service.buildImage(imageConfig("1"), buildContext, null);
+        String fingerprint = builtFingerprints(1).get(0);
+        assertTrue(fingerprint.startsWith("sha256:"));
+
+        // Same configuration and inputs as the existing image
+        imageLabels.put(DockerBuildService.FINGERPRINT_LABEL, fingerprint);
+        service.buildImage(imageConfig("1"), buildContext, null);
+        builtFingerprints(1);
+
+        // Changed configuration
+        service.buildImage(imageConfig("2"), buildContext, null);
+        List<String> fingerprints = builtFingerprints(2);
+        assertNotEquals(fingerprint, fingerprints.get(1));
+    }
+
+    @Test
+    public void fingerprintAllStages() throws IOException {
+        File archive = folder.newFile("docker.tar");
+        DockerFile dockerFile = DockerFile.parse(new StringReader("FROM maven:3 AS build\nFROM busybox:1.29\n"), Function.identity());
+        new Expectations() {{
+            buildContext.inSourceDir(anyString);
+            result = new File(folder.getRoot(), "Dockerfile"); minTimes = 0;
+            buildContext.parseDockerFile((File) any, (String) any);
+            result = dockerFile; minTimes = 0;
+            buildContext.createInputFingerprint(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = "sha256:inputs"; minTimes = 0;
+            buildContext.createImageContentArchive(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = archive; minTimes = 0;
+            docker.getImageLabels("fabric8/test:1.0");
+            result = Collections.emptyMap(); minTimes = 0;
+            docker.getImageId("busybox:1.29");
+            result = "0123456789ab"; minTimes = 0;
+            // Update of the image used by the first stage only
+            docker.getImageId("maven:3");
+            returns("aaaaaaaaaaaa", "bbbbbbbbbbbb");
+        }};
+
+        ImageConfiguration imageConfig = new ImageConfiguration.Builder()
+            .name("fabric8/test:1.0")
+            .buildConfig(new BuildConfiguration.Builder().dockerFile("Dockerfile").build())
+            .build();
+        DockerBuildService service = new DockerBuildService(docker, registryService, log);
+        service.buildImage(imageConfig, buildContext, null);
+        service.buildImage(imageConfig, buildContext, null);
+        List<String> fingerprints = builtFingerprints(2);
+        assertNotEquals(fingerprints.get(0), fingerprints.get(1));
+    }
+
+    @Test
+    public void removeOldImageAfterBuild() throws IOException {
+        expectOldImages();
+
+        // Without a session every replaced image is removed by its build
+        DockerBuildService service = new DockerBuildService(docker, registryService, log);
+        service.buildImage(imageConfig("1"), buildContext, null);
+        service.buildImage(imageConfig("2"), buildContext, null);
+        List<List<String>> removed = new ArrayList<>();
+        new Verifications() {{
+            docker.removeImages(withCapture(removed), true, anyInt); times = 2;
+        }};
+        assertEquals(Collections.singletonList("aaaaaaaaaaaa"), removed.get(0));
+        assertEquals(Collections.singletonList("bbbbbbbbbbbb"), removed.get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void removeOldImagesWhenSessionClosed() throws IOException {
+        expectOldImages();
+
+        DockerBuildService service = new DockerBuildService(docker, registryService, log);
+        BuildService.BuildSession outer = service.startSession();
+        try (BuildService.BuildSession session = service.startSession()) {
+            service.buildImage(imageConfig("1"), buildContext, null);
+            service.buildImage(imageConfig("2"), buildContext, null);
+        }
+        // Still deferred while the outer session is open
+        new Verifications() {{
+            docker.removeImage(anyString, anyBoolean); times = 0;
+            docker.removeImages((List<String>) any, anyBoolean, anyInt); times = 0;
+        }};
+
+        // Both replaced images are removed at once
+        outer.close();
+        List<List<String>> removed = new ArrayList<>();
+        new Verifications() {{
+            docker.removeImages(withCapture(removed), true, anyInt); times = 1;
+        }};
+        assertEquals(Arrays.asList("aaaaaaaaaaaa", "bbbbbbbbbbbb"), removed.get(0));
+
+        // Closing again doesn't remove anything
+        outer.close();
+        new Verifications() {{
+            docker.removeImages((List<String>) any, anyBoolean, anyInt); times = 1;
+        }};
+    }
+
+    @Test
+    public void seedBuildCache() throws IOException {
+        File archive = folder.newFile("docker.tar");
+        JsonObject version = new JsonObject();
+        version.addProperty("ApiVersion", "1.39");
+        new Expectations() {{
+            buildContext.createInputFingerprint(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = "sha256:inputs"; minTimes = 0;
+            buildContext.createImageContentArchive(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = archive; minTimes = 0;
+            docker.getImageLabels("fabric8/test:1.0");
+            result = null; minTimes = 0;
+            docker.getCapabilities();
+            result = DockerCapabilities.fromDaemon(version, new JsonObject());
+            registryService.pullImage("reg.io/fabric8/test:dev", ImagePullPolicy.IfNotPresent, (RegistryContext) any);
+            result = new DockerAccessException("manifest unknown");
+        }};
+
+        ImageConfiguration imageConfig = new ImageConfiguration.Builder()
+            .name("fabric8/test:1.0")
+            .registry("reg.io")
+            .buildConfig(new BuildConfiguration.Builder()
+                             .from("busybox:1.29")
+                             .tags(Collections.singletonList("dev"))
+                             .cacheFrom(Collections.singletonList("fabric8/cache:1"))
+                             .cacheSeed(true)
+                             .build())
+            .build();
+        new DockerBuildService(docker, registryService, log).buildImage(imageConfig, buildContext, null);
+
+        List<String> pulled = new ArrayList<>();
+        List<BuildOptions> options = new ArrayList<>();
+        new Verifications() {{
+            registryService.pullImage(withCapture(pulled), (ImagePullPolicy) any, (RegistryContext) any);
+            docker.buildImage("fabric8/test:1.0", (File) any, withCapture(options));
+        }};
+        assertEquals(5, pulled.size());
+        assertTrue(pulled.contains("busybox:1.29"));
+        // The image itself is never pulled, it would be replaced by the one being built
+        assertFalse(pulled.contains("fabric8/test:1.0"));
+        // Missing images are left out
+        assertEquals("[\"fabric8/cache:1\",\"reg.io/fabric8/test:1.0\",\"reg.io/fabric8/test:latest\"]",
+                     options.get(0).getOptions().get("cachefrom"));
+    }
+
+    @Test
+    public void noSeedingForUnchangedImage() throws IOException {
+        File archive = folder.newFile("docker.tar");
+        JsonObject version = new JsonObject();
+        version.addProperty("ApiVersion", "1.39");
+        Map<String, String> imageLabels = new HashMap<>();
+        new Expectations() {{
+            buildContext.createInputFingerprint(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = "sha256:inputs"; minTimes = 0;
+            buildContext.createImageContentArchive(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = archive; minTimes = 0;
+            docker.getImageLabels("fabric8/test:1.0");
+            result = imageLabels; minTimes = 0;
+            docker.getCapabilities();
+            result = DockerCapabilities.fromDaemon(version, new JsonObject()); minTimes = 0;
+        }};
+
+        ImageConfiguration imageConfig = new ImageConfiguration.Builder()
+            .name("fabric8/test:1.0")
+            .buildConfig(new BuildConfiguration.Builder()
+                             .from("busybox:1.29")
+                             .cacheFrom(Collections.singletonList("fabric8/cache:1"))
+                             .build())
+            .build();
+        DockerBuildService service = new DockerBuildService(docker, registryService, log);
+        service.buildImage(imageConfig, buildContext, null);
+        imageLabels.put(DockerBuildService.FINGERPRINT_LABEL, builtFingerprints(1).get(0));
+
+        // The build is skipped, so the cache image isn't pulled again
+        service.buildImage(imageConfig, buildContext, null);
+        builtFingerprints(1);
+        new Verifications() {{
+            registryService.pullImage("fabric8/cache:1", (ImagePullPolicy) any, (RegistryContext) any); times = 1;
+        }};
+    }
+
+    private ImageConfiguration imageConfig(String envValue) {
+        return new ImageConfiguration.Builder()
+            .name("fabric8/test:1.0")
+            .buildConfig(new BuildConfiguration.Builder()
+                             .from("busybox:1.29")
+                             .env(Collections.singletonMap("VALUE", envValue))
+                             .build())
+            .build();
+    }
+
+    private List<String> builtFingerprints(int expectedBuilds) throws IOException {
+        List<BuildOptions> options = new ArrayList<>();
+        new Verifications() {{
+            docker.buildImage("fabric8/test:1.0", (File) any, withCapture(options));
+        }};
+        assertEquals(expectedBuilds, options.size());
+        List<String> ret = new ArrayList<>();
+        for (BuildOptions option : options) {
+            ret.add(JsonFactory.newJsonObject(option.getOptions().get("labels"))
+                               .get(DockerBuildService.FINGERPRINT_LABEL).getAsString());
+        }
+        return ret;
+    }
+
+    // Two builds, replacing the images "aaaaaaaaaaaa" and "bbbbbbbbbbbb"
+    @SuppressWarnings("unchecked")
+    private void expectOldImages() throws IOException {
+        File archive = folder.newFile("docker.tar");
+        new Expectations() {{
+            buildContext.createInputFingerprint(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = "sha256:inputs"; minTimes = 0;
+            buildContext.createImageContentArchive(anyString, (BuildConfiguration) any, (KitLogger) any);
+            result = archive; minTimes = 0;
+            docker.getImageId("busybox:1.29");
+            result = "0123456789ab"; minTimes = 0;
+            docker.getImageLabels("fabric8/test:1.0");
+            result = Collections.emptyMap(); minTimes = 0;
+            docker.getImageId("fabric8/test:1.0");
+            returns("aaaaaaaaaaaa", "bbbbbbbbbbbb", "bbbbbbbbbbbb", "cccccccccccc");
+            docker.removeImages((List<String>) any, true, anyInt);
+            result = new ImageCleanupResult(Collections.singletonList("aaaaaaaaaaaa"), Collections.emptyMap(), 0);
+            minTimes = 0;
+        }};
+    }
+}
@@ -0,0 +1,68 @@
+package io.fabric8.kit.build.service.docker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImagePullCacheTest {
+
+    private static final String DIGEST = "sha256:2d2f3b6c0a5ddf9a9b0d6c3d4f0f0a7e5b9d1d8a9b0c3e2f1a4b5c6d7e8f9a0b";
+
+    private Map<String, String> store;
+    private ImagePullCache cache;
+
+    @Before
+    public void setup() {
+        store = new HashMap<>();
+        cache = new ImagePullCache(new ImagePullCache.Backend() {
+            @Override
+            public String get(String key) {
+                return store.get(key);
+            }
+
+            @Override
+            public void put(String key, String value) {
+                store.put(key, value);
+            }
+        });
+    }
+
+    @Test
+    public void withoutDigest() {
+        assertFalse(cache.hasAlreadyPulled("fabric8/java:8"));
+        // Lookups don't write to the backend
+        assertTrue(store.isEmpty());
+        cache.pulled("fabric8/java:8");
+        assertTrue(cache.hasAlreadyPulled("fabric8/java:8"));
+        assertNull(cache.getDigest("fabric8/java:8"));
+        assertFalse(cache.hasAlreadyPulled("fabric8/java@" + DIGEST));
+    }
+
+    @Test
+    public void sameContentAcrossTagsAndRegistries() {
+        cache.pulled("docker.io/fabric8/java:8", DIGEST);
+        assertEquals(DIGEST, cache.getDigest("docker.io/fabric8/java:8"));
+        assertTrue(cache.hasAlreadyPulled("fabric8/java@" + DIGEST));
+        assertTrue(cache.hasAlreadyPulled("mirror.example.com/fabric8/java:latest@" + DIGEST));
+        assertFalse(cache.hasAlreadyPulled("fabric8/java:latest"));
+        assertFalse(cache.hasAlreadyPulled("fabric8/other@" + DIGEST));
+
+        // A later pull without a known digest keeps the recorded one
+        cache.pulled("docker.io/fabric8/java:8");
+        assertEquals(DIGEST, cache.getDigest("docker.io/fabric8/java:8"));
+    }
+
+    @Test
+    public void formerCacheFormat() {
+        store.put("CONTEXT_KEY_PREVIOUSLY_PULLED", "{\"fabric8/java:8\":true}");
+        assertTrue(cache.hasAlreadyPulled("fabric8/java:8"));
+        assertNull(cache.getDigest("fabric8/java:8"));
+    }
+}
@@ -0,0 +1,76 @@
+package io.fabric8.kit.build.service.docker.access;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DockerCapabilitiesTest {
+
+    @Test
+    public void negotiatedApiVersion() {
+        assertEquals("1.35", capabilities("1.35", false).getApiVersion());
+        assertEquals(DockerCapabilities.MAX_API_VERSION, capabilities("1.41", false).getApiVersion());
+        assertEquals("1.41", capabilities("1.41", false).getServerApiVersion());
+    }
+
+    @Test
+    public void features() {
+        DockerCapabilities old = capabilities("1.24", false);
+        assertFalse(old.supports(DockerFeature.BUILD_CACHE_FROM));
+        assertFalse(old.supports(DockerFeature.IMAGE_PRUNE));
+
+        DockerCapabilities current = capabilities("1.39", false);
+        assertTrue(current.supports(DockerFeature.BUILD_TARGET));
+        assertTrue(current.supports(DockerFeature.BUILDKIT));
+        assertFalse(current.supports(DockerFeature.BUILD_PLATFORM));
+        assertFalse(current.supports(DockerFeature.BUILD_SQUASH));
+
+        DockerCapabilities experimental = capabilities("1.39", true);
+        assertTrue(experimental.supports(DockerFeature.BUILD_PLATFORM));
+        assertTrue(experimental.supports(DockerFeature.BUILD_SQUASH));
+    }
+
+    @Test
+    public void compareVersions() {
+        assertTrue(DockerCapabilities.compareVersions("1.9", "1.10") < 0);
+        assertTrue(DockerCapabilities.compareVersions("1.40", "1.39") > 0);
+        assertEquals(0, DockerCapabilities.compareVersions("1.25", "1.25.0"));
+    }
+
+    @Test
+    public void json() {
+        DockerCapabilities capabilities = capabilities("1.39", true);
+        DockerCapabilities read = DockerCapabilities.fromJson(capabilities.toJson());
+        assertEquals("1.39", read.getServerApiVersion());
+        assertEquals("DAEMON:ID", read.getDaemonId());
+        assertEquals(capabilities.getFetchedAt(), read.getFetchedAt());
+        assertEquals(capabilities.getFeatures(), read.getFeatures());
+    }
+
+    @Test
+    public void unsupportedBuildOptions() {
+        BuildOptions options = new BuildOptions().target("test").squash(true).noCache(true);
+        BuildOptions supported = options.supportedBy(capabilities("1.28", false));
+        assertEquals("1", supported.getOptions().get("nocache"));
+        assertFalse(supported.getOptions().containsKey("target"));
+        assertFalse(supported.getOptions().containsKey("squash"));
+        assertEquals("test", options.getOptions().get("target"));
+        assertEquals("test", options.supportedBy(capabilities("1.29", false)).getOptions().get("target"));
+    }
+
+    static DockerCapabilities capabilities(String apiVersion, boolean experimental) {
+        JsonObject version = new JsonObject();
+        version.addProperty("ApiVersion", apiVersion);
+        version.addProperty("MinAPIVersion", "1.12");
+        version.addProperty("Version", "18.09.0");
+        version.addProperty("Os", "linux");
+        version.addProperty("Arch", "amd64");
+        JsonObject info = new JsonObject();
+        info.addProperty("ID", "DAEMON:ID");
+        info.addProperty("ExperimentalBuild", experimental);
+        return DockerCapabilities.fromDaemon(version, info);
+    }
+}
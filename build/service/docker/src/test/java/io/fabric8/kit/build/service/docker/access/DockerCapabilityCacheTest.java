@@ -0,0 +1,106 @@
+package io.fabric8.kit.build.service.docker.access;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class DockerCapabilityCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final AtomicInteger idFetches = new AtomicInteger();
+    private String daemonId = "DAEMON:ID";
+
+    private final DockerCapabilityCache.Fetcher fetcher = new DockerCapabilityCache.Fetcher() {
+        @Override
+        public DockerCapabilities fetch() {
+            fetches.incrementAndGet();
+            return DockerCapabilitiesTest.capabilities("1.39", false);
+        }
+
+        @Override
+        public String fetchDaemonId() {
+            idFetches.incrementAndGet();
+            return daemonId;
+        }
+    };
+
+    @Test
+    public void storedOnDisk() throws Exception {
+        File dir = folder.getRoot();
+        assertEquals("1.39", new DockerCapabilityCache(dir, 60_000).get("unix:///var/run/docker.sock", fetcher).getApiVersion());
+        assertEquals("1.39", new DockerCapabilityCache(dir, 60_000).get("unix:///var/run/docker.sock", fetcher).getApiVersion());
+        assertEquals(1, fetches.get());
+        // The stored entry is only used after checking the daemon
+        assertEquals(1, idFetches.get());
+
+        // Other endpoint
+        new DockerCapabilityCache(dir, 60_000).get("tcp://localhost:2375", fetcher);
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void expired() throws Exception {
+        DockerCapabilityCache cache = new DockerCapabilityCache(folder.getRoot(), 0);
+        cache.get("unix:///var/run/docker.sock", fetcher);
+        cache.get("unix:///var/run/docker.sock", fetcher);
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void invalidate() throws Exception {
+        DockerCapabilityCache cache = new DockerCapabilityCache(folder.getRoot(), 60_000);
+        cache.get("unix:///var/run/docker.sock", fetcher);
+        cache.invalidate("unix:///var/run/docker.sock");
+        cache.get("unix:///var/run/docker.sock", fetcher);
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void corruptEntry() throws Exception {
+        DockerCapabilityCache cache = new DockerCapabilityCache(folder.getRoot(), 60_000);
+        cache.get("unix:///var/run/docker.sock", fetcher);
+        for (File file : folder.getRoot().listFiles()) {
+            Files.write(file.toPath(), "{ broken".getBytes());
+        }
+        new DockerCapabilityCache(folder.getRoot(), 60_000).get("unix:///var/run/docker.sock", fetcher);
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void otherDaemon() throws Exception {
+        File dir = folder.getRoot();
+        new DockerCapabilityCache(dir, 60_000).get("unix:///var/run/docker.sock", fetcher);
+        daemonId = "OTHER:ID";
+        new DockerCapabilityCache(dir, 60_000).get("unix:///var/run/docker.sock", fetcher);
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void ownerOnly() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        File dir = new File(folder.getRoot(), "cache/capabilities");
+        new DockerCapabilityCache(dir, 60_000).get("unix:///var/run/docker.sock", fetcher);
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(dir.toPath()));
+        for (File file : dir.listFiles()) {
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file.toPath()));
+        }
+
+        // Permissions of an existing directory are restricted
+        File shared = folder.newFolder("shared");
+        Files.setPosixFilePermissions(shared.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        new DockerCapabilityCache(shared, 60_000).get("unix:///var/run/docker.sock", fetcher);
+        assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(shared.toPath()));
+    }
+}
@@ -0,0 +1,59 @@
+package io.fabric8.kit.build.service.docker.access;
+
+import io.fabric8.kit.config.image.ImageName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UrlBuilderTest {
+
+    private static final String DIGEST = "sha256:2d2f3b6c0a5ddf9a9b0d6c3d4f0f0a7e5b9d1d8a9b0c3e2f1a4b5c6d7e8f9a0b";
+
+    @Test
+    public void pullImage() {
+        UrlBuilder builder = new UrlBuilder("http://localhost:2375", "v1.24");
+        assertEquals("http://localhost:2375/v1.24/images/create?fromImage=reg.io%2Ffabric8%2Fjava&tag=8",
+                     builder.pullImage(new ImageName("fabric8/java:8"), "reg.io"));
+        // Pulled by digest, the tag isn't resolved
+        assertEquals("http://localhost:2375/v1.24/images/create?fromImage=fabric8%2Fjava&tag=sha256%3A" + DIGEST.substring(7),
+                     builder.pullImage(new ImageName("fabric8/java:8@" + DIGEST), null));
+    }
+
+    @Test
+    public void pushImage() throws DockerAccessException {
+        UrlBuilder builder = new UrlBuilder("http://localhost:2375", "v1.24");
+        assertEquals("http://localhost:2375/v1.24/images/reg.io%2Ffabric8%2Fjava/push?force=1&tag=8",
+                     builder.pushImage(new ImageName("fabric8/java:8"), "reg.io"));
+        try {
+            builder.pushImage(new ImageName("fabric8/java@" + DIGEST), "reg.io");
+            fail("Digest references can't be pushed");
+        } catch (DockerAccessException exp) {
+            assertTrue(exp.getMessage(), exp.getMessage().contains("digest"));
+        }
+    }
+
+    @Test
+    public void tagImage() throws DockerAccessException {
+        UrlBuilder builder = new UrlBuilder("http://localhost:2375", "v1.24");
+        ImageName source = new ImageName("fabric8/java@" + DIGEST);
+        assertEquals("http://localhost:2375/v1.24/images/fabric8%2Fjava%40sha256%3A" + DIGEST.substring(7) +
+                     "/tag?force=0&repo=reg.io%2Ffabric8%2Fjava&tag=8",
+                     builder.tagImage(source, new ImageName("reg.io/fabric8/java:8"), false));
+        try {
+            builder.tagImage(new ImageName("fabric8/java:8"), new ImageName("fabric8/java:8@" + DIGEST), false);
+            fail("Digest references can't be used as tag");
+        } catch (DockerAccessException exp) {
+            assertTrue(exp.getMessage(), exp.getMessage().contains("digest"));
+        }
+    }
+
+    @Test
+    public void pruneImages() {
+        UrlBuilder builder = new UrlBuilder("http://localhost:2375", "v1.39");
+        assertEquals("http://localhost:2375/v1.39/images/prune", builder.pruneImages(new PruneOptions()));
+        assertEquals("http://localhost:2375/v1.39/images/prune?filters=%7B%22dangling%22%3A%5B%22true%22%5D%2C%22label%21%22%3A%5B%22keep%22%5D%7D",
+                     builder.pruneImages(new PruneOptions().withoutLabel("keep").dangling(true)));
+    }
+}
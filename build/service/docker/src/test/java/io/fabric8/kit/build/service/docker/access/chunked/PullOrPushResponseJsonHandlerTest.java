@@ -0,0 +1,36 @@
+package io.fabric8.kit.build.service.docker.access.chunked;
+
+import io.fabric8.kit.common.JsonFactory;
+import io.fabric8.kit.common.KitLogger;
+import mockit.Mocked;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PullOrPushResponseJsonHandlerTest {
+
+    private static final String DIGEST = "sha256:2d2f3b6c0a5ddf9a9b0d6c3d4f0f0a7e5b9d1d8a9b0c3e2f1a4b5c6d7e8f9a0b";
+
+    @Mocked
+    private KitLogger log;
+
+    @Test
+    public void digestFromPush() throws Exception {
+        PullOrPushResponseJsonHandler handler = new PullOrPushResponseJsonHandler(log);
+        handler.process(JsonFactory.newJsonObject("{\"status\":\"The push refers to repository [docker.io/fabric8/java]\"}"));
+        assertNull(handler.getDigest());
+        handler.process(JsonFactory.newJsonObject("{\"status\":\"8: digest: " + DIGEST + " size: 528\"}"));
+        handler.process(JsonFactory.newJsonObject("{\"progressDetail\":{},\"aux\":{\"Tag\":\"8\",\"Digest\":\"" + DIGEST + "\",\"Size\":528}}"));
+        assertEquals(DIGEST, handler.getDigest());
+    }
+
+    @Test
+    public void digestFromPull() throws Exception {
+        PullOrPushResponseJsonHandler handler = new PullOrPushResponseJsonHandler(log);
+        handler.process(JsonFactory.newJsonObject("{\"status\":\"Pulling from fabric8/java\",\"id\":\"8\"}"));
+        handler.process(JsonFactory.newJsonObject("{\"status\":\"Digest: " + DIGEST + "\"}"));
+        handler.process(JsonFactory.newJsonObject("{\"status\":\"Status: Downloaded newer image for fabric8/java:8\"}"));
+        assertEquals(DIGEST, handler.getDigest());
+    }
+}
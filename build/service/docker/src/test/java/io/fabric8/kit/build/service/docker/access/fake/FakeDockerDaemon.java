@@ -0,0 +1,834 @@
+package io.fabric8.kit.build.service.docker.access.fake;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.fabric8.kit.build.service.docker.access.fake.FakeHttpConnection.Request;
+import io.fabric8.kit.build.service.docker.access.fake.FakeHttpConnection.Response;
+import io.fabric8.kit.config.image.ImageName;
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+/**
+ * An in-process fake of the Docker Engine API for deterministic tests and benchmarks of the Docker access
+ * without a Docker daemon. It listens on TCP (loopback) and / or on a unix socket and implements the calls
+ * used by {@link io.fabric8.kit.build.service.docker.access.DockerAccess}: version, info, inspect, tag, build,
+ * push, pull, save, load and delete. Images are only kept as names with an id.
+ *
+ * Progress of build, push and pull is sent as chunked JSON stream, replayed from recordings which
+ * can be replaced with {@link #replay(Operation, URL)}. Latency, throughput and failures can be configured
+ * at any time, also while the daemon is running:
+ *
+ * <pre>
+ *   try (FakeDockerDaemon daemon = new FakeDockerDaemon().latency(5, TimeUnit.MILLISECONDS)
+ *                                                          .failRequests(Operation.PUSH, 0.5)) {
+ *       DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 10, log);
+ *       ...
+ *   }
+ * </pre>
+ *
+ * Failures are injected deterministically: with a rate of 0.25 every fourth call of an operation fails.
+ *
+ * @since 19.10.26
+ */
+public class FakeDockerDaemon implements Closeable {
+
+    public static final String API_VERSION = "1.39";
+    public static final String VERSION = "18.09.0-fake";
+
+    /**
+     * Operations of the Engine API implemented by the fake daemon
+     */
+    public enum Operation {
+        VERSION,
+        INFO,
+        INSPECT,
+        TAG,
+        BUILD,
+        PUSH,
+        PULL,
+        SAVE,
+        LOAD,
+        DELETE,
+        PRUNE
+    }
+
+    // Strips the API version, e.g. "/v1.39/images/create" --> "/images/create"
+    private static final Pattern VERSIONED_PATH = Pattern.compile("^/v([0-9.]+)(/.*)$");
+
+    private static final String IMAGES_PREFIX = "/images/";
+
+    // Configuration
+    private volatile long latencyNanos;
+    private volatile long throughput;
+    private volatile long saveSize = 1024 * 1024;
+    private volatile String apiVersion = API_VERSION;
+    private volatile String daemonId = "FAKE:" + Long.toHexString(System.nanoTime()).toUpperCase();
+    private volatile boolean experimental;
+    private final Map<Operation, RecordedStream> streams = new ConcurrentHashMap<>();
+    private final Map<Operation, FailureRate> requestFailures = new ConcurrentHashMap<>();
+    private final Map<Operation, FailureRate> streamFailures = new ConcurrentHashMap<>();
+
+    // Images by full name
+    private final ConcurrentMap<String, Image> images = new ConcurrentHashMap<>();
+    // Ids of images without any name
+    private final Set<String> danglingImages = ConcurrentHashMap.newKeySet();
+
+    // Statistics
+    private final Map<Operation, AtomicLong> requestCounts = new EnumMap<>(Operation.class);
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final Set<String> requestedApiVersions = ConcurrentHashMap.newKeySet();
+
+    // Lifecycle
+    private final ExecutorService workers;
+    private final List<Closeable> listeners = new CopyOnWriteArrayList<>();
+    private final Set<FakeHttpConnection> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    public FakeDockerDaemon() {
+        for (Operation operation : Operation.values()) {
+            requestCounts.put(operation, new AtomicLong());
+        }
+        try {
+            replay(Operation.BUILD, getClass().getResource("build.json"));
+            replay(Operation.PULL, getClass().getResource("pull.json"));
+            replay(Operation.PUSH, getClass().getResource("push.json"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read recorded streams: " + e, e);
+        }
+        AtomicInteger threadNr = new AtomicInteger();
+        workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-docker-" + threadNr.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ==========================================================================================
+    // Configuration
+
+    /**
+     * Delay each response by the given time, measured from when the request has been read
+     */
+    public FakeDockerDaemon latency(long duration, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Limit each request and response body to the given number of bytes per second
+     *
+     * @param bytesPerSecond maximum throughput per connection, 0 for no limit
+     */
+    public FakeDockerDaemon throughput(long bytesPerSecond) {
+        this.throughput = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Replay the given recording for an operation. The recording contains one JSON object per line and
+     * can use the placeholders <code>${image}</code>, <code>${repository}</code>, <code>${tag}</code>,
+     * <code>${id}</code>, <code>${shortId}</code> and <code>${digest}</code>.
+     *
+     * @param operation one of {@link Operation#BUILD}, {@link Operation#PULL} or {@link Operation#PUSH}
+     * @param recording URL to read the recording from
+     */
+    public FakeDockerDaemon replay(Operation operation, URL recording) throws IOException {
+        if (operation != Operation.BUILD && operation != Operation.PULL && operation != Operation.PUSH) {
+            throw new IllegalArgumentException("No JSON stream is sent for " + operation);
+        }
+        streams.put(operation, RecordedStream.load(recording));
+        return this;
+    }
+
+    /**
+     * Answer the given fraction of calls of an operation with an internal server error
+     */
+    public FakeDockerDaemon failRequests(Operation operation, double rate) {
+        requestFailures.put(operation, new FailureRate(rate));
+        return this;
+    }
+
+    /**
+     * Abort the given fraction of streams of an operation halfway with an error message in the stream,
+     * as the daemon does when a build step fails or a layer cannot be pulled
+     */
+    public FakeDockerDaemon failStreams(Operation operation, double rate) {
+        streamFailures.put(operation, new FailureRate(rate));
+        return this;
+    }
+
+    /**
+     * API version reported by the daemon, {@link #API_VERSION} by default
+     */
+    public FakeDockerDaemon apiVersion(String apiVersion) {
+        this.apiVersion = apiVersion;
+        return this;
+    }
+
+    /**
+     * ID reported by the daemon, unique for each instance by default
+     */
+    public FakeDockerDaemon daemonId(String daemonId) {
+        this.daemonId = daemonId;
+        return this;
+    }
+
+    /**
+     * Whether the daemon reports its experimental features as enabled
+     */
+    public FakeDockerDaemon experimental(boolean experimental) {
+        this.experimental = experimental;
+        return this;
+    }
+
+    /**
+     * Size of the archive sent when saving an image
+     */
+    public FakeDockerDaemon saveSize(long bytes) {
+        this.saveSize = bytes;
+        return this;
+    }
+
+    /**
+     * Add an image as if it had been pulled before
+     */
+    public FakeDockerDaemon addImage(String name) {
+        addImage(normalize(name), null);
+        return this;
+    }
+
+    /**
+     * Add an image without a name, as left behind when its name has been given to a newer image
+     */
+    public FakeDockerDaemon addDanglingImage(String id) {
+        danglingImages.add(id);
+        return this;
+    }
+
+    // ==========================================================================================
+    // Lifecycle
+
+    /**
+     * Listen on a random port on the loopback interface
+     *
+     * @return URL to connect to
+     */
+    public String startTcp() throws IOException {
+        final ServerSocket server = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        listeners.add(server);
+        startAcceptor("tcp", () -> {
+            Socket socket = server.accept();
+            socket.setTcpNoDelay(true);
+            return new FakeHttpConnection(this, socket.getInputStream(), socket.getOutputStream(), socket);
+        });
+        return "http://127.0.0.1:" + server.getLocalPort();
+    }
+
+    /**
+     * Listen on a unix socket
+     *
+     * @param socketFile path of the socket, which must not exist yet
+     * @return URL to connect to
+     */
+    public String startUnix(File socketFile) throws IOException {
+        final UnixSocketAddress address = new UnixSocketAddress(socketFile);
+        final UnixServerSocketChannel server = UnixServerSocketChannel.open();
+        server.socket().bind(address);
+        listeners.add(() -> {
+            // A blocking accept is not interrupted by closing the channel, so wake it up with a connection
+            try {
+                UnixSocketChannel.open(address).close();
+            } catch (IOException e) {
+                // Not accepting anymore
+            }
+            server.close();
+            socketFile.delete();
+        });
+        startAcceptor("unix", () -> {
+            UnixSocketChannel channel = server.accept();
+            return new FakeHttpConnection(this, Channels.newInputStream(channel), Channels.newOutputStream(channel), () -> {
+                // Closing alone does not wake up a thread blocked in reading from the channel
+                try {
+                    channel.shutdownInput();
+                } catch (IOException e) {
+                    // Already closed by the client
+                }
+                channel.close();
+            });
+        });
+        return "unix://" + socketFile.getAbsolutePath();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop listening and close all open connections
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Closeable listener : listeners) {
+            closeQuietly(listener);
+        }
+        for (FakeHttpConnection connection : connections) {
+            connection.close();
+        }
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==========================================================================================
+    // Statistics and state
+
+    public long getRequestCount(Operation operation) {
+        return requestCounts.get(operation).get();
+    }
+
+    /**
+     * @return number of connections accepted so far
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * @return highest number of requests which have been processed at the same time
+     */
+    public int getMaxConcurrentRequests() {
+        return maxActiveRequests.get();
+    }
+
+    public long getInjectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return API versions used in the paths of requests, like "1.39"
+     */
+    public Set<String> getRequestedApiVersions() {
+        return new TreeSet<>(requestedApiVersions);
+    }
+
+    public void resetStatistics() {
+        for (AtomicLong count : requestCounts.values()) {
+            count.set(0);
+        }
+        injectedFailures.set(0);
+        connectionCount.set(0);
+        maxActiveRequests.set(activeRequests.get());
+        bytesReceived.set(0);
+        bytesSent.set(0);
+        requestedApiVersions.clear();
+    }
+
+    public boolean hasImage(String name) {
+        return images.containsKey(normalize(name));
+    }
+
+    public Set<String> getImageNames() {
+        return new TreeSet<>(images.keySet());
+    }
+
+    public Set<String> getDanglingImageIds() {
+        return new TreeSet<>(danglingImages);
+    }
+
+    // ==========================================================================================
+    // Request handling, called by the connections
+
+    long getThroughput() {
+        return throughput;
+    }
+
+    void connectionClosed(FakeHttpConnection connection) {
+        connections.remove(connection);
+    }
+
+    void bytesSent(long bytes) {
+        bytesSent.addAndGet(bytes);
+    }
+
+    void handle(Request request, Response response) throws IOException {
+        int active = activeRequests.incrementAndGet();
+        maxActiveRequests.accumulateAndGet(active, Math::max);
+        try {
+            bytesReceived.addAndGet(request.readBody());
+            Matcher versioned = VERSIONED_PATH.matcher(request.getPath());
+            if (versioned.matches()) {
+                requestedApiVersions.add(versioned.group(1));
+            }
+            String path = stripVersion(request.getPath());
+            Operation operation = route(request.getMethod(), path);
+            if (operation == null) {
+                response.sendJson(404, message("page not found"));
+                return;
+            }
+            requestCounts.get(operation).incrementAndGet();
+            if (latencyNanos > 0) {
+                sleepNanos(latencyNanos);
+            }
+            if (shouldFail(requestFailures, operation)) {
+                injectedFailures.incrementAndGet();
+                response.sendJson(500, message("fake failure of " + operation.name().toLowerCase()));
+                return;
+            }
+            dispatch(operation, request, path, response);
+        } finally {
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private void dispatch(Operation operation, Request request, String path, Response response) throws IOException {
+        switch (operation) {
+            case VERSION:
+                version(response);
+                break;
+            case INFO:
+                info(response);
+                break;
+            case INSPECT:
+                inspect(imageName(path, "/json"), response);
+                break;
+            case TAG:
+                tag(imageName(path, "/tag"), request, response);
+                break;
+            case BUILD:
+                build(request, response);
+                break;
+            case PUSH:
+                push(decodeName(path, "/push"), request, response);
+                break;
+            case PULL:
+                pull(request, response);
+                break;
+            case SAVE:
+                save(imageName(path, "/get"), response);
+                break;
+            case LOAD:
+                response.sendJson(200, stream("Loaded image ID: " + imageId("load-" + System.nanoTime()) + "\n"));
+                break;
+            case DELETE:
+                delete(imageName(path, ""), response);
+                break;
+            case PRUNE:
+                prune(response);
+                break;
+        }
+    }
+
+    private Operation route(String method, String path) {
+        if ("GET".equals(method) && ("/version".equals(path) || "/_ping".equals(path))) {
+            return Operation.VERSION;
+        }
+        if ("GET".equals(method) && "/info".equals(path)) {
+            return Operation.INFO;
+        }
+        if ("POST".equals(method)) {
+            if ("/build".equals(path)) {
+                return Operation.BUILD;
+            }
+            if ("/images/create".equals(path)) {
+                return Operation.PULL;
+            }
+            if ("/images/load".equals(path)) {
+                return Operation.LOAD;
+            }
+            if ("/images/prune".equals(path)) {
+                return Operation.PRUNE;
+            }
+        }
+        if (!path.startsWith(IMAGES_PREFIX)) {
+            return null;
+        }
+        String rest = path.substring(IMAGES_PREFIX.length());
+        int slash = rest.indexOf('/');
+        String action = slash < 0 ? "" : rest.substring(slash);
+        if ("DELETE".equals(method) && action.isEmpty()) {
+            return Operation.DELETE;
+        }
+        if ("GET".equals(method) && "/json".equals(action)) {
+            return Operation.INSPECT;
+        }
+        if ("GET".equals(method) && "/get".equals(action)) {
+            return Operation.SAVE;
+        }
+        if ("POST".equals(method) && "/tag".equals(action)) {
+            return Operation.TAG;
+        }
+        if ("POST".equals(method) && "/push".equals(action)) {
+            return Operation.PUSH;
+        }
+        return null;
+    }
+
+    private void version(Response response) throws IOException {
+        JsonObject version = new JsonObject();
+        version.addProperty("Version", VERSION);
+        version.addProperty("ApiVersion", apiVersion);
+        version.addProperty("MinAPIVersion", "1.12");
+        version.addProperty("Os", "linux");
+        version.addProperty("Arch", "amd64");
+        response.sendJson(200, version.toString());
+    }
+
+    private void info(Response response) throws IOException {
+        JsonObject info = new JsonObject();
+        info.addProperty("ID", daemonId);
+        info.addProperty("Name", "fake-docker");
+        info.addProperty("ServerVersion", VERSION);
+        info.addProperty("ExperimentalBuild", experimental);
+        info.addProperty("OSType", "linux");
+        info.addProperty("Architecture", "x86_64");
+        info.addProperty("Images", images.size());
+        response.sendJson(200, info.toString());
+    }
+
+    private void inspect(String name, Response response) throws IOException {
+        Image image = images.get(name);
+        if (image == null) {
+            response.sendJson(404, message("No such image: " + name));
+            return;
+        }
+        JsonObject details = new JsonObject();
+        details.addProperty("Id", image.id);
+        JsonArray tags = new JsonArray();
+        tags.add(name);
+        details.add("RepoTags", tags);
+        JsonArray digests = new JsonArray();
+        if (image.digest != null) {
+            digests.add(ImageName.of(name).getNameWithoutTag() + "@" + image.digest);
+        }
+        details.add("RepoDigests", digests);
+        JsonObject config = new JsonObject();
+        JsonObject labels = new JsonObject();
+        labels.addProperty("org.label-schema.name", name);
+        config.add("Labels", labels);
+        details.add("Config", config);
+        details.addProperty("Size", saveSize);
+        response.sendJson(200, details.toString());
+    }
+
+    private void tag(String source, Request request, Response response) throws IOException {
+        Image image = images.get(source);
+        if (image == null) {
+            response.sendJson(404, message("No such image: " + source));
+            return;
+        }
+        String target = normalize(request.getQueryParameter("repo") + ":" + request.getQueryParameter("tag"));
+        images.put(target, image);
+        response.sendEmpty(201);
+    }
+
+    private void build(Request request, Response response) throws IOException {
+        String name = normalize(request.getQueryParameter("t"));
+        String id = imageId(name + "#" + System.nanoTime());
+        // Registered before the stream ends, as the client may continue right after the last chunk
+        boolean fail = shouldFail(streamFailures, Operation.BUILD);
+        if (!fail) {
+            images.put(name, new Image(id, null));
+        }
+        replay(Operation.BUILD, response, variables(name, id, null), fail);
+    }
+
+    private void push(String repository, Request request, Response response) throws IOException {
+        String tag = request.getQueryParameter("tag");
+        String name = normalize(repository + (tag != null && !tag.isEmpty() ? ":" + tag : ""));
+        Image image = images.get(name);
+        if (image == null) {
+            response.sendJson(404, message("An image does not exist locally with the tag: " + repository));
+            return;
+        }
+        String digest = digest(name);
+        boolean fail = shouldFail(streamFailures, Operation.PUSH);
+        if (!fail) {
+            images.put(name, new Image(image.id, digest));
+        }
+        replay(Operation.PUSH, response, variables(name, image.id, digest), fail);
+    }
+
+    private void pull(Request request, Response response) throws IOException {
+        String fromImage = request.getQueryParameter("fromImage");
+        String tag = request.getQueryParameter("tag");
+        String name;
+        if (tag == null || tag.isEmpty()) {
+            name = normalize(fromImage);
+        } else {
+            name = normalize(fromImage + (tag.startsWith("sha256:") ? "@" : ":") + tag);
+        }
+        String digest = digest(name);
+        String id = imageId(name);
+        boolean fail = shouldFail(streamFailures, Operation.PULL);
+        if (!fail) {
+            images.put(name, new Image(id, digest));
+        }
+        replay(Operation.PULL, response, variables(name, id, digest), fail);
+    }
+
+    private void save(String name, Response response) throws IOException {
+        if (!images.containsKey(name)) {
+            response.sendJson(404, message("No such image: " + name));
+            return;
+        }
+        response.sendChunked(200, "application/x-tar", saveSize);
+    }
+
+    private void delete(String name, Response response) throws IOException {
+        Image image = images.remove(name);
+        if (image == null) {
+            response.sendJson(404, message("No such image: " + name));
+            return;
+        }
+        JsonArray result = new JsonArray();
+        JsonObject untagged = new JsonObject();
+        untagged.addProperty("Untagged", name);
+        result.add(untagged);
+        if (!images.containsValue(image)) {
+            JsonObject deleted = new JsonObject();
+            deleted.addProperty("Deleted", image.id);
+            result.add(deleted);
+        }
+        response.sendJson(200, result.toString());
+    }
+
+    // Only dangling images are removed, regardless of the filters given
+    private void prune(Response response) throws IOException {
+        JsonArray deleted = new JsonArray();
+        for (String id : new ArrayList<>(danglingImages)) {
+            if (danglingImages.remove(id)) {
+                JsonObject entry = new JsonObject();
+                entry.addProperty("Deleted", id);
+                deleted.add(entry);
+            }
+        }
+        JsonObject result = new JsonObject();
+        result.add("ImagesDeleted", deleted);
+        result.addProperty("SpaceReclaimed", deleted.size() * saveSize);
+        response.sendJson(200, result.toString());
+    }
+
+    // Replay the recorded stream, aborted with an error message when failing
+    private void replay(Operation operation, Response response, Map<String, String> variables, boolean fail) throws IOException {
+        RecordedStream stream = streams.get(operation);
+        List<byte[]> chunks;
+        if (fail) {
+            injectedFailures.incrementAndGet();
+            chunks = new ArrayList<>(stream.chunks(variables, stream.size() / 2));
+            String error = "fake failure of " + operation.name().toLowerCase();
+            JsonObject detail = new JsonObject();
+            detail.addProperty("message", error);
+            JsonObject message = new JsonObject();
+            message.add("errorDetail", detail);
+            message.addProperty("error", error);
+            chunks.add((message.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        } else {
+            chunks = stream.chunks(variables, Integer.MAX_VALUE);
+        }
+        response.sendChunked(200, "application/json", chunks);
+    }
+
+    // ==========================================================================================
+
+    private void startAcceptor(String transport, Acceptor acceptor) {
+        workers.execute(() -> {
+            while (running) {
+                try {
+                    FakeHttpConnection connection = acceptor.accept();
+                    if (!running) {
+                        connection.close();
+                        break;
+                    }
+                    connectionCount.incrementAndGet();
+                    connections.add(connection);
+                    workers.execute(connection);
+                } catch (SocketException e) {
+                    // Closed while waiting for a connection
+                    break;
+                } catch (IOException e) {
+                    if (running) {
+                        System.err.println("Fake Docker daemon: cannot accept " + transport + " connection: " + e);
+                    }
+                    break;
+                }
+            }
+        });
+    }
+
+    private void addImage(String name, String digest) {
+        images.put(name, new Image(imageId(name), digest));
+    }
+
+    private Map<String, String> variables(String name, String id, String digest) {
+        ImageName imageName = ImageName.of(name);
+        Map<String, String> ret = new HashMap<>();
+        ret.put("image", name);
+        ret.put("repository", imageName.getNameWithoutTag());
+        ret.put("tag", imageName.getTag() != null ? imageName.getTag() : "latest");
+        ret.put("id", id);
+        ret.put("shortId", id.substring("sha256:".length(), "sha256:".length() + 12));
+        ret.put("digest", digest != null ? digest : digest(name));
+        return ret;
+    }
+
+    private static boolean shouldFail(Map<Operation, FailureRate> failures, Operation operation) {
+        FailureRate rate = failures.get(operation);
+        return rate != null && rate.next();
+    }
+
+    private static String stripVersion(String path) {
+        Matcher matcher = VERSIONED_PATH.matcher(path);
+        return matcher.matches() ? matcher.group(2) : path;
+    }
+
+    // Full name of the image from an encoded path like "/images/fabric8%2Fjava%3A1/json"
+    private static String imageName(String path, String suffix) {
+        return normalize(decodeName(path, suffix));
+    }
+
+    private static String decodeName(String path, String suffix) {
+        String encoded = path.substring(IMAGES_PREFIX.length(), path.length() - suffix.length());
+        try {
+            return URLDecoder.decode(encoded, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String name) {
+        return ImageName.of(name).getFullName();
+    }
+
+    private static String message(String message) {
+        JsonObject ret = new JsonObject();
+        ret.addProperty("message", message);
+        return ret.toString();
+    }
+
+    private static String stream(String text) {
+        JsonObject ret = new JsonObject();
+        ret.addProperty("stream", text);
+        return ret.toString();
+    }
+
+    private static String imageId(String seed) {
+        return "sha256:" + sha256(seed);
+    }
+
+    private static String digest(String name) {
+        return "sha256:" + sha256("manifest:" + name);
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder ret = new StringBuilder(64);
+            for (byte b : hash) {
+                ret.append(String.format("%02x", b & 0xff));
+            }
+            return ret.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void sleepNanos(long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while delaying");
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ignored, we are shutting down
+        }
+    }
+
+    private interface Acceptor {
+        FakeHttpConnection accept() throws IOException;
+    }
+
+    // Fails "rate" of all calls, evenly spread
+    private static final class FailureRate {
+        private final double rate;
+        private final AtomicLong calls = new AtomicLong();
+
+        private FailureRate(double rate) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("Failure rate must be between 0 and 1, not " + rate);
+            }
+            this.rate = rate;
+        }
+
+        private boolean next() {
+            long call = calls.getAndIncrement();
+            return (long) ((call + 1) * rate) > (long) (call * rate);
+        }
+    }
+
+    private static final class Image {
+        private final String id;
+        private final String digest;
+
+        private Image(String id, String digest) {
+            this.id = id;
+            this.digest = digest;
+        }
+    }
+}
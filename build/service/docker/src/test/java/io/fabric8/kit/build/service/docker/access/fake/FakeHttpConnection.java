@@ -0,0 +1,387 @@
+package io.fabric8.kit.build.service.docker.access.fake;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Minimal HTTP/1.1 server side of a single connection to the {@link FakeDockerDaemon}. Requests are read
+ * one after another as long as the client keeps the connection alive. Request bodies are read
+ * (either with a content length or chunked) but not kept. Responses are sent either with a
+ * content length or chunked, limited to the daemon's throughput.
+ *
+ * @since 19.10.26
+ */
+class FakeHttpConnection implements Runnable {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    private final FakeDockerDaemon daemon;
+    private final InputStream in;
+    private final OutputStream out;
+    private final Closeable socket;
+
+    FakeHttpConnection(FakeDockerDaemon daemon, InputStream in, OutputStream out, Closeable socket) {
+        this.daemon = daemon;
+        this.in = new BufferedInputStream(in, 64 * 1024);
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.socket = socket;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Request request;
+            while ((request = readRequest()) != null) {
+                Response response = new Response(daemon.getThroughput());
+                try {
+                    daemon.handle(request, response);
+                } catch (RuntimeException e) {
+                    if (response.sent) {
+                        throw new IOException("Failed within response to " + request + ": " + e, e);
+                    }
+                    response.sendJson(500, "{\"message\":\"" + e.getClass().getSimpleName() + "\"}");
+                }
+                if (!response.sent) {
+                    response.sendEmpty(500);
+                }
+                // Skip what the handler has not read so that the next request can be read
+                request.readBody();
+                if (request.closeRequested()) {
+                    break;
+                }
+            }
+        } catch (InterruptedIOException | EOFException e) {
+            // Daemon has been stopped or the client went away
+        } catch (IOException e) {
+            if (daemon.isRunning()) {
+                System.err.println("Fake Docker daemon: connection failed: " + e);
+            }
+        } finally {
+            daemon.connectionClosed(this);
+            close();
+        }
+    }
+
+    void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignored, we are closing anyway
+        }
+    }
+
+    // ===================================================================================================
+
+    private Request readRequest() throws IOException {
+        String requestLine = readLine();
+        while (requestLine != null && requestLine.isEmpty()) {
+            requestLine = readLine();
+        }
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3) {
+            throw new IOException("Invalid request line '" + requestLine + "'");
+        }
+        Request request = new Request(parts[0], parts[1], parts[2]);
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            int idx = line.indexOf(':');
+            if (idx > 0) {
+                request.headers.put(line.substring(0, idx).trim().toLowerCase(Locale.ROOT), line.substring(idx + 1).trim());
+            }
+        }
+        if (line == null) {
+            throw new EOFException("Connection closed within request headers");
+        }
+        return request;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                break;
+            }
+            if (c != '\r') {
+                if (line.size() >= MAX_LINE_LENGTH) {
+                    throw new IOException("Line too long");
+                }
+                line.write(c);
+            }
+        }
+        if (c == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString("ISO-8859-1");
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Sleeps so that no more than the given number of bytes per second are transferred
+    private static final class Throttle {
+        private final long bytesPerSecond;
+        private final long start = System.nanoTime();
+        private long transferred;
+
+        private Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        private void pass(long bytes) throws InterruptedIOException {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            transferred += bytes;
+            long due = start + transferred * 1_000_000_000L / bytesPerSecond;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                FakeDockerDaemon.sleepNanos(wait);
+            }
+        }
+    }
+
+    /**
+     * A request with its headers. The body is read with {@link #readBody()}.
+     */
+    final class Request {
+        private final String method;
+        private final String path;
+        private final String protocol;
+        private final Map<String, String> query = new HashMap<>();
+        private final Map<String, String> headers = new HashMap<>();
+        private boolean bodyRead;
+
+        private Request(String method, String uri, String protocol) {
+            this.method = method;
+            this.protocol = protocol;
+            int idx = uri.indexOf('?');
+            this.path = idx < 0 ? uri : uri.substring(0, idx);
+            if (idx >= 0) {
+                for (String param : uri.substring(idx + 1).split("&")) {
+                    if (!param.isEmpty()) {
+                        int eq = param.indexOf('=');
+                        query.put(decode(eq < 0 ? param : param.substring(0, eq)), eq < 0 ? "" : decode(param.substring(eq + 1)));
+                    }
+                }
+            }
+        }
+
+        String getMethod() {
+            return method;
+        }
+
+        // Path as sent, with path segments still being URL encoded
+        String getPath() {
+            return path;
+        }
+
+        String getQueryParameter(String name) {
+            return query.get(name);
+        }
+
+        String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * Read and discard the request body
+         *
+         * @return number of bytes in the body
+         */
+        long readBody() throws IOException {
+            if (bodyRead || (getHeader("content-length") == null && getHeader("transfer-encoding") == null)) {
+                bodyRead = true;
+                return 0;
+            }
+            bodyRead = true;
+            Throttle throttle = new Throttle(daemon.getThroughput());
+            byte[] buffer = new byte[32 * 1024];
+            if ("chunked".equalsIgnoreCase(getHeader("transfer-encoding"))) {
+                long total = 0;
+                for (;;) {
+                    String sizeLine = readLine();
+                    if (sizeLine == null) {
+                        throw new EOFException("Connection closed within chunked body");
+                    }
+                    int ext = sizeLine.indexOf(';');
+                    long size = Long.parseLong((ext < 0 ? sizeLine : sizeLine.substring(0, ext)).trim(), 16);
+                    if (size == 0) {
+                        // Skip trailers
+                        String trailer;
+                        while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                            // ignored
+                        }
+                        return total;
+                    }
+                    skip(size, buffer, throttle);
+                    total += size;
+                    readLine();
+                }
+            }
+            String length = getHeader("content-length");
+            long size = length != null ? Long.parseLong(length.trim()) : 0;
+            skip(size, buffer, throttle);
+            return size;
+        }
+
+        private void skip(long size, byte[] buffer, Throttle throttle) throws IOException {
+            long remaining = size;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new EOFException("Connection closed within body");
+                }
+                remaining -= read;
+                throttle.pass(read);
+            }
+        }
+
+        private boolean closeRequested() {
+            String connection = getHeader("connection");
+            if ("HTTP/1.0".equals(protocol)) {
+                return !"keep-alive".equalsIgnoreCase(connection);
+            }
+            return "close".equalsIgnoreCase(connection);
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + path;
+        }
+    }
+
+    /**
+     * Response to a request, which can be sent only once
+     */
+    final class Response {
+        private final Throttle throttle;
+        private boolean sent;
+
+        private Response(long bytesPerSecond) {
+            this.throttle = new Throttle(bytesPerSecond);
+        }
+
+        void sendEmpty(int status) throws IOException {
+            send(status, null, new byte[0]);
+        }
+
+        void sendJson(int status, String json) throws IOException {
+            send(status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void send(int status, String contentType, byte[] body) throws IOException {
+            writeHead(status, contentType, body.length);
+            writeThrottled(body, 0, body.length);
+            out.flush();
+            daemon.bytesSent(body.length);
+        }
+
+        /**
+         * Send the given chunks, each flushed on its own as the daemon does when streaming progress
+         */
+        void sendChunked(int status, String contentType, List<byte[]> chunks) throws IOException {
+            writeHead(status, contentType, -1);
+            for (byte[] chunk : chunks) {
+                writeChunk(chunk, chunk.length);
+            }
+            finishChunks();
+        }
+
+        /**
+         * Send the given number of bytes of a binary stream, chunked
+         */
+        void sendChunked(int status, String contentType, long size) throws IOException {
+            writeHead(status, contentType, -1);
+            byte[] block = new byte[32 * 1024];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = (byte) i;
+            }
+            long remaining = size;
+            while (remaining > 0) {
+                int len = (int) Math.min(block.length, remaining);
+                writeChunk(block, len);
+                remaining -= len;
+            }
+            finishChunks();
+        }
+
+        private void writeHead(int status, String contentType, long contentLength) throws IOException {
+            if (sent) {
+                throw new IllegalStateException("Response has already been sent");
+            }
+            sent = true;
+            StringBuilder head = new StringBuilder(128)
+                .append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+                .append("Server: Docker/").append(FakeDockerDaemon.VERSION).append(" (linux)\r\n")
+                .append("Api-Version: ").append(FakeDockerDaemon.API_VERSION).append("\r\n");
+            if (contentType != null) {
+                head.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            if (contentLength >= 0) {
+                head.append("Content-Length: ").append(contentLength).append("\r\n");
+            } else {
+                head.append("Transfer-Encoding: chunked\r\n");
+            }
+            head.append("\r\n");
+            out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        private void writeChunk(byte[] data, int len) throws IOException {
+            out.write(Integer.toHexString(len).getBytes(StandardCharsets.ISO_8859_1));
+            out.write(CRLF);
+            writeThrottled(data, 0, len);
+            out.write(CRLF);
+            out.flush();
+            daemon.bytesSent(len);
+        }
+
+        private void finishChunks() throws IOException {
+            out.write('0');
+            out.write(CRLF);
+            out.write(CRLF);
+            out.flush();
+        }
+
+        private void writeThrottled(byte[] data, int off, int len) throws IOException {
+            out.write(data, off, len);
+            throttle.pass(len);
+        }
+
+        private String reason(int status) {
+            switch (status) {
+                case 200: return "OK";
+                case 201: return "Created";
+                case 204: return "No Content";
+                case 400: return "Bad Request";
+                case 404: return "Not Found";
+                case 409: return "Conflict";
+                case 500: return "Internal Server Error";
+                default: return "Status " + status;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.fabric8.kit.build.service.docker.access.fake;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recorded chunked JSON stream as sent by the Docker daemon, one JSON object per line. Each line is
+ * replayed as a chunk of its own. Lines can contain placeholders like <code>${image}</code> which are
+ * replaced when the stream is replayed.
+ *
+ * @since 19.10.26
+ */
+class RecordedStream {
+
+    private final List<Line> lines;
+
+    private RecordedStream(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    static RecordedStream load(URL url) throws IOException {
+        if (url == null) {
+            throw new IOException("No recorded stream given");
+        }
+        List<Line> lines = new ArrayList<>();
+        try (InputStream is = url.openStream();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(new Line(line + "\n"));
+                }
+            }
+        }
+        return new RecordedStream(Collections.unmodifiableList(lines));
+    }
+
+    int size() {
+        return lines.size();
+    }
+
+    /**
+     * Get the chunks to send
+     *
+     * @param variables values for the placeholders
+     * @param limit number of lines to return at most
+     * @return the lines with placeholders replaced
+     */
+    List<byte[]> chunks(Map<String, String> variables, int limit) {
+        List<byte[]> ret = new ArrayList<>(Math.min(limit, lines.size()));
+        for (Line line : lines) {
+            if (ret.size() >= limit) {
+                break;
+            }
+            ret.add(line.resolve(variables));
+        }
+        return ret;
+    }
+
+    private static final class Line {
+        private final String text;
+        // Pre-encoded line if there is nothing to replace
+        private final byte[] bytes;
+
+        private Line(String text) {
+            this.text = text;
+            this.bytes = text.contains("${") ? null : text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private byte[] resolve(Map<String, String> variables) {
+            if (bytes != null) {
+                return bytes;
+            }
+            String ret = text;
+            for (Map.Entry<String, String> entry : variables.entrySet()) {
+                ret = ret.replace("${" + entry.getKey() + "}", entry.getValue());
+            }
+            return ret.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
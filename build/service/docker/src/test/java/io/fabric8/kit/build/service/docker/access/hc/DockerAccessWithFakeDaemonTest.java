@@ -0,0 +1,354 @@
+package io.fabric8.kit.build.service.docker.access.hc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.fabric8.kit.build.service.docker.access.BuildOptions;
+import io.fabric8.kit.build.service.docker.access.DockerAccess;
+import io.fabric8.kit.build.service.docker.access.DockerAccessException;
+import io.fabric8.kit.build.service.docker.access.DockerCapabilityCache;
+import io.fabric8.kit.build.service.docker.access.ImageCleanupResult;
+import io.fabric8.kit.build.service.docker.access.PruneOptions;
+import io.fabric8.kit.build.service.docker.access.fake.FakeDockerDaemon;
+import io.fabric8.kit.build.service.docker.access.fake.FakeDockerDaemon.Operation;
+import io.fabric8.kit.build.service.docker.access.hc.util.ConnectionPoolStatistics;
+import io.fabric8.kit.build.service.docker.access.hc.util.DockerConnectionConfig;
+import io.fabric8.kit.common.KitLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the HTTP client based Docker access against the {@link FakeDockerDaemon}
+ */
+public class DockerAccessWithFakeDaemonTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeDockerDaemon daemon;
+
+    private final KitLogger log = new QuietLogger();
+
+    @Before
+    public void setup() {
+        daemon = new FakeDockerDaemon().saveSize(100_000);
+    }
+
+    @After
+    public void shutdown() {
+        daemon.close();
+    }
+
+    @Test
+    public void tcp() throws Exception {
+        roundTrip(new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 4, log));
+    }
+
+    @Test
+    public void unixSocket() throws Exception {
+        roundTrip(new DockerAccessWithHcClient("v1.39", daemon.startUnix(new File(folder.getRoot(), "docker.sock")), null, 4, log));
+    }
+
+    @Test
+    public void build() throws Exception {
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 4, log);
+        File context = folder.newFile("docker.tar");
+        try (RandomAccessFile file = new RandomAccessFile(context, "rw")) {
+            file.setLength(300_000);
+        }
+        access.buildImage("fabric8/demo:1.0", context, null);
+        assertTrue(daemon.hasImage("fabric8/demo:1.0"));
+        assertEquals(300_000, daemon.getBytesReceived());
+        assertNotNull(access.getImageId("fabric8/demo:1.0"));
+    }
+
+    @Test
+    public void removeImages() throws Exception {
+        daemon.latency(50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 6; i++) {
+            daemon.addImage("fabric8/old:" + i);
+        }
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 4, log);
+        List<String> images = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            images.add("fabric8/old:" + i);
+        }
+        images.add("fabric8/missing:1");
+        images.add("fabric8/old:0");
+
+        ImageCleanupResult result = access.removeImages(images, true, 3);
+        assertEquals(images.subList(0, 6), result.getRemoved());
+        assertTrue(result.getFailures().isEmpty());
+        assertTrue(daemon.getImageNames().isEmpty());
+        assertEquals(7, daemon.getRequestCount(Operation.DELETE));
+        assertTrue(daemon.getMaxConcurrentRequests() > 1);
+        assertTrue(daemon.getMaxConcurrentRequests() <= 3);
+    }
+
+    @Test
+    public void removeImagesCollectsFailures() throws Exception {
+        daemon.addImage("fabric8/old:1").addImage("fabric8/old:2").failRequests(Operation.DELETE, 1.0);
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 4, log);
+        ImageCleanupResult result = access.removeImages(Arrays.asList("fabric8/old:1", "fabric8/old:2"), true, 2);
+        assertTrue(result.getRemoved().isEmpty());
+        assertEquals(2, result.getFailures().size());
+        assertTrue(result.getFailures().get("fabric8/old:1").getMessage().contains("fabric8/old:1"));
+        assertTrue(daemon.hasImage("fabric8/old:2"));
+    }
+
+    @Test
+    public void pruneRequiresApiVersion() throws Exception {
+        daemon.apiVersion("1.24").addDanglingImage("sha256:0123");
+        DockerAccess access = new DockerAccessWithHcClient(null, daemon.startTcp(), null, DockerConnectionConfig.withMaxConnections(2),
+                                                           new DockerCapabilityCache(null, DockerCapabilityCache.DEFAULT_TTL), log);
+        try {
+            access.pruneImages(new PruneOptions().dangling(true));
+            fail("Pruning needs API 1.25");
+        } catch (DockerAccessException exp) {
+            assertTrue(exp.getMessage().contains("1.25"));
+        }
+        assertEquals(0, daemon.getRequestCount(Operation.PRUNE));
+        assertEquals(1, daemon.getDanglingImageIds().size());
+    }
+
+    @Test
+    public void unixSocketLargeTransfers() throws Exception {
+        daemon.saveSize(5_000_000);
+        // Buffers smaller than the data so that every transfer needs many rounds
+        DockerConnectionConfig config = new DockerConnectionConfig.Builder()
+            .nativeBufferSize(4096)
+            .socketSendBufferSize(64 * 1024)
+            .socketReceiveBufferSize(64 * 1024)
+            .build();
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startUnix(new File(folder.getRoot(), "docker.sock")), null, config, log);
+        File context = folder.newFile("docker.tar");
+        try (RandomAccessFile file = new RandomAccessFile(context, "rw")) {
+            file.setLength(3_000_001);
+        }
+        access.buildImage("fabric8/demo:1.0", context, null);
+        assertEquals(3_000_001, daemon.getBytesReceived());
+
+        File saved = new File(folder.getRoot(), "demo.tar");
+        access.saveImage("fabric8/demo:1.0", saved.getAbsolutePath());
+        assertEquals(5_000_000, saved.length());
+        daemon.resetStatistics();
+        access.loadImage("fabric8/demo:1.0", saved);
+        assertEquals(5_000_000, daemon.getBytesReceived());
+        assertNotNull(access.getImageId("fabric8/demo:1.0"));
+        // The connection is still usable after bodies have been written around the client's stream
+        assertEquals(0, daemon.getConnectionCount());
+    }
+
+    @Test
+    public void negotiatedApiVersion() throws Exception {
+        daemon.apiVersion("1.35").addImage("fabric8/demo:1.0");
+        String url = daemon.startUnix(new File(folder.getRoot(), "docker.sock"));
+        File capabilitiesDir = folder.newFolder("capabilities");
+        DockerCapabilityCache cache = new DockerCapabilityCache(capabilitiesDir, 60_000);
+        DockerAccess access = new DockerAccessWithHcClient(null, url, null, DockerConnectionConfig.withMaxConnections(2), cache, log);
+        assertTrue(access.hasImage("fabric8/demo:1.0"));
+        assertEquals(Collections.singleton("1.35"), daemon.getRequestedApiVersions());
+        assertEquals(1, daemon.getRequestCount(Operation.VERSION));
+        assertEquals(1, daemon.getRequestCount(Operation.INFO));
+
+        // Options for features of newer daemons are left out
+        File context = folder.newFile("docker.tar");
+        access.buildImage("fabric8/demo:2.0", context, new BuildOptions().platform("linux/arm64").target("test"));
+        assertTrue(daemon.hasImage("fabric8/demo:2.0"));
+
+        // Another access to the same daemon uses the cached capabilities
+        DockerAccess other = new DockerAccessWithHcClient(null, url, null, DockerConnectionConfig.withMaxConnections(2), cache, log);
+        assertEquals("1.35", other.getServerApiVersion());
+        assertTrue(other.hasImage("fabric8/demo:1.0"));
+        assertEquals(1, daemon.getRequestCount(Operation.VERSION));
+        assertEquals(1, daemon.getRequestCount(Operation.INFO));
+
+        // In another JVM the stored capabilities are only used after checking the daemon's ID
+        DockerCapabilityCache stored = new DockerCapabilityCache(capabilitiesDir, 60_000);
+        DockerAccess restarted = new DockerAccessWithHcClient(null, url, null, DockerConnectionConfig.withMaxConnections(2), stored, log);
+        assertEquals("1.35", restarted.getServerApiVersion());
+        assertEquals(1, daemon.getRequestCount(Operation.VERSION));
+        assertEquals(2, daemon.getRequestCount(Operation.INFO));
+
+        // A different daemon on the same endpoint is asked again
+        daemon.apiVersion("1.39").daemonId("OTHER:ID");
+        stored = new DockerCapabilityCache(capabilitiesDir, 60_000);
+        restarted = new DockerAccessWithHcClient(null, url, null, DockerConnectionConfig.withMaxConnections(2), stored, log);
+        assertEquals("1.39", restarted.getServerApiVersion());
+        assertEquals(2, daemon.getRequestCount(Operation.VERSION));
+    }
+
+    @Test
+    public void injectedRequestFailure() throws Exception {
+        daemon.addImage("fabric8/demo:1.0")
+              .failRequests(Operation.PUSH, 1.0);
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 4, log);
+        try {
+            access.pushImage("fabric8/demo:1.0", "auth", null, 0);
+            fail("Push should have failed");
+        } catch (DockerAccessException exp) {
+            assertTrue(exp.getCause().getMessage().contains("fake failure of push"));
+        }
+        assertEquals(1, daemon.getRequestCount(Operation.PUSH));
+        assertEquals(1, daemon.getInjectedFailureCount());
+        assertTrue(daemon.hasImage("fabric8/demo:1.0"));
+    }
+
+    @Test
+    public void pushRetriedAfterInjectedFailure() throws Exception {
+        // Every second push fails, starting with the second one
+        daemon.addImage("fabric8/demo:1.0")
+              .failRequests(Operation.PUSH, 0.5);
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 4, log);
+        access.pushImage("fabric8/demo:1.0", "auth", null, 0);
+        access.pushImage("fabric8/demo:1.0", "auth", null, 1);
+        assertEquals(3, daemon.getRequestCount(Operation.PUSH));
+        assertEquals(1, daemon.getInjectedFailureCount());
+    }
+
+    @Test
+    public void injectedStreamFailure() throws Exception {
+        daemon.failStreams(Operation.PULL, 0.5);
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 4, log);
+        access.pullImage("fabric8/first:1", "auth", null);
+        try {
+            access.pullImage("fabric8/second:1", "auth", null);
+            fail("Pull should have failed");
+        } catch (DockerAccessException exp) {
+            assertTrue(exp.getMessage().contains("fake failure of pull"));
+        }
+        assertTrue(daemon.hasImage("fabric8/first:1"));
+        assertFalse(daemon.hasImage("fabric8/second:1"));
+    }
+
+    @Test
+    public void concurrentRequestsArePooled() throws Exception {
+        daemon.addImage("fabric8/demo:1.0")
+              .latency(2, TimeUnit.MILLISECONDS);
+        final DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, 3, log);
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 6; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20; i++) {
+                        assertTrue(access.hasImage("fabric8/demo:1.0"));
+                    }
+                } catch (Exception e) {
+                    error.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+        assertEquals(120, daemon.getRequestCount(Operation.INSPECT));
+        assertTrue(daemon.getConnectionCount() <= 3);
+        assertTrue(daemon.getMaxConcurrentRequests() <= 3);
+    }
+
+    @Test
+    public void poolStatistics() throws Exception {
+        daemon.addImage("fabric8/demo:1.0");
+        DockerConnectionConfig config = new DockerConnectionConfig.Builder().maxConnections(2).build();
+        DockerAccessWithHcClient access = new DockerAccessWithHcClient("v1.39", daemon.startUnix(new File(folder.getRoot(), "docker.sock")), null, config, log);
+        for (int i = 0; i < 10; i++) {
+            access.hasImage("fabric8/demo:1.0");
+        }
+        ConnectionPoolStatistics stats = access.getConnectionPoolStatistics();
+        assertEquals(10, stats.getAcquireCount());
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getAvailable());
+        assertEquals(0, stats.getPending());
+        assertEquals(2, stats.getMax());
+        assertEquals(1, daemon.getConnectionCount());
+    }
+
+    @Test
+    public void socketTimeout() throws Exception {
+        daemon.latency(2, TimeUnit.SECONDS);
+        DockerConnectionConfig config = new DockerConnectionConfig.Builder().socketTimeout(100).build();
+        DockerAccess access = new DockerAccessWithHcClient("v1.39", daemon.startTcp(), null, config, log);
+        try {
+            access.getServerApiVersion();
+            fail("Version request should have timed out");
+        } catch (DockerAccessException exp) {
+            assertTrue(exp.getCause() instanceof SocketTimeoutException);
+        }
+    }
+
+    private void roundTrip(DockerAccess access) throws Exception {
+        assertEquals(FakeDockerDaemon.API_VERSION, access.getServerApiVersion());
+
+        assertFalse(access.hasImage("fabric8/base:1"));
+        String digest = access.pullImage("fabric8/base:1", "auth", null);
+        assertTrue(digest.startsWith("sha256:"));
+        assertTrue(access.hasImage("fabric8/base:1"));
+        assertEquals(12, access.getImageId("fabric8/base:1").length());
+
+        access.tag("fabric8/base:1", "fabric8/base:latest", false);
+        assertTrue(daemon.hasImage("fabric8/base:latest"));
+        String pushed = access.pushImage("fabric8/base:latest", "auth", null, 0);
+        assertTrue(pushed.startsWith("sha256:"));
+        assertEquals("fabric8/base@" + pushed, access.getRepoDigests("fabric8/base:latest").get(0));
+
+        File saved = new File(folder.getRoot(), "base.tar");
+        access.saveImage("fabric8/base:1", saved.getAbsolutePath());
+        assertEquals(100_000, saved.length());
+        access.loadImage("fabric8/base:1", saved);
+        assertEquals(100_000, daemon.getBytesReceived());
+
+        assertTrue(access.removeImage("fabric8/base:latest"));
+        assertFalse(access.removeImage("fabric8/base:latest"));
+        assertTrue(daemon.hasImage("fabric8/base:1"));
+
+        daemon.addDanglingImage("sha256:0123").addDanglingImage("sha256:4567");
+        ImageCleanupResult pruned = access.pruneImages(new PruneOptions().dangling(true).until("24h"));
+        assertEquals(Arrays.asList("sha256:0123", "sha256:4567"), new ArrayList<>(new TreeSet<>(pruned.getRemoved())));
+        assertEquals(2 * 100_000, pruned.getSpaceReclaimed());
+        assertTrue(daemon.getDanglingImageIds().isEmpty());
+
+        for (Operation operation : Operation.values()) {
+            if (operation != Operation.BUILD) {
+                assertTrue(operation.name(), daemon.getRequestCount(operation) > 0);
+            }
+        }
+    }
+
+    private static class QuietLogger extends KitLogger.StdoutLogger {
+        @Override
+        public void debug(String format, Object... params) {
+        }
+
+        @Override
+        public void info(String format, Object... params) {
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
@@ -37,6 +38,8 @@ public class DockerAccessWithHcClientTest {
 
     private String registry;
 
+    private String pushedDigest;
+
     private Exception thrownException;
     private String archiveFile;
     private String filename;
@@ -66,8 +69,10 @@ public class DockerAccessWithHcClientTest {
         givenAnImageName("test");
         givenANumberOfRetries(1);
         givenThePushWillFailAndEventuallySucceed(1);
+        givenTheImageHasRepoDigest("test@sha256:0123456789abcdef0123456789abcdef");
         whenPushImage();
         thenImageWasPushed();
+        thenDigestIs("sha256:0123456789abcdef0123456789abcdef");
     }
 
     @Test
@@ -146,6 +151,14 @@ public class DockerAccessWithHcClientTest {
         }};
     }
 
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void givenTheImageHasRepoDigest(final String repoDigest) throws IOException {
+        new Expectations() {{
+            mockDelegate.get(anyString, (ResponseHandler) any, 200, 404);
+            result = new ApacheHttpClientDelegate.HttpBodyAndStatus(200, "{\"RepoDigests\":[\"" + repoDigest + "\"]}");
+        }};
+    }
+
     private void givenThePushWillFail(final int retries) throws IOException {
         new Expectations() {{
             int fail = retries + 1;
@@ -177,9 +190,13 @@ public class DockerAccessWithHcClientTest {
        assertNull(thrownException);
     }
 
+    private void thenDigestIs(String digest) {
+        assertEquals(digest, pushedDigest);
+    }
+
     private void whenPushImage() {
         try {
-            client.pushImage(imageName, "", registry, pushRetries);
+            pushedDigest = client.pushImage(imageName, "", registry, pushRetries);
         } catch (Exception e) {
             thrownException = e;
         }
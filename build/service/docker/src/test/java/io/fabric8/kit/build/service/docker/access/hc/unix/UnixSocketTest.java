@@ -0,0 +1,24 @@
+package io.fabric8.kit.build.service.docker.access.hc.unix;
+
+import java.io.IOException;
+
+import io.fabric8.kit.build.service.docker.access.hc.util.DirectBufferPool;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotEquals;
+
+public class UnixSocketTest {
+
+    @Test
+    public void bufferSizes() throws IOException {
+        try (UnixSocket socket = new UnixSocket(new DirectBufferPool(1024, 2))) {
+            int defaultSendBufferSize = socket.getSendBufferSize();
+            int defaultReceiveBufferSize = socket.getReceiveBufferSize();
+            // The kernel may round or double the given sizes, and caps them, so only check that they have been applied
+            socket.setSendBufferSize(defaultSendBufferSize / 4);
+            socket.setReceiveBufferSize(defaultReceiveBufferSize / 4);
+            assertNotEquals(defaultSendBufferSize, socket.getSendBufferSize());
+            assertNotEquals(defaultReceiveBufferSize, socket.getReceiveBufferSize());
+        }
+    }
+}
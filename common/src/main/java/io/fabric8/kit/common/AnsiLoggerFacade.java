@@ -1,8 +1,12 @@
 package io.fabric8.kit.common;
 
+import java.util.EnumMap;
+import java.util.Formatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.fusesource.jansi.Ansi;
@@ -31,6 +35,19 @@ public class AnsiLoggerFacade implements KitLogger {
     public static final String DEFAULT_LOG_PREFIX = "DOCKER> ";
     private static final int NON_ANSI_UPDATE_PERIOD = 80;
 
+    // Upper bound for the number of cached message templates per color, so that messages
+    // which are not constant format strings don't fill up the cache
+    private static final int MAX_TEMPLATES = 512;
+
+    // Buffers bigger than this are not kept for the next message
+    private static final int MAX_BUFFER_SIZE = 16 * 1024;
+
+    private static final Pattern EMPHASIS_MARKER = Pattern.compile("\\[\\[(.)]]");
+    private static final Pattern EMPHASIS_SPLIT = Pattern.compile("\\[\\[]]");
+
+    // Per thread buffer for formatting messages
+    private static final ThreadLocal<FormatBuffer> FORMAT_BUFFER = ThreadLocal.withInitial(FormatBuffer::new);
+
     private final KitLogger log;
     private final String prefix;
     private final boolean batchMode;
@@ -54,6 +71,14 @@ public class AnsiLoggerFacade implements KitLogger {
     // Whether to use ANSI codes
     private boolean useAnsi;
 
+    // Message templates with evaluated emphasis, with and without ANSI codes
+    private final Map<Ansi.Color, Map<String, Template>> ansiTemplates = createTemplateCache();
+    private final Map<Ansi.Color, Map<String, Template>> plainTemplates = createTemplateCache();
+
+    // Start of verbose messages, with and without ANSI codes
+    private final String ansiVerboseHead;
+    private final String plainVerboseHead;
+
     public AnsiLoggerFacade(KitLogger log, boolean useColor, boolean verbose) {
         this(log, useColor, verbose, false);
     }
@@ -67,36 +92,41 @@ public class AnsiLoggerFacade implements KitLogger {
         this.prefix = prefix;
         this.verbose = verbose;
         this.batchMode = batchMode;
+        this.ansiVerboseHead = new Ansi().fgBright(BLACK).a(prefix).toString();
+        this.plainVerboseHead = prefix;
         initializeColor(useColor);
     }
 
     /** {@inheritDoc} */
     public void debug(String message, Object... params) {
         if (isDebugEnabled()) {
-            log.debug(prefix + format(message, params));
+            log.debug(format(prefix, message, "", params));
         }
     }
 
     /** {@inheritDoc} */
     public void info(String message, Object... params) {
-        log.info(colored(message, COLOR_INFO, true, params));
+        if (log.isInfoEnabled()) {
+            log.info(colored(message, COLOR_INFO, params));
+        }
     }
 
     /** {@inheritDoc} */
     public void verbose(String message, Object ... params) {
-        if (verbose) {
-            log.info(ansi().fgBright(BLACK).a(prefix).a(format(message, params)).reset().toString());
+        if (verbose && log.isInfoEnabled()) {
+            boolean ansi = Ansi.isEnabled();
+            log.info(format(ansi ? ansiVerboseHead : plainVerboseHead, message, ansi ? Template.ANSI_RESET : "", params));
         }
     }
 
     /** {@inheritDoc} */
     public void warn(String format, Object... params) {
-        log.warn(colored(format, COLOR_WARNING, true, params));
+        log.warn(colored(format, COLOR_WARNING, params));
     }
 
     /** {@inheritDoc} */
     public void error(String message, Object... params) {
-        log.error(colored(message, COLOR_ERROR, true, params));
+        log.error(colored(message, COLOR_ERROR, params));
     }
 
     /**
@@ -230,19 +260,61 @@ public class AnsiLoggerFacade implements KitLogger {
         System.out.print(txt);
     }
 
-    private String colored(String message, Ansi.Color color, boolean addPrefix, Object... params) {
-        Ansi ansi = ansi().fg(color);
-        String msgToPrint = addPrefix ? prefix + message : message;
-        return ansi.a(format(evaluateEmphasis(msgToPrint, color), params)).reset().toString();
+    private String colored(String message, Ansi.Color color, Object... params) {
+        Template template = getTemplate(message, color);
+        return format(template.head, template.body, template.tail, params);
+    }
+
+    // Lookup the compiled template for a message, the ANSI mode is per thread
+    private Template getTemplate(String message, Ansi.Color color) {
+        boolean ansi = Ansi.isEnabled();
+        Map<String, Template> templates = (ansi ? ansiTemplates : plainTemplates).get(color);
+        Template template = templates.get(message);
+        if (template == null) {
+            template = new Template(evaluateEmphasis(prefix + message, color, ansi), color, ansi);
+            if (templates.size() < MAX_TEMPLATES) {
+                templates.put(message, template);
+            }
+        }
+        return template;
+    }
+
+    // Use parameters when given, otherwise we use the string directly. head and tail are
+    // added unformatted
+    private String format(String head, String message, String tail, Object[] params) {
+        FormatBuffer buffer = FORMAT_BUFFER.get();
+        if (buffer.inUse) {
+            // Recursive logging while formatting a parameter
+            return head + format(message, params) + tail;
+        }
+        buffer.inUse = true;
+        try {
+            StringBuilder ret = buffer.builder;
+            ret.setLength(0);
+            ret.append(head);
+            if (params.length == 0) {
+                ret.append(message);
+            } else if (params.length == 1 && params[0] instanceof Throwable) {
+                // We print only the message here since breaking exception will bubble up
+                // anyway
+                ret.append(message).append(": ").append(params[0].toString());
+            } else {
+                buffer.formatter.format(message, params);
+            }
+            ret.append(tail);
+            return ret.toString();
+        } finally {
+            buffer.inUse = false;
+            if (buffer.builder.capacity() > MAX_BUFFER_SIZE) {
+                FORMAT_BUFFER.remove();
+            }
+        }
     }
 
-    // Use parameters when given, otherwise we use the string directly
     private String format(String message, Object[] params) {
         if (params.length == 0) {
             return message;
         } else if (params.length == 1 && params[0] instanceof Throwable) {
-            // We print only the message here since breaking exception will bubble up
-            // anyway
             return message + ": " + params[0].toString();
         } else {
             return String.format(message, params);
@@ -250,18 +322,21 @@ public class AnsiLoggerFacade implements KitLogger {
     }
 
     // Emphasize parts encloses in "[[*]]" tags
-    private String evaluateEmphasis(String message, Ansi.Color msgColor) {
+    private static String evaluateEmphasis(String message, Ansi.Color msgColor, boolean ansi) {
+        if (!message.contains("[[")) {
+            return message;
+        }
         // Split with delimiters [[.]]. See also http://stackoverflow.com/a/2206545/207604
-        String prepared = message.replaceAll("\\[\\[(.)]]", "[[]]$1[[]]");
-        String[] parts = prepared.split("\\[\\[]]");
+        String prepared = EMPHASIS_MARKER.matcher(message).replaceAll("[[]]$1[[]]");
+        String[] parts = EMPHASIS_SPLIT.split(prepared);
         if (parts.length == 1) {
             return message;
         }
-        String msgColorS = ansi().fg(msgColor).toString();
+        String msgColorS = ansi ? new Ansi().fg(msgColor).toString() : "";
         StringBuilder ret = new StringBuilder(parts[0]);
         boolean colorOpen = true;
         for (int i = 1; i < parts.length; i+=2) {
-            ret.append(colorOpen ? getEmphasisColor(parts[i]) : msgColorS);
+            ret.append(colorOpen ? getEmphasisColor(parts[i], ansi) : msgColorS);
             colorOpen = !colorOpen;
             if (i+1 < parts.length) {
                 ret.append(parts[i+1]);
@@ -285,15 +360,46 @@ public class AnsiLoggerFacade implements KitLogger {
         COLOR_MAP.put("D", DEFAULT);
     }
 
-    private String getEmphasisColor(String id) {
+    private static String getEmphasisColor(String id, boolean ansi) {
         Ansi.Color color = COLOR_MAP.get(id.toUpperCase());
-        if (color != null) {
+        if (color != null && ansi) {
             return id.toLowerCase().equals(id) ?
                 // lower case letter means bright color ...
-                ansi().fgBright(color).toString() :
-                ansi().fg(color).toString();
+                new Ansi().fgBright(color).toString() :
+                new Ansi().fg(color).toString();
         } else {
             return "";
         }
     }
+
+    private static Map<Ansi.Color, Map<String, Template>> createTemplateCache() {
+        Map<Ansi.Color, Map<String, Template>> ret = new EnumMap<>(Ansi.Color.class);
+        for (Ansi.Color color : Ansi.Color.values()) {
+            ret.put(color, new ConcurrentHashMap<>());
+        }
+        return ret;
+    }
+
+    // Message with emphasis already turned into color codes, which only needs formatting
+    // with the actual parameters
+    private static final class Template {
+
+        private static final String ANSI_RESET = new Ansi().reset().toString();
+
+        private final String head;
+        private final String body;
+        private final String tail;
+
+        private Template(String body, Ansi.Color color, boolean ansi) {
+            this.head = ansi ? new Ansi().fg(color).toString() : "";
+            this.body = body;
+            this.tail = ansi ? ANSI_RESET : "";
+        }
+    }
+
+    private static final class FormatBuffer {
+        private final StringBuilder builder = new StringBuilder(256);
+        private final Formatter formatter = new Formatter(builder);
+        private boolean inUse;
+    }
 }
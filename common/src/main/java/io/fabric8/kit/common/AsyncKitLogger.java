@@ -0,0 +1,384 @@
+package io.fabric8.kit.common;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logger decorator which hands over log messages to a single writer thread, so that threads which are
+ * logging concurrently neither contend on the wrapped logger nor get slowed down by a slow consumer of the
+ * log output. Messages are stored in a bounded, lock-free ring buffer and are written in the order in which
+ * they have been queued.
+ *
+ * Messages are formatted by the wrapped logger on the writer thread, so parameters must not be changed after
+ * they have been logged. Progress updates are written on the calling thread, after all queued messages have
+ * been written.
+ *
+ * The logger must be closed to write out remaining messages and to stop the writer thread. Messages still
+ * queued when the JVM shuts down without the logger being closed are written by a shutdown hook.
+ *
+ * @since 19.10.26
+ */
+public class AsyncKitLogger implements KitLogger, Closeable {
+
+    /**
+     * What to do with a message when the buffer is full
+     */
+    public enum OverflowPolicy {
+        // Drop debug and verbose messages, wait for free space for all other messages
+        DROP_VERBOSE_FIRST,
+        // Wait for free space for all messages
+        BLOCK
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // How long the writer sleeps at most when there is nothing to write
+    private static final long WRITER_PARK_NANOS = 50_000_000L;
+
+    // How long a producer waits before retrying to queue a message into a full buffer
+    private static final long PRODUCER_PARK_NANOS = 100_000L;
+
+    private final KitLogger log;
+    private final OverflowPolicy overflowPolicy;
+
+    // Ring buffer with a sequence number per slot, see "Bounded MPMC queue" by Dmitry Vyukov
+    private final int mask;
+    private final AtomicReferenceArray<Event> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    // Only changed by the writer thread
+    private volatile long head;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private final Object flushLock = new Object();
+    private volatile boolean writerSleeping;
+    private volatile boolean closed;
+
+    public AsyncKitLogger(KitLogger log) {
+        this(log, DEFAULT_CAPACITY, OverflowPolicy.DROP_VERBOSE_FIRST);
+    }
+
+    /**
+     * Create a logger and start its writer thread
+     *
+     * @param log logger to write to
+     * @param capacity maximum number of queued messages, rounded up to the next power of two
+     * @param overflowPolicy what to do when the buffer is full
+     */
+    public AsyncKitLogger(KitLogger log, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, not " + capacity);
+        }
+        this.log = log;
+        this.overflowPolicy = overflowPolicy;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+
+        this.writer = new Thread(this::writeLoop, "kit-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.shutdownHook = new Thread(this::drain, "kit-log-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /** {@inheritDoc} */
+    public void debug(String format, Object... params) {
+        if (log.isDebugEnabled()) {
+            log(Level.DEBUG, format, params);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void info(String format, Object... params) {
+        log(Level.INFO, format, params);
+    }
+
+    /** {@inheritDoc} */
+    public void verbose(String format, Object... params) {
+        if (log.isVerboseEnabled()) {
+            log(Level.VERBOSE, format, params);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void warn(String format, Object... params) {
+        log(Level.WARN, format, params);
+    }
+
+    /** {@inheritDoc} */
+    public void error(String format, Object... params) {
+        log(Level.ERROR, format, params);
+    }
+
+    /** {@inheritDoc} */
+    public boolean isDebugEnabled() {
+        return log.isDebugEnabled();
+    }
+
+    /** {@inheritDoc} */
+    public boolean isInfoEnabled() {
+        return log.isInfoEnabled();
+    }
+
+    /** {@inheritDoc} */
+    public boolean isVerboseEnabled() {
+        return log.isVerboseEnabled();
+    }
+
+    /** {@inheritDoc} */
+    public void progressStart() {
+        flush();
+        log.progressStart();
+    }
+
+    /** {@inheritDoc} */
+    public void progressUpdate(String layerId, String status, String progressMessage) {
+        flush();
+        log.progressUpdate(layerId, status, progressMessage);
+    }
+
+    /** {@inheritDoc} */
+    public void progressFinished() {
+        flush();
+        log.progressFinished();
+    }
+
+    /**
+     * Wait until all messages queued so far have been written
+     */
+    public void flush() {
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        long target = tail.get();
+        if (!writer.isAlive()) {
+            drain();
+            return;
+        }
+        synchronized (flushLock) {
+            while (head < target && writer.isAlive()) {
+                LockSupport.unpark(writer);
+                try {
+                    flushLock.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write all remaining messages and stop the writer thread. Messages logged afterwards
+     * are written directly on the calling thread.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down
+        }
+    }
+
+    /**
+     * @return number of messages which have been queued for writing
+     */
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * @return number of messages which have been dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of messages which are queued but not yet written
+     */
+    public long getPendingCount() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    // ==========================================================================================
+
+    private void log(Level level, String format, Object[] params) {
+        if (closed || Thread.currentThread() == writer) {
+            // Logging from within the wrapped logger or after close
+            level.write(log, format, params);
+            return;
+        }
+        Event event = new Event(level, format, params);
+        while (!offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP_VERBOSE_FIRST && level.droppable) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (closed || !writer.isAlive()) {
+                level.write(log, format, params);
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+        }
+        queued.incrementAndGet();
+        if (writerSleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean offer(Event event) {
+        for (;;) {
+            long pos = tail.get();
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(idx, event);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // Full
+                return false;
+            }
+            // Otherwise another producer was faster, try again
+        }
+    }
+
+    // Only called by a single thread at a time
+    private Event poll() {
+        long pos = head;
+        int idx = (int) (pos & mask);
+        if (sequences.get(idx) != pos + 1) {
+            return null;
+        }
+        Event event = slots.get(idx);
+        slots.set(idx, null);
+        sequences.set(idx, pos + mask + 1);
+        return event;
+    }
+
+    private void writeLoop() {
+        while (!closed) {
+            if (!writeAvailable()) {
+                writerSleeping = true;
+                if (!writeAvailable() && !closed) {
+                    LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+                }
+                writerSleeping = false;
+            }
+        }
+        writeAvailable();
+    }
+
+    // Write everything available, return whether anything has been written
+    private boolean writeAvailable() {
+        boolean written = false;
+        Event event;
+        while ((event = poll()) != null) {
+            try {
+                event.level.write(log, event.format, event.params);
+            } catch (RuntimeException e) {
+                System.err.println("Cannot write log message '" + event.format + "': " + e);
+            }
+            head++;
+            written = true;
+        }
+        if (written) {
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+        return written;
+    }
+
+    // Write remaining messages when the writer thread is gone
+    private void drain() {
+        if (!writer.isAlive()) {
+            synchronized (flushLock) {
+                writeAvailable();
+            }
+        } else {
+            flush();
+        }
+    }
+
+    private enum Level {
+        DEBUG(true) {
+            void write(KitLogger log, String format, Object[] params) {
+                log.debug(format, params);
+            }
+        },
+        VERBOSE(true) {
+            void write(KitLogger log, String format, Object[] params) {
+                log.verbose(format, params);
+            }
+        },
+        INFO(false) {
+            void write(KitLogger log, String format, Object[] params) {
+                log.info(format, params);
+            }
+        },
+        WARN(false) {
+            void write(KitLogger log, String format, Object[] params) {
+                log.warn(format, params);
+            }
+        },
+        ERROR(false) {
+            void write(KitLogger log, String format, Object[] params) {
+                log.error(format, params);
+            }
+        };
+
+        private final boolean droppable;
+
+        Level(boolean droppable) {
+            this.droppable = droppable;
+        }
+
+        abstract void write(KitLogger log, String format, Object[] params);
+    }
+
+    private static final class Event {
+        private final Level level;
+        private final String format;
+        private final Object[] params;
+
+        private Event(Level level, String format, Object[] params) {
+            this.level = level;
+            this.format = format;
+            this.params = params;
+        }
+    }
+}
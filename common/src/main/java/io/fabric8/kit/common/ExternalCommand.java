@@ -153,9 +153,7 @@ public abstract class ExternalCommand {
                         if (line == null) {
                             break;
                         }
-                        synchronized (log) {
-                            log.warn(line);
-                        }
+                        log.warn(line);
                     }
                     return null;
                 } catch (IOException e) {
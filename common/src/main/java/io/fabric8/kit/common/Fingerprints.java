@@ -0,0 +1,53 @@
+package io.fabric8.kit.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helper for creating SHA-256 fingerprints which are used as cache keys
+ *
+ * @since 19.10.26
+ */
+public class Fingerprints {
+
+    private Fingerprints() { }
+
+    /**
+     * Create a new SHA-256 digest
+     *
+     * @return digest
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("No SHA-256 available", e);
+        }
+    }
+
+    /**
+     * Hash a string with SHA-256
+     *
+     * @param value value to hash, encoded as UTF-8
+     * @return hex encoded hash
+     */
+    public static String sha256Hex(String value) {
+        return toHex(newSha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Encode bytes as lower case hex string
+     *
+     * @param bytes bytes to encode
+     * @return hex string
+     */
+    public static String toHex(byte[] bytes) {
+        StringBuilder ret = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            ret.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return ret.toString();
+    }
+}
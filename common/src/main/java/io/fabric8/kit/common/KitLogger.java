@@ -91,15 +91,36 @@ public interface KitLogger {
      */
     default void progressFinished() {}
 
+    /**
+     * Logger printing to stdout. Messages are only formatted if their level is enabled.
+     */
     class StdoutLogger implements KitLogger {
+
+        private final boolean debug;
+
+        public StdoutLogger() {
+            this(true);
+        }
+
+        /**
+         * @param debug whether debug messages are printed
+         */
+        public StdoutLogger(boolean debug) {
+            this.debug = debug;
+        }
+
         @Override
         public void debug(String format, Object... params) {
-            System.out.println(String.format(format,params));
+            if (isDebugEnabled()) {
+                System.out.println(String.format(format,params));
+            }
         }
 
         @Override
         public void info(String format, Object... params) {
-            System.out.println(String.format(format,params));
+            if (isInfoEnabled()) {
+                System.out.println(String.format(format,params));
+            }
         }
 
         @Override
@@ -114,7 +135,7 @@ public interface KitLogger {
 
         @Override
         public boolean isDebugEnabled() {
-            return true;
+            return debug;
         }
 
         @Override
@@ -0,0 +1,437 @@
+package io.fabric8.kit.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Collects counters, timers and histograms of the operations done by the kit, e.g. pulls, pushes, builds
+ * or single Docker API calls. Every metric is identified by its name and an optional list of tags, given as
+ * key-value pairs like <code>timer("docker.pull", "registry", "docker.io")</code>.
+ *
+ * Collection is disabled by default. In this case all metrics are shared no-op instances, so that reporting
+ * costs hardly more than a method call. Metrics are enabled with {@link #enable()}, which is typically done
+ * by a plugin at the start of a build, which also writes out the collected values with {@link #export(File)}
+ * at the end of the build.
+ *
+ * @since 19.10.26
+ */
+public class KitMetrics {
+
+    /**
+     * Monotonic counter
+     */
+    public interface Counter {
+        void increment();
+
+        void increment(long amount);
+    }
+
+    /**
+     * Distribution of durations
+     */
+    public interface Timer {
+
+        /**
+         * @param durationNanos duration to record
+         */
+        void record(long durationNanos);
+
+        /**
+         * Record the duration since the given start time
+         *
+         * @param startNanos start as obtained with {@link KitMetrics#startTime()}
+         */
+        void recordSince(long startNanos);
+    }
+
+    /**
+     * Distribution of arbitrary values, e.g. sizes
+     */
+    public interface Histogram {
+        void record(long value);
+    }
+
+    public static final String JSON_FILE = "metrics.json";
+    public static final String OPEN_METRICS_FILE = "metrics.txt";
+
+    // Bucket bounds for timers, in nanoseconds
+    private static final long[] TIMER_BOUNDS = {
+        1_000_000L, 5_000_000L, 10_000_000L, 50_000_000L, 100_000_000L, 500_000_000L,
+        1_000_000_000L, 5_000_000_000L, 10_000_000_000L, 60_000_000_000L, 300_000_000_000L
+    };
+
+    // Bucket bounds for histograms, powers of 4 from 1 to 4G
+    private static final long[] HISTOGRAM_BOUNDS = createPowerBounds(4, 17);
+
+    private static final KitMetrics DISABLED = new KitMetrics(false);
+
+    private static volatile KitMetrics current = DISABLED;
+
+    private final boolean enabled;
+
+    // Metrics by name and tags
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    KitMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the metrics to report into, which are disabled unless {@link #enable()} has been called
+     */
+    public static KitMetrics get() {
+        return current;
+    }
+
+    /**
+     * Enable collecting metrics, if not already enabled
+     *
+     * @return the enabled metrics
+     */
+    public static synchronized KitMetrics enable() {
+        if (!current.enabled) {
+            current = new KitMetrics(true);
+        }
+        return current;
+    }
+
+    /**
+     * Disable collecting metrics. Values collected so far are discarded.
+     */
+    public static synchronized void disable() {
+        current = DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return start time for {@link Timer#recordSince(long)}, 0 if disabled
+     */
+    public long startTime() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public Counter counter(String name, String... tags) {
+        return enabled ? (Counter) lookup(MetricType.COUNTER, name, tags) : NoopMetric.INSTANCE;
+    }
+
+    public Timer timer(String name, String... tags) {
+        return enabled ? (Timer) lookup(MetricType.TIMER, name, tags) : NoopMetric.INSTANCE;
+    }
+
+    public Histogram histogram(String name, String... tags) {
+        return enabled ? (Histogram) lookup(MetricType.HISTOGRAM, name, tags) : NoopMetric.INSTANCE;
+    }
+
+    /**
+     * Write a JSON summary of all metrics and an OpenMetrics text file into the given directory.
+     * Nothing is written when metrics are disabled.
+     *
+     * @param dir directory to write {@value #JSON_FILE} and {@value #OPEN_METRICS_FILE} to
+     * @throws IOException if writing fails
+     */
+    public void export(File dir) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(dir, JSON_FILE)), StandardCharsets.UTF_8)) {
+            writeJson(out);
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(dir, OPEN_METRICS_FILE)), StandardCharsets.UTF_8)) {
+            writeOpenMetrics(out);
+        }
+    }
+
+    /**
+     * Write a JSON summary with one entry per metric. Durations are given in milliseconds.
+     *
+     * @param out writer to write to
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Writer out) throws IOException {
+        JsonArray ret = new JsonArray();
+        for (Metric metric : getSortedMetrics()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("name", metric.name);
+            entry.addProperty("type", metric.type.name().toLowerCase(Locale.ENGLISH));
+            JsonObject tags = new JsonObject();
+            for (Map.Entry<String, String> tag : metric.tags.entrySet()) {
+                tags.addProperty(tag.getKey(), tag.getValue());
+            }
+            entry.add("tags", tags);
+            metric.addJsonValues(entry);
+            ret.add(entry);
+        }
+        JsonObject root = new JsonObject();
+        root.add("metrics", ret);
+        new GsonBuilder().setPrettyPrinting().create().toJson(root, out);
+        out.flush();
+    }
+
+    /**
+     * Write all metrics in the OpenMetrics text format. Durations are given in seconds.
+     *
+     * @param out writer to write to
+     * @throws IOException if writing fails
+     */
+    public void writeOpenMetrics(Writer out) throws IOException {
+        String lastFamily = null;
+        for (Metric metric : getSortedMetrics()) {
+            String family = metric.getFamilyName();
+            if (!family.equals(lastFamily)) {
+                out.write("# TYPE " + family + " " + (metric.type == MetricType.COUNTER ? "counter" : "histogram") + "\n");
+                lastFamily = family;
+            }
+            metric.writeOpenMetrics(out, family);
+        }
+        out.write("# EOF\n");
+        out.flush();
+    }
+
+    // ==========================================================================================
+
+    private Metric lookup(MetricType type, String name, String[] tags) {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags for metric " + name + " must be given as key-value pairs");
+        }
+        TreeMap<String, String> tagMap = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            tagMap.put(tags[i], tags[i + 1] != null ? tags[i + 1] : "");
+        }
+        String key = type + ":" + name + tagMap;
+        Metric metric = metrics.get(key);
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(key, k -> type.create(name, tagMap));
+        }
+        return metric;
+    }
+
+    private List<Metric> getSortedMetrics() {
+        List<Metric> ret = new ArrayList<>(metrics.values());
+        ret.sort((m1, m2) -> {
+            int ret1 = m1.getFamilyName().compareTo(m2.getFamilyName());
+            return ret1 != 0 ? ret1 : m1.tags.toString().compareTo(m2.tags.toString());
+        });
+        return ret;
+    }
+
+    private static long[] createPowerBounds(int base, int count) {
+        long[] ret = new long[count];
+        long value = 1;
+        for (int i = 0; i < count; i++) {
+            ret[i] = value;
+            value *= base;
+        }
+        return ret;
+    }
+
+    private enum MetricType {
+        COUNTER {
+            Metric create(String name, Map<String, String> tags) {
+                return new CounterMetric(name, tags);
+            }
+        },
+        TIMER {
+            Metric create(String name, Map<String, String> tags) {
+                return new DistributionMetric(this, name, tags, TIMER_BOUNDS);
+            }
+        },
+        HISTOGRAM {
+            Metric create(String name, Map<String, String> tags) {
+                return new DistributionMetric(this, name, tags, HISTOGRAM_BOUNDS);
+            }
+        };
+
+        abstract Metric create(String name, Map<String, String> tags);
+    }
+
+    private abstract static class Metric {
+        final MetricType type;
+        final String name;
+        final Map<String, String> tags;
+
+        Metric(MetricType type, String name, Map<String, String> tags) {
+            this.type = type;
+            this.name = name;
+            this.tags = tags;
+        }
+
+        // Name as used in the OpenMetrics format
+        String getFamilyName() {
+            String ret = name.replaceAll("[^a-zA-Z0-9_:]", "_");
+            return type == MetricType.TIMER ? ret + "_seconds" : ret;
+        }
+
+        abstract void addJsonValues(JsonObject entry);
+
+        abstract void writeOpenMetrics(Writer out, String family) throws IOException;
+
+        String formatLabels(String extraKey, String extraValue) {
+            StringBuilder ret = new StringBuilder();
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                appendLabel(ret, tag.getKey().replaceAll("[^a-zA-Z0-9_]", "_"), tag.getValue());
+            }
+            if (extraKey != null) {
+                appendLabel(ret, extraKey, extraValue);
+            }
+            return ret.length() > 0 ? "{" + ret + "}" : "";
+        }
+
+        private void appendLabel(StringBuilder ret, String key, String value) {
+            if (ret.length() > 0) {
+                ret.append(',');
+            }
+            ret.append(key).append("=\"")
+               .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+               .append('"');
+        }
+    }
+
+    private static final class CounterMetric extends Metric implements Counter {
+        private final LongAdder value = new LongAdder();
+
+        CounterMetric(String name, Map<String, String> tags) {
+            super(MetricType.COUNTER, name, tags);
+        }
+
+        @Override
+        public void increment() {
+            value.increment();
+        }
+
+        @Override
+        public void increment(long amount) {
+            value.add(amount);
+        }
+
+        @Override
+        void addJsonValues(JsonObject entry) {
+            entry.addProperty("count", value.sum());
+        }
+
+        @Override
+        void writeOpenMetrics(Writer out, String family) throws IOException {
+            out.write(family + "_total" + formatLabels(null, null) + " " + value.sum() + "\n");
+        }
+    }
+
+    private static final class DistributionMetric extends Metric implements Timer, Histogram {
+        private final long[] bounds;
+        // One more bucket than bounds for values above the last bound
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+        DistributionMetric(MetricType type, String name, Map<String, String> tags, long[] bounds) {
+            super(type, name, tags);
+            this.bounds = bounds;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        @Override
+        public void record(long value) {
+            int idx = Arrays.binarySearch(bounds, value);
+            buckets[idx >= 0 ? idx : -idx - 1].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+            min.accumulateAndGet(value, Math::min);
+        }
+
+        @Override
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        void addJsonValues(JsonObject entry) {
+            long n = count.sum();
+            entry.addProperty("count", n);
+            if (type == MetricType.TIMER) {
+                entry.addProperty("totalMs", toMillis(sum.sum()));
+                if (n > 0) {
+                    entry.addProperty("minMs", toMillis(min.get()));
+                    entry.addProperty("meanMs", toMillis(sum.sum() / n));
+                    entry.addProperty("maxMs", toMillis(max.get()));
+                }
+            } else {
+                entry.addProperty("sum", sum.sum());
+                if (n > 0) {
+                    entry.addProperty("min", min.get());
+                    entry.addProperty("mean", sum.sum() / n);
+                    entry.addProperty("max", max.get());
+                }
+            }
+        }
+
+        @Override
+        void writeOpenMetrics(Writer out, String family) throws IOException {
+            long cumulated = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulated += buckets[i].sum();
+                out.write(family + "_bucket" + formatLabels("le", formatValue(bounds[i])) + " " + cumulated + "\n");
+            }
+            cumulated += buckets[bounds.length].sum();
+            out.write(family + "_bucket" + formatLabels("le", "+Inf") + " " + cumulated + "\n");
+            out.write(family + "_count" + formatLabels(null, null) + " " + count.sum() + "\n");
+            out.write(family + "_sum" + formatLabels(null, null) + " " + formatValue(sum.sum()) + "\n");
+        }
+
+        // Timers are exported in seconds
+        private String formatValue(long value) {
+            return type == MetricType.TIMER ? Double.toString(value / 1e9) : Long.toString(value);
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    private static final class NoopMetric implements Counter, Timer, Histogram {
+        private static final NoopMetric INSTANCE = new NoopMetric();
+
+        @Override
+        public void increment() {
+        }
+
+        @Override
+        public void increment(long amount) {
+        }
+
+        @Override
+        public void record(long value) {
+        }
+
+        @Override
+        public void recordSince(long startNanos) {
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.fabric8.kit.common;
+/*
+ *
+ * Copyright 2016 Roland Huss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.fusesource.jansi.Ansi;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author roland
+ * @since 07/10/16
+ */
+public class AnsiLoggerFacadeTest {
+
+    @Test
+    public void emphasize() {
+        TestLog testLog = new TestLog();
+        AnsiLoggerFacade logger = new AnsiLoggerFacade(testLog, true, false, false, "T>");
+        Ansi ansi = Ansi.ansi();
+        logger.info("Yet another [[*]]Test[[*]] %s","emphasis");
+        assertEquals(ansi.a("T>")
+                         .fg(AnsiLoggerFacade.COLOR_INFO)
+                         .a("Yet another ")
+                         .fgBright(AnsiLoggerFacade.COLOR_EMPHASIS)
+                         .a("Test")
+                         .fg(AnsiLoggerFacade.COLOR_INFO)
+                         .a(" emphasis")
+                         .reset().toString(),
+                     testLog.getMessage());
+    }
+
+    @Test
+    public void emphasizeWithAnsi() {
+        TestLog testLog = new TestLog();
+        AnsiLoggerFacade logger = new AnsiLoggerFacade(testLog, true, false, false, "T>");
+        Ansi.setEnabled(true);
+        try {
+            for (int i = 0; i < 2; i++) {
+                // Second round uses the cached template
+                logger.info("Yet another [[*]]Test[[*]] %s and [[C]]%d[[C]]!", "emphasis", i);
+                assertEquals(Ansi.ansi()
+                                 .fg(AnsiLoggerFacade.COLOR_INFO)
+                                 .a("T>Yet another ")
+                                 .fgBright(AnsiLoggerFacade.COLOR_EMPHASIS)
+                                 .a("Test")
+                                 .fg(AnsiLoggerFacade.COLOR_INFO)
+                                 .a(" emphasis and ")
+                                 .fg(Ansi.Color.CYAN)
+                                 .a(i)
+                                 .fg(AnsiLoggerFacade.COLOR_INFO)
+                                 .a("!")
+                                 .reset().toString(),
+                             testLog.getMessage());
+            }
+            logger.info("Plain %s", "message");
+            assertEquals(Ansi.ansi().fg(AnsiLoggerFacade.COLOR_INFO).a("T>Plain message").reset().toString(),
+                         testLog.getMessage());
+        } finally {
+            Ansi.setEnabled(false);
+        }
+        logger.info("Yet another [[*]]Test[[*]] %s", "emphasis");
+        assertEquals("T>Yet another Test emphasis", testLog.getMessage());
+    }
+
+    @Test
+    public void throwableParameter() {
+        TestLog testLog = new TestLog();
+        AnsiLoggerFacade logger = new AnsiLoggerFacade(testLog, false, false, false, "T>");
+        logger.info("Failed", new IllegalStateException("boom"));
+        assertEquals("T>Failed: java.lang.IllegalStateException: boom", testLog.getMessage());
+    }
+
+    @Test
+    public void recursiveFormatting() {
+        TestLog testLog = new TestLog();
+        final AnsiLoggerFacade logger = new AnsiLoggerFacade(testLog, false, false, false, "T>");
+        Object param = new Object() {
+            @Override
+            public String toString() {
+                logger.info("inner %s", "call");
+                return "outer";
+            }
+        };
+        logger.info("Hello %s", param);
+        assertEquals("T>Hello outer", testLog.getMessage());
+    }
+
+    @Test
+    public void noFormattingWhenDisabled() {
+        TestLog testLog = new TestLog();
+        testLog.infoEnabled = false;
+        AnsiLoggerFacade logger = new AnsiLoggerFacade(testLog, false, true, false, "T>");
+        Object param = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("Should not be formatted");
+            }
+        };
+        logger.info("Hello %s", param);
+        logger.verbose("Hello %s", param);
+        assertNull(testLog.getMessage());
+    }
+
+    private class TestLog extends KitLogger.StdoutLogger {
+        private String message;
+        private boolean infoEnabled = true;
+
+        @Override
+        public boolean isInfoEnabled() {
+            return infoEnabled;
+        }
+
+        @Override
+        public void info(String content, Object ... args) {
+            this.message = content;
+            super.info(content);
+        }
+
+        void reset() {
+            message = null;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package io.fabric8.kit.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncKitLoggerTest {
+
+    @Test
+    public void ordered() {
+        RecordingLogger recorder = new RecordingLogger();
+        try (AsyncKitLogger logger = new AsyncKitLogger(recorder, 4, AsyncKitLogger.OverflowPolicy.BLOCK)) {
+            for (int i = 0; i < 100; i++) {
+                logger.info("info %d", i);
+            }
+            logger.warn("warn");
+            logger.error("error");
+            logger.progressFinished();
+            assertEquals(102, recorder.lines.size());
+            assertEquals("I:info 0", recorder.lines.get(0));
+            assertEquals("I:info 99", recorder.lines.get(99));
+            assertEquals("W:warn", recorder.lines.get(100));
+            assertEquals("E:error", recorder.lines.get(101));
+            assertEquals(102, logger.getQueuedCount());
+            assertEquals(0, logger.getPendingCount());
+        }
+    }
+
+    @Test
+    public void concurrentProducers() throws InterruptedException {
+        RecordingLogger recorder = new RecordingLogger();
+        final AsyncKitLogger logger = new AsyncKitLogger(recorder, 16, AsyncKitLogger.OverflowPolicy.BLOCK);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int nr = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    logger.info("%d-%d", nr, i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logger.close();
+        assertEquals(2000, recorder.lines.size());
+        assertEquals(0, logger.getDroppedCount());
+        // Per producer the order is kept
+        for (int t = 0; t < 4; t++) {
+            int last = -1;
+            for (String line : recorder.lines) {
+                if (line.startsWith("I:" + t + "-")) {
+                    int i = Integer.parseInt(line.substring(line.indexOf('-') + 1));
+                    assertEquals(last + 1, i);
+                    last = i;
+                }
+            }
+            assertEquals(499, last);
+        }
+    }
+
+    @Test
+    public void dropVerboseWhenFull() throws InterruptedException {
+        RecordingLogger recorder = new RecordingLogger();
+        recorder.block = new CountDownLatch(1);
+        AsyncKitLogger logger = new AsyncKitLogger(recorder, 2, AsyncKitLogger.OverflowPolicy.DROP_VERBOSE_FIRST);
+        try {
+            logger.info("first");
+            // Wait until the writer is stuck on the first message
+            assertTrue(recorder.blocked.await(10, TimeUnit.SECONDS));
+            logger.info("second");
+            logger.info("third");
+            logger.verbose("dropped");
+            logger.debug("dropped too");
+            assertEquals(2, logger.getDroppedCount());
+            assertEquals(3, logger.getQueuedCount());
+            assertEquals(3, logger.getPendingCount());
+        } finally {
+            recorder.block.countDown();
+            logger.close();
+        }
+        assertEquals(3, recorder.lines.size());
+        assertEquals("I:third", recorder.lines.get(2));
+    }
+
+    private static class RecordingLogger extends KitLogger.StdoutLogger {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch block;
+
+        @Override
+        public void info(String format, Object... params) {
+            add("I", format, params);
+            if (block != null) {
+                blocked.countDown();
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void warn(String format, Object... params) {
+            add("W", format, params);
+        }
+
+        @Override
+        public void error(String format, Object... params) {
+            add("E", format, params);
+        }
+
+        @Override
+        public void debug(String format, Object... params) {
+            add("D", format, params);
+        }
+
+        @Override
+        public boolean isVerboseEnabled() {
+            return true;
+        }
+
+        private void add(String level, String format, Object... params) {
+            lines.add(level + ":" + String.format(format, params));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.fabric8.kit.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FingerprintsTest {
+
+    @Test
+    public void sha256Hex() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", Fingerprints.sha256Hex(""));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", Fingerprints.sha256Hex("abc"));
+    }
+
+    @Test
+    public void toHex() {
+        assertEquals("00ff10", Fingerprints.toHex(new byte[] { 0, (byte) 0xff, 0x10 }));
+    }
+}
@@ -0,0 +1,31 @@
+package io.fabric8.kit.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class KitLoggerTest {
+
+    @Test
+    public void stdoutLoggerFormatsOnlyEnabledMessages() {
+        KitLogger log = new KitLogger.StdoutLogger(false);
+        assertFalse(log.isDebugEnabled());
+        CountingParam param = new CountingParam();
+        log.debug("Value %s", param);
+        log.verbose("Value %s", param);
+        assertEquals(0, param.calls);
+        log.info("Value %s", param);
+        assertEquals(1, param.calls);
+    }
+
+    private static class CountingParam {
+        int calls;
+
+        @Override
+        public String toString() {
+            calls++;
+            return "param";
+        }
+    }
+}
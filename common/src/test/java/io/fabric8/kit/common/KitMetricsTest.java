@@ -0,0 +1,97 @@
+package io.fabric8.kit.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KitMetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void disable() {
+        KitMetrics.disable();
+    }
+
+    @Test
+    public void disabledByDefault() throws IOException {
+        KitMetrics metrics = KitMetrics.get();
+        assertFalse(metrics.isEnabled());
+        assertEquals(0L, metrics.startTime());
+        assertSame(metrics.counter("a"), metrics.timer("b", "key", "value"));
+        metrics.counter("a").increment();
+        metrics.export(folder.getRoot());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void jsonSummary() throws IOException {
+        KitMetrics metrics = KitMetrics.enable();
+        assertSame(metrics, KitMetrics.get());
+        metrics.counter("docker.api.errors", "operation", "pull").increment();
+        metrics.counter("docker.api.errors", "operation", "pull").increment(2);
+        metrics.timer("registry.pull", "registry", "docker.io").record(2_000_000L);
+        metrics.timer("registry.pull", "registry", "docker.io").record(4_000_000L);
+        metrics.histogram("build.context.size").record(100);
+
+        StringWriter out = new StringWriter();
+        metrics.writeJson(out);
+        JsonArray entries = JsonFactory.newJsonObject(out.toString()).getAsJsonArray("metrics");
+        assertEquals(3, entries.size());
+
+        JsonObject size = entries.get(0).getAsJsonObject();
+        assertEquals("build.context.size", size.get("name").getAsString());
+        assertEquals(100, size.get("max").getAsLong());
+
+        JsonObject errors = entries.get(1).getAsJsonObject();
+        assertEquals("counter", errors.get("type").getAsString());
+        assertEquals("pull", errors.getAsJsonObject("tags").get("operation").getAsString());
+        assertEquals(3, errors.get("count").getAsLong());
+
+        JsonObject pull = entries.get(2).getAsJsonObject();
+        assertEquals("timer", pull.get("type").getAsString());
+        assertEquals(2, pull.get("count").getAsLong());
+        assertEquals(3.0, pull.get("meanMs").getAsDouble(), 0.001);
+        assertEquals(4.0, pull.get("maxMs").getAsDouble(), 0.001);
+    }
+
+    @Test
+    public void openMetrics() throws IOException {
+        KitMetrics metrics = KitMetrics.enable();
+        metrics.counter("build.skipped").increment();
+        metrics.timer("docker.api.calls", "operation", "tag").record(3_000_000L);
+        metrics.export(folder.getRoot());
+
+        String text = new String(Files.readAllBytes(new File(folder.getRoot(), KitMetrics.OPEN_METRICS_FILE).toPath()),
+                                 StandardCharsets.UTF_8);
+        assertTrue(text.contains("# TYPE build_skipped counter\nbuild_skipped_total 1\n"));
+        assertTrue(text.contains("# TYPE docker_api_calls_seconds histogram\n"));
+        assertTrue(text.contains("docker_api_calls_seconds_bucket{operation=\"tag\",le=\"0.001\"} 0\n"));
+        assertTrue(text.contains("docker_api_calls_seconds_bucket{operation=\"tag\",le=\"0.005\"} 1\n"));
+        assertTrue(text.contains("docker_api_calls_seconds_bucket{operation=\"tag\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("docker_api_calls_seconds_count{operation=\"tag\"} 1\n"));
+        assertTrue(text.contains("docker_api_calls_seconds_sum{operation=\"tag\"} 0.003\n"));
+        assertTrue(text.endsWith("# EOF\n"));
+        assertTrue(new File(folder.getRoot(), KitMetrics.JSON_FILE).exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unpairedTags() {
+        KitMetrics.enable().counter("count", "key");
+    }
+}
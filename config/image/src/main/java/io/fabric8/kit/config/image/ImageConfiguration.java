@@ -41,7 +41,7 @@ public class ImageConfiguration implements Serializable {
 
 
     public String getDescription() {
-        return String.format("[%s] %s", new ImageName(name).getFullName(), (alias != null ? "\"" + alias + "\"" : "")).trim();
+        return String.format("[%s] %s", ImageName.of(name).getFullName(), (alias != null ? "\"" + alias + "\"" : "")).trim();
     }
 
     public String getRegistry() {
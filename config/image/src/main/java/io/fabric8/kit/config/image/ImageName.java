@@ -2,8 +2,9 @@ package io.fabric8.kit.config.image;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Helper class for parsing docker repository/image names:
@@ -11,6 +12,7 @@ import java.util.regex.Pattern;
  * <ul>
  *     <li>If the first part before the slash contains a "." or a ":" it is considered to be a registry URL</li>
  *     <li>A last part starting with a ":" is considered to be a tag</li>
+ *     <li>A part starting with a "@" is considered to be the digest of the image's manifest</li>
  *     <li>The rest is considered the repository name (which might be separated via slashes)</li>
  * </ul>
  *
@@ -21,24 +23,36 @@ import java.util.regex.Pattern;
  *     <li>consol/tomcat-8.0:8.0.9</li>
  *     <li>docker.consol.de:5000/tomcat-8.0</li>
  *     <li>docker.consol.de:5000/jolokia/tomcat-8.0:8.0.9</li>
+ *     <li>consol/tomcat-8.0@sha256:2d2f3b6c0a5ddf9a9b0d6c3d4f0f0a7e5b9d1d8a9b0c3e2f1a4b5c6d7e8f9a0b</li>
  * </ul>
  *
+ * Names are parsed in a single pass without regular expressions. Instances are immutable, so
+ * {@link #of(String)} hands out cached instances for names which are parsed repeatedly.
+ *
  * @author roland
  * @since 22.07.14
  */
 public class ImageName {
 
+    // Upper bound for the number of cached instances. The cache is simply cleared when full.
+    private static final int CACHE_SIZE = 1024;
+
+    private static final Map<CacheKey, ImageName> CACHE = new ConcurrentHashMap<>();
+
     // The repository part of the full image
-    private String repository;
+    private final String repository;
 
     // Registry
-    private String registry;
+    private final String registry;
 
     // Tag name
-    private String tag;
+    private final String tag;
+
+    // Digest of the manifest, e.g. "sha256:..."
+    private final String digest;
 
     // User name
-    private String user;
+    private final String user;
 
     /**
      * Create an image name
@@ -60,43 +74,93 @@ public class ImageName {
         if (fullName == null) {
             throw new NullPointerException("Image name must not be null");
         }
-        Pattern tagPattern = Pattern.compile("^(.+?)(?::([^:/]+))?$");
-        Matcher matcher = tagPattern.matcher(fullName);
-        if (!matcher.matches()) {
+        // A digest is everything after the '@'
+        int digestSep = fullName.indexOf('@');
+        String name = digestSep >= 0 ? fullName.substring(0, digestSep) : fullName;
+        digest = digestSep >= 0 ? fullName.substring(digestSep + 1) : null;
+        int len = name.length();
+
+        // A tag is the part after the last colon, if it doesn't contain a slash
+        int tagSep = name.lastIndexOf(':');
+        String parsedTag = null;
+        String rest = name;
+        if (tagSep > 0 && tagSep < len - 1 && name.indexOf('/', tagSep + 1) < 0) {
+            parsedTag = name.substring(tagSep + 1);
+            rest = name.substring(0, tagSep);
+        }
+        if (len == 0 || containsLineTerminator(rest)) {
             throw new IllegalArgumentException(fullName + " is not a proper image name ([registry/][repo][:port]");
         }
-        tag = givenTag != null ? givenTag : matcher.group(2);
-        String rest = matcher.group(1);
-
-        String[] parts = rest.split("\\s*/\\s*");
-        if (parts.length == 1) {
+        String tagToUse = givenTag != null ? givenTag : parsedTag;
+        // A reference pinned by digest has no implicit tag
+        tag = tagToUse != null || digest != null ? tagToUse : "latest";
+
+        // Slashes separate the parts, surrounding whitespace is ignored
+        int firstEnd = partEnd(rest, 0);
+        if (firstEnd == rest.length() || isTrailing(rest, firstEnd)) {
+            // Only a single part
             registry = null;
             user = null;
-            repository = parts[0];
-        } else if (parts.length >= 2) {
-            if (isRegistry(parts[0])) {
-                registry = parts[0];
-                if (parts.length > 2) {
-                    user = parts[1];
-                    repository = joinTail(parts);
+            repository = firstEnd == rest.length() ? rest : (firstEnd > 0 ? rest.substring(0, firstEnd) : null);
+        } else {
+            String first = rest.substring(0, firstEnd);
+            int secondStart = nextPartStart(rest, firstEnd);
+            if (isRegistry(first)) {
+                registry = first;
+                int secondEnd = partEnd(rest, secondStart);
+                String second = rest.substring(secondStart, secondEnd);
+                if (secondEnd < rest.length() && !isTrailing(rest, secondEnd)) {
+                    user = second;
+                    repository = joinTail(rest, secondStart);
                 } else {
                     user = null;
-                    repository = parts[1];
+                    repository = second;
                 }
             } else {
                 registry = null;
-                user = parts[0];
+                user = first;
                 repository = rest;
             }
         }
 
-        if (tag == null) {
-            tag = "latest";
-        }
-
         doValidate();
     }
 
+    /**
+     * Get an image name for the given full name. Instances are cached, so this method should be
+     * preferred when the same names are used over and over again.
+     *
+     * @param fullName The fullname of the image in Docker format.
+     * @return image name
+     */
+    public static ImageName of(String fullName) {
+        return of(fullName, null);
+    }
+
+    /**
+     * Get an image name for the given full name and tag, possibly a cached instance.
+     *
+     * @param fullName The fullname of the image in Docker format.
+     * @param givenTag tag to use. Can be null in which case the tag specified in fullName is used.
+     * @return image name
+     * @see #ImageName(String, String)
+     */
+    public static ImageName of(String fullName, String givenTag) {
+        if (fullName == null) {
+            throw new NullPointerException("Image name must not be null");
+        }
+        CacheKey key = new CacheKey(fullName, givenTag);
+        ImageName ret = CACHE.get(key);
+        if (ret == null) {
+            ret = new ImageName(fullName, givenTag);
+            if (CACHE.size() >= CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(key, ret);
+        }
+        return ret;
+    }
+
     public String getRepository() {
         return repository;
     }
@@ -105,27 +169,99 @@ public class ImageName {
         return registry;
     }
 
+    /**
+     * @return the tag, which is <code>latest</code> if no tag was given. Only for a reference with a digest
+     * and no explicit tag <code>null</code> is returned
+     */
     public String getTag() {
         return tag;
     }
 
+    /**
+     * @return digest of the image's manifest (e.g. <code>sha256:2d2f...</code>) or <code>null</code>
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    public boolean hasDigest() {
+        return digest != null;
+    }
+
     public boolean hasRegistry() {
         return registry != null && registry.length() > 0;
     }
 
-    private String joinTail(String[] parts) {
-        StringBuilder builder = new StringBuilder();
-        for (int i = 1;i < parts.length; i++) {
-            builder.append(parts[i]);
-            if (i < parts.length - 1) {
-                builder.append("/");
+    // ================================================================================================
+    // Splitting at slashes, with the same semantics as rest.split("\\s*/\\s*")
+
+    // End of the part starting at from, excluding whitespace before the next slash
+    private static int partEnd(String value, int from) {
+        int slash = value.indexOf('/', from);
+        if (slash < 0) {
+            return value.length();
+        }
+        int end = slash;
+        while (end > from && isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    // Start of the part following the separator which starts at partEnd
+    private static int nextPartStart(String value, int partEnd) {
+        int idx = value.indexOf('/', partEnd) + 1;
+        while (idx < value.length() && isWhitespace(value.charAt(idx))) {
+            idx++;
+        }
+        return idx;
+    }
+
+    // Whether only empty parts follow the separator starting at partEnd (which are dropped by split())
+    private static boolean isTrailing(String value, int partEnd) {
+        for (int i = partEnd; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '/' && !isWhitespace(c)) {
+                return false;
+            }
+        }
+        // Whitespace only separators as in "  /  " yield empty parts, too
+        return true;
+    }
+
+    // Join all non-trailing parts starting at from with a single slash
+    private static String joinTail(String value, int from) {
+        StringBuilder builder = new StringBuilder(value.length() - from);
+        int start = from;
+        while (true) {
+            int end = partEnd(value, start);
+            builder.append(value, start, end);
+            if (end == value.length() || isTrailing(value, end)) {
+                return builder.toString();
             }
+            builder.append('/');
+            start = nextPartStart(value, end);
         }
-        return builder.toString();
     }
 
-    private boolean isRegistry(String part) {
-        return part.contains(".") || part.contains(":");
+    private static boolean isRegistry(String part) {
+        return part.indexOf('.') >= 0 || part.indexOf(':') >= 0;
+    }
+
+    // Same as the \s character class
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Line terminators as excluded by "." in a regular expression
+    private static boolean containsLineTerminator(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -158,7 +294,7 @@ public class ImageName {
 
 
     /**
-     * Get the full name of this image, including the registry and tag
+     * Get the full name of this image, including the registry, tag and digest
      * (e.g. <code>privateregistry:fabric8io/java:7u53</code>)
      *
      * @return full name with the original registry and the original tag given (if any).
@@ -177,7 +313,11 @@ public class ImageName {
      * @return full name with original registry (if set) or optional registry (if not <code>null</code>).
      */
     public String getFullName(String optionalRegistry) {
-        return getNameWithoutTag(optionalRegistry) + ":" + tag;
+        String ret = getNameWithoutTag(optionalRegistry);
+        if (tag != null) {
+            ret += ":" + tag;
+        }
+        return digest != null ? ret + "@" + digest : ret;
     }
 
     /**
@@ -208,37 +348,40 @@ public class ImageName {
      */
     public static void validate(String image) {
         // Validation will be triggered during construction
-        new ImageName(image);
+        ImageName.of(image);
     }
 
     // Validate parts and throw an IllegalArgumentException if a part is not valid
     private void doValidate() {
-        List<String> errors = new ArrayList<>();
         // Stripp of user from repository name
         String image = user != null ? repository.substring(user.length() + 1) : repository;
-        Object[] checks = new Object[] {
-            "registry", DOMAIN_REGEXP, registry,
-            "image", IMAGE_NAME_REGEXP, image,
-            "user", NAME_COMP_REGEXP, user,
-            "tag", TAG_REGEXP, tag
-        };
-        for (int i = 0; i < checks.length; i +=3) {
-            String value = (String) checks[i + 2];
-            Pattern checkPattern = (Pattern) checks[i + 1];
-            if (value != null &&
-                !checkPattern.matcher(value).matches()) {
-                errors.add(String.format("%s part '%s' doesn't match allowed pattern '%s'",
-                                         checks[i], value, checkPattern.pattern()));
-            }
+        boolean registryValid = registry == null || isValidDomain(registry);
+        boolean imageValid = image == null || isValidImageName(image);
+        boolean userValid = user == null || isValidNameComponent(user, 0, user.length());
+        boolean tagValid = tag == null || isValidTag(tag);
+        boolean digestValid = digest == null || isValidDigest(digest);
+        if (registryValid && imageValid && userValid && tagValid && digestValid) {
+            return;
         }
-        if (errors.size() > 0) {
-            StringBuilder buf = new StringBuilder();
-            buf.append(String.format("Given Docker name '%s' is invalid:\n", getFullName()));
-            for (String error : errors) {
-                buf.append(String.format("   * %s\n", error));
-            }
-            buf.append("See http://bit.ly/docker_image_fmt for more details");
-            throw new IllegalArgumentException(buf.toString());
+
+        List<String> errors = new ArrayList<>();
+        addError(errors, registryValid, "registry", registry, DOMAIN_REGEXP);
+        addError(errors, imageValid, "image", image, IMAGE_NAME_REGEXP);
+        addError(errors, userValid, "user", user, NAME_COMP_REGEXP);
+        addError(errors, tagValid, "tag", tag, TAG_REGEXP);
+        addError(errors, digestValid, "digest", digest, DIGEST_REGEXP);
+        StringBuilder buf = new StringBuilder();
+        buf.append(String.format("Given Docker name '%s' is invalid:\n", getFullName()));
+        for (String error : errors) {
+            buf.append(String.format("   * %s\n", error));
+        }
+        buf.append("See http://bit.ly/docker_image_fmt for more details");
+        throw new IllegalArgumentException(buf.toString());
+    }
+
+    private void addError(List<String> errors, boolean valid, String part, String value, String pattern) {
+        if (!valid) {
+            errors.add(String.format("%s part '%s' doesn't match allowed pattern '%s'", part, value, pattern));
         }
     }
 
@@ -247,25 +390,221 @@ public class ImageName {
     // Validations patterns, taken directly from the docker source -->
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/regexp.go
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/reference.go
+    //
+    // The patterns are only used for error messages, the checks below implement them by hand.
 
     // ---------------------------------------------------------------------
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/regexp.go#L18
-    private final String nameComponentRegexp = "[a-z0-9]+(?:(?:(?:[._]|__|[-]*)[a-z0-9]+)+)?";
+    private static final String NAME_COMPONENT_REGEXP = "[a-z0-9]+(?:(?:(?:[._]|__|[-]*)[a-z0-9]+)+)?";
 
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/regexp.go#L25
-    private final String domainComponentRegexp = "(?:[a-zA-Z0-9]|[a-zA-Z0-9][a-zA-Z0-9-]*[a-zA-Z0-9])";
+    private static final String DOMAIN_COMPONENT_REGEXP = "(?:[a-zA-Z0-9]|[a-zA-Z0-9][a-zA-Z0-9-]*[a-zA-Z0-9])";
 
     // ==========================================================
 
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/regexp.go#L18
-    private final Pattern NAME_COMP_REGEXP = Pattern.compile(nameComponentRegexp);
+    private static final String NAME_COMP_REGEXP = NAME_COMPONENT_REGEXP;
 
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/regexp.go#L53
-    private final Pattern IMAGE_NAME_REGEXP = Pattern.compile(nameComponentRegexp + "(?:(?:/" + nameComponentRegexp + ")+)?");
+    private static final String IMAGE_NAME_REGEXP = NAME_COMPONENT_REGEXP + "(?:(?:/" + NAME_COMPONENT_REGEXP + ")+)?";
 
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/regexp.go#L31
-    private final Pattern DOMAIN_REGEXP = Pattern.compile("^" + domainComponentRegexp + "(?:\\." + domainComponentRegexp + ")*(?::[0-9]+)?$");
+    private static final String DOMAIN_REGEXP = "^" + DOMAIN_COMPONENT_REGEXP + "(?:\\." + DOMAIN_COMPONENT_REGEXP + ")*(?::[0-9]+)?$";
 
     // https://github.com/docker/docker/blob/04da4041757370fb6f85510c8977c5a18ddae380/vendor/github.com/docker/distribution/reference/regexp.go#L37
-    private final Pattern TAG_REGEXP = Pattern.compile("^[\\w][\\w.-]{0,127}$");
+    private static final String TAG_REGEXP = "^[\\w][\\w.-]{0,127}$";
+
+    // https://github.com/docker/distribution/blob/749f6afb4572201e3c37325d0ffedb6f32be8950/reference/regexp.go#L47
+    private static final String DIGEST_REGEXP = "^[A-Za-z][A-Za-z0-9]*(?:[-_+.][A-Za-z][A-Za-z0-9]*)*[:][0-9a-fA-F]{32,}$";
+
+    // NAME_COMP_REGEXP: Lower case alphanumerics separated by '.', '_', '__' or any number of '-'
+    private static boolean isValidNameComponent(String value, int start, int end) {
+        if (start >= end || !isLowerAlphaNumeric(value.charAt(start)) || !isLowerAlphaNumeric(value.charAt(end - 1))) {
+            return false;
+        }
+        int i = start;
+        while (i < end) {
+            char c = value.charAt(i);
+            if (isLowerAlphaNumeric(c)) {
+                i++;
+                continue;
+            }
+            int sepStart = i;
+            while (i < end && !isLowerAlphaNumeric(value.charAt(i))) {
+                i++;
+            }
+            if (!isValidNameSeparator(value, sepStart, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValidNameSeparator(String value, int start, int end) {
+        int len = end - start;
+        char first = value.charAt(start);
+        if (first == '.') {
+            return len == 1;
+        }
+        if (first == '_') {
+            return len == 1 || (len == 2 && value.charAt(start + 1) == '_');
+        }
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // IMAGE_NAME_REGEXP: Name components separated by single slashes
+    private static boolean isValidImageName(String value) {
+        int start = 0;
+        while (true) {
+            int slash = value.indexOf('/', start);
+            int end = slash < 0 ? value.length() : slash;
+            if (!isValidNameComponent(value, start, end)) {
+                return false;
+            }
+            if (slash < 0) {
+                return true;
+            }
+            start = slash + 1;
+        }
+    }
+
+    // DOMAIN_REGEXP: Dot separated host name components with an optional numeric port
+    private static boolean isValidDomain(String value) {
+        int colon = value.indexOf(':');
+        int hostEnd = colon < 0 ? value.length() : colon;
+        if (colon >= 0) {
+            if (colon == value.length() - 1) {
+                return false;
+            }
+            for (int i = colon + 1; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+        }
+        int start = 0;
+        while (true) {
+            int dot = value.indexOf('.', start);
+            int end = dot < 0 || dot > hostEnd ? hostEnd : dot;
+            if (!isValidDomainComponent(value, start, end)) {
+                return false;
+            }
+            if (end == hostEnd) {
+                return true;
+            }
+            start = end + 1;
+        }
+    }
+
+    private static boolean isValidDomainComponent(String value, int start, int end) {
+        if (start >= end || !isAlphaNumeric(value.charAt(start)) || !isAlphaNumeric(value.charAt(end - 1))) {
+            return false;
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            char c = value.charAt(i);
+            if (!isAlphaNumeric(c) && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // TAG_REGEXP: Word character followed by up to 127 word characters, dots or dashes
+    private static boolean isValidTag(String value) {
+        int len = value.length();
+        if (len == 0 || len > 128 || !isWordCharacter(value.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < len; i++) {
+            char c = value.charAt(i);
+            if (!isWordCharacter(c) && c != '.' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // DIGEST_REGEXP: Algorithm components separated by one of "-_+.", a colon and at least 32 hex digits
+    private static boolean isValidDigest(String value) {
+        int colon = value.indexOf(':');
+        if (colon <= 0 || value.length() - colon - 1 < 32) {
+            return false;
+        }
+        boolean componentStart = true;
+        for (int i = 0; i < colon; i++) {
+            char c = value.charAt(i);
+            if (componentStart) {
+                if (!isLetter(c)) {
+                    return false;
+                }
+                componentStart = false;
+            } else if (c == '-' || c == '_' || c == '+' || c == '.') {
+                componentStart = true;
+            } else if (!isAlphaNumeric(c)) {
+                return false;
+            }
+        }
+        if (componentStart) {
+            return false;
+        }
+        for (int i = colon + 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f') && !(c >= 'A' && c <= 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isLowerAlphaNumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isAlphaNumeric(char c) {
+        return isLowerAlphaNumeric(c) || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return isAlphaNumeric(c) || c == '_';
+    }
+
+    // ================================================================================================
+
+    // Key for the instance cache
+    private static final class CacheKey {
+        private final String fullName;
+        private final String givenTag;
+
+        private CacheKey(String fullName, String givenTag) {
+            this.fullName = fullName;
+            this.givenTag = givenTag;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return fullName.equals(that.fullName) && Objects.equals(givenTag, that.givenTag);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fullName.hashCode() + (givenTag != null ? givenTag.hashCode() : 0);
+        }
+    }
 }
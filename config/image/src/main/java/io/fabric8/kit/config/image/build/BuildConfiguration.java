@@ -3,9 +3,11 @@ package io.fabric8.kit.config.image.build;
 import java.io.File;
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -102,6 +104,32 @@ public class BuildConfiguration implements Serializable {
 
     private Map<String,String> buildOptions;
 
+    /**
+     * Intermediate stages added before the final image when generating a Dockerfile
+     */
+    private List<BuildStageConfiguration> stages;
+
+    /**
+     * Copies into the final image, e.g. from one of the <code>stages</code>
+     */
+    private List<CopyConfiguration> copies;
+
+    /**
+     * Stage at which to stop the build
+     */
+    private String target;
+
+    /**
+     * Images whose layers can be used as cache for the build
+     */
+    private List<String> cacheFrom;
+
+    /**
+     * Pull earlier versions of the image (its tags in its registry) before building and use them as cache,
+     * in addition to <code>cacheFrom</code>
+     */
+    private Boolean cacheSeed;
+
     public BuildConfiguration() {}
 
     public boolean isDockerFileMode() {
@@ -223,6 +251,26 @@ public class BuildConfiguration implements Serializable {
         return args;
     }
 
+    public List<BuildStageConfiguration> getStages() {
+        return stages != null ? stages : Collections.emptyList();
+    }
+
+    public List<CopyConfiguration> getCopies() {
+        return copies != null ? copies : Collections.emptyList();
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public List<String> getCacheFrom() {
+        return removeEmptyEntries(cacheFrom);
+    }
+
+    public Boolean getCacheSeed() {
+        return cacheSeed;
+    }
+
     // ===========================================================================================
     public static class Builder {
 
@@ -389,6 +437,31 @@ public class BuildConfiguration implements Serializable {
             return this;
         }
 
+        public Builder stages(List<BuildStageConfiguration> stages) {
+            config.stages = stages;
+            return this;
+        }
+
+        public Builder copies(List<CopyConfiguration> copies) {
+            config.copies = copies;
+            return this;
+        }
+
+        public Builder target(String target) {
+            config.target = target;
+            return this;
+        }
+
+        public Builder cacheFrom(List<String> cacheFrom) {
+            config.cacheFrom = cacheFrom;
+            return this;
+        }
+
+        public Builder cacheSeed(Boolean cacheSeed) {
+            config.cacheSeed = cacheSeed;
+            return this;
+        }
+
         public BuildConfiguration build() {
             return config;
         }
@@ -411,7 +484,12 @@ public class BuildConfiguration implements Serializable {
                                                "Only one of them can be specified.");
         }
 
-        if (healthCheck != null) {
+        validateStages();
+
+        if (!getStages().isEmpty() || target != null) {
+            // Multi-stage builds came with Docker 17.05
+            return "1.29";
+        } else if (healthCheck != null) {
             // HEALTHCHECK support added later
             return "1.24";
         } else if (args != null) {
@@ -448,6 +526,23 @@ public class BuildConfiguration implements Serializable {
 
     // ===============================================================================================================
 
+    private void validateStages() {
+        Set<String> names = new HashSet<>();
+        for (BuildStageConfiguration stage : getStages()) {
+            stage.validate();
+            if (!names.add(stage.getName())) {
+                throw new IllegalArgumentException("Build stage " + stage.getName() + " is defined more than once");
+            }
+        }
+        for (CopyConfiguration copy : getCopies()) {
+            copy.validate();
+        }
+        // In Dockerfile mode the stages are defined by the Dockerfile
+        if (target != null && !isDockerFileMode() && !names.contains(target)) {
+            throw new IllegalArgumentException("Target " + target + " is none of the configured build stages " + names);
+        }
+    }
+
     private List<String> removeEmptyEntries(List<String> list) {
         if (list == null) {
             return Collections.emptyList();
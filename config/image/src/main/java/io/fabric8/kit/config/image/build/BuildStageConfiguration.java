@@ -0,0 +1,125 @@
+package io.fabric8.kit.config.image.build;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * An intermediate, named stage of a generated multi-stage Dockerfile. The stages are added before the final
+ * image in the order given, and their results are picked up with a {@link CopyConfiguration} referring to the
+ * stage's name, so that build tools and intermediate files don't end up in the final image.
+ *
+ * @since 19.10.26
+ */
+public class BuildStageConfiguration implements Serializable {
+
+    // Stage names as accepted by Docker
+    private static final Pattern NAME_PATTERN = Pattern.compile("^[a-zA-Z][a-zA-Z0-9_.-]*$");
+
+    private String name;
+
+    private String from;
+
+    /**
+     * ARGs declared within this stage, with optional default values
+     */
+    private Map<String, String> args;
+
+    private Map<String, String> env;
+
+    private String workdir;
+
+    private List<CopyConfiguration> copies;
+
+    private List<String> runCmds;
+
+    public BuildStageConfiguration() {}
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public Map<String, String> getArgs() {
+        return args;
+    }
+
+    public Map<String, String> getEnv() {
+        return env;
+    }
+
+    public String getWorkdir() {
+        return workdir;
+    }
+
+    public List<CopyConfiguration> getCopies() {
+        return copies != null ? copies : Collections.emptyList();
+    }
+
+    public List<String> getRunCmds() {
+        return runCmds != null ? runCmds : Collections.emptyList();
+    }
+
+    public void validate() throws IllegalArgumentException {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid name '" + name + "' for build stage, it must match " + NAME_PATTERN.pattern());
+        }
+        if (from == null) {
+            throw new IllegalArgumentException("No <from> given for build stage " + name);
+        }
+        for (CopyConfiguration copy : getCopies()) {
+            copy.validate();
+        }
+    }
+
+    // ===========================================
+
+    public static class Builder {
+
+        private BuildStageConfiguration config = new BuildStageConfiguration();
+
+        public Builder name(String name) {
+            config.name = name;
+            return this;
+        }
+
+        public Builder from(String from) {
+            config.from = from;
+            return this;
+        }
+
+        public Builder args(Map<String, String> args) {
+            config.args = args;
+            return this;
+        }
+
+        public Builder env(Map<String, String> env) {
+            config.env = env;
+            return this;
+        }
+
+        public Builder workdir(String workdir) {
+            config.workdir = workdir;
+            return this;
+        }
+
+        public Builder copies(List<CopyConfiguration> copies) {
+            config.copies = copies;
+            return this;
+        }
+
+        public Builder runCmds(List<String> runCmds) {
+            config.runCmds = runCmds;
+            return this;
+        }
+
+        public BuildStageConfiguration build() {
+            return config;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.fabric8.kit.config.image.build;
+
+import java.io.Serializable;
+
+/**
+ * A <code>COPY</code> into a stage of a generated Dockerfile, either from the build context or, with
+ * <code>from</code>, from an earlier stage or another image.
+ *
+ * @since 19.10.26
+ */
+public class CopyConfiguration implements Serializable {
+
+    /**
+     * Name of the stage or image to copy from. The build context is used if not set.
+     */
+    private String from;
+
+    private String source;
+
+    private String destination;
+
+    public CopyConfiguration() {}
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void validate() throws IllegalArgumentException {
+        if (source == null || destination == null) {
+            throw new IllegalArgumentException("A <copy> requires both a <source> and a <destination>" +
+                                               (from != null ? " (copy from " + from + ")" : ""));
+        }
+    }
+
+    // ===========================================
+
+    public static class Builder {
+
+        private CopyConfiguration config = new CopyConfiguration();
+
+        public Builder from(String from) {
+            config.from = from;
+            return this;
+        }
+
+        public Builder source(String source) {
+            config.source = source;
+            return this;
+        }
+
+        public Builder destination(String destination) {
+            config.destination = destination;
+            return this;
+        }
+
+        public CopyConfiguration build() {
+            return config;
+        }
+    }
+}
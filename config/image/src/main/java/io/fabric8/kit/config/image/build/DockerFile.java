@@ -0,0 +1,387 @@
+package io.fabric8.kit.config.image.build;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Model of a Dockerfile which is read, interpolated and parsed only once. It handles parser directives,
+ * line continuations, comments, heredocs, <code>--flag</code> options, global <code>ARG</code>s before the first
+ * <code>FROM</code> and multi-stage builds with <code>FROM ... AS name</code>.
+ *
+ * Interpolation is done line by line on the raw file, before parsing. The interpolated content
+ * is available via {@link #getContent()}.
+ *
+ * @since 19.10.26
+ */
+public class DockerFile {
+
+    private static final Pattern DIRECTIVE_PATTERN = Pattern.compile("^#\\s*([a-zA-Z][a-zA-Z0-9]*)\\s*=\\s*(.+?)\\s*$");
+    private static final Pattern HEREDOC_PATTERN = Pattern.compile("<<(-?)([\"']?)([A-Za-z_][A-Za-z0-9_]*)\\2");
+    private static final Pattern ARG_REFERENCE_PATTERN = Pattern.compile("\\$(?:\\{(\\w+)}|(\\w+))");
+
+    private final File file;
+    private final String content;
+    private final Map<String, String> directives;
+    private final List<DockerFileInstruction> instructions;
+    private final List<DockerFileInstruction> globalArgs;
+    private final List<DockerFileStage> stages;
+
+    private DockerFile(File file, String content, Map<String, String> directives, List<DockerFileInstruction> instructions,
+                       List<DockerFileInstruction> globalArgs, List<DockerFileStage> stages) {
+        this.file = file;
+        this.content = content;
+        this.directives = Collections.unmodifiableMap(directives);
+        this.instructions = Collections.unmodifiableList(instructions);
+        this.globalArgs = Collections.unmodifiableList(globalArgs);
+        this.stages = Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * Read and parse a Dockerfile
+     *
+     * @param dockerFile file to parse
+     * @param interpolator interpolator applied to every line before parsing
+     * @return the parsed Dockerfile
+     * @throws IOException if the file can't be read
+     */
+    public static DockerFile parse(File dockerFile, Function<String, String> interpolator) throws IOException {
+        try (Reader reader = new FileReader(dockerFile)) {
+            return parse(dockerFile, reader, interpolator);
+        }
+    }
+
+    public static DockerFile parse(Reader reader, Function<String, String> interpolator) throws IOException {
+        return parse(null, reader, interpolator);
+    }
+
+    private static DockerFile parse(File file, Reader reader, Function<String, String> interpolator) throws IOException {
+        List<String> lines = interpolate(readLines(reader), interpolator);
+        return new Parser(file, lines, toContent(lines)).parse();
+    }
+
+    private static List<String> readLines(Reader reader) throws IOException {
+        List<String> ret = new ArrayList<>();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            ret.add(line);
+        }
+        return ret;
+    }
+
+    private static List<String> interpolate(List<String> rawLines, Function<String, String> interpolator) {
+        if (interpolator == null) {
+            return rawLines;
+        }
+        List<String> ret = new ArrayList<>(rawLines.size());
+        for (String line : rawLines) {
+            ret.add(interpolator.apply(line));
+        }
+        return ret;
+    }
+
+    private static String toContent(List<String> lines) {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append(System.lineSeparator());
+        }
+        return content.toString();
+    }
+
+    /**
+     * @return the file this model has been parsed from or <code>null</code> if parsed from a reader
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return interpolated content of the Dockerfile
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return parser directives like <code>syntax</code> or <code>escape</code>, keys in lower case
+     */
+    public Map<String, String> getDirectives() {
+        return directives;
+    }
+
+    public List<DockerFileInstruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Get all instructions for a given keyword (case insensitive) over all stages
+     *
+     * @param keyword keyword to lookup
+     * @return list of instructions, which is empty if the keyword is not used
+     */
+    public List<DockerFileInstruction> getInstructions(String keyword) {
+        List<DockerFileInstruction> ret = new ArrayList<>();
+        for (DockerFileInstruction instruction : instructions) {
+            if (instruction.is(keyword)) {
+                ret.add(instruction);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return <code>ARG</code> instructions before the first <code>FROM</code>
+     */
+    public List<DockerFileInstruction> getGlobalArgs() {
+        return globalArgs;
+    }
+
+    public List<DockerFileStage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Lookup a stage by its name or by its index
+     *
+     * @param nameOrIndex stage name as given with <code>AS</code> or the stage index as string
+     * @return the stage or <code>null</code> if there is no such stage
+     */
+    public DockerFileStage getStage(String nameOrIndex) {
+        for (DockerFileStage stage : stages) {
+            if (nameOrIndex.equalsIgnoreCase(stage.getName()) || nameOrIndex.equals(Integer.toString(stage.getIndex()))) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return base image of the first stage or <code>null</code> if there is no <code>FROM</code>
+     */
+    public String getBaseImage() {
+        return stages.isEmpty() ? null : stages.get(0).getBaseImage();
+    }
+
+    /**
+     * @return base images of all stages, in order and without duplicates, leaving out <code>scratch</code> and
+     * stages which are based on an earlier stage
+     */
+    public List<String> getExternalBaseImages() {
+        Set<String> ret = new LinkedHashSet<>();
+        Set<String> stageNames = new HashSet<>();
+        for (DockerFileStage stage : stages) {
+            String image = stage.getBaseImage();
+            if (image != null && !"scratch".equals(image) && !stageNames.contains(image.toLowerCase())) {
+                ret.add(image);
+            }
+            if (stage.getName() != null) {
+                stageNames.add(stage.getName().toLowerCase());
+            }
+        }
+        return new ArrayList<>(ret);
+    }
+
+    // ===============================================================================================
+
+    private static class Parser {
+
+        private final File file;
+        private final List<String> lines;
+        private final String content;
+
+        private final Map<String, String> directives = new LinkedHashMap<>();
+        private final List<DockerFileInstruction> instructions = new ArrayList<>();
+        private final List<DockerFileInstruction> globalArgs = new ArrayList<>();
+        private final List<DockerFileStage> stages = new ArrayList<>();
+        private final Map<String, String> globalArgDefaults = new LinkedHashMap<>();
+
+        private char escape = '\\';
+        private int idx;
+
+        private Parser(File file, List<String> lines, String content) {
+            this.file = file;
+            this.lines = lines;
+            this.content = content;
+        }
+
+        private DockerFile parse() {
+            parseDirectives();
+            while (idx < lines.size()) {
+                String trimmed = lines.get(idx).trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    idx++;
+                    continue;
+                }
+                parseInstruction();
+            }
+            return new DockerFile(file, content, directives, instructions, globalArgs, stages);
+        }
+
+        // Directives are only recognized at the very top of the file
+        private void parseDirectives() {
+            while (idx < lines.size()) {
+                Matcher matcher = DIRECTIVE_PATTERN.matcher(lines.get(idx));
+                if (!matcher.matches()) {
+                    return;
+                }
+                String key = matcher.group(1).toLowerCase();
+                String value = matcher.group(2);
+                directives.put(key, value);
+                if (key.equals("escape") && value.length() == 1) {
+                    escape = value.charAt(0);
+                }
+                idx++;
+            }
+        }
+
+        private void parseInstruction() {
+            int lineNumber = idx + 1;
+            String logical = readLogicalLine();
+
+            int keywordEnd = indexOfWhitespace(logical, 0);
+            String keyword = logical.substring(0, keywordEnd).toUpperCase();
+            String rest = logical.substring(keywordEnd).trim();
+
+            Map<String, String> flags = new LinkedHashMap<>();
+            while (rest.startsWith("--")) {
+                int flagEnd = indexOfWhitespace(rest, 0);
+                String flag = rest.substring(2, flagEnd);
+                int eq = flag.indexOf('=');
+                flags.put(eq >= 0 ? flag.substring(0, eq) : flag, eq >= 0 ? flag.substring(eq + 1) : "");
+                rest = rest.substring(flagEnd).trim();
+            }
+            List<String> arguments = new ArrayList<>();
+            if (!rest.isEmpty()) {
+                Collections.addAll(arguments, rest.split("\\s+"));
+            }
+            Map<String, String> heredocs = readHeredocs(keyword, rest);
+
+            int stageIndex = stages.size() - 1;
+            if (keyword.equals("FROM")) {
+                stageIndex = stages.size();
+                String image = arguments.isEmpty() ? null : substituteGlobalArgs(arguments.get(0));
+                String name = arguments.size() >= 3 && arguments.get(1).equalsIgnoreCase("AS") ? arguments.get(2) : null;
+                stages.add(new DockerFileStage(stageIndex, image, name));
+            }
+            DockerFileInstruction instruction =
+                new DockerFileInstruction(keyword, flags, rest, arguments, heredocs, lineNumber, stageIndex);
+            instructions.add(instruction);
+            if (stageIndex >= 0) {
+                stages.get(stageIndex).add(instruction);
+            } else if (keyword.equals("ARG")) {
+                globalArgs.add(instruction);
+                rememberGlobalArgDefaults(arguments);
+            }
+        }
+
+        // Join continuation lines. Comments and empty lines within a continuation are skipped.
+        private String readLogicalLine() {
+            StringBuilder ret = new StringBuilder();
+            while (idx < lines.size()) {
+                String line = lines.get(idx++);
+                if (ret.length() > 0) {
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        continue;
+                    }
+                }
+                String stripped = stripTrailingWhitespace(line);
+                if (!stripped.isEmpty() && stripped.charAt(stripped.length() - 1) == escape) {
+                    ret.append(stripped, 0, stripped.length() - 1);
+                } else {
+                    ret.append(line);
+                    break;
+                }
+            }
+            return ret.toString().trim();
+        }
+
+        private Map<String, String> readHeredocs(String keyword, String rest) {
+            Map<String, String> ret = new LinkedHashMap<>();
+            if (!(keyword.equals("RUN") || keyword.equals("COPY") || keyword.equals("ADD")) || !rest.contains("<<")) {
+                return ret;
+            }
+            Matcher matcher = HEREDOC_PATTERN.matcher(rest);
+            while (matcher.find()) {
+                boolean stripTabs = !matcher.group(1).isEmpty();
+                String delimiter = matcher.group(3);
+                StringBuilder body = new StringBuilder();
+                while (idx < lines.size()) {
+                    String line = lines.get(idx++);
+                    if (stripTabs) {
+                        line = line.replaceFirst("^\t+", "");
+                    }
+                    if (line.equals(delimiter)) {
+                        break;
+                    }
+                    body.append(line).append("\n");
+                }
+                ret.put(delimiter, body.toString());
+            }
+            return ret;
+        }
+
+        private void rememberGlobalArgDefaults(List<String> arguments) {
+            for (String arg : arguments) {
+                int eq = arg.indexOf('=');
+                if (eq > 0) {
+                    globalArgDefaults.put(arg.substring(0, eq), substituteGlobalArgs(unquote(arg.substring(eq + 1))));
+                }
+            }
+        }
+
+        private String substituteGlobalArgs(String value) {
+            if (globalArgDefaults.isEmpty() || value.indexOf('$') < 0) {
+                return value;
+            }
+            Matcher matcher = ARG_REFERENCE_PATTERN.matcher(value);
+            StringBuffer ret = new StringBuffer();
+            while (matcher.find()) {
+                String name = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+                String replacement = globalArgDefaults.get(name);
+                matcher.appendReplacement(ret, Matcher.quoteReplacement(replacement != null ? replacement : matcher.group()));
+            }
+            matcher.appendTail(ret);
+            return ret.toString();
+        }
+
+        private static String unquote(String value) {
+            if (value.length() >= 2 &&
+                (value.startsWith("\"") && value.endsWith("\"") || value.startsWith("'") && value.endsWith("'"))) {
+                return value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+
+        private static int indexOfWhitespace(String value, int from) {
+            for (int i = from; i < value.length(); i++) {
+                if (Character.isWhitespace(value.charAt(i))) {
+                    return i;
+                }
+            }
+            return value.length();
+        }
+
+        private static String stripTrailingWhitespace(String line) {
+            int end = line.length();
+            while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+    }
+}
@@ -76,6 +76,12 @@ public class DockerFileBuilder {
     // whether the Dockerfile should be optimised. i.e. compressing run statements into a single statement
     private boolean shouldOptimise = false;
 
+    // Intermediate stages, added before the final image
+    private List<BuildStageConfiguration> stages = new ArrayList<>();
+
+    // Copies into the final image, possibly from a stage
+    private List<CopyConfiguration> copies = new ArrayList<>();
+
     /**
      * Create a DockerFile in the given directory
      * @param  destDir directory where to store the dockerfile
@@ -99,6 +105,10 @@ public class DockerFileBuilder {
 
         StringBuilder b = new StringBuilder();
 
+        for (BuildStageConfiguration stage : stages) {
+            addStage(b, stage);
+        }
+
         DockerFileKeyword.FROM.addTo(b, baseImage != null ? baseImage : "busybox");
         if (maintainer != null) {
             DockerFileKeyword.MAINTAINER.addTo(b, maintainer);
@@ -110,6 +120,7 @@ public class DockerFileBuilder {
         addPorts(b);
 
         addCopy(b);
+        addCopies(b, copies);
         addWorkdir(b);
         addRun(b);
         addVolumes(b);
@@ -124,6 +135,46 @@ public class DockerFileBuilder {
         return b.toString();
     }
 
+    private void addStage(StringBuilder b, BuildStageConfiguration stage) {
+        DockerFileKeyword.FROM.addTo(b, stage.getFrom(), "AS", stage.getName());
+        if (stage.getArgs() != null) {
+            for (Map.Entry<String, String> arg : stage.getArgs().entrySet()) {
+                DockerFileKeyword.ARG.addTo(b, StringUtils.isEmpty(arg.getValue()) ?
+                    arg.getKey() :
+                    createKeyValue(arg.getKey(), arg.getValue()));
+            }
+        }
+        addMap(b, DockerFileKeyword.ENV, stage.getEnv());
+        if (stage.getWorkdir() != null) {
+            DockerFileKeyword.WORKDIR.addTo(b, stage.getWorkdir());
+        }
+        addCopies(b, stage.getCopies());
+
+        List<String> stageRunCmds = new ArrayList<>();
+        for (String run : stage.getRunCmds()) {
+            if (!StringUtils.isEmpty(run)) {
+                stageRunCmds.add(run);
+            }
+        }
+        if (shouldOptimise && stageRunCmds.size() > 1) {
+            DockerFileKeyword.RUN.addTo(b, StringUtils.join(stageRunCmds.iterator(), " && "));
+        } else {
+            for (String run : stageRunCmds) {
+                DockerFileKeyword.RUN.addTo(b, run);
+            }
+        }
+    }
+
+    private void addCopies(StringBuilder b, List<CopyConfiguration> copyConfigs) {
+        for (CopyConfiguration copy : copyConfigs) {
+            if (copy.getFrom() != null) {
+                DockerFileKeyword.COPY.addTo(b, "--from=" + copy.getFrom(), copy.getSource(), copy.getDestination());
+            } else {
+                DockerFileKeyword.COPY.addTo(b, copy.getSource(), copy.getDestination());
+            }
+        }
+    }
+
     private void addUser(StringBuilder b) {
         if (user != null) {
             DockerFileKeyword.USER.addTo(b, user);
@@ -449,6 +500,25 @@ public class DockerFileBuilder {
         return this;
     }
 
+    public DockerFileBuilder stages(List<BuildStageConfiguration> stages) {
+        if (stages != null) {
+            this.stages.addAll(stages);
+        }
+        return this;
+    }
+
+    /**
+     * Add copies into the final image, which are added after the assembly
+     * @param copies copies to add, possibly from one of the {@link #stages(List)}
+     * @return this builder
+     */
+    public DockerFileBuilder copies(List<CopyConfiguration> copies) {
+        if (copies != null) {
+            this.copies.addAll(copies);
+        }
+        return this;
+    }
+
     public DockerFileBuilder optimise() {
         this.shouldOptimise = true;
         return this;
@@ -482,6 +552,13 @@ public class DockerFileBuilder {
 
     // ===========================================================================
 
+    /**
+     * Extract all lines starting with the given keyword
+     *
+     * @deprecated Reads and interpolates the whole file for every call and doesn't handle continuations or
+     *             flags. Use {@link DockerFile} instead.
+     */
+    @Deprecated
     public static List<String[]> extractLines(File dockerFile,
                                               String keyword,
                                               Function<String, String> interpolator) throws IOException {
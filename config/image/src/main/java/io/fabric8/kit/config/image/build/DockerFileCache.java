@@ -0,0 +1,87 @@
+package io.fabric8.kit.config.image.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache for parsed {@link DockerFile}s. A file is read, interpolated and parsed once per interpolator, and again
+ * only when the file has been changed on disk. Interpolators must therefore be immutable, i.e. always give the
+ * same result for the same line, so that every consumer can use the same parsed and interpolated instance.
+ *
+ * @since 19.10.26
+ */
+public class DockerFileCache {
+
+    // Parsed models by canonical file and interpolator
+    private final Map<Key, Parsed> parsed = new ConcurrentHashMap<>();
+
+    /**
+     * Get a parsed Dockerfile, parsing it only if it hasn't been parsed with the given interpolator before
+     * or if it has been changed since
+     *
+     * @param dockerFile Dockerfile to parse
+     * @param interpolator immutable interpolator to apply to every line, identified by the instance
+     * @return the parsed Dockerfile
+     * @throws IOException if the file can't be read
+     */
+    public DockerFile get(File dockerFile, Function<String, String> interpolator) throws IOException {
+        File canonical = dockerFile.getCanonicalFile();
+        long lastModified = canonical.lastModified();
+        long length = canonical.length();
+        Key key = new Key(canonical, interpolator);
+        Parsed cached = parsed.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached.dockerFile;
+        }
+        DockerFile ret = DockerFile.parse(dockerFile, interpolator);
+        parsed.put(key, new Parsed(ret, lastModified, length));
+        return ret;
+    }
+
+    public void clear() {
+        parsed.clear();
+    }
+
+    private static final class Key {
+        private final File file;
+        private final Function<String, String> interpolator;
+
+        private Key(File file, Function<String, String> interpolator) {
+            this.file = file;
+            this.interpolator = interpolator;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            // Interpolators are compared by identity
+            return file.equals(key.file) && interpolator == key.interpolator;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + System.identityHashCode(interpolator);
+        }
+    }
+
+    private static final class Parsed {
+        private final DockerFile dockerFile;
+        private final long lastModified;
+        private final long length;
+
+        private Parsed(DockerFile dockerFile, long lastModified, long length) {
+            this.dockerFile = dockerFile;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
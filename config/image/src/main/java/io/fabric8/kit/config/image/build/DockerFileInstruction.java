@@ -0,0 +1,96 @@
+package io.fabric8.kit.config.image.build;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single instruction of a parsed {@link DockerFile}. Continuation lines are already joined,
+ * <code>--flag</code> options are separated from the arguments and heredoc bodies are attached.
+ *
+ * @since 19.10.26
+ */
+public class DockerFileInstruction {
+
+    private final String keyword;
+    private final Map<String, String> flags;
+    private final String argumentString;
+    private final List<String> arguments;
+    private final Map<String, String> heredocs;
+    private final int lineNumber;
+    private final int stageIndex;
+
+    DockerFileInstruction(String keyword, Map<String, String> flags, String argumentString, List<String> arguments,
+                          Map<String, String> heredocs, int lineNumber, int stageIndex) {
+        this.keyword = keyword;
+        this.flags = Collections.unmodifiableMap(flags);
+        this.argumentString = argumentString;
+        this.arguments = Collections.unmodifiableList(arguments);
+        this.heredocs = Collections.unmodifiableMap(heredocs);
+        this.lineNumber = lineNumber;
+        this.stageIndex = stageIndex;
+    }
+
+    /**
+     * @return keyword in upper case, e.g. "FROM"
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public boolean is(String keyword) {
+        return this.keyword.equalsIgnoreCase(keyword);
+    }
+
+    /**
+     * @return flags like <code>--chown=user</code> as map from name (without dashes) to value. Flags without
+     * a value have an empty string as value.
+     */
+    public Map<String, String> getFlags() {
+        return flags;
+    }
+
+    public String getFlag(String name) {
+        return flags.get(name);
+    }
+
+    /**
+     * @return all arguments after keyword and flags as single string, continuation lines joined
+     */
+    public String getArgumentString() {
+        return argumentString;
+    }
+
+    /**
+     * @return the arguments after keyword and flags, split on whitespace
+     */
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * @return bodies of heredocs used by this instruction, keyed by their delimiter word
+     */
+    public Map<String, String> getHeredocs() {
+        return heredocs;
+    }
+
+    /**
+     * @return line number (starting with 1) where this instruction starts
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return index of the stage this instruction belongs to or -1 for instructions before the first <code>FROM</code>
+     */
+    public int getStageIndex() {
+        return stageIndex;
+    }
+
+    @Override
+    public String toString() {
+        return keyword + (argumentString.isEmpty() ? "" : " " + argumentString);
+    }
+}
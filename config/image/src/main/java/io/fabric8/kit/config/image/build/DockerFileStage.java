@@ -0,0 +1,63 @@
+package io.fabric8.kit.config.image.build;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A build stage of a {@link DockerFile}, starting with a <code>FROM</code> instruction.
+ *
+ * @since 19.10.26
+ */
+public class DockerFileStage {
+
+    private final int index;
+    private final String baseImage;
+    private final String name;
+    private final List<DockerFileInstruction> instructions = new ArrayList<>();
+
+    DockerFileStage(int index, String baseImage, String name) {
+        this.index = index;
+        this.baseImage = baseImage;
+        this.name = name;
+    }
+
+    void add(DockerFileInstruction instruction) {
+        instructions.add(instruction);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return image given in <code>FROM</code> with default values of global <code>ARG</code>s substituted
+     */
+    public String getBaseImage() {
+        return baseImage;
+    }
+
+    /**
+     * @return name given with <code>FROM ... AS name</code> or <code>null</code>
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return all instructions of this stage, including the starting <code>FROM</code>
+     */
+    public List<DockerFileInstruction> getInstructions() {
+        return Collections.unmodifiableList(instructions);
+    }
+
+    public List<DockerFileInstruction> getInstructions(String keyword) {
+        List<DockerFileInstruction> ret = new ArrayList<>();
+        for (DockerFileInstruction instruction : instructions) {
+            if (instruction.is(keyword)) {
+                ret.add(instruction);
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,266 @@
+package io.fabric8.kit.config.image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the hand-written parser of {@link ImageName} against the former regular expression
+ * based implementation with randomly generated names.
+ */
+public class ImageNameCompatibilityTest {
+
+    // Long lower case runs are avoided, the former name component pattern backtracks exponentially on them
+    private static final String[] FRAGMENTS = {
+        "a", "b", "z", "0", "9", "A", "Z", "jo", "docker.io", "localhost:5000", "my-registry.com:443",
+        "f8", "java_8", "x__y", "a---b", "8.0.9", "la", "@", "%", "\u00e4",
+        ".", "..", "_", "__", "___", "-", "--", ":", "::", "/", "//", " ", " / ", "\t", "\n", "\r", "\u2028"
+    };
+
+    private static final String[] TAGS = {
+        null, null, null, "1.0", "latest", "_x", "-x", ".x", "A.b-c_d", "", " ", "a:b", "a/b", "\u00e4", "x\n"
+    };
+
+    @Test
+    public void randomNames() {
+        Random random = new Random(4711);
+        for (int i = 0; i < 30000; i++) {
+            String name = randomName(random);
+            String tag = TAGS[random.nextInt(TAGS.length)];
+            if (random.nextInt(20) == 0) {
+                tag = repeat('t', 120 + random.nextInt(16));
+            }
+            compare(name, tag);
+        }
+    }
+
+    @Test
+    public void structuredNames() {
+        String[] registries = { null, "docker.io", "localhost:5000", "a.b.c:1", "-bad.io", "bad-.io", "a..b", "host:", "host:x", "Host.IO" };
+        String[] users = { null, "jolokia", "a_b", "a__b", "a___b", "a.b", "a..b", "a-b", "a--b", "-a", "a-", "A" };
+        String[] repos = { "java", "java/jdk", "java//jdk", "java/", "ja va", "j.a_v-a", "J", "0" };
+        String[] tags = { null, "8", "8u51", "_", "-8", "8.0.9-alpine", "a/b" };
+        for (String registry : registries) {
+            for (String user : users) {
+                for (String repo : repos) {
+                    for (String tag : tags) {
+                        StringBuilder name = new StringBuilder();
+                        if (registry != null) {
+                            name.append(registry).append("/");
+                        }
+                        if (user != null) {
+                            name.append(user).append("/");
+                        }
+                        name.append(repo);
+                        if (tag != null) {
+                            name.append(":").append(tag);
+                        }
+                        compare(name.toString(), null);
+                        compare(name.toString(), "given");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void edgeCases() {
+        String[] names = {
+            "", ":", "a:", ":a", "::a", "/", "//", " / ", "a/", "a/ ", "a//", "/a", "a / b", "a/ /b", "reg.io/",
+            "reg.io//x", "reg.io/ x /y", "reg.io/a/b/c/d:1", "reg.io/a/b/", "a\n", "\na", "a:b\r", "a\u0085b",
+            "a:b/c", "a:b:c", "localhost:5000", "localhost:5000/a", "a b", "\t/\t"
+        };
+        for (String name : names) {
+            compare(name, null);
+            compare(name, "tag");
+        }
+    }
+
+    @Test
+    public void cached() {
+        ImageName first = ImageName.of("docker.io/fabric8/java:8");
+        assertSame(first, ImageName.of("docker.io/fabric8/java:8"));
+        assertEquals("docker.io/fabric8/java:9", ImageName.of("docker.io/fabric8/java:8", "9").getFullName());
+        assertEquals("8", ImageName.of("docker.io/fabric8/java:8").getTag());
+    }
+
+    private void compare(String name, String tag) {
+        Object expected;
+        try {
+            expected = describe(new LegacyImageName(name, tag));
+        } catch (RuntimeException exp) {
+            expected = exp.getClass().getName() + ": " + exp.getMessage();
+        }
+        if (name.contains("@")) {
+            // Digests weren't supported formerly, so only the parsing of names without a digest can be compared
+            return;
+        }
+        Object actual;
+        try {
+            actual = describe(new ImageName(name, tag));
+        } catch (RuntimeException exp) {
+            actual = exp.getClass().getName() + ": " + exp.getMessage();
+        }
+        assertNotNull(expected);
+        assertEquals("Name '" + name + "', tag '" + tag + "'", expected, actual);
+    }
+
+    private String describe(ImageName name) {
+        return describe(name.getRegistry(), name.getUser(), name.getRepository(), name.getTag(), name.getFullName());
+    }
+
+    private String describe(LegacyImageName name) {
+        return describe(name.registry, name.user, name.repository, name.tag, name.getFullName());
+    }
+
+    private String describe(String registry, String user, String repository, String tag, String fullName) {
+        return String.format("registry=%s, user=%s, repository=%s, tag=%s, full=%s", registry, user, repository, tag, fullName);
+    }
+
+    private String randomName(Random random) {
+        StringBuilder ret = new StringBuilder();
+        int parts = random.nextInt(8);
+        for (int i = 0; i < parts; i++) {
+            ret.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return maxLowerCaseRun(ret.toString()) > 8 ? "" : ret.toString();
+    }
+
+    private int maxLowerCaseRun(String value) {
+        int max = 0;
+        int run = 0;
+        for (char c : value.toCharArray()) {
+            run = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? run + 1 : 0;
+            max = Math.max(max, run);
+        }
+        return max;
+    }
+
+    private String repeat(char c, int count) {
+        StringBuilder ret = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ret.append(c);
+        }
+        return ret.toString();
+    }
+
+    // ================================================================================================
+
+    // Former, regular expression based implementation
+    private static class LegacyImageName {
+
+        private String repository;
+        private String registry;
+        private String tag;
+        private String user;
+
+        private LegacyImageName(String fullName, String givenTag) {
+            if (fullName == null) {
+                throw new NullPointerException("Image name must not be null");
+            }
+            Pattern tagPattern = Pattern.compile("^(.+?)(?::([^:/]+))?$");
+            Matcher matcher = tagPattern.matcher(fullName);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(fullName + " is not a proper image name ([registry/][repo][:port]");
+            }
+            tag = givenTag != null ? givenTag : matcher.group(2);
+            String rest = matcher.group(1);
+
+            String[] parts = rest.split("\\s*/\\s*");
+            if (parts.length == 1) {
+                registry = null;
+                user = null;
+                repository = parts[0];
+            } else if (parts.length >= 2) {
+                if (isRegistry(parts[0])) {
+                    registry = parts[0];
+                    if (parts.length > 2) {
+                        user = parts[1];
+                        repository = joinTail(parts);
+                    } else {
+                        user = null;
+                        repository = parts[1];
+                    }
+                } else {
+                    registry = null;
+                    user = parts[0];
+                    repository = rest;
+                }
+            }
+
+            if (tag == null) {
+                tag = "latest";
+            }
+
+            doValidate();
+        }
+
+        private String joinTail(String[] parts) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 1;i < parts.length; i++) {
+                builder.append(parts[i]);
+                if (i < parts.length - 1) {
+                    builder.append("/");
+                }
+            }
+            return builder.toString();
+        }
+
+        private boolean isRegistry(String part) {
+            return part.contains(".") || part.contains(":");
+        }
+
+        private String getFullName() {
+            StringBuilder ret = new StringBuilder();
+            if (registry != null) {
+                ret.append(registry).append("/");
+            }
+            ret.append(repository);
+            return ret.toString() + ":" + tag;
+        }
+
+        private void doValidate() {
+            List<String> errors = new ArrayList<>();
+            String image = user != null ? repository.substring(user.length() + 1) : repository;
+            Object[] checks = new Object[] {
+                "registry", DOMAIN_REGEXP, registry,
+                "image", IMAGE_NAME_REGEXP, image,
+                "user", NAME_COMP_REGEXP, user,
+                "tag", TAG_REGEXP, tag
+            };
+            for (int i = 0; i < checks.length; i +=3) {
+                String value = (String) checks[i + 2];
+                Pattern checkPattern = (Pattern) checks[i + 1];
+                if (value != null &&
+                    !checkPattern.matcher(value).matches()) {
+                    errors.add(String.format("%s part '%s' doesn't match allowed pattern '%s'",
+                                             checks[i], value, checkPattern.pattern()));
+                }
+            }
+            if (errors.size() > 0) {
+                StringBuilder buf = new StringBuilder();
+                buf.append(String.format("Given Docker name '%s' is invalid:\n", getFullName()));
+                for (String error : errors) {
+                    buf.append(String.format("   * %s\n", error));
+                }
+                buf.append("See http://bit.ly/docker_image_fmt for more details");
+                throw new IllegalArgumentException(buf.toString());
+            }
+        }
+
+        private final String nameComponentRegexp = "[a-z0-9]+(?:(?:(?:[._]|__|[-]*)[a-z0-9]+)+)?";
+        private final String domainComponentRegexp = "(?:[a-zA-Z0-9]|[a-zA-Z0-9][a-zA-Z0-9-]*[a-zA-Z0-9])";
+        private final Pattern NAME_COMP_REGEXP = Pattern.compile(nameComponentRegexp);
+        private final Pattern IMAGE_NAME_REGEXP = Pattern.compile(nameComponentRegexp + "(?:(?:/" + nameComponentRegexp + ")+)?");
+        private final Pattern DOMAIN_REGEXP = Pattern.compile("^" + domainComponentRegexp + "(?:\\." + domainComponentRegexp + ")*(?::[0-9]+)?$");
+        private final Pattern TAG_REGEXP = Pattern.compile("^[\\w][\\w.-]{0,127}$");
+    }
+}
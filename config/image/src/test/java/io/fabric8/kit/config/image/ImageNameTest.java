@@ -133,6 +133,39 @@ public class ImageNameTest {
         new ImageName("");
     }
 
+    @Test
+    public void digest() {
+        String digest = "sha256:2d2f3b6c0a5ddf9a9b0d6c3d4f0f0a7e5b9d1d8a9b0c3e2f1a4b5c6d7e8f9a0b";
+
+        ImageName name = new ImageName("docker.io/fabric8/java@" + digest);
+        assertEquals("docker.io", name.getRegistry());
+        assertEquals("fabric8/java", name.getRepository());
+        assertEquals(null, name.getTag());
+        assertEquals(digest, name.getDigest());
+        assertEquals("docker.io/fabric8/java@" + digest, name.getFullName());
+        assertEquals("docker.io/fabric8/java@" + digest, new ImageName("fabric8/java@" + digest).getFullName("docker.io"));
+
+        name = new ImageName("localhost:5000/java:8@" + digest);
+        assertEquals("localhost:5000", name.getRegistry());
+        assertEquals("8", name.getTag());
+        assertEquals("localhost:5000/java:8@" + digest, name.getFullName());
+
+        assertEquals(false, new ImageName("java:8").hasDigest());
+
+        String[] illegal = {
+            "java@sha256:abc", "java@sha256:" + digest.substring(7).replace('a', 'x'), "java@:" + digest.substring(7),
+            "java@-sha256:" + digest.substring(7), "java@sha256", "@" + digest
+        };
+        for (String i : illegal) {
+            try {
+                new ImageName(i);
+                fail(i + " should not be accepted");
+            } catch (IllegalArgumentException exp) {
+                // expected
+            }
+        }
+    }
+
     @Test
     public void namesUsedByDockerTests() {
         StringBuffer longTag = new StringBuffer();
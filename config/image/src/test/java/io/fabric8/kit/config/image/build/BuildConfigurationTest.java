@@ -17,6 +17,8 @@ package io.fabric8.kit.config.image.build;
  */
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 
 import io.fabric8.kit.common.KitLogger;
 import mockit.Mocked;
@@ -104,6 +106,37 @@ public class BuildConfigurationTest {
         assertEquals("this", config.getDockerArchive());
     }
 
+    @Test
+    public void stages() {
+        BuildStageConfiguration build = new BuildStageConfiguration.Builder().name("build").from("maven:3").build();
+        BuildConfiguration config =
+            new BuildConfiguration.Builder().
+                stages(Collections.singletonList(build)).
+                target("build").build();
+        assertEquals("1.29", config.validate());
+
+        assertInvalid(new BuildConfiguration.Builder().
+                          stages(Collections.singletonList(build)).
+                          target("test").build(), "test");
+        assertInvalid(new BuildConfiguration.Builder().
+                          stages(Arrays.asList(build, build)).build(), "more than once");
+        assertInvalid(new BuildConfiguration.Builder().
+                          stages(Collections.singletonList(new BuildStageConfiguration.Builder().name("1st").from("maven:3").build())).
+                          build(), "1st");
+
+        // Stages are defined in the Dockerfile itself
+        new BuildConfiguration.Builder().dockerFile("Dockerfile").target("test").build().validate();
+    }
+
+    private void assertInvalid(BuildConfiguration config, String messagePart) {
+        try {
+            config.validate();
+            fail("Should have failed.");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(messagePart));
+        }
+    }
+
     @Test
     public void compression() {
         BuildConfiguration config =
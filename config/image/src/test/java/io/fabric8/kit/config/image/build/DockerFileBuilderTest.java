@@ -155,6 +155,33 @@ public class DockerFileBuilderTest {
         assertEquals(expected, stripCR(dockerfileContent));
     }
 
+    @Test
+    public void testMultiStage() throws Exception {
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("MAVEN_OPTS", null);
+        args.put("SKIP_TESTS", "true");
+        BuildStageConfiguration stage =
+            new BuildStageConfiguration.Builder()
+                .name("build")
+                .from("maven:3-jdk-8")
+                .args(args)
+                .workdir("/src")
+                .copies(Collections.singletonList(new CopyConfiguration.Builder().source("maven").destination("/src").build()))
+                .runCmds(Arrays.asList("mvn -B package", "cp target/app.jar /app.jar"))
+                .build();
+        String dockerfileContent =
+            new DockerFileBuilder()
+                .baseImage("openjdk:8-jre-alpine")
+                .exportTargetDir(false)
+                .stages(Collections.singletonList(stage))
+                .copies(Collections.singletonList(
+                    new CopyConfiguration.Builder().from("build").source("/app.jar").destination("/deployments/app.jar").build()))
+                .cmd(Arguments.Builder.get().withParam("java").withParam("-jar").withParam("/deployments/app.jar").build())
+                .optimise()
+                .content();
+        assertEquals(loadFile("docker/Dockerfile_multistage.test"), stripCR(dockerfileContent));
+    }
+
     @Test
     public void testMaintainer() {
         String dockerfileContent = new DockerFileBuilder().maintainer("maintainer@example.com").content();
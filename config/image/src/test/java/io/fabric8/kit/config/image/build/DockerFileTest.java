@@ -0,0 +1,160 @@
+package io.fabric8.kit.config.image.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DockerFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void simple() throws IOException {
+        DockerFile dockerFile = parse("FROM busybox\n" +
+                                      "# A comment\n" +
+                                      "\n" +
+                                      "COPY maven /maven\n" +
+                                      "CMD [\"sh\"]\n");
+        assertEquals("busybox", dockerFile.getBaseImage());
+        assertEquals(3, dockerFile.getInstructions().size());
+        DockerFileInstruction copy = dockerFile.getInstructions("copy").get(0);
+        assertEquals("COPY", copy.getKeyword());
+        assertEquals("maven /maven", copy.getArgumentString());
+        assertEquals(4, copy.getLineNumber());
+        assertEquals(0, copy.getStageIndex());
+    }
+
+    @Test
+    public void continuationLines() throws IOException {
+        DockerFile dockerFile = parse("FROM busybox\n" +
+                                      "RUN echo one && \\\n" +
+                                      "# comment within a continuation\n" +
+                                      "    echo two && \\  \n" +
+                                      "    echo three\n" +
+                                      "USER nobody\n");
+        List<DockerFileInstruction> runs = dockerFile.getInstructions("RUN");
+        assertEquals(1, runs.size());
+        assertEquals("echo one &&     echo two &&     echo three", runs.get(0).getArgumentString());
+        assertEquals("nobody", dockerFile.getInstructions("USER").get(0).getArguments().get(0));
+    }
+
+    @Test
+    public void directivesAndEscape() throws IOException {
+        DockerFile dockerFile = parse("# syntax=docker/dockerfile:1\n" +
+                                      "# escape=`\n" +
+                                      "\n" +
+                                      "# not=a directive anymore\n" +
+                                      "FROM microsoft/nanoserver\n" +
+                                      "COPY testfile.txt c:\\ `\n" +
+                                      "     d:\\\n");
+        assertEquals("docker/dockerfile:1", dockerFile.getDirectives().get("syntax"));
+        assertEquals("`", dockerFile.getDirectives().get("escape"));
+        assertEquals(2, dockerFile.getDirectives().size());
+        DockerFileInstruction copy = dockerFile.getInstructions("COPY").get(0);
+        assertEquals(3, copy.getArguments().size());
+        assertEquals("d:\\", copy.getArguments().get(2));
+    }
+
+    @Test
+    public void multiStageWithGlobalArgsAndFlags() throws IOException {
+        DockerFile dockerFile = parse("ARG JDK_VERSION=8\n" +
+                                      "ARG BASE=\"openjdk:${JDK_VERSION}-jdk\"\n" +
+                                      "FROM --platform=linux/amd64 $BASE AS builder\n" +
+                                      "COPY --chown=1000:1000 maven /build\n" +
+                                      "RUN ./build.sh\n" +
+                                      "FROM gcr.io/distroless/java\n" +
+                                      "COPY --from=builder /build/app.jar /app.jar\n");
+        assertEquals(2, dockerFile.getGlobalArgs().size());
+        assertEquals(-1, dockerFile.getGlobalArgs().get(0).getStageIndex());
+
+        assertEquals(2, dockerFile.getStages().size());
+        DockerFileStage builder = dockerFile.getStage("builder");
+        assertEquals("openjdk:8-jdk", builder.getBaseImage());
+        assertEquals("builder", builder.getName());
+        assertEquals("linux/amd64", builder.getInstructions("FROM").get(0).getFlag("platform"));
+        assertEquals("1000:1000", builder.getInstructions("COPY").get(0).getFlag("chown"));
+        assertEquals("maven", builder.getInstructions("COPY").get(0).getArguments().get(0));
+
+        DockerFileStage runtime = dockerFile.getStage("1");
+        assertEquals("gcr.io/distroless/java", runtime.getBaseImage());
+        assertNull(runtime.getName());
+        assertEquals("builder", runtime.getInstructions("COPY").get(0).getFlag("from"));
+        assertEquals(builder.getBaseImage(), dockerFile.getBaseImage());
+    }
+
+    @Test
+    public void externalBaseImages() throws IOException {
+        DockerFile dockerFile = parse("FROM maven:3 AS Build\n" +
+                                      "FROM build AS test\n" +
+                                      "FROM scratch AS empty\n" +
+                                      "FROM maven:3\n" +
+                                      "FROM gcr.io/distroless/java\n");
+        assertEquals(Arrays.asList("maven:3", "gcr.io/distroless/java"), dockerFile.getExternalBaseImages());
+    }
+
+    @Test
+    public void heredocs() throws IOException {
+        DockerFile dockerFile = parse("FROM busybox\n" +
+                                      "RUN <<EOT bash\n" +
+                                      "  echo hello\n" +
+                                      "EOT\n" +
+                                      "COPY <<-\"EOF\" /etc/motd\n" +
+                                      "\t# no comment\n" +
+                                      "\tEOF\n" +
+                                      "USER nobody\n");
+        assertEquals("  echo hello\n", dockerFile.getInstructions("RUN").get(0).getHeredocs().get("EOT"));
+        assertEquals("# no comment\n", dockerFile.getInstructions("COPY").get(0).getHeredocs().get("EOF"));
+        assertEquals(4, dockerFile.getInstructions().size());
+    }
+
+    @Test
+    public void interpolation() throws IOException {
+        DockerFile dockerFile = DockerFile.parse(new StringReader("FROM ${base}\nCOPY ${name} /maven\n"),
+                                                 line -> line.replace("${base}", "busybox").replace("${name}", "maven"));
+        assertEquals("busybox", dockerFile.getBaseImage());
+        assertEquals("FROM busybox" + System.lineSeparator() + "COPY maven /maven" + System.lineSeparator(),
+                     dockerFile.getContent());
+    }
+
+    @Test
+    public void cache() throws IOException {
+        File file = folder.newFile("Dockerfile");
+        FileUtils.write(file, "FROM ${base}\n", "UTF-8");
+        Function<String, String> busybox = line -> line.replace("${base}", "busybox");
+        DockerFileCache cache = new DockerFileCache();
+
+        DockerFile first = cache.get(file, busybox);
+        assertEquals("busybox", first.getBaseImage());
+        assertSame(first, cache.get(file, busybox));
+
+        // Same file with another interpolator, e.g. from another module
+        Function<String, String> alpine = line -> line.replace("${base}", "alpine:3.8");
+        assertEquals("alpine:3.8", cache.get(file, alpine).getBaseImage());
+        assertSame(first, cache.get(file, busybox));
+
+        // Changed file
+        FileUtils.write(file, "FROM ${base}\nUSER nobody\n", "UTF-8");
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        DockerFile changed = cache.get(file, busybox);
+        assertEquals(1, changed.getInstructions("USER").size());
+        assertSame(changed, cache.get(file, busybox));
+    }
+
+    private DockerFile parse(String content) throws IOException {
+        return DockerFile.parse(new StringReader(content), null);
+    }
+}
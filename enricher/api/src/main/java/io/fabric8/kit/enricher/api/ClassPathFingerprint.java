@@ -0,0 +1,116 @@
+package io.fabric8.kit.enricher.api;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import io.fabric8.kit.common.Fingerprints;
+
+/**
+ * Fingerprint of a class path, which changes whenever an entry is added, removed or modified.
+ * Jar files are identified by their path, size and modification time. For directories, the given
+ * resources within the directory are taken into account, as the modification time of a directory
+ * doesn't reflect changes of nested files.
+ *
+ * @since 19.10.26
+ */
+public final class ClassPathFingerprint {
+
+    private ClassPathFingerprint() { }
+
+    /**
+     * Fingerprint over the given class path entries
+     *
+     * @param urls class path entries
+     * @param resources resources to check in directory entries
+     * @return hex encoded fingerprint
+     */
+    public static String forUrls(List<URL> urls, String... resources) {
+        StringBuilder ret = new StringBuilder(resourcesLine(resources));
+        for (URL url : urls) {
+            appendUrl(ret, url, resources);
+        }
+        return Fingerprints.sha256Hex(ret.toString());
+    }
+
+    /**
+     * Fingerprint over the class paths of the given loaders and their parents. Loaders which are
+     * neither {@link URLClassLoader}s nor the system class loader contribute only their type.
+     *
+     * @param classLoaders loaders to examine
+     * @param resources resources to check in directory entries
+     * @return hex encoded fingerprint
+     */
+    public static String forClassLoaders(List<ClassLoader> classLoaders, String... resources) {
+        StringBuilder ret = new StringBuilder(resourcesLine(resources));
+        for (ClassLoader loader : getLoaderChain(classLoaders)) {
+            ret.append("loader:").append(loader.getClass().getName()).append('\n');
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    appendUrl(ret, url, resources);
+                }
+            } else if (loader == ClassLoader.getSystemClassLoader()) {
+                for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                    if (entry.length() > 0) {
+                        appendFile(ret, new File(entry), resources);
+                    }
+                }
+            }
+        }
+        return Fingerprints.sha256Hex(ret.toString());
+    }
+
+    // ================================================================================================
+
+    // All loaders and their parents in lookup order, each only once
+    private static List<ClassLoader> getLoaderChain(List<ClassLoader> classLoaders) {
+        Set<ClassLoader> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<ClassLoader> ret = new ArrayList<>();
+        for (ClassLoader loader : classLoaders) {
+            while (loader != null && seen.add(loader)) {
+                ret.add(loader);
+                loader = loader.getParent();
+            }
+        }
+        return ret;
+    }
+
+    private static String resourcesLine(String[] resources) {
+        return "resources:" + String.join(",", resources) + "\n";
+    }
+
+    private static void appendUrl(StringBuilder ret, URL url, String[] resources) {
+        if ("file".equals(url.getProtocol())) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException | IllegalArgumentException exp) {
+                file = new File(url.getPath());
+            }
+            appendFile(ret, file, resources);
+        } else {
+            ret.append("url:").append(url.toExternalForm()).append('\n');
+        }
+    }
+
+    private static void appendFile(StringBuilder ret, File file, String[] resources) {
+        ret.append("file:").append(file.getAbsolutePath());
+        if (file.isDirectory()) {
+            for (String resource : resources) {
+                File nested = new File(file, resource);
+                if (nested.isFile()) {
+                    ret.append(';').append(resource).append(':').append(nested.length()).append(':').append(nested.lastModified());
+                }
+            }
+        } else {
+            ret.append(':').append(file.length()).append(':').append(file.lastModified());
+        }
+        ret.append('\n');
+    }
+}
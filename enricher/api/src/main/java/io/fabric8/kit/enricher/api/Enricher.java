@@ -17,6 +17,7 @@
 package io.fabric8.kit.enricher.api;
 
 import java.util.List;
+import java.util.Set;
 
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
@@ -69,4 +70,38 @@ public interface Enricher<P extends ProjectContext> {
      * @param builder the builder which holds the given objects
      */
     void enrich(Platform platform, EnricherContext<P> context, KubernetesListBuilder builder);
+
+    /**
+     * Resource kinds (like "Service" or "Deployment") this enricher looks at when converting, creating
+     * or enriching objects. Together with {@link #getWriteKinds()} this allows the {@link EnricherScheduler}
+     * to run enrichers concurrently which don't depend on each other. Such an enricher then only sees
+     * the objects of the kinds it reads or writes.
+     *
+     * @return kinds read or <code>null</code> if the enricher might read objects of any kind, which is the default
+     */
+    default Set<String> getReadKinds() {
+        return null;
+    }
+
+    /**
+     * Resource kinds this enricher modifies, adds or removes. Objects of other kinds must be left
+     * untouched.
+     *
+     * @return kinds written or <code>null</code> if the enricher might write objects of any kind, which is the default
+     */
+    default Set<String> getWriteKinds() {
+        return null;
+    }
+
+    /**
+     * Whether the objects created or the changes applied by this enricher depend on other objects than
+     * the object at hand, like an enricher which creates a service only if there is none yet. Enrichers without
+     * such dependencies are applied to each object on its own when enriching incrementally with an
+     * {@link EnrichmentCache}, so that they only need to run for changed objects.
+     *
+     * @return true if the enricher needs to see all objects, which is the default
+     */
+    default boolean hasGlobalDependencies() {
+        return true;
+    }
 }
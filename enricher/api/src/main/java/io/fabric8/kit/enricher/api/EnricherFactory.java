@@ -16,10 +16,13 @@
 
 package io.fabric8.kit.enricher.api;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -43,13 +46,36 @@ import java.util.regex.Pattern;
 
 final class EnricherFactory<P extends ProjectContext> {
 
+    private static final String INDEX_FINGERPRINT_PREFIX = "fingerprint=";
+
+    // Names of the discovered enricher classes by class path fingerprint, shared by all factories of this JVM
+    // so that factories with the same class path don't need to scan it again, even if they use new class loaders.
+    // Only names are kept, so that the class loaders of old builds can be collected, and only the most recently
+    // used discoveries.
+    private static final int MAX_CACHED_DISCOVERIES = 16;
+    private static final Map<String, List<String>> discoveryCache = Collections.synchronizedMap(
+        new LinkedHashMap<String, List<String>>(MAX_CACHED_DISCOVERIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > MAX_CACHED_DISCOVERIES;
+            }
+        });
+
     private List<ClassLoader> classLoaders = new ArrayList<>();
 
+    // Optional file to persist the discovered enricher classes to, might be null
+    private final File indexFile;
+
     EnricherFactory(ClassLoader... additionalClassLoaders) {
+        this(null, additionalClassLoaders);
+    }
+
+    EnricherFactory(File indexFile, ClassLoader... additionalClassLoaders) {
         Collections.addAll(classLoaders,
                            Thread.currentThread().getContextClassLoader(),
                            EnricherFactory.class.getClassLoader());
         Collections.addAll(classLoaders, additionalClassLoaders);
+        this.indexFile = indexFile;
     }
 
     /**
@@ -61,29 +87,130 @@ final class EnricherFactory<P extends ProjectContext> {
      * descriptors with a single path. Note, that the reading order for multiple
      * resources with the same name is not defined.
      *
+     * The discovered enricher classes are cached for the fingerprint of the classpath,
+     * and written to the index file if one is given. Each call returns new enricher instances.
+     *
      * @param descriptorPaths a list of resource paths which are handle in the given order.
      *        Normally, default service should be given as first parameter so that custom
      *        descriptors have a chance to remove a default service.
      * @return a ordered list of created services or an empty list.
      */
      List<Enricher<P>> createEnrichers(String... descriptorPaths) {
+        String fingerprint = ClassPathFingerprint.forClassLoaders(classLoaders, descriptorPaths);
+        List<Class<?>> classes = getCachedClasses(fingerprint);
+        if (classes == null) {
+            classes = readIndex(fingerprint);
+            if (classes == null) {
+                classes = discoverEnricherClasses(descriptorPaths);
+                writeIndex(fingerprint, classes);
+            }
+            cacheClasses(fingerprint, classes);
+        }
+        return createInstances(classes);
+    }
+
+    // Only for tests
+    static void clearCache() {
+        discoveryCache.clear();
+    }
+
+    // ===============================================================================================
+
+    // Classes discovered before for the same class path, resolved with the loaders of this factory.
+    // Null if there are none or if they can't be loaded anymore.
+    private List<Class<?>> getCachedClasses(String fingerprint) {
+        List<String> classNames = discoveryCache.get(fingerprint);
+        if (classNames == null) {
+            return null;
+        }
+        try {
+            List<Class<?>> ret = new ArrayList<>();
+            for (String className : classNames) {
+                ret.add(classForName(className, Enricher.class));
+            }
+            return Collections.unmodifiableList(ret);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private void cacheClasses(String fingerprint, List<Class<?>> classes) {
+        List<String> classNames = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            classNames.add(clazz.getName());
+        }
+        discoveryCache.put(fingerprint, Collections.unmodifiableList(classNames));
+    }
+
+    private List<Class<?>> discoverEnricherClasses(String... descriptorPaths) {
         try {
             EnricherEntry.initDefaultOrder();
-            TreeMap<EnricherEntry,Enricher<P>> enricherMap = new TreeMap<>();
+            TreeMap<EnricherEntry, Class<?>> enricherMap = new TreeMap<>();
             for (String descriptor : descriptorPaths) {
                 readEnricherDefinitions(enricherMap, descriptor);
             }
-            ArrayList<Enricher<P>> ret = new ArrayList<>();
-            ret.addAll(enricherMap.values());
-            return ret;
+            return Collections.unmodifiableList(new ArrayList<>(enricherMap.values()));
         } finally {
             EnricherEntry.removeDefaultOrder();
         }
     }
 
-    // ===============================================================================================
+    private List<Enricher<P>> createInstances(List<Class<?>> classes) {
+        List<Enricher<P>> ret = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            try {
+                ret.add((Enricher<P>) clazz.newInstance());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create enricher " + clazz.getName() + " : " + e + ". Aborting", e);
+            }
+        }
+        return ret;
+    }
+
+    // Enricher classes from the index file if it has been created for the given fingerprint, null otherwise
+    private List<Class<?>> readIndex(String fingerprint) {
+        if (indexFile == null || !indexFile.isFile()) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(INDEX_FINGERPRINT_PREFIX + fingerprint)) {
+                return null;
+            }
+            List<Class<?>> ret = new ArrayList<>();
+            for (String className : lines.subList(1, lines.size())) {
+                if (!COMMENT_LINE_PATTERN.matcher(className).matches()) {
+                    ret.add(classForName(className.trim(), Enricher.class));
+                }
+            }
+            return Collections.unmodifiableList(ret);
+        } catch (IOException | ClassNotFoundException e) {
+            // Outdated or unreadable index, discover again
+            return null;
+        }
+    }
+
+    private void writeIndex(String fingerprint, List<Class<?>> classes) {
+        if (indexFile == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(INDEX_FINGERPRINT_PREFIX + fingerprint);
+        for (Class<?> clazz : classes) {
+            lines.add(clazz.getName());
+        }
+        try {
+            File dir = indexFile.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + dir);
+            }
+            Files.write(indexFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write enricher index " + indexFile + ": " + e, e);
+        }
+    }
 
-    private void readEnricherDefinitions(Map<EnricherEntry, Enricher<P>> extractorMap, String defPath) {
+    private void readEnricherDefinitions(Map<EnricherEntry, Class<?>> extractorMap, String defPath) {
         try {
             Set<String> ret = new HashSet<>();
             for (ClassLoader cl : classLoaders) {
@@ -106,7 +233,7 @@ final class EnricherFactory<P extends ProjectContext> {
         return ret;
     }
 
-    private void readEnricherDefinitionFromUrl(Map<EnricherEntry, Enricher<P>> enricherMap, String url) {
+    private void readEnricherDefinitionFromUrl(Map<EnricherEntry, Class<?>> enricherMap, String url) {
         String line = null;
         try (LineNumberReader reader = new LineNumberReader(new InputStreamReader(new URL(url).openStream(), "UTF8"))) {
             line = reader.readLine();
@@ -123,7 +250,7 @@ final class EnricherFactory<P extends ProjectContext> {
     // Matches comment lines and empty lines. these are skipped
     private static Pattern COMMENT_LINE_PATTERN = Pattern.compile("^(\\s*#.*|\\s*)$");
 
-    private synchronized void createOrRemoveEnricher(Map<EnricherEntry, Enricher<P>> enricherMap, String line)
+    private synchronized void createOrRemoveEnricher(Map<EnricherEntry, Class<?>> enricherMap, String line)
         throws ReflectiveOperationException {
         if (line.length() > 0 && !COMMENT_LINE_PATTERN.matcher(line).matches()) {
             EnricherEntry entry = new EnricherEntry(line);
@@ -142,8 +269,7 @@ final class EnricherFactory<P extends ProjectContext> {
                 }
             } else {
                 Class<Enricher<P>> clazz = classForName(entry.getClassName(), Enricher.class);
-                Enricher<P> service = clazz.newInstance();
-                enricherMap.put(entry, service);
+                enricherMap.put(entry, clazz);
             }
         }
     }
@@ -1,11 +1,14 @@
 package io.fabric8.kit.enricher.api;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import io.fabric8.kit.common.KitLogger;
-import io.fabric8.kubernetes.api.builder.Function;
+import io.fabric8.kit.common.KitMetrics;
 import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 
 /**
@@ -14,53 +17,116 @@ import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
  */
 public class EnricherManager<P extends ProjectContext> {
 
-    private final List<Enricher<P>> enrichers;
-    private final P projectContext;
-    private final EnrichersConfig<P> enrichersConfig;
+    // Metric names
+    static final String METRIC_PROCESS = "enricher.process";
+    static final String METRIC_ENRICHER = "enricher.call";
+    static final String METRIC_ITEMS = "enricher.items";
+    static final String METRIC_REUSED = "enricher.calls.reused";
+    static final String METRIC_RECOMPUTED = "enricher.calls.recomputed";
+
+    private final EnricherPlan<P> plan;
     private final KitLogger log;
+    private final EnricherScheduler<P> scheduler;
+
+    public EnricherManager(P projectContext,
+                           EnrichersConfig<P> enrichersConfig,
+                           String[] enricherResources,
+                           ClassLoader... extraClassLoaders) {
+        this(projectContext, enrichersConfig, enricherResources, null, extraClassLoaders);
+    }
 
+    /**
+     * @param projectContext project context
+     * @param enrichersConfig configuration of the enrichers
+     * @param enricherResources descriptors to look up enrichers from
+     * @param indexFile file to persist discovered enrichers to, can be null
+     * @param extraClassLoaders additional class loaders to look up descriptors and enrichers
+     */
     public EnricherManager(P projectContext,
                            EnrichersConfig<P> enrichersConfig,
                            String[] enricherResources,
+                           File indexFile,
                            ClassLoader... extraClassLoaders) {
-        EnricherFactory<P> factory = new EnricherFactory<>(extraClassLoaders);
-        this.enrichers = factory.createEnrichers(enricherResources);
-        this.projectContext = projectContext;
-        this.enrichersConfig = enrichersConfig;
+        EnricherFactory<P> factory = new EnricherFactory<>(indexFile, extraClassLoaders);
+        this.plan = EnricherPlan.create(projectContext, enrichersConfig, factory.createEnrichers(enricherResources));
         this.log = projectContext.getLogger();
+        this.scheduler = new EnricherScheduler<>(Runtime.getRuntime().availableProcessors(), log);
     }
 
     public KubernetesListBuilder process(final Platform platform, List<HasMetadata> items) {
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
         final KubernetesListBuilder listBuilder = init(items, platform);
         create(platform, listBuilder);
         enrich(platform, listBuilder);
+        metrics.timer(METRIC_PROCESS, "platform", platform.name()).recordSince(start);
+        metrics.histogram(METRIC_ITEMS, "platform", platform.name()).record(items.size());
         return listBuilder;
     }
 
+    /**
+     * Process the given objects and write the result to the given sink, i.e. in one of its file layouts.
+     * This is not a streaming pipeline: the enrichers work on the complete list of objects in memory as with
+     * {@link #process(Platform, List)}, only the {@link KubernetesList} and the serialized document are not
+     * built as a whole.
+     *
+     * @param platform target platform
+     * @param items objects to process
+     * @param sink sink to write to, which is not closed by this method
+     * @throws IOException if writing to the sink fails
+     */
+    public void processAndWrite(final Platform platform, List<HasMetadata> items, ResourceSink sink) throws IOException {
+        for (HasMetadata item : process(platform, items).buildItems()) {
+            sink.write(item);
+        }
+    }
+
+    /**
+     * Process the given objects incrementally, only calling enrichers whose input changed since the
+     * last run with the given cache.
+     * The remaining enricher calls are done sequentially, not by the concurrent scheduler of a full run.
+     *
+     * @param platform target platform
+     * @param items objects to process
+     * @param cache cache holding the results of the previous run
+     * @return builder holding the created and enriched objects
+     */
+    public KubernetesListBuilder process(final Platform platform, List<HasMetadata> items, EnrichmentCache cache) {
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
+        final KubernetesListBuilder listBuilder = init(items, platform);
+        log.verbose("%s Enricher: Create and enrich changed resource objects", platform);
+        List<HasMetadata> enriched = cache.enrich(platform, plan, listBuilder.buildItems());
+        log.debug("%s Enricher: %d enricher calls reused, %d recomputed",
+                  platform, cache.getReusedCount(), cache.getRecomputedCount());
+        metrics.timer(METRIC_PROCESS, "platform", platform.name(), "incremental", "true").recordSince(start);
+        metrics.counter(METRIC_REUSED, "platform", platform.name()).increment(cache.getReusedCount());
+        metrics.counter(METRIC_RECOMPUTED, "platform", platform.name()).increment(cache.getRecomputedCount());
+        return new KubernetesListBuilder().withItems(enriched);
+    }
+
     // ==============================================================================================
 
     private void enrich(final Platform platform, final KubernetesListBuilder listBuilder) {
         log.verbose("%s Enricher: Enrich resource objects", platform);
-        loop(new Function<Enricher<P>, Void>() {
-            @Override
-            public Void apply(Enricher<P> enricher) {
-                EnricherContext<P> ctx = createEnricherContext(enricher);
-                enricher.enrich(platform, ctx, listBuilder);
-                return null;
-            }
-        });
+        scheduler.run(plan.getActiveEnrichers(), listBuilder,
+                      (enricher, builder) -> timed("enrich", platform, enricher,
+                                                   () -> enricher.enrich(platform, plan.getContext(enricher), builder)));
     }
 
     private void create(final Platform platform, final KubernetesListBuilder listBuilder) {
         log.verbose("%s Enricher: Create missing default resources", platform);
-        loop(new Function<Enricher<P>, Void>() {
-            @Override
-            public Void apply(Enricher<P> enricher) {
-                EnricherContext<P> ctx = createEnricherContext(enricher);
-                enricher.create(platform, ctx, listBuilder);
-                return null;
-            }
-        });
+        scheduler.run(plan.getActiveEnrichers(), listBuilder,
+                      (enricher, builder) -> timed("create", platform, enricher,
+                                                   () -> enricher.create(platform, plan.getContext(enricher), builder)));
+    }
+
+    private void timed(String phase, Platform platform, Enricher<P> enricher, Runnable call) {
+        KitMetrics metrics = KitMetrics.get();
+        long start = metrics.startTime();
+        call.run();
+        metrics.timer(METRIC_ENRICHER, "enricher", enricher.getName(), "phase", phase, "platform", platform.name())
+               .recordSince(start);
     }
 
     private KubernetesListBuilder init(List<HasMetadata> items, Platform platform) {
@@ -72,18 +138,8 @@ public class EnricherManager<P extends ProjectContext> {
 
     private List<HasMetadata> convertUnsupportedItems(Platform platform, List<HasMetadata> items) {
         List<HasMetadata> unsupported = new ArrayList<>(extractUnsupportedItems(platform, items));
-        List<HasMetadata> converted = new ArrayList<>();
-        for (Enricher<P> enricher : enrichers) {
-            List<HasMetadata> c = enricher.convert(platform, createEnricherContext(enricher), unsupported);
-            if (c != null) {
-                converted.addAll(c);
-            }
-        }
-        return converted;
-    }
-
-    private EnricherContext<P> createEnricherContext(Enricher<P> enricher) {
-        return enrichersConfig.createEnricherContext(projectContext, enricher.getName());
+        return scheduler.convert(plan.getEnrichers(), unsupported,
+                                 (enricher, toConvert) -> enricher.convert(platform, plan.getContext(enricher), toConvert));
     }
 
     private List<HasMetadata> extractSupportedItems(Platform platform, List<HasMetadata> items) {
@@ -105,10 +161,4 @@ public class EnricherManager<P extends ProjectContext> {
         }
         return ret;
     }
-
-    private void loop(Function<Enricher<P>, Void> function) {
-        for (Enricher<P> enricher : enrichersConfig.filterEnrichers(enrichers)) {
-            function.apply(enricher);
-        }
-    }
 }
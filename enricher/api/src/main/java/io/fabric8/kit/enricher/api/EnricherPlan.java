@@ -0,0 +1,74 @@
+package io.fabric8.kit.enricher.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable selection of the enrichers to run, computed once from the available enrichers and the
+ * enricher configuration. It holds the active enrichers in the order given by the includes
+ * and a context for each enricher, so that these don't need to be looked up or created again for each phase.
+ *
+ * @since 19.10.26
+ */
+public final class EnricherPlan<P extends ProjectContext> {
+
+    private final List<Enricher<P>> enrichers;
+    private final List<Enricher<P>> activeEnrichers;
+    private final Map<Enricher<P>, EnricherContext<P>> contexts;
+
+    private EnricherPlan(List<Enricher<P>> enrichers, List<Enricher<P>> activeEnrichers,
+                         Map<Enricher<P>, EnricherContext<P>> contexts) {
+        this.enrichers = enrichers;
+        this.activeEnrichers = activeEnrichers;
+        this.contexts = contexts;
+    }
+
+    /**
+     * Compile a plan
+     *
+     * @param projectContext project for which the enrichers run
+     * @param enrichersConfig configuration selecting and configuring the enrichers
+     * @param enrichers all available enrichers
+     * @return the plan
+     * @throws IllegalArgumentException if the configuration includes an enricher which doesn't exist
+     */
+    public static <P extends ProjectContext> EnricherPlan<P> create(P projectContext, EnrichersConfig<P> enrichersConfig,
+                                                                    List<Enricher<P>> enrichers) {
+        Map<Enricher<P>, EnricherContext<P>> contexts = new IdentityHashMap<>();
+        for (Enricher<P> enricher : enrichers) {
+            contexts.put(enricher, enrichersConfig.createEnricherContext(projectContext, enricher.getName()));
+        }
+        return new EnricherPlan<>(Collections.unmodifiableList(new ArrayList<>(enrichers)),
+                                  Collections.unmodifiableList(enrichersConfig.filterEnrichers(enrichers)),
+                                  Collections.unmodifiableMap(contexts));
+    }
+
+    /**
+     * @return all available enrichers, e.g. for converting objects
+     */
+    public List<Enricher<P>> getEnrichers() {
+        return enrichers;
+    }
+
+    /**
+     * @return enrichers selected by the configuration, in the order in which they are to be run
+     */
+    public List<Enricher<P>> getActiveEnrichers() {
+        return activeEnrichers;
+    }
+
+    /**
+     * @param enricher enricher for which to get the context
+     * @return context holding the configuration of the given enricher
+     */
+    public EnricherContext<P> getContext(Enricher<P> enricher) {
+        EnricherContext<P> ret = contexts.get(enricher);
+        if (ret == null) {
+            throw new IllegalArgumentException("Enricher " + enricher.getName() + " is not part of this plan");
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,293 @@
+package io.fabric8.kit.enricher.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import io.fabric8.kit.common.DaemonThreadFactory;
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+
+/**
+ * Runs enrichers in their configured order, but executes consecutive enrichers concurrently if they
+ * don't depend on each other according to their declared {@link Enricher#getReadKinds() read} and
+ * {@link Enricher#getWriteKinds() write} kinds. Two enrichers conflict if one of them writes a kind
+ * which the other one reads or writes. Enrichers without declared kinds conflict with every other enricher.
+ *
+ * Every enricher of a concurrent group works on its own copy of the objects of the kinds it declares.
+ * Afterwards the written objects are put back at the positions of the original objects with the same kind,
+ * namespace and name, and added objects are appended in enricher order, so that the result is the same as
+ * for a sequential run.
+ *
+ * @since 19.10.26
+ */
+public class EnricherScheduler<P extends ProjectContext> {
+
+    private final int parallelism;
+    private final KitLogger log;
+
+    /**
+     * @param parallelism maximum number of enrichers to run at the same time, 1 runs all enrichers sequentially
+     * @param log logger
+     */
+    public EnricherScheduler(int parallelism, KitLogger log) {
+        this.parallelism = Math.max(1, parallelism);
+        this.log = log;
+    }
+
+    /**
+     * Apply the given action (like creating or enriching) for every enricher to the given builder.
+     *
+     * @param enrichers enrichers in the order in which they would run sequentially
+     * @param listBuilder builder holding the objects, which is updated with the results
+     * @param action action to call for an enricher and the builder it should work on
+     */
+    public void run(List<Enricher<P>> enrichers, KubernetesListBuilder listBuilder,
+                    BiConsumer<Enricher<P>, KubernetesListBuilder> action) {
+        List<List<Enricher<P>>> groups = createGroups(enrichers);
+        ExecutorService executor = groups.size() < enrichers.size() ? createExecutor() : null;
+        try {
+            for (List<Enricher<P>> group : groups) {
+                if (group.size() == 1) {
+                    action.accept(group.get(0), listBuilder);
+                } else {
+                    runConcurrently(executor, group, listBuilder, action);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Convert the given objects with every enricher and collect the converted objects.
+     *
+     * @param enrichers enrichers in the order in which they would run sequentially
+     * @param items objects to convert
+     * @param converter conversion to call for an enricher and the objects it should examine
+     * @return converted objects in enricher order
+     */
+    public List<HasMetadata> convert(List<Enricher<P>> enrichers, List<HasMetadata> items,
+                                     BiFunction<Enricher<P>, List<HasMetadata>, List<HasMetadata>> converter) {
+        List<HasMetadata> ret = new ArrayList<>();
+        List<List<Enricher<P>>> groups = createGroups(enrichers);
+        ExecutorService executor = groups.size() < enrichers.size() ? createExecutor() : null;
+        try {
+            for (List<Enricher<P>> group : groups) {
+                if (group.size() == 1) {
+                    addConverted(ret, converter.apply(group.get(0), items));
+                    continue;
+                }
+                List<Future<List<HasMetadata>>> results = new ArrayList<>();
+                for (Enricher<P> enricher : group) {
+                    List<HasMetadata> view = filter(items, enricher);
+                    results.add(executor.submit(() -> converter.apply(enricher, view)));
+                }
+                for (Future<List<HasMetadata>> result : results) {
+                    addConverted(ret, await(result));
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        return ret;
+    }
+
+    // Consecutive enrichers which can run at the same time, every enricher is in exactly one group
+    List<List<Enricher<P>>> createGroups(List<Enricher<P>> enrichers) {
+        List<List<Enricher<P>>> groups = new ArrayList<>();
+        List<Enricher<P>> current = null;
+        for (Enricher<P> enricher : enrichers) {
+            if (current == null || current.size() >= parallelism || conflictsWithAny(enricher, current)) {
+                current = new ArrayList<>();
+                groups.add(current);
+            }
+            current.add(enricher);
+        }
+        return groups;
+    }
+
+    // ==========================================================================================
+
+    private void runConcurrently(ExecutorService executor, List<Enricher<P>> group, KubernetesListBuilder listBuilder,
+                                 BiConsumer<Enricher<P>, KubernetesListBuilder> action) {
+        log.debug("Running enrichers %s concurrently", getNames(group));
+        List<HasMetadata> items = listBuilder.buildItems();
+        List<Future<List<HasMetadata>>> results = new ArrayList<>();
+        for (Enricher<P> enricher : group) {
+            List<HasMetadata> view = filter(items, enricher);
+            results.add(executor.submit(() -> {
+                KubernetesListBuilder viewBuilder = new KubernetesListBuilder().withItems(view);
+                action.accept(enricher, viewBuilder);
+                return viewBuilder.buildItems();
+            }));
+        }
+
+        // The groups ensure that every kind has at most one writer
+        Map<Integer, HasMetadata> replaced = new HashMap<>();
+        Set<String> writtenKinds = new HashSet<>();
+        List<HasMetadata> added = new ArrayList<>();
+        for (int i = 0; i < group.size(); i++) {
+            Enricher<P> enricher = group.get(i);
+            added.addAll(collectWritten(enricher, items, await(results.get(i)), replaced));
+            writtenKinds.addAll(enricher.getWriteKinds());
+        }
+
+        List<HasMetadata> merged = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            HasMetadata item = items.get(i);
+            if (!writtenKinds.contains(item.getKind())) {
+                merged.add(item);
+            } else if (replaced.containsKey(i)) {
+                merged.add(replaced.get(i));
+            }
+        }
+        merged.addAll(added);
+        listBuilder.withItems(merged);
+    }
+
+    // Match the written objects of an enricher's result with the original objects by kind, namespace and name.
+    // Remaining objects are considered to be renamed and take the remaining positions in order, all others
+    // have been added and are returned.
+    private List<HasMetadata> collectWritten(Enricher<P> enricher, List<HasMetadata> items, List<HasMetadata> result,
+                                             Map<Integer, HasMetadata> replaced) {
+        Set<String> writeKinds = enricher.getWriteKinds();
+        Map<String, Deque<Integer>> positions = new HashMap<>();
+        int unwritten = 0;
+        for (int i = 0; i < items.size(); i++) {
+            HasMetadata item = items.get(i);
+            if (writeKinds.contains(item.getKind())) {
+                positions.computeIfAbsent(getKey(item), k -> new ArrayDeque<>()).add(i);
+            } else if (enricher.getReadKinds().contains(item.getKind())) {
+                unwritten++;
+            }
+        }
+
+        List<HasMetadata> unmatched = new ArrayList<>();
+        for (HasMetadata item : result) {
+            if (!writeKinds.contains(item.getKind())) {
+                unwritten--;
+                continue;
+            }
+            Deque<Integer> itemPositions = positions.get(getKey(item));
+            if (itemPositions != null && !itemPositions.isEmpty()) {
+                replaced.put(itemPositions.poll(), item);
+            } else {
+                unmatched.add(item);
+            }
+        }
+        if (unwritten != 0) {
+            throw new IllegalStateException(
+                String.format("Enricher %s added or removed objects of kinds other than %s which it declares to write",
+                              enricher.getName(), writeKinds));
+        }
+
+        Set<Integer> remaining = new TreeSet<>();
+        for (Deque<Integer> itemPositions : positions.values()) {
+            remaining.addAll(itemPositions);
+        }
+        Iterator<HasMetadata> it = unmatched.iterator();
+        for (Integer position : remaining) {
+            if (!it.hasNext()) {
+                break;
+            }
+            replaced.put(position, it.next());
+            it.remove();
+        }
+        return unmatched;
+    }
+
+    private String getKey(HasMetadata item) {
+        ObjectMeta metadata = item.getMetadata();
+        return item.getKind() + "/" +
+               (metadata != null ? metadata.getNamespace() + "/" + metadata.getName() : "");
+    }
+
+    private boolean conflictsWithAny(Enricher<P> enricher, List<Enricher<P>> group) {
+        for (Enricher<P> other : group) {
+            if (conflicts(enricher, other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean conflicts(Enricher<P> e1, Enricher<P> e2) {
+        if (!declaresKinds(e1) || !declaresKinds(e2)) {
+            return true;
+        }
+        return !Collections.disjoint(e1.getWriteKinds(), e2.getReadKinds()) ||
+               !Collections.disjoint(e1.getWriteKinds(), e2.getWriteKinds()) ||
+               !Collections.disjoint(e2.getWriteKinds(), e1.getReadKinds());
+    }
+
+    private boolean declaresKinds(Enricher<P> enricher) {
+        return enricher.getReadKinds() != null && enricher.getWriteKinds() != null;
+    }
+
+    private List<HasMetadata> filter(List<HasMetadata> items, Enricher<P> enricher) {
+        List<HasMetadata> ret = new ArrayList<>();
+        for (HasMetadata item : items) {
+            String kind = item.getKind();
+            if (enricher.getReadKinds().contains(kind) || enricher.getWriteKinds().contains(kind)) {
+                ret.add(item);
+            }
+        }
+        return ret;
+    }
+
+    private void addConverted(List<HasMetadata> ret, List<HasMetadata> converted) {
+        if (converted != null) {
+            ret.addAll(converted);
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for enrichers", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Enricher failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private List<String> getNames(List<Enricher<P>> enrichers) {
+        List<String> ret = new ArrayList<>();
+        for (Enricher<P> enricher : enrichers) {
+            ret.add(enricher.getName());
+        }
+        return ret;
+    }
+
+    private ExecutorService createExecutor() {
+        return Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("enricher"));
+    }
+}
@@ -69,11 +69,11 @@ public class EnrichersConfig<P extends ProjectContext> {
      * Return full configuration as raw string-string values
      *
      * @param name name of the enricher / generator
-     * @return unmodifiable map of the original config
+     * @return unmodifiable copy of the original config
      */
     public Map<String, String> getConfigMap(String name) {
         return config.containsKey(name) ?
-            Collections.unmodifiableMap(config.get(name)) :
+            Collections.unmodifiableMap(new TreeMap<>(config.get(name))) :
             Collections.<String, String>emptyMap();
     }
 
@@ -177,15 +177,8 @@ public class EnrichersConfig<P extends ProjectContext> {
     }
 
     // Remove duplicates such that the earlier element remains and the latter is removed
-    // Only good for small list (that's what we expect for enrichers and generators)
     private static List<String> removeDups(List<String> list) {
-        List<String> ret = new ArrayList<>();
-        for (String el : list) {
-            if (!ret.contains(el)) {
-                ret.add(el);
-            }
-        }
-        return ret;
+        return new ArrayList<>(new LinkedHashSet<>(list));
     }
 
     @SafeVarargs
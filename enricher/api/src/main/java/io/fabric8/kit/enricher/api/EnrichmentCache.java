@@ -0,0 +1,215 @@
+package io.fabric8.kit.enricher.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.fabric8.kit.common.Fingerprints;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+
+/**
+ * State for enriching the same resources repeatedly, e.g. in a watch or redeploy loop. For every enricher
+ * the output is remembered together with a fingerprint of its input objects and its configuration, so that
+ * the next run only needs to call the enrichers whose input has changed.
+ *
+ * Objects are always created with a single call per enricher over all objects, which is repeated as soon as
+ * any of the input objects changes. When enriching, enrichers without {@link Enricher#hasGlobalDependencies()
+ * global dependencies} are applied to each object on their own and their output is cached per object. All other
+ * enrichers always see all objects and are called again as soon as any of their input objects changes.
+ *
+ * Only the input objects are fingerprinted by their JSON representation. An object returned by an enricher
+ * keeps the fingerprint of the equal input object, and changed or added objects get a fingerprint derived from
+ * the enricher, its configuration and its input, so that objects are not serialized again after every enricher.
+ * The returned objects are copies, so that callers can't modify the cached ones.
+ *
+ * Enrichers are called one after the other. Unlike a full run of the {@link EnricherManager}, they are not run
+ * concurrently by an {@link EnricherScheduler}, as the calls left after a small change are typically few.
+ *
+ * Only the results of the last run are kept.
+ *
+ * @since 19.10.26
+ */
+public class EnrichmentCache {
+
+    private static final ObjectMapper MAPPER =
+        new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    // Cached output of every enricher call by platform, phase and enricher
+    private Map<String, Step> steps = new HashMap<>();
+
+    private int reused;
+    private int recomputed;
+
+    /**
+     * Create missing objects and enrich all objects with the active enrichers of the given plan
+     *
+     * @param platform target platform
+     * @param plan enrichers to apply
+     * @param items objects to enrich
+     * @return the created and enriched objects
+     */
+    public synchronized <P extends ProjectContext> List<HasMetadata> enrich(final Platform platform,
+                                                                            EnricherPlan<P> plan,
+                                                                            List<HasMetadata> items) {
+        Map<String, Step> nextSteps = new HashMap<>();
+        reused = 0;
+        recomputed = 0;
+        List<Entry> current = createInputEntries(items);
+        for (Enricher<P> enricher : plan.getActiveEnrichers()) {
+            final EnricherContext<P> context = plan.getContext(enricher);
+            // Creating objects is always done once for all objects, so that nothing is created twice
+            current = apply(nextSteps, platform + "/create/" + enricher.getName(), false, context.getConfig(), current,
+                            builder -> enricher.create(platform, context, builder));
+        }
+        for (Enricher<P> enricher : plan.getActiveEnrichers()) {
+            final EnricherContext<P> context = plan.getContext(enricher);
+            current = apply(nextSteps, platform + "/enrich/" + enricher.getName(), !enricher.hasGlobalDependencies(),
+                            context.getConfig(), current, builder -> enricher.enrich(platform, context, builder));
+        }
+        steps = nextSteps;
+        return new KubernetesListBuilder().withItems(getItems(current)).buildItems();
+    }
+
+    /**
+     * @return number of enricher calls in the last run which could be served from the cache
+     */
+    public synchronized int getReusedCount() {
+        return reused;
+    }
+
+    /**
+     * @return number of enricher calls in the last run which needed to be done
+     */
+    public synchronized int getRecomputedCount() {
+        return recomputed;
+    }
+
+    // ==========================================================================================
+
+    private List<Entry> apply(Map<String, Step> nextSteps, String stepKey, boolean perObject, Map<String, String> config,
+                              List<Entry> input, Consumer<KubernetesListBuilder> action) {
+        String configFingerprint = Fingerprints.sha256Hex(toJson(new TreeMap<>(config)));
+        Step previous = steps.get(stepKey);
+        if (previous != null && !previous.configFingerprint.equals(configFingerprint)) {
+            previous = null;
+        }
+        Step next = new Step(configFingerprint);
+        nextSteps.put(stepKey, next);
+        String stepFingerprint = stepKey + "/" + configFingerprint;
+
+        if (!perObject) {
+            StringBuilder inputFingerprints = new StringBuilder();
+            for (Entry entry : input) {
+                inputFingerprints.append(entry.fingerprint).append(',');
+            }
+            String key = Fingerprints.sha256Hex(inputFingerprints.toString());
+            return lookupOrRun(previous, next, stepFingerprint, key, input, action);
+        }
+
+        List<Entry> ret = new ArrayList<>();
+        for (Entry entry : input) {
+            ret.addAll(lookupOrRun(previous, next, stepFingerprint, entry.fingerprint, Collections.singletonList(entry), action));
+        }
+        return ret;
+    }
+
+    private List<Entry> lookupOrRun(Step previous, Step next, String stepFingerprint, String key, List<Entry> input,
+                                    Consumer<KubernetesListBuilder> action) {
+        List<Entry> ret = next.outputs.get(key);
+        if (ret == null && previous != null) {
+            ret = previous.outputs.get(key);
+        }
+        if (ret != null) {
+            reused++;
+        } else {
+            KubernetesListBuilder builder = new KubernetesListBuilder().withItems(getItems(input));
+            action.accept(builder);
+            ret = createOutputEntries(builder.buildItems(), input, stepFingerprint + "/" + key);
+            recomputed++;
+        }
+        next.outputs.put(key, ret);
+        return ret;
+    }
+
+    private List<Entry> createInputEntries(List<HasMetadata> items) {
+        List<Entry> ret = new ArrayList<>();
+        if (items != null) {
+            for (HasMetadata item : items) {
+                ret.add(new Entry(item, Fingerprints.sha256Hex(toJson(item))));
+            }
+        }
+        return ret;
+    }
+
+    // Objects which are equal to the input object with the same kind and name keep its fingerprint, the
+    // fingerprints of all others are derived from the call which created them
+    private List<Entry> createOutputEntries(List<HasMetadata> items, List<Entry> input, String callFingerprint) {
+        Map<String, Entry> inputByName = new HashMap<>();
+        for (Entry entry : input) {
+            inputByName.put(getName(entry.item), entry);
+        }
+        List<Entry> ret = new ArrayList<>();
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                HasMetadata item = items.get(i);
+                Entry inputEntry = inputByName.get(getName(item));
+                String fingerprint = inputEntry != null && inputEntry.item.equals(item) ?
+                    inputEntry.fingerprint :
+                    Fingerprints.sha256Hex(callFingerprint + "/" + i);
+                ret.add(new Entry(item, fingerprint));
+            }
+        }
+        return ret;
+    }
+
+    private static String getName(HasMetadata item) {
+        ObjectMeta metadata = item.getMetadata();
+        return item.getKind() + "/" + (metadata != null ? metadata.getNamespace() + "/" + metadata.getName() : "");
+    }
+
+    private List<HasMetadata> getItems(List<Entry> entries) {
+        List<HasMetadata> ret = new ArrayList<>();
+        for (Entry entry : entries) {
+            ret.add(entry.item);
+        }
+        return ret;
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + value + ": " + e, e);
+        }
+    }
+
+    // Object together with its fingerprint
+    private static final class Entry {
+        private final HasMetadata item;
+        private final String fingerprint;
+
+        private Entry(HasMetadata item, String fingerprint) {
+            this.item = item;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    // Output of an enricher by the fingerprint of its input
+    private static final class Step {
+        private final String configFingerprint;
+        private final Map<String, List<Entry>> outputs = new HashMap<>();
+
+        private Step(String configFingerprint) {
+            this.configFingerprint = configFingerprint;
+        }
+    }
+}
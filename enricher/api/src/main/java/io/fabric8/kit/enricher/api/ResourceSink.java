@@ -0,0 +1,276 @@
+package io.fabric8.kit.enricher.api;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+
+/**
+ * Writes resource objects one by one as YAML or JSON, without building the full resource list or
+ * document in memory. Depending on the {@link Layout}, all objects go into a single file holding a
+ * <code>List</code> resource, into one such file per kind, or into one file per object.
+ *
+ * The sink must be closed to complete the written files.
+ *
+ * @since 19.10.26
+ */
+public class ResourceSink implements Closeable {
+
+    /**
+     * Serialization format
+     */
+    public enum Format {
+        YAML("yml"),
+        JSON("json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * How to distribute the objects over files
+     */
+    public enum Layout {
+        // A single List resource in the given file
+        SINGLE_FILE,
+        // A List resource per kind, named like "deployment.yml", in the given directory
+        PER_KIND,
+        // A file per object, named like "myapp-deployment.yml", in the given directory or in a subdirectory
+        // named after the object's namespace if it has one
+        PER_ITEM
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final File target;
+    private final Format format;
+    private final Layout layout;
+    private final int bufferSize;
+    private final ObjectMapper mapper;
+
+    // Open files by name
+    private final Map<String, Output> outputs = new LinkedHashMap<>();
+
+    // Files written for single objects
+    private final Set<File> itemFiles = new HashSet<>();
+
+    private int count;
+    private boolean closed;
+
+    private ResourceSink(File target, Format format, Layout layout, int bufferSize) {
+        this.target = target;
+        this.format = format;
+        this.layout = layout;
+        this.bufferSize = bufferSize;
+        this.mapper = createMapper(format);
+    }
+
+    /**
+     * Write an object. Unless objects are written to a file of their own, they are appended
+     * to their file's list of objects. Objects written to a file of their own must have a name,
+     * which must be unique per kind and namespace.
+     *
+     * @param item object to write
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the object can't get a file of its own
+     */
+    public synchronized void write(HasMetadata item) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Resource sink for " + target + " is already closed");
+        }
+        if (layout == Layout.PER_ITEM) {
+            File file = getItemFile(item);
+            try (Output output = new Output(file, false)) {
+                mapper.writeValue(output.generator, item);
+            }
+        } else {
+            String name = layout == Layout.PER_KIND ? getFileName(item.getKind()) : null;
+            Output output = outputs.get(name);
+            if (output == null) {
+                output = new Output(name != null ? new File(target, name) : target, true);
+                outputs.put(name, output);
+            }
+            mapper.writeValue(output.generator, item);
+        }
+        count++;
+    }
+
+    /**
+     * @return number of objects written so far
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Complete and close all open files. An empty list is written for the single file layout if no
+     * object has been written at all.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (layout == Layout.SINGLE_FILE && outputs.isEmpty()) {
+            outputs.put(null, new Output(target, true));
+        }
+        IOException error = null;
+        for (Output output : outputs.values()) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                error = error == null ? e : error;
+            }
+        }
+        outputs.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // ==========================================================================================
+
+    private File getItemFile(HasMetadata item) {
+        ObjectMeta metadata = item.getMetadata();
+        if (metadata == null || metadata.getName() == null) {
+            throw new IllegalArgumentException("Cannot write " + item.getKind() + " without a name to a file of its own");
+        }
+        File dir = metadata.getNamespace() != null ? new File(target, getPathSegment(metadata.getNamespace())) : target;
+        File ret = new File(dir, getFileName(metadata.getName() + "-" + item.getKind()));
+        if (!itemFiles.add(ret)) {
+            throw new IllegalArgumentException("Cannot write " + item.getKind() + " " + metadata.getName() +
+                                               " as " + ret + " has already been written for another object");
+        }
+        return ret;
+    }
+
+    private String getFileName(String name) {
+        return getPathSegment(name) + "." + format.getExtension();
+    }
+
+    private static String getPathSegment(String name) {
+        return name.toLowerCase(Locale.ENGLISH).replaceAll("[^a-z0-9_.-]", "_");
+    }
+
+    private static ObjectMapper createMapper(Format format) {
+        JsonFactory factory = format == Format.YAML ?
+            new YAMLFactory().disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER) :
+            new JsonFactory();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        // Flushing is left to the buffered stream, not done after every single object
+        mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        if (format == Format.JSON) {
+            mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        }
+        return mapper;
+    }
+
+    // A file being written, optionally wrapping the objects into a List resource
+    private final class Output implements Closeable {
+
+        private final OutputStream out;
+        private final JsonGenerator generator;
+        private final boolean list;
+
+        private Output(File file, boolean list) throws IOException {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + dir);
+            }
+            this.out = new BufferedOutputStream(new FileOutputStream(file), bufferSize);
+            this.generator = mapper.getFactory().createGenerator(out);
+            if (format == Format.JSON) {
+                generator.useDefaultPrettyPrinter();
+            }
+            this.list = list;
+            if (list) {
+                generator.writeStartObject();
+                generator.writeStringField("apiVersion", "v1");
+                generator.writeStringField("kind", "List");
+                generator.writeArrayFieldStart("items");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (list) {
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+                generator.close();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Builder for a sink
+     */
+    public static class Builder {
+
+        private File target;
+        private Format format = Format.YAML;
+        private Layout layout = Layout.SINGLE_FILE;
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+        /**
+         * @param target file for the single file layout, directory otherwise
+         * @return this builder
+         */
+        public Builder target(File target) {
+            this.target = target;
+            return this;
+        }
+
+        public Builder format(Format format) {
+            this.format = format;
+            return this;
+        }
+
+        public Builder layout(Layout layout) {
+            this.layout = layout;
+            return this;
+        }
+
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public ResourceSink build() {
+            if (target == null) {
+                throw new IllegalArgumentException("No target given for writing resources");
+            }
+            return new ResourceSink(target, format, layout, bufferSize);
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package io.fabric8.kit.enricher.api;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.*;
 
@@ -15,6 +22,9 @@ import static org.junit.Assert.*;
  * @since 30.05.17
  */
 public class EnricherFactoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private EnricherFactory<ProjectContext> enricherFactory;
 
     @Before
@@ -44,6 +54,41 @@ public class EnricherFactoryTest {
         }
     }
 
+    @Test
+    public void cachedDiscovery() {
+        List<Enricher<ProjectContext>> first = enricherFactory.createEnrichers("enricher/test-enrichers-default", "enricher/test-enrichers");
+        List<Enricher<ProjectContext>> second = enricherFactory.createEnrichers("enricher/test-enrichers-default", "enricher/test-enrichers");
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i).getClass(), second.get(i).getClass());
+            assertNotSame(first.get(i), second.get(i));
+        }
+    }
+
+    @Test
+    public void indexFile() throws IOException {
+        File index = new File(folder.getRoot(), "fabric8/enricher-index");
+        EnricherFactory<ProjectContext> factory = new EnricherFactory<>(index);
+        EnricherFactory.clearCache();
+        assertEquals(4, factory.createEnrichers("enricher/test-enrichers-default", "enricher/test-enrichers").size());
+        List<String> lines = Files.readAllLines(index.toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("fingerprint="));
+        assertEquals(Test3.class.getName(), lines.get(1));
+
+        // Index is used as long as the fingerprint matches
+        Files.write(index.toPath(), Arrays.asList(lines.get(0), Test2.class.getName()), StandardCharsets.UTF_8);
+        EnricherFactory.clearCache();
+        List<Enricher<ProjectContext>> enrichers = factory.createEnrichers("enricher/test-enrichers-default", "enricher/test-enrichers");
+        assertEquals(1, enrichers.size());
+        assertEquals("two", enrichers.get(0).getName());
+
+        // and ignored for a different classpath
+        EnricherFactory.clearCache();
+        assertEquals(1, factory.createEnrichers("enricher/test-enrichers").size());
+        assertNotEquals(lines.get(0), Files.readAllLines(index.toPath(), StandardCharsets.UTF_8).get(0));
+    }
+
     public static class Test1 extends TestEnricher { public Test1() { super("one"); }}
     public static class Test2 extends TestEnricher { public Test2() { super("two"); }}
     public static class Test3 extends TestEnricher { public Test3() { super("three"); }}
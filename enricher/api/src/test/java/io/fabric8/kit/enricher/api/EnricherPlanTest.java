@@ -0,0 +1,58 @@
+package io.fabric8.kit.enricher.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EnricherPlanTest {
+
+    private final List<Enricher<ProjectContext>> enrichers = Arrays.<Enricher<ProjectContext>>asList(
+        new EnricherFactoryTest.Test1(), new EnricherFactoryTest.Test2(), new EnricherFactoryTest.Test3());
+
+    @Test
+    public void activeEnrichersAndContexts() {
+        Map<String, TreeMap<String, String>> config = new HashMap<>();
+        config.put("two", new TreeMap<>(Collections.singletonMap("key", "value")));
+        EnrichersConfig<ProjectContext> enrichersConfig =
+            EnrichersConfig.mergeEnricherConfigs(
+                new EnrichersConfig<ProjectContext>(Arrays.asList("three", "two", "one"), Collections.singleton("one"), config),
+                new EnrichersConfig<ProjectContext>(Arrays.asList("two", "three"), null, null));
+
+        EnricherPlan<ProjectContext> plan = EnricherPlan.create(null, enrichersConfig, enrichers);
+        assertEquals(2, plan.getActiveEnrichers().size());
+        assertSame(enrichers.get(2), plan.getActiveEnrichers().get(0));
+        assertSame(enrichers.get(1), plan.getActiveEnrichers().get(1));
+        assertEquals(3, plan.getEnrichers().size());
+
+        EnricherContext<ProjectContext> context = plan.getContext(enrichers.get(1));
+        assertSame(context, plan.getContext(enrichers.get(1)));
+        assertEquals("value", context.getConfig().get("key"));
+        assertTrue(plan.getContext(enrichers.get(0)).getConfig().isEmpty());
+
+        // Config is frozen when the plan is created
+        config.get("two").put("key", "changed");
+        assertEquals("value", context.getConfig().get("key"));
+    }
+
+    @Test
+    public void unknownInclude() {
+        EnrichersConfig<ProjectContext> enrichersConfig =
+            new EnrichersConfig<>(Arrays.asList("one", "unknown"), null, null);
+        try {
+            EnricherPlan.create(null, enrichersConfig, enrichers);
+            fail();
+        } catch (IllegalArgumentException exp) {
+            assertTrue(exp.getMessage().contains("unknown"));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package io.fabric8.kit.enricher.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EnricherSchedulerTest {
+
+    private final KitLogger log = new KitLogger.StdoutLogger();
+
+    @Test
+    public void groups() {
+        List<Enricher<ProjectContext>> enrichers = createEnrichers();
+        List<List<Enricher<ProjectContext>>> groups = new EnricherScheduler<ProjectContext>(4, log).createGroups(enrichers);
+        assertEquals("[[services, configmaps], [pods], [undeclared], [pods2, services2]]", groupNames(groups));
+
+        groups = new EnricherScheduler<ProjectContext>(1, log).createGroups(enrichers);
+        assertEquals("[[services], [configmaps], [pods], [undeclared], [pods2], [services2]]", groupNames(groups));
+    }
+
+    @Test
+    public void sameResultAsSequential() {
+        List<Enricher<ProjectContext>> enrichers = createEnrichers();
+        KubernetesListBuilder sequential = new KubernetesListBuilder().withItems(createItems());
+        KubernetesListBuilder concurrent = new KubernetesListBuilder().withItems(createItems());
+
+        run(new EnricherScheduler<ProjectContext>(1, log), enrichers, sequential);
+        run(new EnricherScheduler<ProjectContext>(4, log), enrichers, concurrent);
+
+        List<HasMetadata> expected = sequential.buildItems();
+        assertEquals(expected, concurrent.buildItems());
+        assertEquals("[ConfigMap/cm1, Service/svc1, Pod/pod1, Service/svc2, ConfigMap/cm2, Service/extra]", itemNames(expected));
+        assertEquals("configmaps", expected.get(0).getMetadata().getLabels().get("enriched"));
+        assertEquals("services", expected.get(1).getMetadata().getLabels().get("enriched"));
+        assertEquals("3", expected.get(2).getMetadata().getLabels().get("services"));
+        assertEquals("pods2", expected.get(2).getMetadata().getLabels().get("enriched"));
+    }
+
+    @Test
+    public void runsConcurrently() {
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Enricher<ProjectContext>> enrichers = new ArrayList<>();
+        for (String kind : new String[] { "Service", "ConfigMap" }) {
+            enrichers.add(new TestEnricher(kind, kinds(kind), kinds(kind)) {
+                @Override
+                public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+                    latch.countDown();
+                    try {
+                        assertTrue("Other enricher didn't run at the same time", latch.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        }
+        new EnricherScheduler<ProjectContext>(2, log).run(enrichers, new KubernetesListBuilder().withItems(createItems()),
+                                                            (enricher, builder) -> enricher.enrich(null, null, builder));
+        assertEquals(0, latch.getCount());
+    }
+
+    @Test
+    public void undeclaredWrite() {
+        List<Enricher<ProjectContext>> enrichers = Arrays.<Enricher<ProjectContext>>asList(
+            new TestEnricher("services", kinds("Service", "Pod"), kinds("Service")) {
+                @Override
+                public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+                    builder.addToItems(new PodBuilder().withNewMetadata().withName("new").endMetadata().build());
+                }
+            },
+            new TestEnricher("configmaps", kinds("ConfigMap"), kinds("ConfigMap")));
+        try {
+            new EnricherScheduler<ProjectContext>(2, log).run(enrichers, new KubernetesListBuilder().withItems(createItems()),
+                                                                (enricher, builder) -> enricher.create(null, null, builder));
+            fail();
+        } catch (IllegalStateException exp) {
+            assertTrue(exp.getMessage().contains("services"));
+        }
+    }
+
+    @Test
+    public void convert() {
+        List<Enricher<ProjectContext>> enrichers = Arrays.<Enricher<ProjectContext>>asList(
+            new TestEnricher("services", kinds("Service"), kinds()),
+            new TestEnricher("configmaps", kinds("ConfigMap"), kinds()),
+            new TestEnricher("undeclared", null, null));
+        List<HasMetadata> converted = new EnricherScheduler<ProjectContext>(4, log).convert(
+            enrichers, createItems(), (enricher, items) -> enricher.convert(null, null, items));
+        assertEquals("[Service/svc1, Service/svc2, ConfigMap/cm1, ConfigMap/cm2]", itemNames(converted));
+    }
+
+    // ==========================================================================================
+
+    private void run(EnricherScheduler<ProjectContext> scheduler, List<Enricher<ProjectContext>> enrichers, KubernetesListBuilder builder) {
+        scheduler.run(enrichers, builder, (enricher, b) -> enricher.create(null, null, b));
+        scheduler.run(enrichers, builder, (enricher, b) -> enricher.enrich(null, null, b));
+    }
+
+    private List<HasMetadata> createItems() {
+        return Arrays.asList(
+            new ConfigMapBuilder().withNewMetadata().withName("cm1").endMetadata().build(),
+            new ServiceBuilder().withNewMetadata().withName("svc1").endMetadata().build(),
+            new ConfigMapBuilder().withNewMetadata().withName("drop").endMetadata().build(),
+            new PodBuilder().withNewMetadata().withName("pod1").endMetadata().build(),
+            new ServiceBuilder().withNewMetadata().withName("svc2").endMetadata().build(),
+            new ConfigMapBuilder().withNewMetadata().withName("cm2").endMetadata().build());
+    }
+
+    private List<Enricher<ProjectContext>> createEnrichers() {
+        List<Enricher<ProjectContext>> ret = new ArrayList<>();
+        ret.add(new TestEnricher("services", kinds("Service"), kinds("Service")) {
+            @Override
+            public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+                builder.addToItems(new ServiceBuilder().withNewMetadata().withName("extra").endMetadata().build());
+            }
+        });
+        ret.add(new TestEnricher("configmaps", kinds("ConfigMap"), kinds("ConfigMap")) {
+            @Override
+            public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+                List<HasMetadata> kept = new ArrayList<>();
+                for (HasMetadata item : builder.buildItems()) {
+                    if (!"drop".equals(item.getMetadata().getName())) {
+                        kept.add(item);
+                    }
+                }
+                builder.withItems(kept);
+            }
+        });
+        // Reads services written by the first enricher
+        ret.add(new TestEnricher("pods", kinds("Service", "Pod"), kinds("Pod")) {
+            @Override
+            public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+                List<HasMetadata> items = builder.buildItems();
+                int services = 0;
+                for (HasMetadata item : items) {
+                    services += "Service".equals(item.getKind()) && item.getMetadata().getLabels() != null ? 1 : 0;
+                }
+                for (HasMetadata item : items) {
+                    if ("Pod".equals(item.getKind())) {
+                        item.getMetadata().setLabels(new HashMap<>());
+                        item.getMetadata().getLabels().put("services", Integer.toString(services));
+                    }
+                }
+                builder.withItems(items);
+            }
+        });
+        ret.add(new TestEnricher("undeclared", null, null));
+        ret.add(new TestEnricher("pods2", kinds("Pod"), kinds("Pod")));
+        ret.add(new TestEnricher("services2", kinds("ConfigMap"), kinds()));
+        return ret;
+    }
+
+    private Set<String> kinds(String ... kinds) {
+        return new HashSet<>(Arrays.asList(kinds));
+    }
+
+    private String groupNames(List<List<Enricher<ProjectContext>>> groups) {
+        List<List<String>> ret = new ArrayList<>();
+        for (List<Enricher<ProjectContext>> group : groups) {
+            List<String> names = new ArrayList<>();
+            for (Enricher<ProjectContext> enricher : group) {
+                names.add(enricher.getName());
+            }
+            ret.add(names);
+        }
+        return ret.toString();
+    }
+
+    private String itemNames(List<HasMetadata> items) {
+        List<String> ret = new ArrayList<>();
+        for (HasMetadata item : items) {
+            ret.add(item.getKind() + "/" + item.getMetadata().getName());
+        }
+        return ret.toString();
+    }
+
+    // Labels the objects of the kinds it writes with its name, converts objects of the kinds it reads
+    private static class TestEnricher implements Enricher<ProjectContext> {
+
+        private final String name;
+        private final Set<String> readKinds;
+        private final Set<String> writeKinds;
+
+        TestEnricher(String name, Set<String> readKinds, Set<String> writeKinds) {
+            this.name = name;
+            this.readKinds = readKinds;
+            this.writeKinds = writeKinds;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Set<String> getReadKinds() {
+            return readKinds;
+        }
+
+        @Override
+        public Set<String> getWriteKinds() {
+            return writeKinds;
+        }
+
+        @Override
+        public List<HasMetadata> convert(Platform platform, EnricherContext<ProjectContext> context, List<HasMetadata> items) {
+            List<HasMetadata> ret = new ArrayList<>();
+            for (HasMetadata item : items) {
+                if (readKinds != null && readKinds.contains(item.getKind()) && !"drop".equals(item.getMetadata().getName())) {
+                    ret.add(item);
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+            if (writeKinds == null || writeKinds.isEmpty()) {
+                return;
+            }
+            List<HasMetadata> items = builder.buildItems();
+            for (HasMetadata item : items) {
+                if (writeKinds.contains(item.getKind())) {
+                    if (item.getMetadata().getLabels() == null) {
+                        item.getMetadata().setLabels(new HashMap<>());
+                    }
+                    item.getMetadata().getLabels().put("enriched", name);
+                }
+            }
+            builder.withItems(items);
+        }
+    }
+}
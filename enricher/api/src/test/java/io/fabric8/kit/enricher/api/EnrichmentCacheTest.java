@@ -0,0 +1,188 @@
+package io.fabric8.kit.enricher.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EnrichmentCacheTest {
+
+    private final LabelEnricher label = new LabelEnricher();
+    private final CountEnricher count = new CountEnricher();
+
+    @Test
+    public void rerunOnlyChanged() {
+        EnricherPlan<ProjectContext> plan = createPlan("blue");
+        EnrichmentCache cache = new EnrichmentCache();
+
+        List<HasMetadata> result = cache.enrich(Platform.KUBERNETES, plan, items("a", "b"));
+        assertEquals(sequential(plan, items("a", "b")), result);
+        assertEquals("blue", result.get(0).getMetadata().getLabels().get("color"));
+        assertEquals("2", result.get(1).getMetadata().getAnnotations().get("count"));
+        assertCalls(cache, 0, 5, 2, 1);
+
+        // Nothing changed, create and enrich calls for both enrichers are reused
+        assertEquals(result, cache.enrich(Platform.KUBERNETES, plan, items("a", "b")));
+        assertCalls(cache, 5, 0, 2, 1);
+
+        // One object changed, the label enricher only enriches this object
+        assertEquals(sequential(plan, items("a", "c")), cache.enrich(Platform.KUBERNETES, plan, items("a", "c")));
+        assertCalls(cache, 1, 4, 3, 2);
+
+        // Changed configuration
+        plan = createPlan("red");
+        assertEquals(sequential(plan, items("a", "c")), cache.enrich(Platform.KUBERNETES, plan, items("a", "c")));
+        assertCalls(cache, 1, 4, 5, 3);
+    }
+
+    @Test
+    public void createOnceForAllObjects() {
+        CreatingEnricher creator = new CreatingEnricher();
+        EnrichersConfig<ProjectContext> enrichersConfig =
+            new EnrichersConfig<>(Arrays.asList("creator", "label"), null, new HashMap<>());
+        EnricherPlan<ProjectContext> plan =
+            EnricherPlan.create(null, enrichersConfig, Arrays.<Enricher<ProjectContext>>asList(creator, label));
+        EnrichmentCache cache = new EnrichmentCache();
+
+        for (int i = 0; i < 2; i++) {
+            List<HasMetadata> result = cache.enrich(Platform.KUBERNETES, plan, items("a", "b", "c"));
+            assertEquals(4, result.size());
+            int created = 0;
+            for (HasMetadata item : result) {
+                created += "created".equals(item.getMetadata().getName()) ? 1 : 0;
+            }
+            assertEquals(1, created);
+        }
+        assertEquals(1, creator.calls);
+    }
+
+    @Test
+    public void returnsCopies() {
+        EnricherPlan<ProjectContext> plan = createPlan("blue");
+        EnrichmentCache cache = new EnrichmentCache();
+
+        List<HasMetadata> result = cache.enrich(Platform.KUBERNETES, plan, items("a", "b"));
+        result.get(0).getMetadata().setName("changed");
+        result = cache.enrich(Platform.KUBERNETES, plan, items("a", "b"));
+        assertEquals(5, cache.getReusedCount());
+        assertEquals("a", result.get(0).getMetadata().getName());
+    }
+
+    private void assertCalls(EnrichmentCache cache, int reused, int recomputed, int labelCalls, int countCalls) {
+        assertEquals(reused, cache.getReusedCount());
+        assertEquals(recomputed, cache.getRecomputedCount());
+        assertEquals(labelCalls, label.calls);
+        assertEquals(countCalls, count.calls);
+    }
+
+    private EnricherPlan<ProjectContext> createPlan(String color) {
+        Map<String, TreeMap<String, String>> config = new HashMap<>();
+        config.put("label", new TreeMap<>(Collections.singletonMap("color", color)));
+        EnrichersConfig<ProjectContext> enrichersConfig = new EnrichersConfig<>(Arrays.asList("label", "count"), null, config);
+        return EnricherPlan.create(null, enrichersConfig, Arrays.<Enricher<ProjectContext>>asList(label, count));
+    }
+
+    // Plain sequential run for comparison, which doesn't count as enricher call
+    private List<HasMetadata> sequential(EnricherPlan<ProjectContext> plan, List<HasMetadata> items) {
+        int labelCalls = label.calls;
+        int countCalls = count.calls;
+        KubernetesListBuilder builder = new KubernetesListBuilder().withItems(items);
+        for (Enricher<ProjectContext> enricher : plan.getActiveEnrichers()) {
+            enricher.enrich(Platform.KUBERNETES, plan.getContext(enricher), builder);
+        }
+        label.calls = labelCalls;
+        count.calls = countCalls;
+        return builder.buildItems();
+    }
+
+    private List<HasMetadata> items(String ... names) {
+        HasMetadata[] ret = new HasMetadata[names.length];
+        for (int i = 0; i < names.length; i++) {
+            ret[i] = new ConfigMapBuilder().withNewMetadata().withName(names[i]).endMetadata().build();
+        }
+        return Arrays.asList(ret);
+    }
+
+    private static abstract class TestEnricher implements Enricher<ProjectContext> {
+        int calls;
+
+        @Override
+        public List<HasMetadata> convert(Platform platform, EnricherContext<ProjectContext> context, List<HasMetadata> items) {
+            return null;
+        }
+
+        @Override
+        public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+            calls++;
+            List<HasMetadata> items = builder.buildItems();
+            for (HasMetadata item : items) {
+                enrich(context, item, items.size());
+            }
+            builder.withItems(items);
+        }
+
+        abstract void enrich(EnricherContext<ProjectContext> context, HasMetadata item, int total);
+    }
+
+    // Adds a label from its configuration to each object
+    private static class LabelEnricher extends TestEnricher {
+        @Override
+        public String getName() {
+            return "label";
+        }
+
+        @Override
+        public boolean hasGlobalDependencies() {
+            return false;
+        }
+
+        @Override
+        void enrich(EnricherContext<ProjectContext> context, HasMetadata item, int total) {
+            item.getMetadata().setLabels(Collections.singletonMap("color", context.getConfig().get("color")));
+        }
+    }
+
+    // Adds an object when creating, independent of the other objects
+    private static class CreatingEnricher extends LabelEnricher {
+        @Override
+        public String getName() {
+            return "creator";
+        }
+
+        @Override
+        public void create(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+            calls++;
+            builder.addToItems(new ConfigMapBuilder().withNewMetadata().withName("created").endMetadata().build());
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<ProjectContext> context, KubernetesListBuilder builder) {
+        }
+    }
+
+    // Annotates each object with the total number of objects
+    private static class CountEnricher extends TestEnricher {
+        @Override
+        public String getName() {
+            return "count";
+        }
+
+        @Override
+        void enrich(EnricherContext<ProjectContext> context, HasMetadata item, int total) {
+            item.getMetadata().setAnnotations(Collections.singletonMap("count", Integer.toString(total)));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.fabric8.kit.enricher.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResourceSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void singleYamlFile() throws IOException {
+        File target = new File(folder.getRoot(), "out/kubernetes.yml");
+        try (ResourceSink sink = new ResourceSink.Builder().target(target).build()) {
+            for (HasMetadata item : createItems()) {
+                sink.write(item);
+            }
+            assertEquals(3, sink.getCount());
+        }
+        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        JsonNode list = mapper.readTree(target);
+        assertEquals("List", list.get("kind").asText());
+        List<HasMetadata> expected = createItems();
+        assertEquals(expected.size(), list.get("items").size());
+        // KubernetesList reorders its items by kind, so these are compared one by one
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), mapper.treeToValue(list.get("items").get(i), HasMetadata.class));
+        }
+    }
+
+    @Test
+    public void emptySingleFile() throws IOException {
+        File target = folder.newFile("kubernetes.json");
+        new ResourceSink.Builder().target(target).format(ResourceSink.Format.JSON).build().close();
+        assertTrue(new ObjectMapper().readValue(target, KubernetesList.class).getItems().isEmpty());
+    }
+
+    @Test
+    public void filePerKind() throws IOException {
+        File dir = folder.newFolder("kinds");
+        try (ResourceSink sink = new ResourceSink.Builder().target(dir)
+                                                           .format(ResourceSink.Format.JSON)
+                                                           .layout(ResourceSink.Layout.PER_KIND)
+                                                           .bufferSize(16)
+                                                           .build()) {
+            for (HasMetadata item : createItems()) {
+                sink.write(item);
+            }
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(2, mapper.readValue(new File(dir, "configmap.json"), KubernetesList.class).getItems().size());
+        assertEquals(createItems().get(1), mapper.readValue(new File(dir, "service.json"), KubernetesList.class).getItems().get(0));
+    }
+
+    @Test
+    public void filePerItem() throws IOException {
+        File dir = folder.newFolder("items");
+        try (ResourceSink sink = new ResourceSink.Builder().target(dir).layout(ResourceSink.Layout.PER_ITEM).build()) {
+            for (HasMetadata item : createItems()) {
+                sink.write(item);
+            }
+        }
+        assertEquals(3, dir.list().length);
+        HasMetadata service = new ObjectMapper(new YAMLFactory()).readValue(new File(dir, "web-service.yml"), HasMetadata.class);
+        assertEquals(createItems().get(1), service);
+    }
+
+    @Test
+    public void filePerItemWithNamespace() throws IOException {
+        File dir = folder.newFolder("items");
+        try (ResourceSink sink = new ResourceSink.Builder().target(dir).layout(ResourceSink.Layout.PER_ITEM).build()) {
+            sink.write(new ConfigMapBuilder().withNewMetadata().withName("config").endMetadata().build());
+            sink.write(new ConfigMapBuilder().withNewMetadata().withName("config").withNamespace("test").endMetadata().build());
+            try {
+                sink.write(new ConfigMapBuilder().withNewMetadata().withName("Config").endMetadata().build());
+                fail();
+            } catch (IllegalArgumentException exp) {
+                assertTrue(exp.getMessage().contains("already been written"));
+            }
+            try {
+                sink.write(new ConfigMapBuilder().withNewMetadata().endMetadata().build());
+                fail();
+            } catch (IllegalArgumentException exp) {
+                assertTrue(exp.getMessage().contains("without a name"));
+            }
+            assertEquals(2, sink.getCount());
+        }
+        assertTrue(new File(dir, "config-configmap.yml").isFile());
+        assertTrue(new File(dir, "test/config-configmap.yml").isFile());
+    }
+
+    private List<HasMetadata> createItems() {
+        return Arrays.asList(
+            new ConfigMapBuilder().withNewMetadata().withName("config").endMetadata().addToData("key", "true").build(),
+            new ServiceBuilder().withNewMetadata().withName("web").addToLabels("app", "web").endMetadata().build(),
+            new ConfigMapBuilder().withNewMetadata().withName("other").endMetadata().build());
+    }
+}
@@ -1,19 +1,31 @@
 package io.fabric8.kit.enricher.maven;
 
 import java.io.File;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import io.fabric8.kit.common.KitLogger;
 import io.fabric8.kit.enricher.api.EnricherManager;
+import org.apache.maven.project.MavenProject;
 
 
 /**
+ * Enricher manager using the compile class path of the project. The project class loader is leased from the
+ * {@link ProjectClassLoaderCache}, so a manager should be closed after use, e.g. with try-with-resources.
+ * The lease of a manager which gets garbage collected without being closed is released when the next
+ * manager is created.
+ *
  * @author roland
  * @since 30.05.17
  */
-public class MavenEnricherManager extends EnricherManager<MavenProjectContext> {
+public class MavenEnricherManager extends EnricherManager<MavenProjectContext> implements AutoCloseable {
 
     private static final String[] ENRICHER_RESOURCES = new String[] {
         "META-INF/fabric8-enricher-default",
@@ -22,25 +34,85 @@ public class MavenEnricherManager extends EnricherManager<MavenProjectContext> {
         "META-INF/fabric8/enricher"
     };
 
+    /**
+     * Project property which enables persisting the discovered enrichers to
+     * <code>target/fabric8/enricher-index</code>, so that later builds don't need to scan the classpath
+     */
+    public static final String INDEX_PROPERTY = "fabric8.enricher.index";
+
+    // Leases of managers which have been garbage collected without being closed
+    private static final ReferenceQueue<MavenEnricherManager> abandoned = new ReferenceQueue<>();
+    private static final Set<LeaseReference> leaseReferences = Collections.synchronizedSet(new HashSet<>());
+
+    private final ProjectClassLoaderCache.Lease classLoaderLease;
+    private final LeaseReference leaseReference;
+    private final KitLogger log;
+
     public MavenEnricherManager(MavenProjectContext projectContext, MavenEnrichersConfig enrichersConfig) {
-        super(projectContext, enrichersConfig, ENRICHER_RESOURCES, createProjectClassLoader(projectContext));
+        this(projectContext, enrichersConfig, acquireProjectClassLoader(projectContext));
+    }
+
+    private MavenEnricherManager(MavenProjectContext projectContext, MavenEnrichersConfig enrichersConfig,
+                                 ProjectClassLoaderCache.Lease classLoaderLease) {
+        super(projectContext, enrichersConfig, ENRICHER_RESOURCES, getIndexFile(projectContext),
+              classLoaderLease != null ? new ClassLoader[] { classLoaderLease.getClassLoader() } : new ClassLoader[0]);
+        this.classLoaderLease = classLoaderLease;
+        this.leaseReference = classLoaderLease != null ? new LeaseReference(this, classLoaderLease) : null;
+        this.log = projectContext.getLogger();
     }
 
-    private static ClassLoader[] createProjectClassLoader(MavenProjectContext projectContext) {
+    /**
+     * Release the project class loader. The enrichers must not be used anymore afterwards.
+     */
+    @Override
+    public void close() {
+        if (classLoaderLease != null) {
+            leaseReferences.remove(leaseReference);
+            classLoaderLease.close();
+            log.debug("Project class loaders: %s", ProjectClassLoaderCache.getInstance().getStats());
+        }
+    }
+
+    private static File getIndexFile(MavenProjectContext projectContext) {
+        MavenProject project = projectContext.getProject();
+        if (project == null || !Boolean.parseBoolean(projectContext.getProperties().getProperty(INDEX_PROPERTY))) {
+            return null;
+        }
+        return new File(project.getBuild().getDirectory(), "fabric8/enricher-index");
+    }
+
+    private static ProjectClassLoaderCache.Lease acquireProjectClassLoader(MavenProjectContext projectContext) {
+        releaseAbandonedLeases();
         try {
             List<URL> compileJars = new ArrayList<>();
 
             for (String element : projectContext.getProject().getCompileClasspathElements()) {
                 compileJars.add(new File(element).toURI().toURL());
             }
-            return new ClassLoader[]{
-                new URLClassLoader(compileJars.toArray(new URL[compileJars.size()]),
-                                   MavenEnricherManager.class.getClassLoader())
-            };
+            return ProjectClassLoaderCache.getInstance().acquire(compileJars, MavenEnricherManager.class.getClassLoader());
 
         } catch (Exception e) {
             projectContext.getLogger().warn("Instructed to use project classpath, but cannot. Continuing build if we can: ", e);
-            return new ClassLoader[0];
+            return null;
+        }
+    }
+
+    private static void releaseAbandonedLeases() {
+        Reference<? extends MavenEnricherManager> ref;
+        while ((ref = abandoned.poll()) != null) {
+            if (leaseReferences.remove(ref)) {
+                ((LeaseReference) ref).lease.close();
+            }
+        }
+    }
+
+    private static final class LeaseReference extends PhantomReference<MavenEnricherManager> {
+        private final ProjectClassLoaderCache.Lease lease;
+
+        private LeaseReference(MavenEnricherManager manager, ProjectClassLoaderCache.Lease lease) {
+            super(manager, abandoned);
+            this.lease = lease;
+            leaseReferences.add(this);
         }
     }
-}
\ No newline at end of file
+}
@@ -15,6 +15,7 @@ public class MavenProjectContext extends ProjectContext {
 
     public MavenProjectContext(MavenProject project, ResourceConfig resourceConfig, KitLogger logger) {
         super(project.getProperties(), resourceConfig, logger);
+        this.project = project;
     }
 
     public MavenProject getProject() {
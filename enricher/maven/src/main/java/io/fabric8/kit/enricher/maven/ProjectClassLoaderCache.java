@@ -0,0 +1,337 @@
+package io.fabric8.kit.enricher.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.fabric8.kit.enricher.api.ClassPathFingerprint;
+
+/**
+ * Cache for the class loaders of project class paths. The jar files of a project class path go into shared
+ * loaders, and the remaining entries like the module's output directories into a thin child loader for the
+ * module. The shared jars are layered: a base loader holds the jars which the class path has in common with
+ * the class path of another module, and a child of it the module specific jars. So modules whose dependencies
+ * only overlap still share the loader for the common ones. As the common jars are looked up first, a class contained in
+ * both a common and a module specific jar is always loaded from the common one.
+ *
+ * Only the shared loaders are cached, keyed by the fingerprint of their jar files and the identity of their
+ * parent. Module loaders are created for each lease and closed with it, since the fingerprint of a directory
+ * doesn't reflect changes of the classes within it.
+ *
+ * Shared loaders are reference counted. A loader which is no longer used is kept open for reuse, but only up to
+ * a maximum number of idle loaders. Beyond that, the least recently released loaders are closed.
+ *
+ * @since 19.10.26
+ */
+public class ProjectClassLoaderCache {
+
+    private static final int DEFAULT_MAX_IDLE = 8;
+
+    private static final ProjectClassLoaderCache INSTANCE = new ProjectClassLoaderCache(DEFAULT_MAX_IDLE);
+
+    private final int maxIdle;
+
+    // Open shared loaders by their parent and the fingerprint of their class path
+    private final Map<ClassLoader, Map<String, CachedLoader>> loaders = new IdentityHashMap<>();
+
+    // Open module loaders, which are not reused
+    private final Set<CachedLoader> moduleLoaders = new HashSet<>();
+
+    // Open loaders without references, least recently released first
+    private final Set<CachedLoader> idle = new LinkedHashSet<>();
+
+    // Classes loaded by already closed loaders
+    private long closedLoadedClasses;
+
+    ProjectClassLoaderCache(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @return cache shared within this JVM
+     */
+    public static ProjectClassLoaderCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a class loader for the given class path. The lease must be closed when the loader is
+     * not needed anymore.
+     *
+     * @param classPath class path entries
+     * @param parent parent loader for the shared layer
+     * @return lease for the loader
+     */
+    public synchronized Lease acquire(List<URL> classPath, ClassLoader parent) {
+        List<URL> shared = new ArrayList<>();
+        List<URL> module = new ArrayList<>();
+        for (URL url : classPath) {
+            (isJarFile(url) ? shared : module).add(url);
+        }
+        CachedLoader sharedLoader = acquireLayered(shared, parent);
+        if (module.isEmpty()) {
+            return new Lease(sharedLoader);
+        }
+        // The module loader takes over the reference on the shared loader as long as it is open
+        CachedLoader moduleLoader =
+            new CachedLoader(null, new CountingClassLoader(module.toArray(new URL[module.size()]), sharedLoader.loader), sharedLoader);
+        moduleLoader.references++;
+        moduleLoaders.add(moduleLoader);
+        return new Lease(moduleLoader);
+    }
+
+    /**
+     * Close all loaders which are currently not in use
+     */
+    public synchronized void closeIdle() {
+        while (!idle.isEmpty()) {
+            closeEldestIdle();
+        }
+    }
+
+    /**
+     * @return statistics about the loaders of this cache
+     */
+    public synchronized Stats getStats() {
+        List<CachedLoader> open = new ArrayList<>(moduleLoaders);
+        for (Map<String, CachedLoader> byFingerprint : loaders.values()) {
+            open.addAll(byFingerprint.values());
+        }
+        int openJars = 0;
+        long loadedClasses = closedLoadedClasses;
+        for (CachedLoader loader : open) {
+            for (URL url : loader.loader.getURLs()) {
+                openJars += isJarFile(url) ? 1 : 0;
+            }
+            loadedClasses += loader.loader.loadedClasses.get();
+        }
+        return new Stats(open.size(), idle.size(), openJars, loadedClasses);
+    }
+
+    // ==========================================================================================
+
+    // Base loader for the jars in common with the base loader having the largest overlap, and a child
+    // loader for the remaining jars if there are any
+    private CachedLoader acquireLayered(List<URL> jars, ClassLoader parent) {
+        List<URL> common = getCommonJars(jars, parent);
+        CachedLoader base = acquireShared(common, parent, null);
+        if (common.size() == jars.size()) {
+            return base;
+        }
+        List<URL> specific = new ArrayList<>(jars);
+        specific.removeAll(common);
+        // A new child loader holds its own reference on the base loader as long as it is open
+        CachedLoader ret = acquireShared(specific, base.loader, base);
+        release(base);
+        return ret;
+    }
+
+    // Jars of the given list which are also in the open base loader with the largest overlap, all jars if
+    // there is no overlap at all
+    private List<URL> getCommonJars(List<URL> jars, ClassLoader parent) {
+        List<URL> ret = jars;
+        int maxOverlap = 0;
+        for (CachedLoader base : loaders.getOrDefault(parent, Collections.emptyMap()).values()) {
+            List<URL> overlap = new ArrayList<>();
+            for (URL jar : jars) {
+                if (base.jars.contains(jar.toExternalForm())) {
+                    overlap.add(jar);
+                }
+            }
+            // Prefer reusing a loader as it is over creating a new one for a subset of its jars
+            boolean reusable = overlap.size() == base.jars.size();
+            if (overlap.size() > maxOverlap || (overlap.size() == maxOverlap && maxOverlap > 0 && reusable)) {
+                ret = overlap;
+                maxOverlap = overlap.size();
+            }
+        }
+        return ret;
+    }
+
+    private CachedLoader acquireShared(List<URL> urls, ClassLoader parent, CachedLoader parentEntry) {
+        String key = ClassPathFingerprint.forUrls(urls);
+        Map<String, CachedLoader> byFingerprint = loaders.computeIfAbsent(parent, p -> new HashMap<>());
+        CachedLoader ret = byFingerprint.get(key);
+        if (ret == null) {
+            ret = new CachedLoader(key, new CountingClassLoader(urls.toArray(new URL[urls.size()]), parent), parentEntry);
+            if (parentEntry != null) {
+                parentEntry.references++;
+            }
+            byFingerprint.put(key, ret);
+        }
+        if (ret.references++ == 0) {
+            idle.remove(ret);
+        }
+        return ret;
+    }
+
+    private void release(CachedLoader loader) {
+        if (--loader.references == 0) {
+            if (loader.key == null) {
+                moduleLoaders.remove(loader);
+                close(loader);
+                return;
+            }
+            idle.add(loader);
+            while (idle.size() > maxIdle) {
+                closeEldestIdle();
+            }
+        }
+    }
+
+    private void closeEldestIdle() {
+        Iterator<CachedLoader> it = idle.iterator();
+        CachedLoader loader = it.next();
+        it.remove();
+        ClassLoader parent = loader.loader.getParent();
+        Map<String, CachedLoader> byFingerprint = loaders.get(parent);
+        byFingerprint.remove(loader.key);
+        if (byFingerprint.isEmpty()) {
+            loaders.remove(parent);
+        }
+        close(loader);
+    }
+
+    private void close(CachedLoader loader) {
+        closedLoadedClasses += loader.loader.loadedClasses.get();
+        try {
+            loader.loader.close();
+        } catch (IOException e) {
+            // Nothing we could do about it, the loader isn't used anymore anyway
+        }
+        if (loader.parent != null) {
+            release(loader.parent);
+        }
+    }
+
+    private static boolean isJarFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return false;
+        }
+        try {
+            return new File(url.toURI()).isFile();
+        } catch (URISyntaxException | IllegalArgumentException exp) {
+            return new File(url.getPath()).isFile();
+        }
+    }
+
+    /**
+     * Use of a cached class loader
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final CachedLoader loader;
+        private boolean closed;
+
+        private Lease(CachedLoader loader) {
+            this.loader = loader;
+        }
+
+        public ClassLoader getClassLoader() {
+            return loader.loader;
+        }
+
+        /**
+         * Release the loader. Closing a lease more than once has no effect.
+         */
+        @Override
+        public void close() {
+            synchronized (ProjectClassLoaderCache.this) {
+                if (!closed) {
+                    closed = true;
+                    release(loader);
+                }
+            }
+        }
+    }
+
+    /**
+     * Statistics about the cached loaders
+     */
+    public static final class Stats {
+
+        private final int openLoaders;
+        private final int idleLoaders;
+        private final int openJars;
+        private final long loadedClasses;
+
+        Stats(int openLoaders, int idleLoaders, int openJars, long loadedClasses) {
+            this.openLoaders = openLoaders;
+            this.idleLoaders = idleLoaders;
+            this.openJars = openJars;
+            this.loadedClasses = loadedClasses;
+        }
+
+        public int getOpenLoaders() {
+            return openLoaders;
+        }
+
+        public int getIdleLoaders() {
+            return idleLoaders;
+        }
+
+        public int getOpenJars() {
+            return openJars;
+        }
+
+        /**
+         * @return number of classes defined by the cached loaders, including the ones already closed
+         */
+        public long getLoadedClasses() {
+            return loadedClasses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d class loaders (%d idle), %d open jars, %d loaded classes",
+                                 openLoaders, idleLoaders, openJars, loadedClasses);
+        }
+    }
+
+    private static final class CachedLoader {
+        // Fingerprint of the class path for shared loaders, null for module loaders
+        private final String key;
+        private final CountingClassLoader loader;
+        private final CachedLoader parent;
+        private final Set<String> jars = new HashSet<>();
+        private int references;
+
+        private CachedLoader(String key, CountingClassLoader loader, CachedLoader parent) {
+            this.key = key;
+            this.loader = loader;
+            this.parent = parent;
+            for (URL url : loader.getURLs()) {
+                jars.add(url.toExternalForm());
+            }
+        }
+    }
+
+    private static final class CountingClassLoader extends URLClassLoader {
+
+        private final AtomicInteger loadedClasses = new AtomicInteger();
+
+        private CountingClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            Class<?> ret = super.findClass(name);
+            loadedClasses.incrementAndGet();
+            return ret;
+        }
+    }
+}
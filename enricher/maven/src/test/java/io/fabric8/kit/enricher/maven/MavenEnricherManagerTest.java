@@ -0,0 +1,84 @@
+package io.fabric8.kit.enricher.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import io.fabric8.kit.common.KitLogger;
+import io.fabric8.kit.enricher.api.Enricher;
+import io.fabric8.kit.enricher.api.EnricherContext;
+import io.fabric8.kit.enricher.api.Platform;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MavenEnricherManagerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void discoverOncePerClassPath() throws IOException {
+        MavenProject project = createProject();
+        File index = new File(project.getBuild().getDirectory(), "fabric8/enricher-index");
+
+        try (MavenEnricherManager manager = createManager(project)) {
+            assertTrue(index.isFile());
+        }
+        // A new manager gets a new project class loader, but the discovery is reused for the same class path
+        assertTrue(index.delete());
+        try (MavenEnricherManager manager = createManager(project)) {
+            assertFalse(index.exists());
+        }
+    }
+
+    private MavenEnricherManager createManager(MavenProject project) {
+        MavenProjectContext context = new MavenProjectContext(project, null, new KitLogger.StdoutLogger(false));
+        return new MavenEnricherManager(context, new MavenEnrichersConfig());
+    }
+
+    private MavenProject createProject() throws IOException {
+        File classes = folder.newFolder("target", "classes");
+        File descriptor = new File(classes, "META-INF/fabric8/enricher");
+        assertTrue(descriptor.getParentFile().mkdirs());
+        Files.write(descriptor.toPath(), Collections.singletonList(TestEnricher.class.getName()), StandardCharsets.UTF_8);
+
+        MavenProject project = new MavenProject();
+        Build build = new Build();
+        build.setDirectory(new File(folder.getRoot(), "target").getAbsolutePath());
+        build.setOutputDirectory(classes.getAbsolutePath());
+        project.setBuild(build);
+        project.getProperties().setProperty(MavenEnricherManager.INDEX_PROPERTY, "true");
+        return project;
+    }
+
+    public static class TestEnricher implements Enricher<MavenProjectContext> {
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public List<HasMetadata> convert(Platform platform, EnricherContext<MavenProjectContext> context, List<HasMetadata> items) {
+            return null;
+        }
+
+        @Override
+        public void create(Platform platform, EnricherContext<MavenProjectContext> context, KubernetesListBuilder builder) {
+        }
+
+        @Override
+        public void enrich(Platform platform, EnricherContext<MavenProjectContext> context, KubernetesListBuilder builder) {
+        }
+    }
+}
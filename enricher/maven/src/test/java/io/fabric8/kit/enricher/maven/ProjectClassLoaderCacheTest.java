@@ -0,0 +1,155 @@
+package io.fabric8.kit.enricher.maven;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ProjectClassLoaderCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void layeredAndShared() throws IOException {
+        ProjectClassLoaderCache cache = new ProjectClassLoaderCache(2);
+        File dep1 = createJar("dep1.jar");
+        File dep2 = createJar("dep2.jar");
+        ClassLoader parent = getClass().getClassLoader();
+
+        ProjectClassLoaderCache.Lease module1 = cache.acquire(classPath(folder.newFolder("module1"), dep1, dep2), parent);
+        ProjectClassLoaderCache.Lease module2 = cache.acquire(classPath(folder.newFolder("module2"), dep1, dep2), parent);
+        assertNotSame(module1.getClassLoader(), module2.getClassLoader());
+        assertSame(module1.getClassLoader().getParent(), module2.getClassLoader().getParent());
+        assertSame(parent, module1.getClassLoader().getParent().getParent());
+        assertStats(cache, 3, 0, 2);
+
+        // Module loaders are never reused, as their directories might have changed
+        ProjectClassLoaderCache.Lease module1Again = cache.acquire(classPath(new File(folder.getRoot(), "module1"), dep1, dep2), parent);
+        assertNotSame(module1.getClassLoader(), module1Again.getClassLoader());
+        assertSame(module1.getClassLoader().getParent(), module1Again.getClassLoader().getParent());
+        assertStats(cache, 4, 0, 2);
+
+        module1.close();
+        module1.close();
+        assertStats(cache, 3, 0, 2);
+        module1Again.close();
+        module2.close();
+        assertStats(cache, 1, 1, 2);
+
+        cache.closeIdle();
+        assertStats(cache, 0, 0, 0);
+    }
+
+    @Test
+    public void overlappingDependencies() throws IOException {
+        ProjectClassLoaderCache cache = new ProjectClassLoaderCache(4);
+        File dep1 = createJar("dep1.jar");
+        File dep2 = createJar("dep2.jar");
+        File dep3 = createJar("dep3.jar");
+        File dep4 = createJar("dep4.jar");
+        ClassLoader parent = getClass().getClassLoader();
+
+        ProjectClassLoaderCache.Lease module1 = cache.acquire(classPath(dep1, dep2), parent);
+        // A superset gets a child with the additional jar only
+        ProjectClassLoaderCache.Lease module2 = cache.acquire(classPath(dep1, dep2, dep3), parent);
+        assertSame(module1.getClassLoader(), module2.getClassLoader().getParent());
+        assertStats(cache, 2, 0, 3);
+
+        // A partial overlap gets a new base loader for the common jar and a child for its own jar
+        ProjectClassLoaderCache.Lease module3 = cache.acquire(classPath(dep1, dep4), parent);
+        ClassLoader commonLoader = module3.getClassLoader().getParent();
+        assertSame(parent, commonLoader.getParent());
+        assertStats(cache, 4, 0, 5);
+
+        // which is reused by the next module with this jar
+        ProjectClassLoaderCache.Lease module4 = cache.acquire(classPath(dep1, dep3), parent);
+        assertSame(commonLoader, module4.getClassLoader().getParent());
+        assertStats(cache, 5, 0, 6);
+
+        module4.close();
+        module3.close();
+        module2.close();
+        module1.close();
+        // Base loaders stay in use by their idle children
+        assertStats(cache, 5, 3, 6);
+        cache.closeIdle();
+        assertStats(cache, 0, 0, 0);
+    }
+
+    @Test
+    public void closeLeastRecentlyUsed() throws IOException {
+        ProjectClassLoaderCache cache = new ProjectClassLoaderCache(1);
+        File dep1 = createJar("dep1.jar");
+        File dep2 = createJar("dep2.jar");
+        ClassLoader parent = getClass().getClassLoader();
+
+        ProjectClassLoaderCache.Lease first = cache.acquire(classPath(dep1), parent);
+        ProjectClassLoaderCache.Lease second = cache.acquire(classPath(dep2), parent);
+        first.close();
+        assertStats(cache, 2, 1, 2);
+
+        // The idle loader of dep1 is closed, the one of dep2 is kept
+        second.close();
+        assertStats(cache, 1, 1, 1);
+
+        ProjectClassLoaderCache.Lease secondAgain = cache.acquire(classPath(dep2), parent);
+        assertSame(second.getClassLoader(), secondAgain.getClassLoader());
+        assertStats(cache, 1, 0, 1);
+        secondAgain.close();
+        assertStats(cache, 1, 1, 1);
+    }
+
+    @Test
+    public void separateLoadersPerParent() throws IOException {
+        ProjectClassLoaderCache cache = new ProjectClassLoaderCache(2);
+        File dep = createJar("dep.jar");
+        ClassLoader parent1 = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        ClassLoader parent2 = new URLClassLoader(new URL[0], getClass().getClassLoader());
+
+        try (ProjectClassLoaderCache.Lease lease1 = cache.acquire(classPath(dep), parent1);
+             ProjectClassLoaderCache.Lease lease2 = cache.acquire(classPath(dep), parent2)) {
+            assertNotSame(lease1.getClassLoader(), lease2.getClassLoader());
+            assertSame(parent1, lease1.getClassLoader().getParent());
+            assertSame(parent2, lease2.getClassLoader().getParent());
+        }
+        assertStats(cache, 2, 2, 2);
+    }
+
+    private void assertStats(ProjectClassLoaderCache cache, int open, int idle, int jars) {
+        ProjectClassLoaderCache.Stats stats = cache.getStats();
+        assertEquals(stats.toString(), open, stats.getOpenLoaders());
+        assertEquals(stats.toString(), idle, stats.getIdleLoaders());
+        assertEquals(stats.toString(), jars, stats.getOpenJars());
+    }
+
+    private List<URL> classPath(File ... entries) throws IOException {
+        List<URL> ret = new ArrayList<>();
+        for (File entry : entries) {
+            ret.add(entry.toURI().toURL());
+        }
+        return ret;
+    }
+
+    private File createJar(String name) throws IOException {
+        File jar = folder.newFile(name);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/" + name + ".txt"));
+            out.closeEntry();
+        }
+        return jar;
+    }
+}